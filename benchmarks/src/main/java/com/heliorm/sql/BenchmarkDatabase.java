@@ -0,0 +1,125 @@
+package com.heliorm.sql;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/** An in-process H2 database used as the subject of benchmarks, and the settings shared by the benchmarks.
+ *
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    /** The seed of the generated schemas, which is the same for all benchmarks so that results can be compared */
+    static final long SEED = 20211001L;
+
+    private final String name;
+    private final JdbcConnectionPool pool;
+
+    /** Create a new empty database.
+     *
+     * @param name The name of the database, which must be unique among the open benchmark databases
+     */
+    BenchmarkDatabase(String name) {
+        this.name = name;
+        this.pool = JdbcConnectionPool.create(format("jdbc:h2:mem:%s;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", name), "sa", "");
+    }
+
+    /** Read the models of the tables of a schema from the database.
+     *
+     * @param modeller The modeller to read with
+     * @param schema The schema with the tables to read
+     * @return The table models, in the order of the schema
+     * @throws SqlModellerException Thrown if a table cannot be read
+     */
+    List<Table> readTables(SqlModeller modeller, Database schema) throws SqlModellerException {
+        Database database = getDatabase();
+        List<Table> tables = new ArrayList<>();
+        for (Table table : schema.getTables()) {
+            tables.add(modeller.readTable(database, table.getName()));
+        }
+        return tables;
+    }
+
+    /** Get a connection supplier for the database.
+     *
+     * @return The supplier
+     */
+    Supplier<Connection> supplier() {
+        return () -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(format("Cannot connect to benchmark database '%s' (%s)", name, ex.getMessage()), ex);
+            }
+        };
+    }
+
+    /** Get a model for the database, without its tables.
+     *
+     * @return The database model
+     */
+    Database getDatabase() {
+        return new SqlDatabase(name);
+    }
+
+    /** Create a modeller for a dialect that is not connected to a database, for benchmarks that only render or
+     * compare models.
+     *
+     * @param dialect The dialect, one of <code>mysql</code>, <code>postgres</code> or <code>h2</code>
+     * @return The modeller
+     */
+    static SqlModeller modeller(String dialect) {
+        Supplier<Connection> none = () -> {
+            throw new IllegalStateException(format("The %s modeller used for benchmarks is not connected", dialect));
+        };
+        switch (dialect) {
+            case "mysql":
+                return SqlModeller.mysql(none);
+            case "postgres":
+                return SqlModeller.postgres(none);
+            case "h2":
+                return SqlModeller.h2(none);
+            default:
+                throw new IllegalArgumentException(format("Unknown dialect '%s'", dialect));
+        }
+    }
+
+    /** Create a schema generator for the column types a dialect supports.
+     *
+     * @param dialect The dialect, one of <code>mysql</code>, <code>postgres</code> or <code>h2</code>
+     * @return The generator
+     */
+    static SchemaGenerator generator(String dialect) {
+        SchemaGenerator generator = new SchemaGenerator(SEED);
+        switch (dialect) {
+            case "mysql":
+                generator.setColumnTypes(Arrays.asList(IntegerColumn.class, StringColumn.class, BinaryColumn.class,
+                        DecimalColumn.class, BooleanColumn.class, BitColumn.class, TimeStampColumn.class,
+                        DateTimeColumn.class, EnumColumn.class, SetColumn.class));
+                generator.setMaxBits(8);
+                break;
+            case "postgres":
+                generator.setMaxBits(8);
+                break;
+        }
+        return generator;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try (Connection con = pool.getConnection(); Statement stmt = con.createStatement()) {
+            stmt.execute("SHUTDOWN");
+        } finally {
+            pool.dispose();
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.heliorm.sql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures rendering the DDL that creates generated tables in each dialect, to a reused buffer and to a writer
+ * that discards its output, so that only the rendering is measured.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DdlBenchmark {
+
+    private static final int TABLES = 100;
+
+    @Param({"mysql", "postgres", "h2"})
+    public String dialect;
+
+    private SqlModeller modeller;
+    private List<Table> tables;
+    private Database database;
+    private final StringBuilder buffer = new StringBuilder();
+    private final Writer discard = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws SqlModellerException {
+        database = BenchmarkDatabase.generator(dialect).generate("ddl", TABLES);
+        tables = new ArrayList<>(database.getTables());
+        modeller = BenchmarkDatabase.modeller(dialect);
+    }
+
+    @Benchmark
+    public int generateTableSchemas() throws SqlModellerException {
+        int length = 0;
+        for (Table table : tables) {
+            buffer.setLength(0);
+            modeller.generateSchema(table, buffer);
+            length += buffer.length();
+        }
+        return length;
+    }
+
+    @Benchmark
+    public void generateDatabaseSchema() throws SqlModellerException {
+        modeller.generateSchema(database, discard);
+    }
+
+}
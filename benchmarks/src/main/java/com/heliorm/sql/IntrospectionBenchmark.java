@@ -0,0 +1,65 @@
+package com.heliorm.sql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/** Measures reading table and database models from the catalog of an in-process database, as the number of
+ * generated tables in the database grows.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntrospectionBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int tables;
+
+    private BenchmarkDatabase database;
+    private SqlModeller modeller;
+    private Database model;
+    private String tableName;
+
+    @Setup(Level.Trial)
+    public void setup() throws SqlModellerException {
+        database = new BenchmarkDatabase("introspection" + tables);
+        modeller = SqlModeller.h2(database.supplier());
+        model = database.getDatabase();
+        SchemaGenerator generator = BenchmarkDatabase.generator("h2");
+        generator.createSchema(modeller, generator.generate(model.getName(), tables));
+        tableName = SchemaGenerator.tableName(tables / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        database.close();
+    }
+
+    @Benchmark
+    public Table readTable() throws SqlModellerException {
+        return modeller.readTable(model, tableName);
+    }
+
+    @Benchmark
+    public Database readDatabase() throws SqlModellerException {
+        return modeller.readDatabase(model.getName());
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.heliorm.sql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the type comparison of each dialect on all pairs of generated columns of the types the dialect
+ * supports, some of which are compatible and some not.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TypesBenchmark {
+
+    @Param({"mysql", "postgres", "h2"})
+    public String dialect;
+
+    private SqlModeller modeller;
+    private Column[] ones;
+    private Column[] others;
+
+    @Setup(Level.Trial)
+    public void setup() throws SqlModellerException {
+        SchemaGenerator generator = BenchmarkDatabase.generator(dialect);
+        generator.setColumns(40);
+        Database expected = generator.generate("types", 1);
+        Database live = generator.drift(expected, "live", 1, 10);
+        List<Column> columns = new ArrayList<>(expected.getTables().iterator().next().getColumns());
+        columns.addAll(live.getTables().iterator().next().getColumns());
+        // every column is compared to every column, so all the type combinations are dispatched
+        ones = new Column[columns.size() * columns.size()];
+        others = new Column[ones.length];
+        for (int i = 0; i < columns.size(); ++i) {
+            for (int j = 0; j < columns.size(); ++j) {
+                ones[i * columns.size() + j] = columns.get(i);
+                others[i * columns.size() + j] = columns.get(j);
+            }
+        }
+        modeller = BenchmarkDatabase.modeller(dialect);
+    }
+
+    @Benchmark
+    public void typesAreCompatible(Blackhole blackhole) {
+        for (int i = 0; i < ones.length; ++i) {
+            blackhole.consume(modeller.typesAreCompatible(ones[i], others[i]));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.heliorm.sql;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Measures the comparison of table models done by the verifier, on generated models and live tables that were
+ * read from the database beforehand, so that no database access is measured. The live tables differ from the
+ * models in the given fraction of tables, or not at all.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class VerifierBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tables;
+
+    @Param({"0.1", "1.0"})
+    public double drift;
+
+    private SqlVerifier verifier;
+    private List<Table> target;
+    private List<Table> current;
+    private List<Table> same;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException, SqlModellerException {
+        SchemaGenerator generator = BenchmarkDatabase.generator("h2");
+        Database expected = generator.generate("expected", tables);
+        Database live = generator.drift(expected, "live", drift, 3);
+        SqlModeller modeller;
+        try (BenchmarkDatabase liveDatabase = new BenchmarkDatabase("live" + tables);
+             BenchmarkDatabase sameDatabase = new BenchmarkDatabase("same" + tables)) {
+            modeller = SqlModeller.h2(liveDatabase.supplier());
+            generator.createSchema(modeller, live);
+            current = liveDatabase.readTables(modeller, expected);
+            SqlModeller sameModeller = SqlModeller.h2(sameDatabase.supplier());
+            generator.createSchema(sameModeller, expected);
+            same = sameDatabase.readTables(sameModeller, expected);
+        }
+        target = new ArrayList<>(expected.getTables());
+        verifier = SqlVerifier.forModeller(modeller);
+    }
+
+    @Benchmark
+    public void planDrifted(Blackhole blackhole) throws SqlModellerException {
+        for (int i = 0; i < tables; ++i) {
+            blackhole.consume(verifier.plan(target.get(i), current.get(i), TableStatistics.EMPTY));
+        }
+    }
+
+    @Benchmark
+    public void planUnchanged(Blackhole blackhole) throws SqlModellerException {
+        for (int i = 0; i < tables; ++i) {
+            blackhole.consume(verifier.plan(target.get(i), same.get(i), TableStatistics.EMPTY));
+        }
+    }
+
+}
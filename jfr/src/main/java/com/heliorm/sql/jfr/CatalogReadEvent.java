@@ -0,0 +1,30 @@
+package com.heliorm.sql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Recorded when a modeller reads the database catalog */
+@Name("com.heliorm.sql.CatalogRead")
+@Label("Catalog Read")
+@Category({"SQL Structure"})
+@Description("A modeller read the database catalog")
+final class CatalogReadEvent extends SchemaEvent {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Table")
+    String table;
+
+    @Label("Rows")
+    @Description("Rows read from the catalog")
+    long rows;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+}
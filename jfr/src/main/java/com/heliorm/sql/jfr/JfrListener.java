@@ -0,0 +1,78 @@
+package com.heliorm.sql.jfr;
+
+import com.heliorm.sql.Action;
+import com.heliorm.sql.ModellerListener;
+import com.heliorm.sql.Table;
+
+import java.time.Duration;
+import java.util.List;
+
+/** A modeller listener that records catalog reads, structure statements and table synchronizations as Java Flight
+ * Recorder events. When the events are not enabled in the running recording, reports are dropped before any
+ * event fields are filled in, so the listener can be left installed in production.
+ * <p>
+ * The listener is only told about work once it is done, so the events are begun and committed when the work is
+ * reported. They mark the end of the work, and the time it took is in their elapsed field.
+ *
+ */
+public final class JfrListener implements ModellerListener {
+
+    private final String dialect;
+
+    /** Create a new listener for a modeller of the given dialect.
+     *
+     * @param dialect The name of the database dialect, like <code>mysql</code>, which is recorded with the events
+     */
+    public JfrListener(String dialect) {
+        this.dialect = dialect;
+    }
+
+    @Override
+    public void catalogRead(String operation, String table, long rows, Duration duration, Throwable failure) {
+        CatalogReadEvent event = new CatalogReadEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            event.dialect = dialect;
+            event.operation = operation;
+            event.table = table;
+            event.rows = rows;
+            event.elapsed = duration.toNanos();
+            event.failure = message(failure);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void statementExecuted(String sql, Duration duration, Throwable failure) {
+        StatementEvent event = new StatementEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            event.dialect = dialect;
+            event.statementType = ModellerListener.statementKind(sql);
+            event.sql = sql;
+            event.elapsed = duration.toNanos();
+            event.failure = message(failure);
+            event.commit();
+        }
+    }
+
+    @Override
+    public void tableSynchronized(Table table, List<Action> actions, Duration duration, Throwable failure) {
+        TableSynchronizeEvent event = new TableSynchronizeEvent();
+        if (event.isEnabled()) {
+            event.begin();
+            event.dialect = dialect;
+            event.table = table.getName();
+            event.actions = actions.size();
+            event.applied = (int) actions.stream().filter(Action::isApplied).count();
+            event.elapsed = duration.toNanos();
+            event.failure = message(failure);
+            event.commit();
+        }
+    }
+
+    private static String message(Throwable failure) {
+        return failure == null ? null : failure.getMessage();
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.heliorm.sql.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/** The fields shared by all schema events. Events are begun and committed when the modeller reports the work done,
+ * so the time the work took is in the elapsed field of each event and not in the event duration.
+ *
+ */
+@StackTrace(false)
+abstract class SchemaEvent extends Event {
+
+    @Label("Dialect")
+    String dialect;
+
+    @Label("Failure")
+    String failure;
+
+}
@@ -0,0 +1,27 @@
+package com.heliorm.sql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Recorded when a modeller executes a statement that changes the database structure */
+@Name("com.heliorm.sql.Statement")
+@Label("Structure Statement")
+@Category({"SQL Structure"})
+@Description("A modeller executed a statement that changes the database structure")
+final class StatementEvent extends SchemaEvent {
+
+    @Label("Statement Type")
+    @Description("The first two words of the statement, like ALTER TABLE")
+    String statementType;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+}
@@ -0,0 +1,31 @@
+package com.heliorm.sql.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/** Recorded when a verifier synchronizes a table */
+@Name("com.heliorm.sql.TableSynchronize")
+@Label("Table Synchronize")
+@Category({"SQL Structure"})
+@Description("A verifier synchronized a table with its model")
+final class TableSynchronizeEvent extends SchemaEvent {
+
+    @Label("Table")
+    String table;
+
+    @Label("Actions")
+    @Description("Actions planned for the table")
+    int actions;
+
+    @Label("Applied")
+    @Description("Actions applied to the table")
+    int applied;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+}
@@ -0,0 +1,86 @@
+package com.heliorm.sql.micrometer;
+
+import com.heliorm.sql.Action;
+import com.heliorm.sql.ModellerListener;
+import com.heliorm.sql.Table;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.List;
+
+/** A modeller listener that records the timing reports of a modeller as Micrometer meters. The SQL of executed
+ * statements is not used as a tag, since it would create a meter for every statement, only the kind of statement
+ * like <code>ALTER TABLE</code> is.
+ *
+ */
+public final class MicrometerListener implements ModellerListener {
+
+    private final MeterRegistry registry;
+    private final Timer connections;
+
+    /** Create a new listener that records to the given registry.
+     *
+     * @param registry The registry
+     */
+    public MicrometerListener(MeterRegistry registry) {
+        this.registry = registry;
+        this.connections = Timer.builder("sql.structure.connection.acquire")
+                .description("Time to obtain a connection from the connection supplier")
+                .register(registry);
+    }
+
+    @Override
+    public void connectionAcquired(Duration duration) {
+        connections.record(duration);
+    }
+
+    @Override
+    public void catalogRead(String operation, String table, long rows, Duration duration, Throwable failure) {
+        Timer.builder("sql.structure.catalog.read")
+                .description("Time to read the database catalog")
+                .tag("operation", operation)
+                .tag("outcome", outcome(failure))
+                .register(registry)
+                .record(duration);
+        DistributionSummary.builder("sql.structure.catalog.rows")
+                .description("Rows read from the database catalog")
+                .tag("operation", operation)
+                .register(registry)
+                .record(rows);
+    }
+
+    @Override
+    public void statementExecuted(String sql, Duration duration, Throwable failure) {
+        Timer.builder("sql.structure.statement")
+                .description("Time to execute a statement that changes the database structure")
+                .tag("kind", ModellerListener.statementKind(sql))
+                .tag("outcome", outcome(failure))
+                .register(registry)
+                .record(duration);
+    }
+
+    @Override
+    public void tableSynchronized(Table table, List<Action> actions, Duration duration, Throwable failure) {
+        Timer.builder("sql.structure.table.synchronize")
+                .description("Time to synchronize a table")
+                .tag("outcome", outcome(failure))
+                .register(registry)
+                .record(duration);
+        for (Action action : actions) {
+            Counter.builder("sql.structure.actions")
+                    .description("Actions planned to synchronize tables")
+                    .tag("type", action.getType().name())
+                    .tag("applied", Boolean.toString(action.isApplied()))
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    private static String outcome(Throwable failure) {
+        return failure == null ? "success" : "failure";
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.heliorm.sql.micrometer;
+
+import com.heliorm.sql.Action;
+import com.heliorm.sql.ModellerListener;
+import com.heliorm.sql.Table;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests for recording the reports of a modeller as Micrometer meters.
+ */
+public class TestMicrometerListener {
+
+    @Test
+    public void recordCatalogReads() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerListener listener = new MicrometerListener(registry);
+        listener.catalogRead("getColumns", "Person", 5, Duration.ofMillis(3), null);
+        listener.catalogRead("getColumns", "Person", 7, Duration.ofMillis(4), null);
+        listener.catalogRead("getColumns", "Person", 0, Duration.ofMillis(1), new SQLException("broken"));
+        Timer success = registry.find("sql.structure.catalog.read").tags("operation", "getColumns", "outcome", "success").timer();
+        assertNotNull(success, "Successful reads must be timed");
+        assertEquals(2, success.count(), "Every successful read must be timed");
+        assertEquals(7, success.totalTime(TimeUnit.MILLISECONDS), 0.001, "Time of the reads must be recorded");
+        Timer failure = registry.find("sql.structure.catalog.read").tags("operation", "getColumns", "outcome", "failure").timer();
+        assertNotNull(failure, "Failed reads must be timed separately");
+        assertEquals(1, failure.count(), "Every failed read must be timed");
+        assertEquals(12, registry.find("sql.structure.catalog.rows").tags("operation", "getColumns").summary().totalAmount(), 0.001,
+                "Rows read must be recorded");
+    }
+
+    @Test
+    public void recordStatementKinds() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerListener listener = new MicrometerListener(registry);
+        listener.statementExecuted("ALTER TABLE `Person` ADD COLUMN `age` INT", Duration.ofMillis(2), null);
+        listener.statementExecuted("  alter table `Person` DROP COLUMN `age`", Duration.ofMillis(2), null);
+        listener.statementExecuted("CREATE INDEX `name_idx` ON `Person` (`name`)", Duration.ofMillis(2), null);
+        assertEquals(2, registry.find("sql.structure.statement").tags("kind", "ALTER TABLE").timer().count(),
+                "Statements must be tagged with their kind, not their SQL");
+        assertEquals(1, registry.find("sql.structure.statement").tags("kind", "CREATE INDEX").timer().count(),
+                "Statements must be tagged with their kind, not their SQL");
+        assertEquals(2, registry.find("sql.structure.statement").timers().size(), "Statements of the same kind must share a meter");
+    }
+
+    @Test
+    public void recordWithOtherListeners() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        AtomicInteger synchronizations = new AtomicInteger();
+        ModellerListener listener = ModellerListener.of(new MicrometerListener(registry), new ModellerListener() {
+            @Override
+            public void tableSynchronized(Table table, List<Action> actions, Duration duration, Throwable failure) {
+                synchronizations.incrementAndGet();
+            }
+        });
+        listener.connectionAcquired(Duration.ofMillis(1));
+        listener.tableSynchronized(null, Collections.emptyList(), Duration.ofMillis(10), null);
+        assertEquals(1, registry.find("sql.structure.connection.acquire").timer().count(), "Connections must be timed");
+        assertEquals(1, registry.find("sql.structure.table.synchronize").tags("outcome", "success").timer().count(),
+                "Synchronizing a table must be timed");
+        assertEquals(1, synchronizations.get(), "Reports must also reach the other listeners");
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.heliorm.sql;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
 import static java.lang.String.format;
 
 /** An action taken by the verifier to bring a database into sync with what is expected by the database model. This can
@@ -14,73 +18,154 @@ public final class Action {
         RENAME_COLUMN,
         ADD_INDEX,
         MODIFY_INDEX,
-        DELETE_INDEX;
+        RENAME_INDEX,
+        DELETE_INDEX,
+        ADD_FOREIGN_KEY,
+        MODIFY_FOREIGN_KEY,
+        ADD_PARTITION,
+        DETACH_PARTITION,
+        DELETE_PARTITION;
     }
 
     private final Type type;
+    private final String subject;
+    private final String database;
     private final String message;
-
-    static Action modifyColumn(Column column) {
-        return new Action(Type.MODIFY_COLUMN, format("Modified column %s in table %s in database %s",
+    private final Impact impact;
+    private boolean applied;
+    private volatile long done;
+    private volatile long total;
+    private volatile Duration duration = Duration.ZERO;
+    private volatile List<String> statements = Collections.emptyList();
+
+    static Action modifyColumn(Column column, Impact impact) {
+        return new Action(Type.MODIFY_COLUMN, impact, format("Modified column %s in table %s",
                 column.getName(),
-                column.getTable().getName(),
-                column.getTable().getDatabase().getName()));
+                column.getTable().getName()), column.getTable().getDatabase().getName());
     }
 
-    static Action renameColumn(Column current, Column changed) {
-        return new Action(Type.RENAME_COLUMN, format("Renamed column %s to %s in table %s in database %s",
+    static Action renameColumn(Column current, Column changed, Impact impact) {
+        return new Action(Type.RENAME_COLUMN, impact, format("Renamed column %s to %s in table %s",
                 current.getName(),
                 changed.getName(),
-                current.getTable().getName(),
-                current.getTable().getDatabase().getName()));
+                current.getTable().getName()), current.getTable().getDatabase().getName());
     }
 
-    static Action deleteColumn(Column column) {
-        return new Action(Type.DELETE_COLUMN, format("Deleted column %s from table %s in database %s",
+    static Action deleteColumn(Column column, Impact impact) {
+        return new Action(Type.DELETE_COLUMN, impact, format("Deleted column %s from table %s",
                 column.getName(),
-                column.getTable().getName(),
-                column.getTable().getDatabase().getName()));
+                column.getTable().getName()), column.getTable().getDatabase().getName());
     }
 
 
-    static Action addColumn(Column column) {
-        return new Action(Type.ADD_COLUMN, format("Added column %s to table %s in database %s",
+    static Action addColumn(Column column, Impact impact) {
+        return new Action(Type.ADD_COLUMN, impact, format("Added column %s to table %s",
                 column.getName(),
-                column.getTable().getName(),
-                column.getTable().getDatabase().getName()));
+                column.getTable().getName()), column.getTable().getDatabase().getName());
     }
 
-    static Action createTable(Table table) {
-        return new Action(Type.CREATE_TABLE,
-                format("Created table %s in database %s",
-                        table.getName(), table.getDatabase().getName()));
+    static Action createTable(Table table, Impact impact) {
+        return new Action(Type.CREATE_TABLE, impact,
+                format("Created table %s",
+                        table.getName()), table.getDatabase().getName());
     }
 
-    static Action addIndex(Index index) {
-        return new Action(Type.ADD_INDEX,
-                format("Created index %s on table %s in database %s",
+    static Action addIndex(Index index, Impact impact) {
+        return new Action(Type.ADD_INDEX, impact,
+                format("Created index %s on table %s",
                         index.getName(),
-                        index.getTable().getName(),
-                        index.getTable().getDatabase().getName()));
+                        index.getTable().getName()), index.getTable().getDatabase().getName());
     }
 
-     static Action deleteIndex(Index index) {
-         return new Action(Type.DELETE_INDEX, format("Deleted index %s from table %s in database %s",
+     static Action deleteIndex(Index index, Impact impact) {
+         return new Action(Type.DELETE_INDEX, impact, format("Deleted index %s from table %s",
                  index.getName(),
-                 index.getTable().getName(),
-                 index.getTable().getDatabase().getName()));
+                 index.getTable().getName()), index.getTable().getDatabase().getName());
     }
 
-    static Action modifyIndex(Index index) {
-        return new Action(Type.MODIFY_INDEX, format("Modified index %s in table %s in database %s",
+    static Action deleteRedundantIndex(IndexAdvice advice, Impact impact) {
+        Index index = advice.getIndex();
+        return new Action(Type.DELETE_INDEX, impact, format("Deleted redundant index %s from table %s, which %s",
                 index.getName(),
                 index.getTable().getName(),
-                index.getTable().getDatabase().getName()));
+                advice.getDescription()), index.getTable().getDatabase().getName());
+    }
+
+    static Action modifyIndex(Index index, Impact impact) {
+        return new Action(Type.MODIFY_INDEX, impact, format("Modified index %s in table %s",
+                index.getName(),
+                index.getTable().getName()), index.getTable().getDatabase().getName());
+    }
+
+    static Action renameIndex(Index current, Index changed, Impact impact) {
+        return new Action(Type.RENAME_INDEX, impact, format("Renamed index %s to %s in table %s",
+                current.getName(),
+                changed.getName(),
+                current.getTable().getName()), current.getTable().getDatabase().getName());
+    }
+
+    static Action addForeignKey(ForeignKey key, Impact impact) {
+        return new Action(Type.ADD_FOREIGN_KEY, impact, format("Added foreign key %s to table %s",
+                key.getName(),
+                key.getTable().getName()), key.getTable().getDatabase().getName());
     }
 
-    private Action(Type type, String message) {
+    static Action modifyForeignKey(ForeignKey key, Impact impact) {
+        return new Action(Type.MODIFY_FOREIGN_KEY, impact, format("Modified foreign key %s in table %s",
+                key.getName(),
+                key.getTable().getName()), key.getTable().getDatabase().getName());
+    }
+
+    static Action addPartition(Table table, Partition partition, Impact impact) {
+        return new Action(Type.ADD_PARTITION, impact, format("Added partition %s to table %s",
+                partition.getName(),
+                table.getName()), table.getDatabase().getName());
+    }
+
+    static Action detachPartition(Table table, Partition partition, Impact impact) {
+        return new Action(Type.DETACH_PARTITION, impact, format("Detached partition %s from table %s",
+                partition.getName(),
+                table.getName()), table.getDatabase().getName());
+    }
+
+    static Action deletePartition(Table table, Partition partition, Impact impact) {
+        return new Action(Type.DELETE_PARTITION, impact, format("Deleted partition %s from table %s",
+                partition.getName(),
+                table.getName()), table.getDatabase().getName());
+    }
+
+    private Action(Type type, Impact impact, String subject, String database) {
         this.type = type;
-        this.message = message;
+        this.impact = impact;
+        this.subject = subject;
+        this.database = database;
+        this.message = format("%s in database %s", subject, database);
+    }
+
+    /** Create an unapplied copy of this action for the same change in another database.
+     *
+     * @param database The name of the other database
+     * @return The copy
+     */
+    Action copyFor(String database) {
+        return new Action(type, impact, subject, database);
+    }
+
+    void setApplied(boolean applied) {
+        this.applied = applied;
+    }
+
+    void setProgress(long done, long total) {
+        this.done = done;
+        this.total = total;
+    }
+
+    void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    void setStatements(List<String> statements) {
+        this.statements = Collections.unmodifiableList(statements);
     }
 
     public Type getType() {
@@ -91,11 +176,75 @@ public final class Action {
         return message;
     }
 
+    /** Get the name of the database the action applies to.
+     *
+     * @return The database name
+     */
+    public String getDatabase() {
+        return database;
+    }
+
+    /** Get the expected impact of the action on the database.
+     *
+     * @return The impact
+     */
+    public Impact getImpact() {
+        return impact;
+    }
+
+    /** Determine if the action was applied to the database, or only planned.
+     *
+     * @return True if it was applied
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /** Get the amount of work done while applying the action. For actions that copy or update rows this is
+     * the number of rows processed so far.
+     *
+     * @return The work done
+     */
+    public long getDone() {
+        return done;
+    }
+
+    /** Get the estimated total amount of work needed to apply the action.
+     *
+     * @return The total work
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /** Get the time it took to apply the action, or the time spent so far if it is busy.
+     *
+     * @return The duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /** Get the SQL statements executed to apply the action, in the order they were executed. This is empty if the
+     * action was not applied. Statements that fill or copy rows in batches are not included.
+     *
+     * @return The statements
+     */
+    public List<String> getStatements() {
+        return statements;
+    }
+
     @Override
     public String toString() {
         return "Action{" +
                 "type=" + type +
                 ", message='" + message + '\'' +
+                ", impact=" + impact +
+                ", applied=" + applied +
+                ", done=" + done +
+                ", total=" + total +
+                ", duration=" + duration +
+                ", statements=" + statements +
                 '}';
     }
 }
\ No newline at end of file
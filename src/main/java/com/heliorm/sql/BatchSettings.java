@@ -0,0 +1,152 @@
+package com.heliorm.sql;
+
+import static java.lang.String.format;
+
+/** Settings that control how rows are processed in batches when copying or updating large tables. Batches are
+ * ranges of primary key values, each of which is committed separately. If a target batch time is set the batch
+ * size is adapted to the time the previous batch took, within the minimum and maximum batch size.
+ *
+ */
+public final class BatchSettings {
+
+    private int batchSize = 1000;
+    private int minBatchSize = 100;
+    private int maxBatchSize = 50000;
+    private long targetBatchMillis = 500;
+    private long pauseMillis = 0;
+    private long maxRowsPerSecond = 0;
+
+    /** Get the initial number of rows in a batch.
+     *
+     * @return The batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** Set the initial number of rows in a batch.
+     *
+     * @param batchSize The batch size
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /** Get the smallest number of rows in an adapted batch.
+     *
+     * @return The batch size
+     */
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    /** Set the smallest number of rows in an adapted batch.
+     *
+     * @param minBatchSize The batch size
+     */
+    public void setMinBatchSize(int minBatchSize) {
+        this.minBatchSize = minBatchSize;
+    }
+
+    /** Get the largest number of rows in an adapted batch.
+     *
+     * @return The batch size
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /** Set the largest number of rows in an adapted batch.
+     *
+     * @param maxBatchSize The batch size
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /** Get the time a batch should take. If this is zero the batch size is not adapted.
+     *
+     * @return The time in milliseconds
+     */
+    public long getTargetBatchMillis() {
+        return targetBatchMillis;
+    }
+
+    /** Set the time a batch should take. If this is zero the batch size is not adapted.
+     *
+     * @param targetBatchMillis The time in milliseconds
+     */
+    public void setTargetBatchMillis(long targetBatchMillis) {
+        this.targetBatchMillis = targetBatchMillis;
+    }
+
+    /** Get the time to pause between batches.
+     *
+     * @return The time in milliseconds
+     */
+    public long getPauseMillis() {
+        return pauseMillis;
+    }
+
+    /** Set the time to pause between batches. This gives replicas and vacuum time to catch up.
+     *
+     * @param pauseMillis The time in milliseconds
+     */
+    public void setPauseMillis(long pauseMillis) {
+        this.pauseMillis = pauseMillis;
+    }
+
+    /** Get the maximum number of rows processed per second. If this is zero the rate is not limited.
+     *
+     * @return The number of rows
+     */
+    public long getMaxRowsPerSecond() {
+        return maxRowsPerSecond;
+    }
+
+    /** Set the maximum number of rows processed per second. If this is zero the rate is not limited.
+     *
+     * @param maxRowsPerSecond The number of rows
+     */
+    public void setMaxRowsPerSecond(long maxRowsPerSecond) {
+        this.maxRowsPerSecond = maxRowsPerSecond;
+    }
+
+    /** Determine the size of the next batch based on the time the previous batch took.
+     *
+     * @param size The size of the previous batch
+     * @param elapsedMillis The time the previous batch took
+     * @return The size of the next batch
+     */
+    public int nextBatchSize(int size, long elapsedMillis) {
+        if (targetBatchMillis <= 0) {
+            return size;
+        }
+        long next = size * targetBatchMillis / Math.max(elapsedMillis, 1);
+        // do not let a single fast or slow batch change the size too much
+        next = Math.min(next, size * 2L);
+        next = Math.max(next, size / 2L);
+        return (int) Math.max(minBatchSize, Math.min(maxBatchSize, next));
+    }
+
+    /** Wait after a batch so that the pause and rate settings are honoured.
+     *
+     * @param rows The number of rows in the batch
+     * @param elapsedMillis The time the batch took
+     * @throws SqlModellerException Thrown if the thread is interrupted while waiting
+     */
+    public void pause(long rows, long elapsedMillis) throws SqlModellerException {
+        long wait = pauseMillis;
+        if (maxRowsPerSecond > 0) {
+            wait = Math.max(wait, rows * 1000 / maxRowsPerSecond - elapsedMillis);
+        }
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SqlModellerException(format("Interrupted while pausing between batches (%s)", ex.getMessage()), ex);
+            }
+        }
+    }
+}
@@ -49,4 +49,13 @@ public interface Column {
      */
     String getDefault();
 
+    /** Return the name the column had before it was renamed, so that the verifier renames the column in the
+     * database instead of adding a new one.
+     *
+     * @return The previous name, or null if the column was not renamed
+     */
+    default String getRenamedFrom() {
+        return null;
+    }
+
 }
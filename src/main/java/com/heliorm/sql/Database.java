@@ -19,4 +19,19 @@ public interface Database {
      */
     Set<Table> getTables();
 
+    /** Return the table with the given name. Implementations that hold many tables should override this to
+     * find the table without searching.
+     *
+     * @param name The name of the table
+     * @return The table or null if no table with that name exists
+     */
+    default Table getTable(String name) {
+        for (Table table : getTables()) {
+            if (table.getName().equals(name)) {
+                return table;
+            }
+        }
+        return null;
+    }
+
 }
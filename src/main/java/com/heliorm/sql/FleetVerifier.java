@@ -0,0 +1,287 @@
+package com.heliorm.sql;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/** Tool for verifying that the same user supplied SQL data structure is in many databases, like the databases or
+ * schemas of the tenants in a multi-tenant deployment.
+ * <p>
+ * Instead of comparing every database to the model, a cheap digest of the structure of the tables is read from
+ * every database, and databases with the same digest are put in a group. The changes needed are only planned for
+ * one database in each group, and the same changes are then applied to all the databases in the group in
+ * parallel.
+ *
+ */
+public final class FleetVerifier {
+
+    private final Map<String, SqlModeller> tenants;
+    private boolean deleteMissingColumns = false;
+    private boolean detectRenamedColumns = false;
+    private boolean dropRedundantIndexes = false;
+    private PlanPolicy policy = PlanPolicy.applyAll();
+    private BiConsumer<String, Action> progressListener = (tenant, action) -> {
+    };
+    private Function<Column, String> backfillExpressions = column -> null;
+    private BatchSettings backfillSettings = new BatchSettings();
+    private int parallelism = 4;
+
+    /** Create a new verifier for the databases of a number of tenants. Each tenant is identified by the name of
+     * its database, and has a modeller that connects to that database.
+     *
+     * @param tenants The modellers for the tenants, by database name
+     * @return The verifier
+     */
+    public static FleetVerifier forTenants(Map<String, SqlModeller> tenants) {
+        return new FleetVerifier(tenants);
+    }
+
+    /** Setup verifier to delete missing columns from database tables
+     *
+     * @param delete True if it must delete.
+     */
+    void setDeleteMissingColumns(boolean delete) {
+        this.deleteMissingColumns = delete;
+    }
+
+    /** Setup verifier to detect renamed columns without a rename hint.
+     *
+     * @param detect True if it must detect renamed columns
+     * @see SqlVerifier#setDetectRenamedColumns(boolean)
+     */
+    public void setDetectRenamedColumns(boolean detect) {
+        this.detectRenamedColumns = detect;
+    }
+
+    /** Setup verifier to drop indexes that the index advisor finds redundant.
+     *
+     * @param drop True if it must drop redundant indexes
+     * @see SqlVerifier#setDropRedundantIndexes(boolean)
+     */
+    public void setDropRedundantIndexes(boolean drop) {
+        this.dropRedundantIndexes = drop;
+    }
+
+    /** Set the policy that decides if the changes planned for a table may be applied. The policy is evaluated
+     * once for each group of databases with the same structure. By default all changes are applied.
+     *
+     * @param policy The policy
+     */
+    public void setPolicy(PlanPolicy policy) {
+        this.policy = policy;
+    }
+
+    /** Set the SQL expressions used to fill columns that are added to tables that already exist.
+     *
+     * @param expressions A function that gives the SQL expression for a column, or null if there is none
+     * @param settings The batch settings used to fill columns
+     * @see SqlVerifier#setBackfill(Function, BatchSettings)
+     */
+    public void setBackfill(Function<Column, String> expressions, BatchSettings settings) {
+        this.backfillExpressions = expressions;
+        this.backfillSettings = settings;
+    }
+
+    /** Set a listener that is called when an action being applied to the database of a tenant reports progress.
+     *
+     * @param listener The listener, which receives the tenant and the action
+     */
+    public void setProgressListener(BiConsumer<String, Action> listener) {
+        this.progressListener = listener;
+    }
+
+    /** Set the number of databases that are read or changed at the same time. The default is 4.
+     *
+     * @param parallelism The number of databases
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /** Verify that the tables in the databases of all tenants are the same as the abstractions supplied, and change
+     * the databases to conform if not. The database of the tables supplied is ignored, the tables are verified in
+     * the database of each tenant.
+     * <p>
+     * Databases are changed independently, so if changing some of them fails the others are still changed. The
+     * failures are reported after all the databases are done.
+     *
+     * @param tables The tables
+     * @return The changes made to synchronize the tables, by tenant
+     * @throws SqlModellerException Thrown if the databases could not be read, or if changing any of them failed
+     */
+    public Map<String, List<Action>> synchronizeDatabaseTables(Collection<Table> tables) throws SqlModellerException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            Map<String, List<Table>> bound = new ConcurrentHashMap<>();
+            Map<String, String> digests = new ConcurrentHashMap<>();
+            run(executor, tenants.keySet(), tenant -> {
+                SqlModeller modeller = tenants.get(tenant);
+                SqlDatabase database = new SqlDatabase(tenant);
+                List<Table> tenantTables = new ArrayList<>();
+                StringBuilder digest = new StringBuilder();
+                for (Table table : tables) {
+                    Table tenantTable = SqlTable.copyOf(table, database);
+                    tenantTables.add(tenantTable);
+                    digest.append(modeller.readStructureDigest(tenantTable)).append(':');
+                }
+                bound.put(tenant, tenantTables);
+                digests.put(tenant, digest.toString());
+            });
+            Map<String, List<String>> groups = tenants.keySet().stream()
+                    .collect(Collectors.groupingBy(digests::get, LinkedHashMap::new, Collectors.toList()));
+            Map<String, List<Plan>> plans = new ConcurrentHashMap<>();
+            Map<String, SqlModellerException> rejected = new ConcurrentHashMap<>();
+            run(executor, groups.keySet(), digest -> {
+                String representative = groups.get(digest).get(0);
+                SqlVerifier verifier = verifier(representative);
+                List<Plan> groupPlans = new ArrayList<>();
+                for (Table table : bound.get(representative)) {
+                    List<SqlVerifier.Step> steps = verifier.plan(table);
+                    List<Action> actions = steps.stream()
+                            .map(SqlVerifier.Step::getAction)
+                            .collect(Collectors.toList());
+                    try {
+                        groupPlans.add(new Plan(steps, actions.isEmpty() || verifier.isAllowed(table, actions)));
+                    } catch (SqlModellerException ex) {
+                        // a rejected plan fails the databases in the group, not the other groups
+                        rejected.put(digest, ex);
+                        break;
+                    }
+                }
+                plans.put(digest, groupPlans);
+            });
+            Map<String, List<Action>> results = new ConcurrentHashMap<>();
+            run(executor, tenants.keySet(), tenant -> {
+                SqlVerifier verifier = verifier(tenant);
+                List<Table> tenantTables = bound.get(tenant);
+                if (rejected.containsKey(digests.get(tenant))) {
+                    throw rejected.get(digests.get(tenant));
+                }
+                List<Plan> tenantPlans = plans.get(digests.get(tenant));
+                List<Action> all = new ArrayList<>();
+                results.put(tenant, all);
+                for (int i = 0; i < tenantTables.size(); ++i) {
+                    Plan plan = tenantPlans.get(i);
+                    List<Action> actions = plan.steps.stream()
+                            .map(step -> step.getAction().copyFor(tenant))
+                            .collect(Collectors.toList());
+                    all.addAll(actions);
+                    if (plan.allowed) {
+                        SqlModeller modeller = tenants.get(tenant);
+                        long start = System.nanoTime();
+                        Throwable failure = null;
+                        try {
+                            verifier.apply(plan.steps, actions, modeller, tenantTables.get(i));
+                        } catch (SqlModellerException | RuntimeException ex) {
+                            failure = ex;
+                            throw ex;
+                        } finally {
+                            modeller.getListener().tableSynchronized(tenantTables.get(i), actions, Duration.ofNanos(System.nanoTime() - start), failure);
+                        }
+                    }
+                }
+            });
+            Map<String, List<Action>> ordered = new LinkedHashMap<>();
+            for (String tenant : tenants.keySet()) {
+                ordered.put(tenant, results.get(tenant));
+            }
+            return ordered;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private SqlVerifier verifier(String tenant) {
+        SqlVerifier verifier = SqlVerifier.forModeller(tenants.get(tenant));
+        verifier.setDeleteMissingColumns(deleteMissingColumns);
+        verifier.setDetectRenamedColumns(detectRenamedColumns);
+        verifier.setDropRedundantIndexes(dropRedundantIndexes);
+        verifier.setPolicy(policy);
+        verifier.setBackfill(backfillExpressions, backfillSettings);
+        verifier.setProgressListener(action -> progressListener.accept(tenant, action));
+        return verifier;
+    }
+
+    /** Run a task for every key in parallel, and wait for all of them to finish.
+     *
+     * @param executor The executor to run the tasks
+     * @param keys The keys
+     * @param task The task
+     * @throws SqlModellerException Thrown if any of the tasks failed, after all are done
+     */
+    private void run(ExecutorService executor, Collection<String> keys, Task task) throws SqlModellerException {
+        Map<String, Future<Void>> futures = new LinkedHashMap<>();
+        for (String key : keys) {
+            futures.put(key, executor.submit((Callable<Void>) () -> {
+                task.run(key);
+                return null;
+            }));
+        }
+        List<String> failed = new ArrayList<>();
+        SqlModellerException failure = null;
+        for (Map.Entry<String, Future<Void>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get();
+            } catch (ExecutionException ex) {
+                failed.add(entry.getKey());
+                SqlModellerException cause = ex.getCause() instanceof SqlModellerException
+                        ? (SqlModellerException) ex.getCause()
+                        : new SqlModellerException(format("Error verifying '%s' (%s)", entry.getKey(), ex.getCause().getMessage()), ex.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SqlModellerException(format("Interrupted while verifying tenants (%s)", ex.getMessage()), ex);
+            }
+        }
+        if (failure != null) {
+            SqlModellerException ex = new SqlModellerException(format("Error verifying %s (%s)", failed, failure.getMessage()), failure);
+            for (Throwable suppressed : failure.getSuppressed()) {
+                ex.addSuppressed(suppressed);
+            }
+            throw ex;
+        }
+    }
+
+    private FleetVerifier(Map<String, SqlModeller> tenants) {
+        this.tenants = new LinkedHashMap<>(tenants);
+    }
+
+    /** A task run for a tenant or a group of tenants */
+    @FunctionalInterface
+    private interface Task {
+
+        void run(String key) throws SqlModellerException;
+
+    }
+
+    /** The changes planned for a table in a group of databases, and if the policy allows them to be applied */
+    private static final class Plan {
+
+        private final List<SqlVerifier.Step> steps;
+        private final boolean allowed;
+
+        private Plan(List<SqlVerifier.Step> steps, boolean allowed) {
+            this.steps = steps;
+            this.allowed = allowed;
+        }
+    }
+
+}
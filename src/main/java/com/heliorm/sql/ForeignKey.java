@@ -0,0 +1,66 @@
+package com.heliorm.sql;
+
+import java.util.List;
+
+/** Abstraction representing a foreign key from the columns of a table to the columns of another table.
+ *
+ */
+public interface ForeignKey {
+
+    /** The action taken on the referencing rows when a referenced row is deleted or its key is updated */
+    enum Rule {
+        /** The change fails if rows refer to the row, checked at the end of the statement */
+        NO_ACTION,
+        /** The change fails if rows refer to the row, checked immediately */
+        RESTRICT,
+        /** The referencing rows are deleted or updated as well */
+        CASCADE,
+        /** The referencing columns are set to null */
+        SET_NULL,
+        /** The referencing columns are set to their defaults */
+        SET_DEFAULT;
+    }
+
+    /** Get the name of the foreign key constraint.
+     *
+     * @return The name
+     */
+    String getName();
+
+    /** Get the table with the referencing columns.
+     *
+     * @return The table
+     */
+    Table getTable();
+
+    /** Get the referencing columns, in key order.
+     *
+     * @return The columns
+     */
+    List<Column> getColumns();
+
+    /** Get the name of the referenced table, which is in the same database.
+     *
+     * @return The table name
+     */
+    String getReferencedTable();
+
+    /** Get the names of the referenced columns, in the same order as the referencing columns.
+     *
+     * @return The column names
+     */
+    List<String> getReferencedColumns();
+
+    /** Get the action taken when a referenced row is deleted.
+     *
+     * @return The rule
+     */
+    Rule getOnDelete();
+
+    /** Get the action taken when the key of a referenced row is updated.
+     *
+     * @return The rule
+     */
+    Rule getOnUpdate();
+
+}
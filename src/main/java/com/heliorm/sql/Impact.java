@@ -0,0 +1,104 @@
+package com.heliorm.sql;
+
+/** The expected impact of a change on a SQL table. This is determined before the change is made so that
+ * expensive changes can be caught before they are applied to a live database.
+ *
+ */
+public final class Impact {
+
+    /** How the database applies a change */
+    public enum Algorithm {
+        /** Only the catalog is changed, table data is not touched */
+        METADATA,
+        /** The change is done in place, the table is scanned or an index is built but the rows are not copied */
+        IN_PLACE,
+        /** The whole table is rewritten or copied */
+        REWRITE;
+    }
+
+    /** The strongest lock held on the table while a change is applied */
+    public enum Lock {
+        /** Reads and writes continue */
+        NONE,
+        /** Reads continue, writes are blocked */
+        SHARED,
+        /** Reads and writes are blocked */
+        EXCLUSIVE;
+    }
+
+    private final Algorithm algorithm;
+    private final Lock lock;
+    private final TableStatistics statistics;
+
+    /** Create a new impact.
+     *
+     * @param algorithm The algorithm used to apply the change
+     * @param lock The lock held while applying the change
+     * @param statistics The statistics of the table that is changed
+     */
+    public Impact(Algorithm algorithm, Lock lock, TableStatistics statistics) {
+        this.algorithm = algorithm;
+        this.lock = lock;
+        this.statistics = statistics;
+    }
+
+    /** Get the algorithm used to apply the change.
+     *
+     * @return The algorithm
+     */
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    /** Get the lock held on the table while applying the change.
+     *
+     * @return The lock
+     */
+    public Lock getLock() {
+        return lock;
+    }
+
+    /** Get the statistics of the table that is changed.
+     *
+     * @return The statistics
+     */
+    public TableStatistics getStatistics() {
+        return statistics;
+    }
+
+    /** Get the estimated number of bytes the database has to read or write to apply the change.
+     *
+     * @return The number of bytes
+     */
+    public long getEstimatedBytes() {
+        switch (algorithm) {
+            case REWRITE:
+                return statistics.getDataLength() + statistics.getIndexLength();
+            case IN_PLACE:
+                return statistics.getDataLength();
+            default:
+                return 0;
+        }
+    }
+
+    /** Determine if the change exceeds a size or lock budget. Metadata only changes never exceed a size budget,
+     * but their locks count, since a lock that is only held briefly still waits for, and blocks, the queries
+     * running on the table.
+     *
+     * @param maxBytes The maximum number of bytes that may be read or written
+     * @param maxLock The strongest lock that may be held
+     * @return True if the budget is exceeded
+     */
+    public boolean exceeds(long maxBytes, Lock maxLock) {
+        return getEstimatedBytes() > maxBytes || lock.compareTo(maxLock) > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Impact{" +
+                "algorithm=" + algorithm +
+                ", lock=" + lock +
+                ", statistics=" + statistics +
+                '}';
+    }
+}
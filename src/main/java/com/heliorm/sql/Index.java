@@ -1,6 +1,6 @@
 package com.heliorm.sql;
 
-import java.util.Set;
+import java.util.List;
 
 /** Abstraction representing a SQL table index
  *
@@ -19,11 +19,11 @@ public interface Index {
      */
     Table getTable();
 
-    /** Get the columns in the table making up the index.
+    /** Get the columns in the table making up the index, in the order of the index key.
      *
      * @return The columns
      */
-    Set<Column> getColumns();
+    List<Column> getColumns();
 
     /** Is the index unique?
      *
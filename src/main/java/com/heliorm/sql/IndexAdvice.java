@@ -0,0 +1,84 @@
+package com.heliorm.sql;
+
+import static java.lang.String.format;
+
+/** A finding of the index advisor: an index on a table that another index, or the primary key, makes redundant.
+ *
+ */
+public final class IndexAdvice {
+
+    /** The reason an index is redundant */
+    public enum Reason {
+        /** Another index has the same columns in the same order */
+        DUPLICATE,
+        /** The columns of the index are the leading columns of another index */
+        LEFT_PREFIX,
+        /** The primary key has the same columns, or starts with the columns of the index */
+        PRIMARY_KEY;
+    }
+
+    private final Index index;
+    private final Index coveringIndex;
+    private final Reason reason;
+    private final long size;
+
+    IndexAdvice(Index index, Index coveringIndex, Reason reason, long size) {
+        this.index = index;
+        this.coveringIndex = coveringIndex;
+        this.reason = reason;
+        this.size = size;
+    }
+
+    /** Get the redundant index.
+     *
+     * @return The index
+     */
+    public Index getIndex() {
+        return index;
+    }
+
+    /** Get the index that makes the redundant index unnecessary.
+     *
+     * @return The index, or null if it is the primary key
+     */
+    public Index getCoveringIndex() {
+        return coveringIndex;
+    }
+
+    /** Get the reason the index is redundant.
+     *
+     * @return The reason
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /** Get the estimated size of the redundant index, which is the space freed by dropping it.
+     *
+     * @return The size in bytes, or 0 if the database does not report it
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /** Get a description of why the index is redundant.
+     *
+     * @return The description
+     */
+    public String getDescription() {
+        switch (reason) {
+            case DUPLICATE:
+                return format("duplicates index %s", coveringIndex.getName());
+            case LEFT_PREFIX:
+                return format("is a left prefix of index %s", coveringIndex.getName());
+            default:
+                return "is covered by the primary key";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return format("Index %s on table %s %s (%d bytes)", index.getName(), index.getTable().getName(),
+                getDescription(), size);
+    }
+}
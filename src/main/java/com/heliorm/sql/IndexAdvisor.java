@@ -0,0 +1,98 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/** Tool for finding indexes in a database that are made redundant by other indexes or by the primary key. Every
+ * redundant index slows down writes and takes space, while queries can use the index that covers it instead.
+ * <p>
+ * The advisor only compares index columns. It does not know about foreign keys, which on some databases need an
+ * index with the key columns, so findings should be reviewed before indexes are dropped.
+ *
+ */
+public final class IndexAdvisor {
+
+    private final SqlModeller modeller;
+
+    /** Create a new advisor for the supplied SQL modeller.
+     *
+     * @param modeller The modeller to use
+     * @return The advisor
+     */
+    public static IndexAdvisor forModeller(SqlModeller modeller) {
+        return new IndexAdvisor(modeller);
+    }
+
+    /** Find the redundant indexes on a table in the database.
+     *
+     * @param table The table
+     * @return The findings, one for every redundant index
+     * @throws SqlModellerException Thrown if the table cannot be read
+     */
+    public List<IndexAdvice> advise(Table table) throws SqlModellerException {
+        Table sqlTable = modeller.readTable(table.getDatabase(), table.getName());
+        return advise(sqlTable, modeller.readIndexSizes(sqlTable));
+    }
+
+    /** Find the redundant indexes on a table. Indexes are compared in name order, so of two duplicate indexes
+     * that are both unique or both not, the one with the first name is kept.
+     *
+     * @param table The table, as read from the database
+     * @param sizes The sizes of the indexes in bytes by name
+     * @return The findings, one for every redundant index
+     */
+    static List<IndexAdvice> advise(Table table, Map<String, Long> sizes) {
+        List<Index> indexes = table.getIndexes().stream()
+                .sorted(Comparator.comparing(Index::getName))
+                .collect(Collectors.toList());
+        List<String> key = names(table.getPrimaryKey());
+        List<IndexAdvice> advice = new ArrayList<>();
+        for (Index index : indexes) {
+            long size = sizes.getOrDefault(index.getName(), 0L);
+            List<String> columns = names(index.getColumns());
+            // a unique index on fewer columns than the key enforces more than the key does
+            if (!key.isEmpty() && (index.isUnique() ? columns.equals(key) : isPrefix(columns, key))) {
+                advice.add(new IndexAdvice(index, null, IndexAdvice.Reason.PRIMARY_KEY, size));
+                continue;
+            }
+            for (Index other : indexes) {
+                if (other == index) {
+                    continue;
+                }
+                List<String> otherColumns = names(other.getColumns());
+                if (columns.equals(otherColumns)) {
+                    if ((!index.isUnique() && other.isUnique())
+                            || ((index.isUnique() == other.isUnique()) && (index.getName().compareTo(other.getName()) > 0))) {
+                        advice.add(new IndexAdvice(index, other, IndexAdvice.Reason.DUPLICATE, size));
+                        break;
+                    }
+                } else if (!index.isUnique() && isPrefix(columns, otherColumns)) {
+                    advice.add(new IndexAdvice(index, other, IndexAdvice.Reason.LEFT_PREFIX, size));
+                    break;
+                }
+            }
+        }
+        return advice;
+    }
+
+    private static List<String> names(List<Column> columns) {
+        return columns.stream()
+                .map(Column::getName)
+                .collect(Collectors.toList());
+    }
+
+    /** Determine if a list of columns are the leading columns of another list, or the same.
+     *
+     */
+    private static boolean isPrefix(List<String> columns, List<String> other) {
+        return (columns.size() <= other.size()) && columns.equals(other.subList(0, columns.size()));
+    }
+
+    private IndexAdvisor(SqlModeller modeller) {
+        this.modeller = modeller;
+    }
+
+}
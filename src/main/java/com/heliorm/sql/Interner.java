@@ -0,0 +1,73 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** A pool of the values that make up models read from SQL. When many databases with the same structure are read,
+ * like in a schema per tenant deployment, names, defaults and enum and set values are the same for every copy of a
+ * table. The pool makes sure each distinct value is stored once and shared by all the models that use it.
+ * <p>
+ * The pool lives as long as the modeller, so it holds a limited number of values. Once it is full, values that
+ * are not in it yet are used as they are instead of being shared.
+ *
+ */
+final class Interner {
+
+    /** The most strings, and the most sets of values, kept in the pool */
+    private static final int MAX_VALUES = 100000;
+
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<List<String>, Set<String>> valueSets = new ConcurrentHashMap<>();
+
+    /** Get the shared instance of a string.
+     *
+     * @param value The string
+     * @return The shared string, or the string itself if it is null or the pool is full
+     */
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String shared = strings.get(value);
+        if (shared != null) {
+            return shared;
+        }
+        if (strings.size() >= MAX_VALUES) {
+            return value;
+        }
+        shared = strings.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+
+    /** Get the shared instance of a set of values, like the values of an enum or set column. Sets are only shared
+     * if their values are in the same order, since the order is part of the column type. The set returned can not
+     * be modified.
+     *
+     * @param values The values
+     * @return The shared set
+     */
+    Set<String> intern(Set<String> values) {
+        List<String> key = new ArrayList<>(values);
+        Set<String> shared = valueSets.get(key);
+        if (shared == null) {
+            Set<String> copy = new LinkedHashSet<>();
+            for (String value : values) {
+                copy.add(intern(value));
+            }
+            shared = Collections.unmodifiableSet(copy);
+            if (valueSets.size() < MAX_VALUES) {
+                Set<String> existing = valueSets.putIfAbsent(key, shared);
+                if (existing != null) {
+                    shared = existing;
+                }
+            }
+        }
+        return shared;
+    }
+
+}
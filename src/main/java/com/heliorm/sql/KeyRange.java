@@ -0,0 +1,79 @@
+package com.heliorm.sql;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/** A range of primary key values used to process a table in batches. The range excludes the lower bound and
+ * includes the upper bound. A null bound means the range is open on that side.
+ *
+ */
+public final class KeyRange {
+
+    private final Object lower;
+    private final Object upper;
+
+    KeyRange(Object lower, Object upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /** Get the lower bound, which is not in the range.
+     *
+     * @return The bound or null if there is none
+     */
+    public Object getLower() {
+        return lower;
+    }
+
+    /** Get the upper bound, which is in the range.
+     *
+     * @return The bound or null if there is none
+     */
+    public Object getUpper() {
+        return upper;
+    }
+
+    /** Generate a SQL condition that selects the rows in the range, using parameters for the bounds.
+     *
+     * @param key The database specific name of the key column
+     * @return The condition
+     */
+    public String condition(String key) {
+        if (lower == null && upper == null) {
+            return "1=1";
+        }
+        if (lower == null) {
+            return key + " <= ?";
+        }
+        if (upper == null) {
+            return key + " > ?";
+        }
+        return key + " > ? AND " + key + " <= ?";
+    }
+
+    /** Bind the bounds of the range to the parameters of a statement using a condition from
+     * {@link #condition(String)}.
+     *
+     * @param stmt The statement
+     * @param index The index of the first parameter
+     * @return The index of the next parameter
+     * @throws SQLException Thrown if the parameters cannot be set
+     */
+    public int bind(PreparedStatement stmt, int index) throws SQLException {
+        if (lower != null) {
+            stmt.setObject(index++, lower);
+        }
+        if (upper != null) {
+            stmt.setObject(index++, upper);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "KeyRange{" +
+                "lower=" + lower +
+                ", upper=" + upper +
+                '}';
+    }
+}
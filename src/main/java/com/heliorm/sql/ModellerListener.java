@@ -0,0 +1,110 @@
+package com.heliorm.sql;
+
+import java.time.Duration;
+import java.util.List;
+
+/** Receives timing reports from a modeller and the verifiers that use it, so that the time spent reading catalogs
+ * and changing databases can be measured. All methods do nothing by default, and are called on the thread doing
+ * the work, so implementations must be fast and thread safe.
+ *
+ */
+public interface ModellerListener {
+
+    /** A listener that ignores all reports */
+    ModellerListener NONE = new ModellerListener() {
+    };
+
+    /** Create a listener that passes every report to the given listeners, in order, so that more than one can
+     * receive the reports of a modeller.
+     *
+     * @param listeners The listeners
+     * @return The listener
+     */
+    static ModellerListener of(ModellerListener... listeners) {
+        ModellerListener[] all = listeners.clone();
+        return new ModellerListener() {
+            @Override
+            public void connectionAcquired(Duration duration) {
+                for (ModellerListener listener : all) {
+                    listener.connectionAcquired(duration);
+                }
+            }
+
+            @Override
+            public void catalogRead(String operation, String table, long rows, Duration duration, Throwable failure) {
+                for (ModellerListener listener : all) {
+                    listener.catalogRead(operation, table, rows, duration, failure);
+                }
+            }
+
+            @Override
+            public void statementExecuted(String sql, Duration duration, Throwable failure) {
+                for (ModellerListener listener : all) {
+                    listener.statementExecuted(sql, duration, failure);
+                }
+            }
+
+            @Override
+            public void tableSynchronized(Table table, List<Action> actions, Duration duration, Throwable failure) {
+                for (ModellerListener listener : all) {
+                    listener.tableSynchronized(table, actions, duration, failure);
+                }
+            }
+        };
+    }
+
+    /** Determine the kind of a statement from its first two words, like <code>ALTER TABLE</code>. Listeners can use
+     * the kind to group statements, since the SQL of every statement is different.
+     *
+     * @param sql The SQL
+     * @return The kind of statement, in upper case
+     */
+    static String statementKind(String sql) {
+        String[] words = sql.trim().split("\\s+", 3);
+        if (words.length < 2) {
+            return words[0].toUpperCase();
+        }
+        return (words[0] + " " + words[1]).toUpperCase();
+    }
+
+    /** Report that a connection was obtained from the connection supplier.
+     *
+     * @param duration The time it took to obtain the connection
+     */
+    default void connectionAcquired(Duration duration) {
+    }
+
+    /** Report that the database catalog was read. The queries made while reading a table, like
+     * <code>getColumns</code>, <code>getIndexInfo</code>, <code>getPrimaryKeys</code> and
+     * <code>readEnumValues</code>, are reported on their own. Their time is left out of the duration of the read they
+     * are part of, so the durations reported add up to the time spent reading.
+     *
+     * @param operation The name of the modeller operation or query that read the catalog, like <code>readTable</code>
+     * @param table The name of the table read, or null if the operation is not about a single table
+     * @param rows The number of rows read from the catalog
+     * @param duration The time it took to read the catalog
+     * @param failure The error if reading failed, or null if it succeeded
+     */
+    default void catalogRead(String operation, String table, long rows, Duration duration, Throwable failure) {
+    }
+
+    /** Report that a statement that changes the database structure was executed.
+     *
+     * @param sql The SQL of the statement
+     * @param duration The time it took to execute the statement
+     * @param failure The error if the statement failed, or null if it succeeded
+     */
+    default void statementExecuted(String sql, Duration duration, Throwable failure) {
+    }
+
+    /** Report that a verifier synchronized a table.
+     *
+     * @param table The table
+     * @param actions The actions planned for the table, which are applied unless postponed by policy
+     * @param duration The time it took to synchronize the table
+     * @param failure The error if synchronizing failed, or null if it succeeded
+     */
+    default void tableSynchronized(Table table, List<Action> actions, Duration duration, Throwable failure) {
+    }
+
+}
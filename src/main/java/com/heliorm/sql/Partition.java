@@ -0,0 +1,26 @@
+package com.heliorm.sql;
+
+import java.util.List;
+
+/** Abstraction representing one partition of a partitioned table.
+ *
+ */
+public interface Partition {
+
+    /** Get the name of the partition. On databases where partitions are tables, this is the name of the table.
+     *
+     * @return The name
+     */
+    String getName();
+
+    /** Get the values that bound the partition, as SQL literals like <code>'2021-01-01'</code> or
+     * <code>MAXVALUE</code>. For a range partition this is the upper bound, which is not included, with a value
+     * for every partition column. For a list partition these are the values in the partition. Hash partitions have
+     * no values. A range or list partition without values is the default partition, which holds the rows that
+     * belong in no other partition.
+     *
+     * @return The values
+     */
+    List<String> getValues();
+
+}
@@ -0,0 +1,267 @@
+package com.heliorm.sql;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/** Tool for keeping a table that is partitioned by date ranges ready for use. Partitions for the coming intervals
+ * are created ahead of time, so inserts never run out of partitions, and partitions past their retention are
+ * detached or dropped, so expired rows do not slow down queries.
+ * <p>
+ * Every run reads the partitions from the database and only makes the changes that are still needed, so it can be
+ * run as often as needed. Runs on different nodes take a named lock in the database, and a run that finds the lock
+ * taken does nothing. New partitions are named after their table and the first day they hold, like
+ * <code>Log_p20210101</code>, so partitions and detached partitions of different tables do not clash.
+ *
+ */
+public final class PartitionMaintainer {
+
+    /** What is done with a partition that is past its retention */
+    public enum Retirement {
+        /** The partition is detached and kept as a table of its own */
+        DETACH,
+        /** The partition is dropped with its rows */
+        DROP;
+    }
+
+    /** Interface used to archive a partition before it is retired. */
+    @FunctionalInterface
+    public interface Archiver {
+
+        /** Archive the rows of a partition, for example by copying or compressing them. If this fails the
+         * partition is not retired, and archiving is tried again on the next run.
+         *
+         * @param table The table
+         * @param partition The partition that is about to be retired
+         * @throws SqlModellerException Thrown if the partition cannot be archived
+         */
+        void archive(Table table, Partition partition) throws SqlModellerException;
+    }
+
+    private interface Change {
+        void apply() throws SqlModellerException;
+    }
+
+    private final SqlModeller modeller;
+    private Period interval = Period.ofDays(1);
+    private int ahead = 3;
+    private int retention = 0;
+    private Retirement retirement = Retirement.DETACH;
+    private Archiver archiver;
+    private Clock clock = Clock.systemUTC();
+
+    /** Create a new maintainer for the supplied SQL modeller.
+     *
+     * @param modeller The modeller to use
+     * @return The maintainer
+     */
+    public static PartitionMaintainer forModeller(SqlModeller modeller) {
+        return new PartitionMaintainer(modeller);
+    }
+
+    /** Set the interval of time held by each partition. Intervals of months or years start on the first day of a
+     * month. By default each partition holds a day.
+     *
+     * @param interval The interval
+     */
+    public void setInterval(Period interval) {
+        this.interval = interval;
+    }
+
+    /** Set the number of intervals after the current one to create partitions for. By default there are
+     * partitions for the next three intervals.
+     *
+     * @param ahead The number of intervals
+     */
+    public void setAhead(int ahead) {
+        this.ahead = ahead;
+    }
+
+    /** Set the number of intervals before the current one to keep partitions for. Older partitions are retired.
+     * By default partitions are never retired.
+     *
+     * @param retention The number of intervals, or 0 to keep all partitions
+     */
+    public void setRetention(int retention) {
+        this.retention = retention;
+    }
+
+    /** Set what is done with partitions that are past their retention. By default they are detached.
+     *
+     * @param retirement The retirement
+     */
+    public void setRetirement(Retirement retirement) {
+        this.retirement = retirement;
+    }
+
+    /** Set the archiver that is called for every partition before it is retired. Since a run can fail after a
+     * partition is archived, the archiver must handle archiving the same partition twice.
+     *
+     * @param archiver The archiver, or null to not archive partitions
+     */
+    public void setArchiver(Archiver archiver) {
+        this.archiver = archiver;
+    }
+
+    /** Set the clock that decides the current date.
+     *
+     * @param clock The clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /** Create the partitions that are missing for the coming intervals and retire the partitions that are past
+     * their retention.
+     *
+     * @param table The table, which must be partitioned by range on one date column
+     * @return The actions applied, which are empty if another node is maintaining the table
+     * @throws SqlModellerException Thrown if the table cannot be maintained
+     */
+    public List<Action> maintain(Table table) throws SqlModellerException {
+        try (SqlLock lock = modeller.tryLock(format("partitions:%s.%s", table.getDatabase().getName(), table.getName()))) {
+            if (lock == null) {
+                return Collections.emptyList();
+            }
+            Table sqlTable = modeller.readTable(table.getDatabase(), table.getName());
+            Partitioning partitioning = sqlTable.getPartitioning();
+            if ((partitioning == null) || (partitioning.getType() != Partitioning.Type.RANGE) || (partitioning.getColumns().size() != 1)) {
+                throw new SqlModellerException(format("Table '%s' is not partitioned by range on one column", table.getName()));
+            }
+            // partitions without a date bound, like MAXVALUE or the default partition, stay last
+            List<Partition> bounded = new ArrayList<>();
+            List<LocalDate> bounds = new ArrayList<>();
+            List<Partition> unbounded = new ArrayList<>();
+            for (Partition partition : partitioning.getPartitions()) {
+                LocalDate bound = getBound(sqlTable, partition);
+                if (bound == null) {
+                    unbounded.add(partition);
+                } else {
+                    bounded.add(partition);
+                    bounds.add(bound);
+                }
+            }
+            LocalDate current = align(LocalDate.now(clock));
+            List<Partition> added = new ArrayList<>();
+            LocalDate start = bounds.isEmpty() ? current : bounds.get(bounds.size() - 1);
+            LocalDate horizon = current.plus(interval.multipliedBy(ahead + 1));
+            while (start.isBefore(horizon)) {
+                LocalDate end = start.plus(interval);
+                String suffix = "_p" + start.format(DateTimeFormatter.BASIC_ISO_DATE);
+                String name = SqlModeller.limitName(table.getName(), modeller.getMaxNameLength() - suffix.length()) + suffix;
+                if (partitioning.getPartition(name) != null) {
+                    throw new SqlModellerException(format("Table '%s' has partition '%s' with a different bound", table.getName(), name));
+                }
+                added.add(new SqlPartition(name, Collections.singletonList(format("'%s'", end))));
+                start = end;
+            }
+            TableStatistics statistics = modeller.readTableStatistics(sqlTable);
+            List<Action> actions = new ArrayList<>();
+            List<Partition> present = new ArrayList<>(bounded);
+            for (Partition partition : added) {
+                // every partition is added after the ones in the database, so it is appended or split off an unbounded
+                // partition, and never split off a partition that is only in the model
+                present.add(partition);
+                Table step = makeModel(sqlTable, present, unbounded);
+                actions.add(apply(Action.addPartition(step, partition, modeller.assessPartitionChange(Action.Type.ADD_PARTITION, step, partition, statistics)),
+                        () -> modeller.addPartition(step, partition)));
+            }
+            Table model = makeModel(sqlTable, present, unbounded);
+            if (retention > 0) {
+                LocalDate cutoff = current.minus(interval.multipliedBy(retention));
+                for (int i = 0; i < bounded.size(); ++i) {
+                    if (bounds.get(i).isAfter(cutoff)) {
+                        break;
+                    }
+                    actions.add(retire(model, bounded.get(i), statistics));
+                }
+            }
+            return actions;
+        }
+    }
+
+    /** Make the model of a table with the given partitions, in the order given.
+     *
+     * @param sqlTable The table as it is in the database
+     * @param bounded The partitions with a date bound, in order of their bounds
+     * @param unbounded The partitions without a date bound, which come last
+     * @return The model
+     * @throws SqlModellerException Thrown if the table cannot be copied
+     */
+    private Table makeModel(Table sqlTable, List<Partition> bounded, List<Partition> unbounded) throws SqlModellerException {
+        SqlTable model = SqlTable.copyOf(sqlTable, sqlTable.getDatabase());
+        SqlPartitioning partitioning = new SqlPartitioning(Partitioning.Type.RANGE);
+        partitioning.addColumn(model.getColumn(sqlTable.getPartitioning().getColumns().get(0).getName()));
+        bounded.forEach(partitioning::addPartition);
+        unbounded.forEach(partitioning::addPartition);
+        model.setPartitioning(partitioning);
+        return model;
+    }
+
+    private Action retire(Table table, Partition partition, TableStatistics statistics) throws SqlModellerException {
+        if (archiver != null) {
+            archiver.archive(table, partition);
+        }
+        if (retirement == Retirement.DROP) {
+            return apply(Action.deletePartition(table, partition, modeller.assessPartitionChange(Action.Type.DELETE_PARTITION, table, partition, statistics)),
+                    () -> modeller.removePartition(table, partition));
+        }
+        return apply(Action.detachPartition(table, partition, modeller.assessPartitionChange(Action.Type.DETACH_PARTITION, table, partition, statistics)),
+                () -> modeller.detachPartition(table, partition));
+    }
+
+    private Action apply(Action action, Change change) throws SqlModellerException {
+        long start = System.nanoTime();
+        List<String> statements = new ArrayList<>();
+        modeller.startRecording(statements);
+        try {
+            change.apply();
+        } finally {
+            modeller.stopRecording();
+            action.setStatements(statements);
+        }
+        action.setDuration(Duration.ofNanos(System.nanoTime() - start));
+        action.setApplied(true);
+        return action;
+    }
+
+    /** Get the date bound of a partition, which is the first day after it, from its upper bound literal. Dates
+     * and times as written by the databases start with the ISO date.
+     *
+     * @return The date, or null if the partition has no upper bound
+     */
+    private LocalDate getBound(Table table, Partition partition) throws SqlModellerException {
+        if (partition.getValues().isEmpty() || partition.getValues().get(0).equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        String value = partition.getValues().get(0).replace("'", "");
+        try {
+            return LocalDate.parse(value.substring(0, Math.min(10, value.length())));
+        } catch (DateTimeParseException ex) {
+            throw new SqlModellerException(format("Partition '%s' of table '%s' is not bounded by a date (%s)", partition.getName(), table.getName(), value), ex);
+        }
+    }
+
+    private LocalDate align(LocalDate date) {
+        if (interval.getDays() == 0) {
+            date = date.withDayOfMonth(1);
+            if (interval.getMonths() == 0) {
+                date = date.withDayOfYear(1);
+            }
+        }
+        return date;
+    }
+
+    private PartitionMaintainer(SqlModeller modeller) {
+        this.modeller = modeller;
+    }
+
+}
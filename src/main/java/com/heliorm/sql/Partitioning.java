@@ -0,0 +1,52 @@
+package com.heliorm.sql;
+
+import java.util.List;
+
+/** Abstraction representing how the rows of a table are divided over partitions.
+ *
+ */
+public interface Partitioning {
+
+    /** The way rows are assigned to partitions */
+    enum Type {
+        /** Each partition holds the rows with partition column values below its bound and at or above the bound of
+         * the partition before it */
+        RANGE,
+        /** Each partition holds the rows with one of its listed values in the partition column */
+        LIST,
+        /** Rows are spread evenly over the partitions by a hash of the partition columns */
+        HASH;
+    }
+
+    /** Get the way rows are assigned to partitions.
+     *
+     * @return The type
+     */
+    Type getType();
+
+    /** Get the columns whose values decide the partition of a row, in key order.
+     *
+     * @return The columns
+     */
+    List<Column> getColumns();
+
+    /** Get the partitions. Range partitions are in the order of their bounds, and hash partitions are numbered by
+     * their position.
+     *
+     * @return The partitions
+     */
+    List<Partition> getPartitions();
+
+    /** Get the partition with the given name
+     *
+     * @param name The name of the partition
+     * @return The partition or null if no partition with that name exists
+     */
+    default Partition getPartition(String name) {
+        return getPartitions().stream()
+                .filter(partition -> partition.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+}
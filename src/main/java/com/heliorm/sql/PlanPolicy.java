@@ -0,0 +1,58 @@
+package com.heliorm.sql;
+
+import java.util.List;
+
+/** A policy that decides if the actions planned by the verifier for a table may be applied.
+ *
+ */
+public interface PlanPolicy {
+
+    /** The decision made by a policy */
+    enum Verdict {
+        /** Apply the plan */
+        APPLY,
+        /** Do not apply the plan now, it can be applied at a later time */
+        POSTPONE,
+        /** Do not apply the plan, the verifier fails */
+        REJECT;
+    }
+
+    /** Evaluate the plan for a table.
+     *
+     * @param table The table that will be changed
+     * @param plan The planned actions
+     * @return The verdict
+     */
+    Verdict evaluate(Table table, List<Action> plan);
+
+    /** Create a policy that applies all plans.
+     *
+     * @return The policy
+     */
+    static PlanPolicy applyAll() {
+        return (table, plan) -> Verdict.APPLY;
+    }
+
+    /** Create a policy that postpones plans with an action that exceeds the given budget.
+     *
+     * @param maxBytes The maximum number of bytes an action may read or write
+     * @param maxLock The strongest lock an action may hold
+     * @return The policy
+     */
+    static PlanPolicy postponeOver(long maxBytes, Impact.Lock maxLock) {
+        return (table, plan) -> plan.stream().anyMatch(action -> action.getImpact().exceeds(maxBytes, maxLock))
+                ? Verdict.POSTPONE : Verdict.APPLY;
+    }
+
+    /** Create a policy that rejects plans with an action that exceeds the given budget.
+     *
+     * @param maxBytes The maximum number of bytes an action may read or write
+     * @param maxLock The strongest lock an action may hold
+     * @return The policy
+     */
+    static PlanPolicy rejectOver(long maxBytes, Impact.Lock maxLock) {
+        return (table, plan) -> plan.stream().anyMatch(action -> action.getImpact().exceeds(maxBytes, maxLock))
+                ? Verdict.REJECT : Verdict.APPLY;
+    }
+
+}
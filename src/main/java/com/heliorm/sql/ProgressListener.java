@@ -0,0 +1,20 @@
+package com.heliorm.sql;
+
+/** Receives progress reports from long running changes, like copying or updating the rows of a table.
+ *
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+    /** A listener that ignores progress */
+    ProgressListener NONE = (done, total) -> {
+    };
+
+    /** Report progress.
+     *
+     * @param done The amount of work done
+     * @param total The estimated total amount of work
+     */
+    void progress(long done, long total);
+
+}
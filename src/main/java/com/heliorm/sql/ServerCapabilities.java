@@ -0,0 +1,91 @@
+package com.heliorm.sql;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/** The product, version and schema change features of the database server a modeller is connected to. These are
+ * probed once per modeller, and are used to choose the cheapest way the server supports to make a change.
+ *
+ */
+public final class ServerCapabilities {
+
+    /** A schema change feature that not all database servers or versions support */
+    public enum Feature {
+        /** Columns can be added by only changing the catalog, also if they have a default */
+        INSTANT_ADD_COLUMN,
+        /** Columns can be dropped by only changing the catalog */
+        INSTANT_DROP_COLUMN,
+        /** Columns can be renamed with RENAME COLUMN, without repeating the column definition */
+        RENAME_COLUMN,
+        /** Indexes can be renamed without being rebuilt */
+        RENAME_INDEX,
+        /** Indexes can be made invisible to the optimizer while still being maintained */
+        INVISIBLE_INDEX,
+        /** Indexes can be rebuilt with REINDEX CONCURRENTLY, without blocking writes */
+        REINDEX_CONCURRENTLY,
+        /** A NOT NULL constraint can be applied without scanning the table, using a validated check constraint */
+        NOT_NULL_BY_CONSTRAINT;
+    }
+
+    private final String product;
+    private final String version;
+    private final Set<Feature> features;
+
+    /** Create new server capabilities.
+     *
+     * @param product The name of the database product
+     * @param version The version of the server as reported by it
+     * @param features The features the server supports
+     */
+    public ServerCapabilities(String product, String version, Set<Feature> features) {
+        this.product = product;
+        this.version = version;
+        this.features = features.isEmpty()
+                ? Collections.emptySet()
+                : Collections.unmodifiableSet(EnumSet.copyOf(features));
+    }
+
+    /** Get the name of the database product.
+     *
+     * @return The product name
+     */
+    public String getProduct() {
+        return product;
+    }
+
+    /** Get the version of the server as reported by it.
+     *
+     * @return The version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /** Get the features the server supports.
+     *
+     * @return The features
+     */
+    public Set<Feature> getFeatures() {
+        return features;
+    }
+
+    /** Determine if the server supports a feature.
+     *
+     * @param feature The feature
+     * @return True if it is supported
+     */
+    public boolean supports(Feature feature) {
+        return features.contains(feature);
+    }
+
+    @Override
+    public String toString() {
+        return "ServerCapabilities{" +
+                "product='" + product + '\'' +
+                ", version='" + version + '\'' +
+                ", features=" + features +
+                '}';
+    }
+
+}
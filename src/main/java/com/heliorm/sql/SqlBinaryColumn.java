@@ -6,8 +6,8 @@ public class SqlBinaryColumn extends SqlColumn implements BinaryColumn {
 
     private final int length;
 
-    SqlBinaryColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defVal, int length) {
-        super(table, name, jdbcType, nullable, defVal, false);
+    SqlBinaryColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defVal, int length) {
+        super(table, name, jdbcType, nullable, key, defVal, false);
         this.length = length;
     }
 
@@ -15,4 +15,14 @@ public class SqlBinaryColumn extends SqlColumn implements BinaryColumn {
     public int getLength() {
         return length;
     }
-}
\ No newline at end of file
+
+    @Override
+    boolean isSameType(SqlColumn other) {
+        return length == ((SqlBinaryColumn) other).length;
+    }
+
+    @Override
+    int typeHashCode() {
+        return length;
+    }
+}
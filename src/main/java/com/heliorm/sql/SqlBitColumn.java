@@ -7,10 +7,10 @@ import java.sql.JDBCType;
  */
 final class SqlBitColumn extends SqlColumn implements BitColumn {
 
-    private int bits;
+    private final int bits;
 
-    public SqlBitColumn(Table table, String name, boolean nullable, String devVal, int bits) {
-        super(table, name, JDBCType.BIT, nullable, devVal,false);
+    public SqlBitColumn(Table table, String name, boolean nullable, boolean key, String devVal, int bits) {
+        super(table, name, JDBCType.BIT, nullable, key, devVal,false);
         this.bits = bits;
     }
 
@@ -18,4 +18,14 @@ final class SqlBitColumn extends SqlColumn implements BitColumn {
     public int getBits() {
         return bits;
     }
+
+    @Override
+    boolean isSameType(SqlColumn other) {
+        return bits == ((SqlBitColumn) other).bits;
+    }
+
+    @Override
+    int typeHashCode() {
+        return bits;
+    }
 }
@@ -7,7 +7,7 @@ import java.sql.JDBCType;
  */
 final class SqlBooleanColumn extends SqlColumn implements BooleanColumn {
 
-    public SqlBooleanColumn(Table table, String name, boolean nullable, String defVal) {
-        super(table, name, JDBCType.BOOLEAN, nullable, defVal, false);
+    public SqlBooleanColumn(Table table, String name, boolean nullable, boolean key, String defVal) {
+        super(table, name, JDBCType.BOOLEAN, nullable, key, defVal, false);
     }
 }
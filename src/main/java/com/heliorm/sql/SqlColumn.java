@@ -1,6 +1,10 @@
 package com.heliorm.sql;
 
 import java.sql.JDBCType;
+import java.util.Collections;
+import java.util.Objects;
+
+import static java.lang.String.format;
 
 
 /** Implementation of a column that is populated by reading from SQL
@@ -11,23 +15,68 @@ abstract class SqlColumn implements Column {
     private final Table table;
     private final String name;
     private final JDBCType jdbcType;
-    private boolean nullable;
-    private boolean key;
+    private final boolean nullable;
+    private final boolean key;
     private final boolean autoIncrement;
     private final String defaultValue;
+    private int hash;
 
-    SqlColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defaultValue, boolean autoIncrement) {
+    SqlColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defaultValue, boolean autoIncrement) {
         this.table = table;
         this.name = name;
         this.jdbcType = jdbcType;
         this.nullable = nullable;
-        this.key = false;
+        this.key = key;
         this.autoIncrement = autoIncrement;
         this.defaultValue = defaultValue;
     }
 
-    void setKey(boolean key) {
-        this.key = key;
+    /** Create a copy of a column with a different nullability. The copy has the same column type as the original,
+     * so it can be used to generate SQL for any column model.
+     *
+     * @param column The column to copy
+     * @param nullable True if the copy can be null
+     * @return The copy
+     * @throws SqlModellerException Thrown if the column type is not supported
+     */
+    static SqlColumn copyOf(Column column, boolean nullable) throws SqlModellerException {
+        return copyOf(column, column.getTable(), nullable);
+    }
+
+    /** Create a copy of a column in another table, with a different nullability.
+     *
+     * @param column The column to copy
+     * @param table The table the copy is in
+     * @param nullable True if the copy can be null
+     * @return The copy
+     * @throws SqlModellerException Thrown if the column type is not supported
+     */
+    static SqlColumn copyOf(Column column, Table table, boolean nullable) throws SqlModellerException {
+        String name = column.getName();
+        String defVal = column.getDefault();
+        boolean key = column.isKey();
+        if (column instanceof EnumColumn) {
+            return new SqlEnumColumn(table, name, nullable, key, defVal, Collections.unmodifiableSet(((EnumColumn) column).getEnumValues()));
+        } else if (column instanceof SetColumn) {
+            return new SqlSetColumn(table, name, nullable, key, defVal, Collections.unmodifiableSet(((SetColumn) column).getSetValues()));
+        } else if (column instanceof StringColumn) {
+            return new SqlStringColumn(table, name, column.getJdbcType(), nullable, key, defVal, ((StringColumn) column).getLength());
+        } else if (column instanceof BinaryColumn) {
+            return new SqlBinaryColumn(table, name, column.getJdbcType(), nullable, key, defVal, ((BinaryColumn) column).getLength());
+        } else if (column instanceof BitColumn) {
+            return new SqlBitColumn(table, name, nullable, key, defVal, ((BitColumn) column).getBits());
+        } else if (column instanceof BooleanColumn) {
+            return new SqlBooleanColumn(table, name, nullable, key, defVal);
+        } else if (column instanceof DecimalColumn) {
+            return new SqlDecimalColumn(table, name, column.getJdbcType(), nullable, key, defVal, ((DecimalColumn) column).getPrecision(), ((DecimalColumn) column).getScale());
+        } else if (column instanceof DateTimeColumn) {
+            return new SqlDateTimeColumn(table, name, column.getJdbcType(), nullable, key, defVal);
+        } else if (column instanceof TimeStampColumn) {
+            return new SqlTimeStampColumn(table, name, column.getJdbcType(), nullable, key, defVal);
+        } else if (column instanceof IntegerColumn) {
+            return new SqlIntegerColumn(table, name, column.getJdbcType(), nullable, key, defVal, column.isAutoIncrement());
+        }
+        throw new SqlModellerException(format("Unsupported column type %s for column '%s'", column.getClass().getSimpleName(), name));
     }
 
     @Override
@@ -65,10 +114,63 @@ abstract class SqlColumn implements Column {
         return defaultValue;
     }
 
-    void setNullable(boolean nullable) {
-        this.nullable = nullable;
+    /** Determine if the type specific attributes of this column, like length or allowed values, are the same as
+     * those of another column of the same class.
+     *
+     * @param other The other column
+     * @return True if the same
+     */
+    boolean isSameType(SqlColumn other) {
+        return true;
+    }
+
+    /** Calculate a hash code for the type specific attributes of this column.
+     *
+     * @return The hash code
+     */
+    int typeHashCode() {
+        return 0;
     }
-    
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SqlColumn other = (SqlColumn) o;
+        return hashCode() == other.hashCode()
+                && nullable == other.nullable
+                && key == other.key
+                && autoIncrement == other.autoIncrement
+                && jdbcType == other.jdbcType
+                && name.equals(other.name)
+                && table.getName().equals(other.table.getName())
+                && table.getDatabase().getName().equals(other.table.getDatabase().getName())
+                && Objects.equals(defaultValue, other.defaultValue)
+                && isSameType(other);
+    }
+
+    @Override
+    public final int hashCode() {
+        int result = hash;
+        if (result == 0) {
+            result = table.getDatabase().getName().hashCode();
+            result = 31 * result + table.getName().hashCode();
+            result = 31 * result + name.hashCode();
+            result = 31 * result + jdbcType.ordinal();
+            result = 31 * result + (nullable ? 1 : 0);
+            result = 31 * result + (key ? 1 : 0);
+            result = 31 * result + (autoIncrement ? 1 : 0);
+            result = 31 * result + Objects.hashCode(defaultValue);
+            result = 31 * result + typeHashCode();
+            hash = result;
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
         return "SqlColumn{" +
@@ -78,7 +180,7 @@ abstract class SqlColumn implements Column {
                 ", key=" + key +
                 ", name='" + name + '\'' +
                 ", nullable=" + nullable +
-                ", table=" + table +
+                ", table=" + table.getName() +
                 '}';
     }
 }
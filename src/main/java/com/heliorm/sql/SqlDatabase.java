@@ -1,21 +1,31 @@
 package com.heliorm.sql;
 
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
-/** Implementation of Database that is populated by reading from SQL
+/** Implementation of Database that is populated by reading from SQL. Tables are only added while the database is
+ * read, after that the database does not change and tables are found by name without searching.
  *
  */
 final class SqlDatabase implements Database {
 
     private final String name;
-    private final Set<Table> tables = new HashSet<>();
+    private final Map<String, Table> tableMap = new LinkedHashMap<>();
+    private final Set<Table> tables = new LinkedHashSet<>();
+    private final Set<Table> tableView = Collections.unmodifiableSet(tables);
 
     public SqlDatabase(String name) {
         this.name = name;
     }
 
     void addTable(Table table) {
+        Table old = tableMap.put(table.getName(), table);
+        if (old != null) {
+            tables.remove(old);
+        }
         tables.add(table);
     }
 
@@ -26,6 +36,11 @@ final class SqlDatabase implements Database {
 
     @Override
     public Set<Table> getTables() {
-        return tables;
+        return tableView;
+    }
+
+    @Override
+    public Table getTable(String name) {
+        return tableMap.get(name);
     }
 }
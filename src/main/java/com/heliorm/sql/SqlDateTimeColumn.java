@@ -4,7 +4,7 @@ import java.sql.JDBCType;
 
 public class SqlDateTimeColumn extends SqlColumn implements DateTimeColumn {
 
-    SqlDateTimeColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defVal) {
-        super(table, name, jdbcType, nullable, defVal, false);
+    SqlDateTimeColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defVal) {
+        super(table, name, jdbcType, nullable, key, defVal, false);
     }
 }
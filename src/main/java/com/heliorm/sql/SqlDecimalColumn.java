@@ -7,17 +7,17 @@ import java.sql.JDBCType;
  */
 public final class SqlDecimalColumn extends SqlColumn implements DecimalColumn {
 
-    private int precision;
-    private int scale;
+    private final int precision;
+    private final int scale;
 
-    public SqlDecimalColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defVal, int precision, int scale) {
-        super(table, name, jdbcType, nullable, defVal, false);
+    public SqlDecimalColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defVal, int precision, int scale) {
+        super(table, name, jdbcType, nullable, key, defVal, false);
         this.precision = precision;
         this.scale = scale;
     }
 
-    public SqlDecimalColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defVal) {
-        super(table, name, jdbcType, nullable,  defVal, false);
+    public SqlDecimalColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defVal) {
+        this(table, name, jdbcType, nullable, key, defVal, 0, 0);
     }
 
     @Override
@@ -29,4 +29,15 @@ public final class SqlDecimalColumn extends SqlColumn implements DecimalColumn {
     public int getScale() {
         return scale;
     }
+
+    @Override
+    boolean isSameType(SqlColumn other) {
+        return precision == ((SqlDecimalColumn) other).precision
+                && scale == ((SqlDecimalColumn) other).scale;
+    }
+
+    @Override
+    int typeHashCode() {
+        return 31 * precision + scale;
+    }
 }
@@ -10,8 +10,8 @@ class SqlEnumColumn extends SqlColumn implements EnumColumn{
 
     private final Set<String> enumValues;
 
-    SqlEnumColumn(Table table, String name, boolean nullable, String defaultValue, Set<String> enumValues) {
-        super(table, name, JDBCType.OTHER,  nullable, defaultValue, false);
+    SqlEnumColumn(Table table, String name, boolean nullable, boolean key, String defaultValue, Set<String> enumValues) {
+        super(table, name, JDBCType.OTHER,  nullable, key, defaultValue, false);
         this.enumValues = enumValues;
     }
 
@@ -19,4 +19,14 @@ class SqlEnumColumn extends SqlColumn implements EnumColumn{
     public Set<String> getEnumValues() {
         return enumValues;
     }
+
+    @Override
+    boolean isSameType(SqlColumn other) {
+        return enumValues.equals(((SqlEnumColumn) other).enumValues);
+    }
+
+    @Override
+    int typeHashCode() {
+        return enumValues.hashCode();
+    }
 }
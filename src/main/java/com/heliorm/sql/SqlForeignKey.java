@@ -0,0 +1,125 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Implementation of ForeignKey that is populated by reading from SQL. Columns are only added while the key is read,
+ * after that the key does not change and the views returned are never copied.
+ *
+ */
+final class SqlForeignKey implements ForeignKey {
+
+    private final Table table;
+    private final String name;
+    private final String referencedTable;
+    private final Rule onDelete;
+    private final Rule onUpdate;
+    private final List<Column> columns = new ArrayList<>();
+    private final List<String> referencedColumns = new ArrayList<>();
+    private final List<Column> columnView = Collections.unmodifiableList(columns);
+    private final List<String> referencedColumnView = Collections.unmodifiableList(referencedColumns);
+    private int hash;
+
+    SqlForeignKey(Table table, String name, String referencedTable, Rule onDelete, Rule onUpdate) {
+        this.table = table;
+        this.name = name;
+        this.referencedTable = referencedTable;
+        this.onDelete = onDelete;
+        this.onUpdate = onUpdate;
+    }
+
+    /** Create a copy of a foreign key in another table. The columns of the copy are the columns with the same names
+     * in that table, or copies of the columns of the key if the table does not have them.
+     *
+     * @param key The key to copy
+     * @param table The table the copy is in
+     * @return The copy
+     * @throws SqlModellerException Thrown if the key has a column type that is not supported
+     */
+    static SqlForeignKey copyOf(ForeignKey key, Table table) throws SqlModellerException {
+        SqlForeignKey copy = new SqlForeignKey(table, key.getName(), key.getReferencedTable(), key.getOnDelete(), key.getOnUpdate());
+        for (int i = 0; i < key.getColumns().size(); ++i) {
+            Column column = key.getColumns().get(i);
+            Column tableColumn = table.getColumn(column.getName());
+            copy.addColumn(tableColumn != null ? tableColumn : SqlColumn.copyOf(column, table, column.isNullable()),
+                    key.getReferencedColumns().get(i));
+        }
+        return copy;
+    }
+
+    void addColumn(Column column, String referencedColumn) {
+        columns.add(column);
+        referencedColumns.add(referencedColumn);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Table getTable() {
+        return table;
+    }
+
+    @Override
+    public List<Column> getColumns() {
+        return columnView;
+    }
+
+    @Override
+    public String getReferencedTable() {
+        return referencedTable;
+    }
+
+    @Override
+    public List<String> getReferencedColumns() {
+        return referencedColumnView;
+    }
+
+    @Override
+    public Rule getOnDelete() {
+        return onDelete;
+    }
+
+    @Override
+    public Rule getOnUpdate() {
+        return onUpdate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SqlForeignKey that = (SqlForeignKey) o;
+        return hashCode() == that.hashCode()
+                && name.equals(that.name)
+                && table.getName().equals(that.table.getName())
+                && referencedTable.equals(that.referencedTable)
+                && onDelete == that.onDelete
+                && onUpdate == that.onUpdate
+                && columns.equals(that.columns)
+                && referencedColumns.equals(that.referencedColumns);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * name.hashCode() + referencedTable.hashCode()) + referencedColumns.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlForeignKey{" +
+                "name='" + name + '\'' +
+                ", table=" + table.getName() +
+                ", referencedTable='" + referencedTable + '\'' +
+                ", referencedColumns=" + referencedColumns +
+                '}';
+    }
+}
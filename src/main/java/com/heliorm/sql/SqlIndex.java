@@ -1,11 +1,11 @@
 package com.heliorm.sql;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-/** Implementation of Index that is populated by reading from SQL
+/** Implementation of Index that is populated by reading from SQL. Columns are only added while the index is read,
+ * after that the index does not change and the view returned is never copied.
  *
  */
 final class SqlIndex implements Index {
@@ -13,13 +13,33 @@ final class SqlIndex implements Index {
     private final Table table;
     private final String name;
     private final boolean unique;
-    private final Map<String, Column> columns;
+    private final List<Column> columns;
+    private final List<Column> columnView;
+    private int hash;
 
     public SqlIndex(Table table, String name, boolean unique) {
         this.table = table;
         this.name = name;
         this.unique = unique;
-        this.columns = new HashMap<>();
+        this.columns = new ArrayList<>();
+        this.columnView = Collections.unmodifiableList(columns);
+    }
+
+    /** Create a copy of an index in another table. The columns of the copy are the columns with the same names in
+     * that table, or copies of the columns of the index if the table does not have them.
+     *
+     * @param index The index to copy
+     * @param table The table the copy is in
+     * @return The copy
+     * @throws SqlModellerException Thrown if the index has a column type that is not supported
+     */
+    static SqlIndex copyOf(Index index, Table table) throws SqlModellerException {
+        SqlIndex copy = new SqlIndex(table, index.getName(), index.isUnique());
+        for (Column column : index.getColumns()) {
+            Column tableColumn = table.getColumn(column.getName());
+            copy.addColunm(tableColumn != null ? tableColumn : SqlColumn.copyOf(column, table, column.isNullable()));
+        }
+        return copy;
     }
 
     @Override
@@ -33,8 +53,8 @@ final class SqlIndex implements Index {
     }
 
     @Override
-    public Set<Column> getColumns() {
-        return new HashSet<>(columns.values());
+    public List<Column> getColumns() {
+        return columnView;
     }
 
     @Override
@@ -43,6 +63,37 @@ final class SqlIndex implements Index {
     }
 
     void addColunm(Column column) {
-        columns.put(column.getName(), column);
+        columns.add(column);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SqlIndex sqlIndex = (SqlIndex) o;
+        return hashCode() == sqlIndex.hashCode()
+                && unique == sqlIndex.unique
+                && name.equals(sqlIndex.name)
+                && table.getName().equals(sqlIndex.table.getName())
+                && columns.equals(sqlIndex.columns);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * name.hashCode() + Boolean.hashCode(unique)) + columns.hashCode();
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlIndex{" +
+                "name='" + name + '\'' +
+                ", unique=" + unique +
+                ", table=" + table.getName() +
+                '}';
     }
 }
@@ -0,0 +1,38 @@
+package com.heliorm.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static java.lang.String.format;
+
+/** A named lock held in the database by the session of a connection. The lock is released and the connection
+ * closed when the lock is closed. A lock without a connection does nothing, for databases without named locks.
+ *
+ */
+final class SqlLock implements AutoCloseable {
+
+    private final Connection con;
+    private final String unlockQuery;
+    private final String name;
+
+    SqlLock(Connection con, String unlockQuery, String name) {
+        this.con = con;
+        this.unlockQuery = unlockQuery;
+        this.name = name;
+    }
+
+    @Override
+    public void close() throws SqlModellerException {
+        if (con == null) {
+            return;
+        }
+        // the lock is released explicitly, since a pooled connection keeps its session when it is closed
+        try (Connection con = this.con; PreparedStatement stmt = con.prepareStatement(unlockQuery)) {
+            stmt.setString(1, name);
+            stmt.execute();
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error releasing lock '%s' (%s)", name, ex.getMessage()), ex);
+        }
+    }
+}
@@ -1,22 +1,44 @@
 package com.heliorm.sql;
 
+import com.heliorm.sql.h2.H2Modeller;
 import com.heliorm.sql.mysql.MysqlModeller;
 import com.heliorm.sql.postgres.PostgresModeller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.JDBCType;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 
@@ -26,6 +48,16 @@ import static java.lang.String.format;
  */
 public abstract class SqlModeller {
     private final Supplier<Connection> supplier;
+    private final Interner interner = new Interner();
+    private final SqlWriter.Quoter quoter;
+    private volatile ServerCapabilities capabilities;
+    private volatile ModellerListener listener = ModellerListener.NONE;
+    private final ThreadLocal<List<String>> recorder = new ThreadLocal<>();
+    // the time of the catalog reads reported by each thread, so reads made during other reads are not counted twice
+    private final ThreadLocal<long[]> reportedReads = ThreadLocal.withInitial(() -> new long[1]);
+    private volatile Supplier<Connection> readSupplier;
+    private volatile long replicaLag;
+    private final Map<String, Long> changes = new ConcurrentHashMap<>();
 
     /**
      * Create a modeller for MySQL/MariaDB databases.
@@ -47,6 +79,16 @@ public abstract class SqlModeller {
         return new PostgresModeller(supplier);
     }
 
+    /**
+     * Create a modeller for H2 databases.
+     *
+     * @param supplier A supplier of SQL connections.
+     * @return The modeller
+     */
+    public static SqlModeller h2(Supplier<Connection> supplier) {
+        return new H2Modeller(supplier);
+    }
+
     /**
      * Generate a text SQL schema for a table.
      *
@@ -57,6 +99,93 @@ public abstract class SqlModeller {
         return makeCreateTableQuery(table);
     }
 
+    /**
+     * Generate a text SQL schema for a table, writing it to the given output.
+     *
+     * @param table The table
+     * @param out   The output
+     * @throws SqlModellerException Thrown if the table cannot be expressed in SQL
+     */
+    public final void generateSchema(Table table, Appendable out) throws SqlModellerException {
+        writeCreateTableQuery(writer(out), table);
+    }
+
+    /**
+     * Generate a text SQL schema for all the tables in a database, writing it to the given output as it is
+     * generated. Types used by the tables are created first, then the tables in order of name, and then the indexes
+     * and foreign keys of the tables in order of table and name, so databases with the same structure have the same
+     * schema.
+     * The output is flushed but not closed.
+     *
+     * @param database The database
+     * @param out      The output
+     * @throws SqlModellerException Thrown if a table cannot be expressed in SQL or the output cannot be written
+     */
+    public final void generateSchema(Database database, Writer out) throws SqlModellerException {
+        List<Table> tables = new ArrayList<>(database.getTables());
+        tables.sort(Comparator.comparing(Table::getName));
+        SqlWriter sql = writer(out);
+        try {
+            for (Table table : tables) {
+                writeCreateTypes(sql, table);
+            }
+            for (Table table : tables) {
+                writeCreateTableColumns(sql, table);
+                writePartitionClause(sql, table);
+                sql.append(";\n");
+                writeCreatePartitions(sql, table);
+            }
+            for (Table table : tables) {
+                List<Index> indexes = new ArrayList<>(table.getIndexes());
+                indexes.sort(Comparator.comparing(Index::getName));
+                for (Index index : indexes) {
+                    writeAddIndexQuery(sql, index);
+                    sql.append(";\n");
+                }
+            }
+            // foreign keys are added last, when all the tables they refer to exist
+            for (Table table : tables) {
+                List<ForeignKey> keys = new ArrayList<>(table.getForeignKeys());
+                keys.sort(Comparator.comparing(ForeignKey::getName));
+                for (ForeignKey key : keys) {
+                    writeAddForeignKeyQuery(sql, key);
+                    sql.append(";\n");
+                }
+            }
+            out.flush();
+        } catch (UncheckedIOException ex) {
+            throw new SqlModellerException(format("Error writing schema for database '%s' (%s)", database.getName(), ex.getCause().getMessage()), ex.getCause());
+        } catch (IOException ex) {
+            throw new SqlModellerException(format("Error writing schema for database '%s' (%s)", database.getName(), ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Generate a text SQL schema for all the tables in a database, writing it to the given stream in UTF-8.
+     * The stream is flushed but not closed.
+     *
+     * @param database The database
+     * @param out      The stream
+     * @throws SqlModellerException Thrown if a table cannot be expressed in SQL or the stream cannot be written
+     * @see #generateSchema(Database, Writer)
+     */
+    public final void generateSchema(Database database, OutputStream out) throws SqlModellerException {
+        generateSchema(database, new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Generate a text SQL schema for all the tables in a database, writing it to the given channel in UTF-8.
+     * The channel is not closed.
+     *
+     * @param database The database
+     * @param channel  The channel
+     * @throws SqlModellerException Thrown if a table cannot be expressed in SQL or the channel cannot be written
+     * @see #generateSchema(Database, Writer)
+     */
+    public final void generateSchema(Database database, WritableByteChannel channel) throws SqlModellerException {
+        generateSchema(database, Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+    }
+
     /**
      * Read a database from SQL and return a model for it.
      *
@@ -65,22 +194,53 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem reading the model
      */
     public final Database readDatabase(String name) throws SqlModellerException {
-        SqlDatabase database = new SqlDatabase(name);
-        try (Connection con = con()) {
-            DatabaseMetaData dbm = con.getMetaData();
-            try (ResultSet tables = dbm.getTables(null, null, null, null)) {
-                while (tables.next()) {
-                    database.addTable(readTable(database, tables.getString("TABLE_NAME")));
+        SqlDatabase database = new SqlDatabase(interner.intern(name));
+        // the tables are read once their names are read, so the time spent reading them is only reported by readTable
+        for (String table : readTableNames(name)) {
+            database.addTable(readTable(database, table));
+        }
+        return database;
+    }
+
+    /**
+     * Read the names of the tables in a database.
+     *
+     * @param name The name of the database
+     * @return The names of the tables
+     * @throws SqlModellerException Thrown if there is a problem reading the names
+     */
+    private List<String> readTableNames(String name) throws SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        List<String> names = new ArrayList<>();
+        Throwable failure = null;
+        String query = makeReadTableNamesQuery(name);
+        try (Connection con = readCon(name, null)) {
+            if (query == null) {
+                try (ResultSet tables = con.getMetaData().getTables(name, null, null, new String[]{"TABLE"})) {
+                    while (tables.next()) {
+                        names.add(tables.getString("TABLE_NAME"));
+                    }
+                }
+            } else {
+                try (Statement stmt = con.createStatement(); ResultSet tables = stmt.executeQuery(query)) {
+                    while (tables.next()) {
+                        names.add(tables.getString(1));
+                    }
                 }
             }
+            return names;
         } catch (SQLException ex) {
+            failure = ex;
             throw new SqlModellerException(format("Error scanning database '%s' (%s)", name, ex.getMessage()), ex);
+        } finally {
+            read.report("readDatabase", null, names.size(), failure);
         }
-        return database;
     }
 
     /**
-     * Read a table from SQL and return a model for it.
+     * Read a table from SQL and return a model for it. Names, defaults and enum and set values are shared with the
+     * other models read by this modeller, so reading many tables with the same structure does not store them
+     * more than once.
      *
      * @param database The database for the table
      * @param name     The name of the table
@@ -88,56 +248,173 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem reading the model
      */
     public final Table readTable(Database database, String name) throws SqlModellerException {
-        try (Connection con = con()) {
+        CatalogRead read = new CatalogRead();
+        long rows = 0;
+        Throwable failure = null;
+        try (Connection con = readCon(database.getName(), name)) {
             DatabaseMetaData dbm = con.getMetaData();
-            SqlTable table = new SqlTable(database, name);
-            Map<String, SqlColumn> sqlColumns = new HashMap<>();
-            try (ResultSet columns = dbm.getColumns(database.getName(), null, table.getName(), "%")) {
-                while (columns.next()) {
-                    SqlColumn column = getColumnFromResultSet(table, columns);
-                    sqlColumns.put(column.getName(), column);
-                }
-            }
+            SqlTable table = new SqlTable(database, interner.intern(name));
+            // keys are read first so that columns can be created complete and never changed
             Set<String> keyNames = new HashSet<>();
-            try (ResultSet keys = dbm.getPrimaryKeys(database.getName(), null, table.getName())) {
-                while (keys.next()) {
-                    SqlColumn column = sqlColumns.get(keys.getString("COLUMN_NAME"));
-                    String pkName = keys.getString("PK_NAME");
-                    if (column == null) {
-                        throw new SqlModellerException(format("Cannot find column '%s' in table '%s' yet it is a primary key", keys.getString("COLUMN_NAME"), table.getName()));
-                    }
-                    keyNames.add(pkName);
-                    column.setKey(true);
-                }
-            }
-            for (Column column : sqlColumns.values()) {
+            Map<Integer, String> keyColumns = new TreeMap<>();
+            rows += scan("getPrimaryKeys", name, () -> dbm.getPrimaryKeys(database.getName(), null, table.getName()), keys -> {
+                keyNames.add(keys.getString("PK_NAME"));
+                keyColumns.put(keys.getInt("KEY_SEQ"), keys.getString("COLUMN_NAME"));
+            });
+            Set<String> keyColumnNames = new HashSet<>(keyColumns.values());
+            Map<Integer, SqlColumn> sqlColumns = new TreeMap<>();
+            rows += scan("getColumns", name, () -> dbm.getColumns(database.getName(), null, table.getName(), "%"),
+                    columns -> sqlColumns.put(columns.getInt("ORDINAL_POSITION"), getColumnFromResultSet(table, columns, keyColumnNames)));
+            for (SqlColumn column : sqlColumns.values()) {
                 table.addColumn(column);
             }
-            Map<String, SqlIndex> idxMap = new HashMap<>();
-            try (ResultSet indexes = dbm.getIndexInfo(database.getName(), null, table.getName(), false, false)) {
-                while (indexes.next()) {
-                    String index_name = indexes.getString("INDEX_NAME");
-                    String column_name = indexes.getString("COLUMN_NAME");
-                    boolean non_unique = indexes.getBoolean("NON_UNIQUE");
-                    SqlIndex sqlIndex;
-                    if (idxMap.containsKey(index_name)) {
-                        sqlIndex = idxMap.get(index_name);
-                    } else {
-                        sqlIndex = new SqlIndex(table, index_name, !non_unique);
-                        idxMap.put(index_name, sqlIndex);
-                    }
-                    sqlIndex.addColunm(table.getColumn(column_name));
+            for (String keyColumn : keyColumns.values()) {
+                Column column = table.getColumn(keyColumn);
+                if (column == null) {
+                    throw new SqlModellerException(format("Cannot find column '%s' in table '%s' yet it is a primary key", keyColumn, table.getName()));
                 }
+                table.addPrimaryKeyColumn(column);
             }
-            for (Index index : idxMap.values()) {
-                if (!keyNames.contains(index.getName())) {
+            Map<String, SqlIndex> idxMap = new LinkedHashMap<>();
+            Map<String, Map<Integer, Column>> idxColumns = new HashMap<>();
+            rows += scan("getIndexInfo", name, () -> dbm.getIndexInfo(database.getName(), null, table.getName(), false, false), indexes -> {
+                String index_name = interner.intern(indexes.getString("INDEX_NAME"));
+                String column_name = indexes.getString("COLUMN_NAME");
+                boolean non_unique = indexes.getBoolean("NON_UNIQUE");
+                if (!idxMap.containsKey(index_name)) {
+                    idxMap.put(index_name, new SqlIndex(table, index_name, !non_unique));
+                    idxColumns.put(index_name, new TreeMap<>());
+                }
+                idxColumns.get(index_name).put(indexes.getInt("ORDINAL_POSITION"), table.getColumn(column_name));
+            });
+            for (SqlIndex index : idxMap.values()) {
+                // columns are added in key order, which is not always the order in which they are returned
+                for (Column column : idxColumns.get(index.getName()).values()) {
+                    index.addColunm(column);
+                }
+                if (!isPrimaryKeyIndex(index.getName(), keyNames)) {
                     table.addIndex(index);
                 }
             }
+            Map<String, SqlForeignKey> fkMap = new LinkedHashMap<>();
+            Map<String, Map<Integer, String[]>> fkColumns = new HashMap<>();
+            rows += scan("getImportedKeys", name, () -> dbm.getImportedKeys(database.getName(), null, table.getName()), keys -> {
+                String fk_name = interner.intern(keys.getString("FK_NAME"));
+                if (!fkMap.containsKey(fk_name)) {
+                    fkMap.put(fk_name, new SqlForeignKey(table, fk_name, interner.intern(keys.getString("PKTABLE_NAME")),
+                            getForeignKeyRule(keys.getShort("DELETE_RULE")), getForeignKeyRule(keys.getShort("UPDATE_RULE"))));
+                    fkColumns.put(fk_name, new TreeMap<>());
+                }
+                fkColumns.get(fk_name).put(keys.getInt("KEY_SEQ"),
+                        new String[]{keys.getString("FKCOLUMN_NAME"), interner.intern(keys.getString("PKCOLUMN_NAME"))});
+            });
+            for (SqlForeignKey key : fkMap.values()) {
+                for (String[] columns : fkColumns.get(key.getName()).values()) {
+                    key.addColumn(table.getColumn(columns[0]), columns[1]);
+                }
+                table.addForeignKey(key);
+            }
+            String partitionsQuery = makeReadPartitionsQuery(table);
+            if (partitionsQuery != null) {
+                rows += readPartitioning(con, table, partitionsQuery);
+            }
             return table;
         } catch (SQLException ex) {
+            failure = ex;
             throw new SqlModellerException(format("Error scanning table '%s' (%s)", name, ex.getMessage()), ex);
+        } catch (SqlModellerException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            read.report("readTable", name, rows, failure);
+        }
+    }
+
+    /**
+     * Read the partitioning of a table into the table model.
+     *
+     * @param con   The connection to read with
+     * @param table The table, with its columns read
+     * @param query The query that reads the partitions
+     * @return The number of rows read
+     * @throws SQLException         Thrown if the partitions cannot be read
+     * @throws SqlModellerException Thrown if the table is partitioned in a way the model cannot express
+     */
+    private long readPartitioning(Connection con, SqlTable table, String query) throws SQLException, SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        long rows = 0;
+        Throwable failure = null;
+        SqlPartitioning partitioning = null;
+        List<Partition> partitions = new ArrayList<>();
+        try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            while (rs.next()) {
+                ++rows;
+                if (partitioning == null) {
+                    partitioning = new SqlPartitioning(Partitioning.Type.valueOf(rs.getString(1)));
+                    String key = rs.getString(2);
+                    for (String columnName : (key == null ? "" : key).split(",")) {
+                        Column column = table.getColumn(columnName.trim());
+                        if (column == null) {
+                            throw new SqlModellerException(format("Table '%s' is partitioned by expression '%s', which cannot be modelled", table.getName(), key));
+                        }
+                        partitioning.addColumn(column);
+                    }
+                }
+                String name = rs.getString(3);
+                if (name != null) {
+                    List<String> values = new ArrayList<>();
+                    for (String value : extractPartitionValues(partitioning.getType(), rs.getString(4))) {
+                        values.add(interner.intern(value));
+                    }
+                    partitions.add(new SqlPartition(interner.intern(name), values));
+                }
+            }
+        } catch (SQLException | SqlModellerException | RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            read.report("readPartitions", table.getName(), rows, failure);
+        }
+        if (partitioning != null) {
+            if (partitioning.getType() == Partitioning.Type.RANGE) {
+                partitions.sort((one, other) -> compareBounds(one.getValues(), other.getValues()));
+            }
+            for (Partition partition : partitions) {
+                partitioning.addPartition(partition);
+            }
+            table.setPartitioning(partitioning);
+        }
+        return rows;
+    }
+
+    /**
+     * Compare the upper bounds of two range partitions. Numbers are compared by value and other literals as text,
+     * which orders quoted ISO dates and times correctly. MAXVALUE comes after all values, and the default partition,
+     * which has no bound, comes last.
+     *
+     */
+    private static int compareBounds(List<String> one, List<String> other) {
+        if (one.isEmpty() || other.isEmpty()) {
+            return Boolean.compare(one.isEmpty(), other.isEmpty());
         }
+        for (int i = 0; i < Math.min(one.size(), other.size()); ++i) {
+            String a = one.get(i);
+            String b = other.get(i);
+            int result;
+            if (a.equalsIgnoreCase("MAXVALUE") || b.equalsIgnoreCase("MAXVALUE")) {
+                result = Boolean.compare(a.equalsIgnoreCase("MAXVALUE"), b.equalsIgnoreCase("MAXVALUE"));
+            } else {
+                try {
+                    result = new BigDecimal(a).compareTo(new BigDecimal(b));
+                } catch (NumberFormatException ex) {
+                    result = a.compareTo(b);
+                }
+            }
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(one.size(), other.size());
     }
 
     /**
@@ -148,16 +425,181 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem
      */
     public final boolean tableExists(Table table) throws SqlModellerException {
-        try (Connection con = con()) {
+        CatalogRead read = new CatalogRead();
+        boolean exists = false;
+        Throwable failure = null;
+        try (Connection con = readCon(table)) {
             DatabaseMetaData dbm = con.getMetaData();
             try (ResultSet tables = dbm.getTables(getDatabaseName(table.getDatabase()), null, table.getName(), null)) {
-                return tables.next();
+                exists = tables.next();
+                return exists;
             }
         } catch (SQLException ex) {
+            failure = ex;
             throw new SqlModellerException(format("Error checking table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } finally {
+            read.report("tableExists", table.getName(), exists ? 1 : 0, failure);
+        }
+    }
+
+    /**
+     * Read the size statistics for a table from the database catalog.
+     *
+     * @param table The table
+     * @return The statistics
+     * @throws SqlModellerException Thrown if there is a problem reading the statistics
+     */
+    public final TableStatistics readTableStatistics(Table table) throws SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        long rows = 0;
+        Throwable failure = null;
+        try (Connection con = readCon(table); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(makeReadTableStatisticsQuery(table))) {
+            if (rs.next()) {
+                rows = 1;
+                return new TableStatistics(rs.getLong(1), rs.getLong(2), rs.getLong(3));
+            }
+            return TableStatistics.EMPTY;
+        } catch (SQLException ex) {
+            failure = ex;
+            throw new SqlModellerException(format("Error reading statistics for table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } finally {
+            read.report("readTableStatistics", table.getName(), rows, failure);
+        }
+    }
+
+    /**
+     * Read the estimated sizes of the indexes of a table from the database catalog. The sizes are only estimates,
+     * and some databases only let privileged accounts read them, so if they cannot be read they are left out.
+     *
+     * @param table The table
+     * @return The sizes in bytes by index name, which are 0 or missing if the database does not report them
+     * @throws SqlModellerException Thrown if there is a problem connecting to the database
+     */
+    public final Map<String, Long> readIndexSizes(Table table) throws SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        Map<String, Long> sizes = new HashMap<>();
+        Throwable failure = null;
+        try (Connection con = readCon(table); Statement stmt = con.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(makeReadIndexSizesQuery(table))) {
+                while (rs.next()) {
+                    sizes.put(rs.getString(1), rs.getLong(2));
+                }
+            } catch (SQLException ex) {
+                // the failure is still reported, so a missing privilege can be found
+                failure = ex;
+                sizes.clear();
+            }
+            return sizes;
+        } catch (SQLException ex) {
+            failure = ex;
+            throw new SqlModellerException(format("Error reading index sizes for table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } finally {
+            read.report("readIndexSizes", table.getName(), sizes.size(), failure);
         }
     }
 
+    /**
+     * Get the product, version and schema change features of the database server. The server is probed the first
+     * time this is called, and the result is kept for the life of the modeller.
+     *
+     * @return The capabilities
+     * @throws SqlModellerException Thrown if there is a problem probing the server
+     */
+    public final ServerCapabilities getCapabilities() throws SqlModellerException {
+        ServerCapabilities result = capabilities;
+        if (result == null) {
+            synchronized (this) {
+                result = capabilities;
+                if (result == null) {
+                    CatalogRead read = new CatalogRead();
+                    Throwable failure = null;
+                    try (Connection con = con()) {
+                        result = probeCapabilities(con);
+                    } catch (SQLException ex) {
+                        failure = ex;
+                        throw new SqlModellerException(format("Error probing database server (%s)", ex.getMessage()), ex);
+                    } finally {
+                        read.report("getCapabilities", null, failure == null ? 1 : 0, failure);
+                    }
+                    capabilities = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read a digest of the structure of a table, which is the same for tables with the same columns and indexes.
+     * This is much cheaper than reading the table model, and is used to find the databases in which a table has
+     * the same structure. A table that does not exist has the digest of an empty structure.
+     *
+     * @param table The table
+     * @return The digest as a hexadecimal string
+     * @throws SqlModellerException Thrown if there is a problem reading the structure
+     */
+    public final String readStructureDigest(Table table) throws SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        long rows = 0;
+        Throwable failure = null;
+        try (Connection con = readCon(table); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(makeReadStructureQuery(table))) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            int count = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                ++rows;
+                for (int i = 1; i <= count; ++i) {
+                    String value = rs.getString(i);
+                    // values are prefixed with their length so that no two different rows give the same input
+                    if (value == null) {
+                        digest.update((byte) 0);
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        digest.update((byte) 1);
+                        digest.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+                        digest.update(bytes);
+                    }
+                }
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(format("%02x", b));
+            }
+            return hex.toString();
+        } catch (SQLException ex) {
+            failure = ex;
+            throw new SqlModellerException(format("Error reading structure of table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } catch (NoSuchAlgorithmException ex) {
+            failure = ex;
+            throw new SqlModellerException(format("Cannot create digest for table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } finally {
+            read.report("readStructureDigest", table.getName(), rows, failure);
+        }
+    }
+
+    /**
+     * Set the listener that receives timing reports for catalog reads, connections and executed statements, and
+     * for the tables synchronized by verifiers using this modeller. By default reports are ignored.
+     *
+     * @param listener The listener
+     */
+    public final void setListener(ModellerListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set a separate source of connections for reading the database catalog, like a read replica. Tables, table
+     * statistics, structure digests and enum and set values are then read from it, while changes are always made
+     * with the primary connections. A replica lags behind the primary, so a table changed by this modeller is read
+     * from the primary until the given lag has passed since the change. By default the catalog is read from the
+     * primary.
+     *
+     * @param supplier The supplier of read only connections, or null to read from the primary
+     * @param lag      The longest time the replica is expected to lag behind the primary
+     */
+    public final void setReadConnections(Supplier<Connection> supplier, Duration lag) {
+        this.replicaLag = lag.toNanos();
+        this.readSupplier = supplier;
+    }
+
     /**
      * Create a table based on a table model.
      *
@@ -165,10 +607,13 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem creating the table
      */
     public final void createTable(Table table) throws SqlModellerException {
+        changed(table);
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeCreateTableQuery(table));
+            executeUpdate(stmt, makeCreateTableQuery(table));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error creating table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } finally {
+            changed(table);
         }
     }
 
@@ -179,10 +624,13 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem deleting the table
      */
     public final void deleteTable(Table table) throws SqlModellerException {
+        changed(table);
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeDeleteTableQuery(table));
+            executeUpdate(stmt, makeDeleteTableQuery(table));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error deleting table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        } finally {
+            changed(table);
         }
     }
 
@@ -193,10 +641,66 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem adding the column
      */
     public final void addColumn(Column column) throws SqlModellerException {
+        changed(column.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeAddColumnQuery(column));
+            executeUpdate(stmt, makeAddColumnQuery(column));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error adding column '%s' to table '%s' (%s)", column.getName(), column.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(column.getTable());
+        }
+    }
+
+    /**
+     * Add a column to a table and fill it from a SQL expression. If the column is not nullable and has no default,
+     * it is added as a nullable column and filled in batches of primary key ranges, each committed separately,
+     * after which the NOT NULL constraint is applied. Other columns are added as by {@link #addColumn(Column)}.
+     * Rows inserted while the column is filled must set a value for it, or applying the constraint fails. If
+     * filling the column or applying the constraint fails, the column is removed again, so the table is left as
+     * it was and the change can be retried.
+     *
+     * @param column     The column to add
+     * @param expression The SQL expression that gives the value for each row, or null to not fill the column
+     * @param settings   The batch settings
+     * @param listener   The listener that receives progress reports
+     * @throws SqlModellerException Thrown if there is a problem adding or filling the column
+     */
+    public final void addColumn(Column column, String expression, BatchSettings settings, ProgressListener listener) throws SqlModellerException {
+        if (column.isNullable() || (column.getDefault() != null) || (expression == null)) {
+            addColumn(column);
+            return;
+        }
+        Table table = column.getTable();
+        changed(table);
+        Column key = getKeyColumn(table);
+        long total = readTableStatistics(table).getRows();
+        Column nullable = SqlColumn.copyOf(column, true);
+        addColumn(nullable);
+        try {
+            forEachKeyRange(table, key, settings, total, listener, (con, range) -> {
+                try (PreparedStatement stmt = con.prepareStatement(format("UPDATE %s SET %s = (%s) WHERE %s AND %s IS NULL",
+                        getTableName(table), getColumnName(column), expression, range.condition(getColumnName(key)), getColumnName(column)))) {
+                    range.bind(stmt, 1);
+                    return stmt.executeUpdate();
+                }
+            });
+            try (Connection con = con(); Statement stmt = con.createStatement()) {
+                for (String query : makeSetNotNullQueries(column)) {
+                    executeUpdate(stmt, query);
+                }
+            } catch (SQLException ex) {
+                throw new SqlModellerException(format("Error making column '%s' in table '%s' not null (%s)", column.getName(), table.getName(), ex.getMessage()), ex);
+            }
+        } catch (SqlModellerException ex) {
+            // a partly filled nullable column would not match the model, and would block adding it on the next run
+            try {
+                deleteColumn(nullable);
+            } catch (SqlModellerException failed) {
+                ex.addSuppressed(failed);
+            }
+            throw ex;
+        } finally {
+            changed(table);
         }
     }
 
@@ -208,10 +712,13 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem reaming the column
      */
     public final void renameColumn(Column current, Column changed) throws SqlModellerException {
+        changed(current.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeRenameColumnQuery(current, changed));
+            executeUpdate(stmt, makeRenameColumnQuery(current, changed));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error renaming column '%s' in table '%s' (%s)", current.getName(), current.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(current.getTable());
         }
     }
 
@@ -222,10 +729,13 @@ public abstract class SqlModeller {
      * @throws SqlModellerException Thrown if there is a problem deleting the column
      */
     public final void deleteColumn(Column column) throws SqlModellerException {
+        changed(column.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeDeleteColumnQuery(column));
+            executeUpdate(stmt, makeDeleteColumnQuery(column));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error deleting column '%s' from table '%s' (%s)", column.getName(), column.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(column.getTable());
         }
     }
 
@@ -235,11 +745,25 @@ public abstract class SqlModeller {
      * @param current The current column
      * @throws SqlModellerException Thrown if there is a problem modifying the model
      */
-    public void modifyColumn(Column current) throws SqlModellerException {
+    public final void modifyColumn(Column current) throws SqlModellerException {
+        modifyColumn(current, ProgressListener.NONE);
+    }
+
+    /**
+     * Modify a column in SQL, reporting the progress of changes that copy or update rows.
+     *
+     * @param current  The current column
+     * @param listener The listener that receives progress reports
+     * @throws SqlModellerException Thrown if there is a problem modifying the model
+     */
+    public void modifyColumn(Column current, ProgressListener listener) throws SqlModellerException {
+        changed(current.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeModifyColumnQuery(current));
+            executeUpdate(stmt, makeModifyColumnQuery(current));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error modifying column '%s' in table '%s' (%s)", current.getName(), current.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(current.getTable());
         }
     }
 
@@ -249,10 +773,13 @@ public abstract class SqlModeller {
      * @param index The index to add
      */
     public final void addIndex(Index index) throws SqlModellerException {
+        changed(index.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeAddIndexQuery(index));
+            executeUpdate(stmt, makeAddIndexQuery(index));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error adding index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(index.getTable());
         }
     }
 
@@ -263,158 +790,804 @@ public abstract class SqlModeller {
      * @param changed The changed index
      */
     public final void renameIndex(Index current, Index changed) throws SqlModellerException {
+        changed(current.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeRenameIndexQuery(current, changed));
+            executeUpdate(stmt, makeRenameIndexQuery(current, changed));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error renaming index '%s' in table '%s' (%s)", current.getName(), current.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(current.getTable());
+        }
+    }
+
+    /**
+     * Modify an index on a SQL table
+     *
+     * @param index The index to modify
+     */
+    public abstract void modifyIndex(Index index) throws SqlModellerException;
+
+    /**
+     * Add a foreign key to a SQL table. Databases that can check existing rows without blocking writes do so
+     * after the key is added.
+     *
+     * @param key The foreign key to add
+     * @throws SqlModellerException Thrown if there is a problem adding the foreign key
+     */
+    public final void addForeignKey(ForeignKey key) throws SqlModellerException {
+        changed(key.getTable());
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            executeUpdate(stmt, makeAddForeignKeyQuery(key));
+            String validate = makeValidateForeignKeyQuery(key);
+            if (validate != null) {
+                executeUpdate(stmt, validate);
+            }
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error adding foreign key '%s' to table '%s' (%s)", key.getName(), key.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(key.getTable());
+        }
+    }
+
+    /**
+     * Remove a foreign key from a SQL table.
+     *
+     * @param key The foreign key to remove
+     * @throws SqlModellerException Thrown if there is a problem removing the foreign key
+     */
+    public final void removeForeignKey(ForeignKey key) throws SqlModellerException {
+        changed(key.getTable());
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            executeUpdate(stmt, makeRemoveForeignKeyQuery(key));
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error removing foreign key '%s' from table '%s' (%s)", key.getName(), key.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(key.getTable());
+        }
+    }
+
+    /**
+     * Modify a foreign key on a SQL table. The key is removed and added again in a transaction, so on databases
+     * with transactional DDL the table is never without it, and existing rows are checked after the transaction.
+     *
+     * @param key The changed foreign key
+     * @throws SqlModellerException Thrown if there is a problem modifying the foreign key
+     */
+    public final void modifyForeignKey(ForeignKey key) throws SqlModellerException {
+        changed(key.getTable());
+        try (Connection con = con()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (Statement stmt = con.createStatement()) {
+                executeUpdate(stmt, makeRemoveForeignKeyQuery(key));
+                executeUpdate(stmt, makeAddForeignKeyQuery(key));
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            String validate = makeValidateForeignKeyQuery(key);
+            if (validate != null) {
+                try (Statement stmt = con.createStatement()) {
+                    executeUpdate(stmt, validate);
+                }
+            }
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error modifying foreign key '%s' in table '%s' (%s)", key.getName(), key.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(key.getTable());
+        }
+    }
+
+    /**
+     * Add a partition to a partitioned table.
+     *
+     * @param table     The table model, with the partitioning that includes the partition
+     * @param partition The partition to add
+     * @throws SqlModellerException Thrown if there is a problem adding the partition
+     */
+    public final void addPartition(Table table, Partition partition) throws SqlModellerException {
+        changed(table);
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            executeUpdate(stmt, makeAddPartitionQuery(table, partition));
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error adding partition '%s' to table '%s' (%s)", partition.getName(), table.getName(), ex.getMessage()), ex);
+        } finally {
+            changed(table);
+        }
+    }
+
+    /**
+     * Detach a partition from a partitioned table. The partition is kept as a table of its own with the same name,
+     * which can be archived or dropped later.
+     *
+     * @param table     The table
+     * @param partition The partition to detach
+     * @throws SqlModellerException Thrown if there is a problem detaching the partition
+     */
+    public void detachPartition(Table table, Partition partition) throws SqlModellerException {
+        changed(table);
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            executeUpdate(stmt, makeDetachPartitionQuery(table, partition));
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error detaching partition '%s' from table '%s' (%s)", partition.getName(), table.getName(), ex.getMessage()), ex);
+        } finally {
+            changed(table);
+        }
+    }
+
+    /**
+     * Remove a partition, and the rows in it, from a partitioned table.
+     *
+     * @param table     The table
+     * @param partition The partition to remove
+     * @throws SqlModellerException Thrown if there is a problem removing the partition
+     */
+    public final void removePartition(Table table, Partition partition) throws SqlModellerException {
+        changed(table);
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            executeUpdate(stmt, makeRemovePartitionQuery(table, partition));
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error removing partition '%s' from table '%s' (%s)", partition.getName(), table.getName(), ex.getMessage()), ex);
+        } finally {
+            changed(table);
+        }
+    }
+
+    /**
+     * Try to take a named lock in the database, which is held until the lock is closed. This is used so that work
+     * that must not be done twice at the same time is done by one node when many nodes share a database. On
+     * databases without named locks the lock is always taken and does nothing.
+     *
+     * @param name The name of the lock
+     * @return The lock, or null if it is held by another session
+     * @throws SqlModellerException Thrown if there is a problem taking the lock
+     */
+    SqlLock tryLock(String name) throws SqlModellerException {
+        String query = makeTryLockQuery();
+        if (query == null) {
+            return new SqlLock(null, null, name);
         }
+        Connection con = con();
+        try {
+            try (PreparedStatement stmt = con.prepareStatement(query)) {
+                stmt.setString(1, name);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        return new SqlLock(con, makeUnlockQuery(), name);
+                    }
+                }
+            }
+            con.close();
+            return null;
+        } catch (SQLException ex) {
+            try {
+                con.close();
+            } catch (SQLException ignored) {
+            }
+            throw new SqlModellerException(format("Error taking lock '%s' (%s)", name, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Check if the database creates an index for the referencing columns of a foreign key when there is none.
+     * Without such an index every delete or key update of a referenced row scans the referencing table.
+     *
+     * @return True if it does
+     */
+    protected abstract boolean indexesForeignKeys();
+
+    /**
+     * Check if a modeller supports SET types
+     *
+     * @return True if it does
+     */
+    public abstract boolean supportsSet();
+
+    /**
+     * Remove an index from a SQL table.
+     *
+     * @param index The index to remove
+     */
+    public final void removeIndex(Index index) throws SqlModellerException {
+        changed(index.getTable());
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            executeUpdate(stmt, makeRemoveIndexQuery(index));
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error removing index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()));
+        } finally {
+            changed(index.getTable());
+        }
+    }
+
+    /**
+     * Create a new modeller with the given connection supplier and driver.
+     *
+     * @param supplier The connection supplier
+     */
+    protected SqlModeller(Supplier<Connection> supplier) {
+        this(supplier, '"');
+    }
+
+    /**
+     * Create a new modeller with the given connection supplier and driver, for a database that quotes identifiers
+     * with the given character.
+     *
+     * @param supplier The connection supplier
+     * @param quote    The character used to quote identifiers
+     */
+    protected SqlModeller(Supplier<Connection> supplier, char quote) {
+        this(supplier, quote, false);
+    }
+
+    /**
+     * Create a new modeller with the given connection supplier and driver, for a database that quotes identifiers
+     * with the given character, and that may treat backslashes in string literals as escape characters.
+     *
+     * @param supplier        The connection supplier
+     * @param quote           The character used to quote identifiers
+     * @param escapeBackslash True if backslashes in string literals must be escaped
+     */
+    protected SqlModeller(Supplier<Connection> supplier, char quote, boolean escapeBackslash) {
+        this.supplier = supplier;
+        this.quoter = new SqlWriter.Quoter(quote, escapeBackslash);
+    }
+
+    /**
+     * Compare two columns by their typing. Returns true if they are essentially the same. Must be provided
+     * by a database specific implementation.
+     *
+     * @param one   One column
+     * @param other The other column
+     * @return True if the same
+     */
+    protected abstract boolean typesAreCompatible(Column one, Column other);
+
+    /**
+     * Determine the impact of a column change on its table. Must be provided by a database specific implementation.
+     *
+     * @param type       The type of change
+     * @param current    The column as it is in the database, or null if it does not exist
+     * @param changed    The column as it will be after the change
+     * @param statistics The statistics of the table
+     * @return The impact
+     */
+    protected abstract Impact assessColumnChange(Action.Type type, Column current, Column changed, TableStatistics statistics) throws SqlModellerException;
+
+    /**
+     * Determine the impact of adding a column that is filled in batches, as done by
+     * {@link #addColumn(Column, String, BatchSettings, ProgressListener)}. Every row is updated, and the strongest
+     * lock is the one taken to add the nullable column or to make it not nullable.
+     *
+     * @param column     The column as it will be after the change
+     * @param statistics The statistics of the table
+     * @return The impact
+     * @throws SqlModellerException Thrown if the impact cannot be determined
+     */
+    protected Impact assessBackfill(Column column, TableStatistics statistics) throws SqlModellerException {
+        Column nullable = SqlColumn.copyOf(column, true);
+        Impact.Lock add = assessColumnChange(Action.Type.ADD_COLUMN, null, nullable, statistics).getLock();
+        Impact.Lock notNull = assessColumnChange(Action.Type.MODIFY_COLUMN, nullable, column, statistics).getLock();
+        return new Impact(Impact.Algorithm.REWRITE, add.compareTo(notNull) >= 0 ? add : notNull, statistics);
+    }
+
+    /**
+     * Determine the impact of an index change on its table. Must be provided by a database specific implementation.
+     *
+     * @param type       The type of change
+     * @param index      The index that is changed
+     * @param statistics The statistics of the table
+     * @return The impact
+     * @throws SqlModellerException Thrown if the impact depends on the server, and the server cannot be probed
+     */
+    protected abstract Impact assessIndexChange(Action.Type type, Index index, TableStatistics statistics) throws SqlModellerException;
+
+    /**
+     * Determine the impact of a foreign key change on its table. Must be provided by a database specific
+     * implementation.
+     *
+     * @param type       The type of change
+     * @param key        The foreign key that is changed
+     * @param statistics The statistics of the table
+     * @return The impact
+     */
+    protected abstract Impact assessForeignKeyChange(Action.Type type, ForeignKey key, TableStatistics statistics);
+
+    /**
+     * Determine the impact of a partition change on its table. Must be provided by a database specific
+     * implementation.
+     *
+     * @param type       The type of change
+     * @param table      The table model, with the partitioning that includes the partition
+     * @param partition  The partition that is changed
+     * @param statistics The statistics of the table
+     * @return The impact
+     */
+    protected abstract Impact assessPartitionChange(Action.Type type, Table table, Partition partition, TableStatistics statistics);
+
+    /**
+     * Probe the product, version and schema change features of the database server. Must be provided by a database
+     * specific implementation.
+     *
+     * @param con The connection to use
+     * @return The capabilities
+     * @throws SQLException Thrown if the server cannot be probed
+     */
+    protected abstract ServerCapabilities probeCapabilities(Connection con) throws SQLException;
+
+    /**
+     * Convert a version like <code>8.0.29</code> to a number like <code>80029</code> that can be compared to
+     * other versions. Text after the version numbers is ignored, and missing numbers count as zero.
+     *
+     * @param version The version
+     * @return The version number
+     */
+    protected static int versionNumber(String version) {
+        int[] parts = new int[3];
+        int part = 0;
+        for (int i = 0; (i < version.length()) && (part < parts.length); ++i) {
+            char c = version.charAt(i);
+            if (Character.isDigit(c)) {
+                parts[part] = parts[part] * 10 + (c - '0');
+            } else if (c == '.') {
+                ++part;
+            } else {
+                break;
+            }
+        }
+        return parts[0] * 10000 + parts[1] * 100 + parts[2];
+    }
+
+    /**
+     * Get the length of the longest identifier the database allows. By default names are not limited.
+     *
+     * @return The length
+     */
+    protected int getMaxNameLength() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Limit a generated name, like that of a helper table or trigger, to the longest identifier the database
+     * allows. Names that are too long are cut short and end with a hash of the full name, so names generated
+     * from different long names stay different.
+     *
+     * @param name   The name
+     * @param length The longest name allowed
+     * @return The name, shortened if needed
+     */
+    protected static String limitName(String name, int length) {
+        if (name.length() <= length) {
+            return name;
+        }
+        String hash = format("_%08x", name.hashCode());
+        return name.substring(0, length - hash.length()) + hash;
+    }
+
+    /**
+     * Generate a query that reads the estimated row count, data length and index length of a table, in that order.
+     *
+     * @param table The table
+     * @return The query
+     */
+    protected abstract String makeReadTableStatisticsQuery(Table table);
+
+    /**
+     * Generate a query that reads the name and estimated size in bytes of every index of a table, in that order.
+     *
+     * @param table The table
+     * @return The query
+     */
+    protected abstract String makeReadIndexSizesQuery(Table table);
+
+    /**
+     * Generate a query that reads the structure of a table from the database catalog, for use in a digest. The
+     * query must return the columns of the table with their positions, and the indexes of the table, in a fixed
+     * order, and must not return anything that differs between databases with the same structure, like database or
+     * schema names.
+     *
+     * @param table The table
+     * @return The query
+     */
+    protected abstract String makeReadStructureQuery(Table table);
+
+    /**
+     * Extract the allowed values of a Set type.
+     *
+     * @param string The string from the database.
+     * @return The set of strings.
+     */
+    protected abstract Set<String> extractSetValues(String string);
+
+
+    /**
+     * Extract the default value from a string
+     *
+     * @param string The string from the database.
+     * @return The set of strings.
+     */
+    protected abstract String extractDefault(String string);
+
+    /**
+     * Determine if a column is a SET column
+     *
+     * @param colunmName The column name
+     * @param jdbcType   The column type
+     * @param typeName   The column type name
+     * @return True if it is a set.
+     */
+    protected abstract boolean isSetColumn(String colunmName, JDBCType jdbcType, String typeName);
+
+    /**
+     * Determine if an index read from the database is the index of the primary key, which is not part of the
+     * table model. By default this is the case if the index has the name of the primary key constraint.
+     *
+     * @param indexName The index name
+     * @param keyNames  The names of the primary key constraints of the table
+     * @return True if it is the primary key index
+     */
+    protected boolean isPrimaryKeyIndex(String indexName, Set<String> keyNames) {
+        return keyNames.contains(indexName);
+    }
+
+    /**
+     * Read the possible enum values for a ENUM column
+     *
+     * @param column The column
+     * @return The set values.
+     */
+    protected abstract Set<String> readEnumValues(EnumColumn column) throws SqlModellerException;
+
+    /**
+     * Generate SQL statement to add an index to a table.
+     *
+     * @param index The index
+     * @return The SQL
+     */
+    protected final String makeAddIndexQuery(Index index) {
+        SqlWriter sql = writer(new StringBuilder());
+        writeAddIndexQuery(sql, index);
+        return sql.toString();
+    }
+
+    /**
+     * Write SQL statement to add an index to a table.
+     *
+     * @param sql   The writer
+     * @param index The index
+     */
+    protected final void writeAddIndexQuery(SqlWriter sql, Index index) {
+        sql.append(index.isUnique() ? "CREATE UNIQUE INDEX " : "CREATE INDEX ")
+                .name(index.getName())
+                .append(" on ")
+                .name(index.getTable().getName())
+                .append(" (")
+                .names(index.getColumns())
+                .append(')');
+    }
+
+    /**
+     * Write SQL statement to create a table.
+     *
+     * @param sql   The writer
+     * @param table The table
+     */
+    protected abstract void writeCreateTableQuery(SqlWriter sql, Table table) throws SqlModellerException;
+
+    /**
+     * Write SQL statement to create a table with its columns, but without its indexes.
+     *
+     * @param sql   The writer
+     * @param table The table
+     */
+    protected final void writeCreateTableColumns(SqlWriter sql, Table table) throws SqlModellerException {
+        sql.append("CREATE TABLE ").name(table.getName()).append(" (");
+        boolean first = true;
+        for (Column column : table.getColumns()) {
+            if (!first) {
+                sql.append(',');
+            }
+            sql.name(column.getName()).append(' ');
+            writeCreateType(sql, column);
+            first = false;
+        }
+        sql.append(')');
+    }
+
+    /**
+     * Write SQL statements to create the database types used by the columns of a table, if the database needs
+     * types to be created separately. Each statement is written on its own line. By default no types are needed.
+     *
+     * @param sql   The writer
+     * @param table The table
+     */
+    protected void writeCreateTypes(SqlWriter sql, Table table) throws SqlModellerException {
+    }
+
+    /**
+     * Write the clause of a create table statement that partitions the table, if the table is partitioned. By
+     * default partitioned tables are not supported.
+     *
+     * @param sql   The writer
+     * @param table The table
+     * @throws SqlModellerException Thrown if the table is partitioned and the database does not support it
+     */
+    protected void writePartitionClause(SqlWriter sql, Table table) throws SqlModellerException {
+        if (table.getPartitioning() != null) {
+            throw new SqlModellerException(format("Table '%s' is partitioned, which is not supported for this database", table.getName()));
+        }
+    }
+
+    /**
+     * Write SQL statements to create the partitions of a table, if the database creates partitions separately
+     * from their table. Each statement is followed by a semicolon and a new line. By default partitions are
+     * created with their table.
+     *
+     * @param sql   The writer
+     * @param table The table
+     */
+    protected void writeCreatePartitions(SqlWriter sql, Table table) throws SqlModellerException {
+    }
+
+    /**
+     * Generate the database specific column name from a column.
+     *
+     * @param column The column
+     * @return The name
+     */
+    protected abstract String getColumnName(Column column);
+
+    /**
+     * Generate the database specific column type as used when creating a column.
+     *
+     * @param column The column
+     * @return The type text
+     */
+    protected final String getCreateType(Column column) throws SqlModellerException {
+        SqlWriter sql = writer(new StringBuilder());
+        writeCreateType(sql, column);
+        return sql.toString();
     }
 
     /**
-     * Modify an index on a SQL table
+     * Write the database specific column type as used when creating a column.
      *
-     * @param index The index to modify
+     * @param sql    The writer
+     * @param column The column
      */
-    public abstract void modifyIndex(Index index) throws SqlModellerException;
+    protected abstract void writeCreateType(SqlWriter sql, Column column) throws SqlModellerException;
 
     /**
-     * Check if a modeller supports SET types
+     * Generate the database specific table name from a table.
      *
-     * @return True if it does
+     * @param table The table
+     * @return The name
      */
-    public abstract boolean supportsSet();
+    protected abstract String getTableName(Table table);
+
 
     /**
-     * Remove an index from a SQL table.
+     * Generate the database specific database name from a database.
      *
-     * @param index The index to remove
+     * @param database The database
+     * @return The name
      */
-    public final void removeIndex(Index index) throws SqlModellerException {
-        try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeRemoveIndexQuery(index));
-        } catch (SQLException ex) {
-            throw new SqlModellerException(format("Error removing index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()));
-        }
-    }
+    protected abstract String getDatabaseName(Database database);
 
     /**
-     * Create a new modeller with the given connection supplier and driver.
+     * Create a writer that writes SQL for this database type to the given output.
      *
-     * @param supplier The connection supplier
+     * @param out The output
+     * @return The writer
      */
-    protected SqlModeller(Supplier<Connection> supplier) {
-        this.supplier = supplier;
+    protected final SqlWriter writer(Appendable out) {
+        return new SqlWriter(out, quoter);
     }
 
     /**
-     * Compare two columns by their typing. Returns true if they are essentially the same. Must be provided
-     * by a database specific implementation.
+     * Quote and escape an identifier for this database type.
      *
-     * @param one   One column
-     * @param other The other column
-     * @return True if the same
+     * @param identifier The identifier
+     * @return The quoted identifier
      */
-    protected abstract boolean typesAreCompatible(Column one, Column other);
+    protected final String quote(String identifier) {
+        return quoter.quote(identifier);
+    }
 
     /**
-     * Extract the allowed values of a Set type.
+     * Get a database connection.
      *
-     * @param string The string from the database.
-     * @return The set of strings.
+     * @return The connection
      */
-    protected abstract Set<String> extractSetValues(String string);
-
+    protected final Connection con() {
+        return connect(supplier);
+    }
 
     /**
-     * Extract the default value from a string
+     * Get a database connection for reading the catalog of a table. This is a connection to the read replica if
+     * one is set, unless the table was changed by this modeller within the replica lag.
      *
-     * @param string The string from the database.
-     * @return The set of strings.
+     * @param table The table that is read, or null if the catalog is read for more than one table
+     * @return The connection
      */
-    protected abstract String extractDefault(String string);
+    protected final Connection readCon(Table table) {
+        return table == null ? readCon(null, null) : readCon(table.getDatabase().getName(), table.getName());
+    }
 
     /**
-     * Determine if a column is a SET column
+     * Record that a table is changed by this modeller. This must be called when a change starts and when it ends,
+     * so that the table is read from the primary while it is changed and for the replica lag after that.
      *
-     * @param colunmName The column name
-     * @param jdbcType   The column type
-     * @param typeName   The column type name
-     * @return True if it is a set.
+     * @param table The table
      */
-    protected abstract boolean isSetColumn(String colunmName, JDBCType jdbcType, String typeName);
+    protected final void changed(Table table) {
+        if (readSupplier != null) {
+            changes.put(changeKey(table.getDatabase().getName(), table.getName()), System.nanoTime());
+        }
+    }
 
     /**
-     * Read the possible enum values for a ENUM column
+     * Execute a statement that changes the database structure. The statement is reported to the listener, and
+     * recorded for the action being applied, if any.
      *
-     * @param column The column
-     * @return The set values.
+     * @param stmt The statement used to execute the SQL
+     * @param sql  The SQL
+     * @return The update count
+     * @throws SQLException Thrown if the statement fails
      */
-    protected abstract Set<String> readEnumValues(EnumColumn column) throws SqlModellerException;
+    protected final int executeUpdate(Statement stmt, String sql) throws SQLException {
+        List<String> statements = recorder.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        long start = System.nanoTime();
+        try {
+            int count = stmt.executeUpdate(sql);
+            listener.statementExecuted(sql, Duration.ofNanos(System.nanoTime() - start), null);
+            return count;
+        } catch (SQLException | RuntimeException ex) {
+            listener.statementExecuted(sql, Duration.ofNanos(System.nanoTime() - start), ex);
+            throw ex;
+        }
+    }
 
     /**
-     * Generate SQL statement to add an index to a table.
+     * Execute SQL statements that change the database structure in order on one connection. Each statement is
+     * committed on its own, and the statements after a failed one are not executed.
      *
-     * @param index The index
-     * @return The SQL
+     * @param queries The statements
+     * @throws SqlModellerException Thrown if a statement fails
      */
-    protected final String makeAddIndexQuery(Index index) {
-        return format("CREATE %sINDEX %s on %s (%s)",
-                index.isUnique() ? "UNIQUE " : "",
-                getIndexName(index),
-                getTableName(index.getTable()),
-                index.getColumns().stream()
-                        .map(this::getColumnName)
-                        .collect(Collectors.joining(",")));
+    protected final void execute(String... queries) throws SqlModellerException {
+        String query = null;
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            for (String q : queries) {
+                query = q;
+                executeUpdate(stmt, query);
+            }
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error executing '%s' (%s)", query, ex.getMessage()), ex);
+        }
     }
 
     /**
-     * Generate SQL statement to create a table.
+     * Get the listener that receives timing reports.
      *
-     * @param table The table
-     * @return The SQL
+     * @return The listener
      */
-    protected abstract String makeCreateTableQuery(Table table) throws SqlModellerException;
+    ModellerListener getListener() {
+        return listener;
+    }
 
     /**
-     * Generate the database specific column name from a column.
+     * Record the statements executed by the current thread in the given list, until recording is stopped.
      *
-     * @param column The column
-     * @return The name
+     * @param statements The list to add the statements to
      */
-    protected abstract String getColumnName(Column column);
+    void startRecording(List<String> statements) {
+        recorder.set(statements);
+    }
 
     /**
-     * Generate the database specific column type as used when creating a column.
-     *
-     * @param column The column
-     * @return The type text
+     * Stop recording the statements executed by the current thread.
      */
-    protected abstract String getCreateType(Column column) throws SqlModellerException;
+    void stopRecording() {
+        recorder.remove();
+    }
+
+    private Connection connect(Supplier<Connection> source) {
+        long start = System.nanoTime();
+        Connection con = source.get();
+        listener.connectionAcquired(Duration.ofNanos(System.nanoTime() - start));
+        return con;
+    }
 
     /**
-     * Generate the database specific table name from a table.
+     * Get a database connection for reading the catalog. The primary is used if no replica is set, or if a table
+     * that is read was changed within the replica lag.
      *
-     * @param table The table
-     * @return The name
+     * @param database The name of the database that is read, or null for any database
+     * @param table    The name of the table that is read, or null for any table in the database
+     * @return The connection
      */
-    protected abstract String getTableName(Table table);
+    private Connection readCon(String database, String table) {
+        Supplier<Connection> replica = readSupplier;
+        if (replica == null) {
+            return con();
+        }
+        long now = System.nanoTime();
+        boolean stale = false;
+        Iterator<Map.Entry<String, Long>> it = changes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> change = it.next();
+            if (now - change.getValue() > replicaLag) {
+                it.remove();
+            } else if ((database == null) || change.getKey().equals(changeKey(database, table))
+                    || ((table == null) && change.getKey().startsWith(changeKey(database, "")))) {
+                stale = true;
+            }
+        }
+        return stale ? con() : connect(replica);
+    }
 
+    private static String changeKey(String database, String table) {
+        return database + '\u0000' + table;
+    }
 
     /**
-     * Generate the database specific database name from a database.
+     * Run a catalog query and read the rows it returns, reporting the read to the listener.
      *
-     * @param database The database
-     * @return The name
+     * @param operation The name of the operation reported
+     * @param table     The name of the table read
+     * @param query     The query
+     * @param reader    The reader called for every row
+     * @return The number of rows read
+     * @throws SQLException         Thrown if the query fails
+     * @throws SqlModellerException Thrown if a row cannot be modelled
      */
-    protected abstract String getDatabaseName(Database database);
+    private long scan(String operation, String table, CatalogQuery<ResultSet> query, RowReader reader) throws SQLException, SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        long rows = 0;
+        Throwable failure = null;
+        try (ResultSet rs = query.run()) {
+            while (rs.next()) {
+                ++rows;
+                reader.read(rs);
+            }
+            return rows;
+        } catch (SQLException | SqlModellerException | RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            read.report(operation, table, rows, failure);
+        }
+    }
 
     /**
-     * Get a database connection.
+     * Read the enum or set values of a column, reporting the read to the listener.
      *
-     * @return The connection
+     * @param operation The name of the operation reported
+     * @param column    The column
+     * @param query     The query that reads the values
+     * @return The values
+     * @throws SQLException         Thrown if the query fails
+     * @throws SqlModellerException Thrown if the values cannot be read
      */
-    protected final Connection con() {
-        return supplier.get();
+    private Set<String> readValues(String operation, Column column, CatalogQuery<Set<String>> query) throws SQLException, SqlModellerException {
+        CatalogRead read = new CatalogRead();
+        Set<String> values = null;
+        Throwable failure = null;
+        try {
+            values = query.run();
+            return values;
+        } catch (SQLException | SqlModellerException | RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            read.report(operation, column.getTable().getName(), values == null ? 0 : values.size(), failure);
+        }
     }
 
 
@@ -437,6 +1610,75 @@ public abstract class SqlModeller {
     protected abstract boolean isEnumColumn(String columnName, JDBCType jdbcType, String typeName) throws SqlModellerException;
 
 
+    /**
+     * Find the single column primary key of a table, as needed to process a table in batches.
+     *
+     * @param table The table
+     * @return The key column
+     * @throws SqlModellerException Thrown if the table does not have a single column primary key
+     */
+    protected final Column getKeyColumn(Table table) throws SqlModellerException {
+        List<Column> key = table.getPrimaryKey();
+        if (key.isEmpty()) {
+            throw new SqlModellerException(format("Table '%s' has no primary key, which is needed for batch processing", table.getName()));
+        }
+        if (key.size() > 1) {
+            throw new SqlModellerException(format("Table '%s' has a composite primary key, which is not supported for batch processing", table.getName()));
+        }
+        return key.get(0);
+    }
+
+    /**
+     * Process all the rows in a table in batches of primary key ranges. Each batch uses its own statement and is
+     * committed separately. Batch sizes and pauses between batches are determined by the batch settings.
+     *
+     * @param table    The table
+     * @param key      The primary key column of the table
+     * @param settings The batch settings
+     * @param total    The estimated number of rows, used for progress reports
+     * @param listener The listener that receives progress reports
+     * @param task     The task that processes a range of keys
+     * @return The number of rows processed
+     * @throws SqlModellerException Thrown if there is a problem processing a batch
+     */
+    protected final long forEachKeyRange(Table table, Column key, BatchSettings settings, long total, ProgressListener listener, KeyRangeTask task) throws SqlModellerException {
+        String firstQuery = format("SELECT %s FROM %s ORDER BY %s LIMIT 1 OFFSET ?",
+                getColumnName(key), getTableName(table), getColumnName(key));
+        String nextQuery = format("SELECT %s FROM %s WHERE %s > ? ORDER BY %s LIMIT 1 OFFSET ?",
+                getColumnName(key), getTableName(table), getColumnName(key), getColumnName(key));
+        long done = 0;
+        int size = settings.getBatchSize();
+        Object lower = null;
+        try (Connection con = con()) {
+            while (true) {
+                Object upper;
+                try (PreparedStatement stmt = con.prepareStatement(lower == null ? firstQuery : nextQuery)) {
+                    int idx = 1;
+                    if (lower != null) {
+                        stmt.setObject(idx++, lower);
+                    }
+                    stmt.setInt(idx, size - 1);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        upper = rs.next() ? rs.getObject(1) : null;
+                    }
+                }
+                long start = System.currentTimeMillis();
+                long rows = task.process(con, new KeyRange(lower, upper));
+                long elapsed = System.currentTimeMillis() - start;
+                done += rows;
+                listener.progress(done, Math.max(done, total));
+                if (upper == null) {
+                    return done;
+                }
+                lower = upper;
+                settings.pause(rows, elapsed);
+                size = settings.nextBatchSize(size, elapsed);
+            }
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error processing table '%s' in batches after %d rows (%s)", table.getName(), done, ex.getMessage()), ex);
+        }
+    }
+
     /**
      * Determine the effective character length of a string column.
      *
@@ -463,6 +1705,15 @@ public abstract class SqlModeller {
      */
     protected abstract String makeModifyColumnQuery(Column column) throws SqlModellerException;
 
+    /**
+     * Generate the queries that apply a NOT NULL constraint to a column that has no null values, using the
+     * least locking the database allows. The queries are executed in order, each in its own transaction.
+     *
+     * @param column The column
+     * @return The queries
+     */
+    protected abstract List<String> makeSetNotNullQueries(Column column) throws SqlModellerException;
+
     /**
      * Generate a query to add a column to a table
      *
@@ -471,6 +1722,22 @@ public abstract class SqlModeller {
      */
     protected abstract String makeAddColumnQuery(Column column) throws SqlModellerException;
 
+    /**
+     * Generate a SQL statement to rename a column in a table. Database specific implementations override this if
+     * the server does not support RENAME COLUMN.
+     *
+     * @param column  The current column
+     * @param changed The changed column
+     * @return The SQL
+     */
+    protected String makeRenameColumnQuery(Column column, Column changed) throws SqlModellerException {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" RENAME COLUMN ").name(column.getName())
+                .append(" TO ").name(changed.getName())
+                .toString();
+    }
+
     /**
      * Generate a query to remove an index.
      *
@@ -502,7 +1769,213 @@ public abstract class SqlModeller {
      * @param changed The changed index
      * @return The query
      */
-    protected abstract String makeRenameIndexQuery(Index current, Index changed);
+    protected abstract String makeRenameIndexQuery(Index current, Index changed) throws SqlModellerException;
+
+    /**
+     * Generate a query to add a foreign key.
+     *
+     * @param key The foreign key
+     * @return The query
+     */
+    protected String makeAddForeignKeyQuery(ForeignKey key) {
+        SqlWriter sql = writer(new StringBuilder());
+        writeAddForeignKeyQuery(sql, key);
+        return sql.toString();
+    }
+
+    /**
+     * Write a statement to add a foreign key to a table.
+     *
+     * @param sql The writer
+     * @param key The foreign key
+     */
+    protected final void writeAddForeignKeyQuery(SqlWriter sql, ForeignKey key) {
+        sql.append("ALTER TABLE ").name(key.getTable().getName())
+                .append(" ADD CONSTRAINT ").name(key.getName())
+                .append(" FOREIGN KEY (").names(key.getColumns())
+                .append(") REFERENCES ").name(key.getReferencedTable())
+                .append(" (");
+        for (int i = 0; i < key.getReferencedColumns().size(); ++i) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.name(key.getReferencedColumns().get(i));
+        }
+        sql.append(") ON DELETE ").append(key.getOnDelete().name().replace('_', ' '))
+                .append(" ON UPDATE ").append(key.getOnUpdate().name().replace('_', ' '));
+    }
+
+    /**
+     * Generate a query that checks the existing rows of a table against a foreign key that was added without
+     * checking them.
+     *
+     * @param key The foreign key
+     * @return The query, or null if the rows are checked when the key is added
+     */
+    protected String makeValidateForeignKeyQuery(ForeignKey key) {
+        return null;
+    }
+
+    /**
+     * Generate a query that reads the names of the tables in a database, with the name in the first column. By
+     * default the names are read from the JDBC metadata, which is enough when partitions are not tables of their own.
+     *
+     * @param database The name of the database
+     * @return The query, or null if the names are read from the JDBC metadata
+     */
+    protected String makeReadTableNamesQuery(String database) {
+        return null;
+    }
+
+    /**
+     * Generate a query that reads the partitioning of a table, with a row for every partition with the
+     * partitioning type as RANGE, LIST or HASH, the comma separated names of the partition columns, the partition
+     * name and the partition bound as the database describes it, in that order. Partitions must be in order of
+     * their position, except for range partitions, which are put in order of their bounds. A partitioned table
+     * without partitions has one row without a partition name. By default tables are not partitioned.
+     *
+     * @param table The table
+     * @return The query, or null if the database does not support partitioning
+     */
+    protected String makeReadPartitionsQuery(Table table) {
+        return null;
+    }
+
+    /**
+     * Extract the values of a partition from its bound as the database describes it. By default the bound is a
+     * comma separated list of literals.
+     *
+     * @param type  The partitioning type
+     * @param bound The bound
+     * @return The values
+     * @see Partition#getValues()
+     */
+    protected List<String> extractPartitionValues(Partitioning.Type type, String bound) {
+        return splitValues(bound);
+    }
+
+    /**
+     * Split a comma separated list of SQL literals. Commas in quoted literals and in parentheses do not separate
+     * values.
+     *
+     * @param text The text
+     * @return The literals, trimmed
+     */
+    protected static List<String> splitValues(String text) {
+        List<String> values = new ArrayList<>();
+        if (text == null || text.trim().isEmpty()) {
+            return values;
+        }
+        boolean quoted = false;
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                ++depth;
+            } else if (!quoted && c == ')') {
+                --depth;
+            } else if (!quoted && depth == 0 && c == ',') {
+                values.add(text.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        values.add(text.substring(start).trim());
+        return values;
+    }
+
+    /**
+     * Generate a query to add a partition to a partitioned table. By default partitioned tables are not supported.
+     *
+     * @param table     The table model, with the partitioning that includes the partition
+     * @param partition The partition
+     * @return The query
+     * @throws SqlModellerException Thrown if the partition cannot be added
+     */
+    protected String makeAddPartitionQuery(Table table, Partition partition) throws SqlModellerException {
+        throw new SqlModellerException(format("Table '%s' is partitioned, which is not supported for this database", table.getName()));
+    }
+
+    /**
+     * Generate a query to detach a partition from a partitioned table, keeping it as a table of its own. By
+     * default partitioned tables are not supported.
+     *
+     * @param table     The table
+     * @param partition The partition
+     * @return The query
+     * @throws SqlModellerException Thrown if the partition cannot be detached
+     */
+    protected String makeDetachPartitionQuery(Table table, Partition partition) throws SqlModellerException {
+        throw new SqlModellerException(format("Table '%s' is partitioned, which is not supported for this database", table.getName()));
+    }
+
+    /**
+     * Generate a query to remove a partition from a partitioned table. By default partitioned tables are not
+     * supported.
+     *
+     * @param table     The table
+     * @param partition The partition
+     * @return The query
+     * @throws SqlModellerException Thrown if the partition cannot be removed
+     */
+    protected String makeRemovePartitionQuery(Table table, Partition partition) throws SqlModellerException {
+        throw new SqlModellerException(format("Table '%s' is partitioned, which is not supported for this database", table.getName()));
+    }
+
+    /**
+     * Generate a query that tries to take a named lock for the session without waiting, with the name as its
+     * only parameter, and returns true if the lock was taken. By default named locks are not supported.
+     *
+     * @return The query, or null if the database has no named locks
+     */
+    protected String makeTryLockQuery() {
+        return null;
+    }
+
+    /**
+     * Generate a query that releases a named lock taken by the session, with the name as its only parameter.
+     *
+     * @return The query
+     */
+    protected String makeUnlockQuery() {
+        return null;
+    }
+
+    /**
+     * Generate a query to remove a foreign key.
+     *
+     * @param key The foreign key
+     * @return The query
+     */
+    protected String makeRemoveForeignKeyQuery(ForeignKey key) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(key.getTable().getName())
+                .append(" DROP CONSTRAINT ").name(key.getName())
+                .toString();
+    }
+
+    /**
+     * Translate a foreign key rule as reported by the JDBC driver.
+     *
+     * @param rule The rule as one of the imported key constants of {@link DatabaseMetaData}
+     * @return The rule
+     */
+    private static ForeignKey.Rule getForeignKeyRule(short rule) {
+        switch (rule) {
+            case DatabaseMetaData.importedKeyCascade:
+                return ForeignKey.Rule.CASCADE;
+            case DatabaseMetaData.importedKeySetNull:
+                return ForeignKey.Rule.SET_NULL;
+            case DatabaseMetaData.importedKeySetDefault:
+                return ForeignKey.Rule.SET_DEFAULT;
+            case DatabaseMetaData.importedKeyRestrict:
+                return ForeignKey.Rule.RESTRICT;
+            default:
+                return ForeignKey.Rule.NO_ACTION;
+        }
+    }
 
     /**
      * Read the possible set values for a SET column
@@ -512,7 +1985,7 @@ public abstract class SqlModeller {
      */
     private Set<String> readSetValues(SetColumn column) throws SqlModellerException {
         String query = makeReadSetQuery(column);
-        try (Connection con = con(); Statement stmt = con.createStatement(); ResultSet ers = stmt.executeQuery(query)) {
+        try (Connection con = readCon(column.getTable()); Statement stmt = con.createStatement(); ResultSet ers = stmt.executeQuery(query)) {
             if (ers.next()) {
                 return extractSetValues(ers.getString(1));
             }
@@ -530,20 +2003,19 @@ public abstract class SqlModeller {
      * @return The query
      */
     private String makeDeleteTableQuery(Table table) {
-        return format("DROP TABLE %s", getTableName(table));
+        return "DROP TABLE " + getTableName(table);
     }
 
     /**
-     * Generate a SQL statement to rename a column in a table.
+     * Generate SQL statement to create a table.
      *
-     * @param column The current column
+     * @param table The table
      * @return The SQL
      */
-    private String makeRenameColumnQuery(Column column, Column changed) {
-        return format("ALTER TABLE %s RENAME COLUMN %s TO %s",
-                getTableName(column.getTable()),
-                getColumnName(column),
-                getColumnName(changed));
+    private String makeCreateTableQuery(Table table) throws SqlModellerException {
+        SqlWriter sql = writer(new StringBuilder());
+        writeCreateTableQuery(sql, table);
+        return sql.toString();
     }
 
     /**
@@ -553,9 +2025,10 @@ public abstract class SqlModeller {
      * @return The SQL
      */
     private String makeDeleteColumnQuery(Column column) {
-        return format("ALTER TABLE %s DROP COLUMN %s",
-                getTableName(column.getTable()),
-                getColumnName(column));
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" DROP COLUMN ").name(column.getName())
+                .toString();
     }
 
     /**
@@ -612,57 +2085,61 @@ public abstract class SqlModeller {
      *
      * @param table The table for the column
      * @param rs    The result set
+     * @param keyColumns The names of the primary key columns in the table
      * @return The column mode
      */
-    private SqlColumn getColumnFromResultSet(Table table, ResultSet rs) throws SqlModellerException {
+    private SqlColumn getColumnFromResultSet(Table table, ResultSet rs, Set<String> keyColumns) throws SqlModellerException {
         try {
             JDBCType jdbcType = JDBCType.valueOf(rs.getInt("DATA_TYPE"));
             Optional<Integer> size = Optional.of(rs.getInt("COLUMN_SIZE"));
             boolean nullable = rs.getString("IS_NULLABLE").equals("YES");
             boolean autoIncrement = rs.getString("IS_AUTOINCREMENT").equals("YES");
-            String columnName = rs.getString("COLUMN_NAME");
+            String columnName = interner.intern(rs.getString("COLUMN_NAME"));
             String typeName = rs.getString("TYPE_NAME");
             String defVal = rs.getString("COLUMN_DEF");
+            boolean key = keyColumns.contains(columnName);
             if (defVal != null) {
-                defVal = extractDefault(defVal);
+                defVal = interner.intern(extractDefault(defVal));
             }
 
             if (isEnumColumn(columnName, jdbcType, typeName)) {
-                return new SqlEnumColumn(table, columnName, nullable, defVal, readEnumValues(new SqlEnumColumn(table, columnName, nullable, defVal, Collections.emptySet())));
+                SqlEnumColumn column = new SqlEnumColumn(table, columnName, nullable, key, defVal, Collections.emptySet());
+                return new SqlEnumColumn(table, columnName, nullable, key, defVal, interner.intern(readValues("readEnumValues", column, () -> readEnumValues(column))));
             } else if (isSetColumn(columnName, jdbcType, typeName)) {
-                return new SqlSetColumn(table, columnName, nullable, defVal, readSetValues(new SqlSetColumn(table, columnName, nullable, defVal, Collections.emptySet())));
+                SqlSetColumn column = new SqlSetColumn(table, columnName, nullable, key, defVal, Collections.emptySet());
+                return new SqlSetColumn(table, columnName, nullable, key, defVal, interner.intern(readValues("readSetValues", column, () -> readSetValues(column))));
             } else if (isStringColumn(jdbcType)) {
-                return new SqlStringColumn(table, columnName, jdbcType, nullable, defVal, size.get());
+                return new SqlStringColumn(table, columnName, jdbcType, nullable, key, defVal, size.get());
             } else if (isBinaryColumn(jdbcType)) {
-                return new SqlBinaryColumn(table, columnName, jdbcType, nullable, defVal, size.get());
+                return new SqlBinaryColumn(table, columnName, jdbcType, nullable, key, defVal, size.get());
             }
             if (isDateTimeColumn(jdbcType)) {
                 if (typeName.equals("DATETIME")) {
-                    return new SqlDateTimeColumn(table, columnName, jdbcType, nullable, defVal);
+                    return new SqlDateTimeColumn(table, columnName, jdbcType, nullable, key, defVal);
                 } else {
-                    return new SqlTimeStampColumn(table, columnName, jdbcType, nullable, defVal);
+                    return new SqlTimeStampColumn(table, columnName, jdbcType, nullable, key, defVal);
                 }
             }
             switch (jdbcType) {
                 case BIT:
-                    return new SqlBitColumn(table, columnName, nullable, defVal, size.get());
+                    return new SqlBitColumn(table, columnName, nullable, key, defVal, size.get());
                 case BOOLEAN:
-                    return new SqlBooleanColumn(table, columnName, nullable, defVal);
+                    return new SqlBooleanColumn(table, columnName, nullable, key, defVal);
                 case DECIMAL:
                 case DOUBLE:
-                    return new SqlDecimalColumn(table, columnName, jdbcType, nullable, defVal, size.get(), rs.getInt("DECIMAL_DIGITS"));
+                    return new SqlDecimalColumn(table, columnName, jdbcType, nullable, key, defVal, size.get(), rs.getInt("DECIMAL_DIGITS"));
                 case NUMERIC:
                     if (size.isPresent()) {
-                        return new SqlDecimalColumn(table, columnName, jdbcType, nullable, defVal, size.get(), rs.getInt("DECIMAL_DIGITS"));
+                        return new SqlDecimalColumn(table, columnName, jdbcType, nullable, key, defVal, size.get(), rs.getInt("DECIMAL_DIGITS"));
                     }
-                    return new SqlDecimalColumn(table, columnName, jdbcType, nullable, defVal);
+                    return new SqlDecimalColumn(table, columnName, jdbcType, nullable, key, defVal);
                 case INTEGER:
                 case SMALLINT:
                 case BIGINT:
                     if (autoIncrement) {
-                        return new SqlIntegerColumn(table, columnName, jdbcType, nullable, defVal, true);
+                        return new SqlIntegerColumn(table, columnName, jdbcType, nullable, key, defVal, true);
                     }
-                    return new SqlIntegerColumn(table, columnName, jdbcType, nullable, defVal, false);
+                    return new SqlIntegerColumn(table, columnName, jdbcType, nullable, key, defVal, false);
             }
             throw new SqlModellerException(format("Unsupported JDBC type %s in result set. BUG!", jdbcType.getName()));
         } catch (SQLException ex) {
@@ -670,4 +2147,59 @@ public abstract class SqlModeller {
         }
     }
 
+    /**
+     * Times a catalog read and reports it to the listener. The time of the reads reported while it is in progress,
+     * like the reads of the columns of a table, is left out, so the durations reported add up to the time spent.
+     */
+    private final class CatalogRead {
+
+        private final long start = System.nanoTime();
+        private final long reportedBefore = reportedReads.get()[0];
+
+        private void report(String operation, String table, long rows, Throwable failure) {
+            long[] reported = reportedReads.get();
+            long duration = System.nanoTime() - start - (reported[0] - reportedBefore);
+            reported[0] += duration;
+            listener.catalogRead(operation, table, rows, Duration.ofNanos(duration), failure);
+        }
+    }
+
+    /**
+     * A query of the database catalog.
+     */
+    @FunctionalInterface
+    private interface CatalogQuery<T> {
+
+        T run() throws SQLException, SqlModellerException;
+
+    }
+
+    /**
+     * Reads a row returned by a catalog query.
+     */
+    @FunctionalInterface
+    private interface RowReader {
+
+        void read(ResultSet rs) throws SQLException, SqlModellerException;
+
+    }
+
+    /**
+     * A task that processes the rows of a table in a range of primary key values.
+     */
+    @FunctionalInterface
+    protected interface KeyRangeTask {
+
+        /**
+         * Process the rows in a key range.
+         *
+         * @param con   The connection to use
+         * @param range The key range
+         * @return The number of rows processed
+         * @throws SQLException Thrown if there is a problem processing the rows
+         */
+        long process(Connection con, KeyRange range) throws SQLException;
+
+    }
+
 }
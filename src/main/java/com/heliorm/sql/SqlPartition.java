@@ -0,0 +1,51 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Implementation of Partition that is populated by reading from SQL.
+ *
+ */
+final class SqlPartition implements Partition {
+
+    private final String name;
+    private final List<String> values;
+
+    SqlPartition(String name, List<String> values) {
+        this.name = name;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public List<String> getValues() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SqlPartition that = (SqlPartition) o;
+        return name.equals(that.name)
+                && values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlPartition{" +
+                "name='" + name + '\'' +
+                ", values=" + values +
+                '}';
+    }
+}
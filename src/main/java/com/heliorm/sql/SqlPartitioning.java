@@ -0,0 +1,88 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Implementation of Partitioning that is populated by reading from SQL. Columns and partitions are only added while
+ * the table is read, after that the partitioning does not change and the views returned are never copied.
+ *
+ */
+final class SqlPartitioning implements Partitioning {
+
+    private final Type type;
+    private final List<Column> columns = new ArrayList<>();
+    private final List<Partition> partitions = new ArrayList<>();
+    private final List<Column> columnView = Collections.unmodifiableList(columns);
+    private final List<Partition> partitionView = Collections.unmodifiableList(partitions);
+
+    SqlPartitioning(Type type) {
+        this.type = type;
+    }
+
+    /** Create a copy of a partitioning for another table. The columns of the copy are the columns with the same
+     * names in that table, or copies of the columns of the partitioning if the table does not have them.
+     *
+     * @param partitioning The partitioning to copy
+     * @param table The table the copy is for
+     * @return The copy
+     * @throws SqlModellerException Thrown if the partitioning has a column type that is not supported
+     */
+    static SqlPartitioning copyOf(Partitioning partitioning, Table table) throws SqlModellerException {
+        SqlPartitioning copy = new SqlPartitioning(partitioning.getType());
+        for (Column column : partitioning.getColumns()) {
+            Column tableColumn = table.getColumn(column.getName());
+            copy.addColumn(tableColumn != null ? tableColumn : SqlColumn.copyOf(column, table, column.isNullable()));
+        }
+        for (Partition partition : partitioning.getPartitions()) {
+            copy.addPartition(new SqlPartition(partition.getName(), partition.getValues()));
+        }
+        return copy;
+    }
+
+    void addColumn(Column column) {
+        columns.add(column);
+    }
+
+    void addPartition(Partition partition) {
+        partitions.add(partition);
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public List<Column> getColumns() {
+        return columnView;
+    }
+
+    @Override
+    public List<Partition> getPartitions() {
+        return partitionView;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SqlPartitioning that = (SqlPartitioning) o;
+        return type == that.type
+                && columns.equals(that.columns)
+                && partitions.equals(that.partitions);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * type.hashCode() + columns.hashCode()) + partitions.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlPartitioning{" +
+                "type=" + type +
+                ", partitions=" + partitions +
+                '}';
+    }
+}
@@ -9,8 +9,8 @@ class SqlSetColumn extends SqlColumn implements SetColumn {
 
     private final Set<String> setValues;
 
-    SqlSetColumn(Table table, String name, boolean nullable, String defVal, Set<String> setValues) {
-        super(table, name, JDBCType.OTHER, nullable,  defVal,false);
+    SqlSetColumn(Table table, String name, boolean nullable, boolean key, String defVal, Set<String> setValues) {
+        super(table, name, JDBCType.OTHER, nullable, key, defVal,false);
         this.setValues = setValues;
     }
 
@@ -18,4 +18,14 @@ class SqlSetColumn extends SqlColumn implements SetColumn {
     public Set<String> getSetValues() {
         return setValues;
     }
+
+    @Override
+    boolean isSameType(SqlColumn other) {
+        return setValues.equals(((SqlSetColumn) other).setValues);
+    }
+
+    @Override
+    int typeHashCode() {
+        return setValues.hashCode();
+    }
 }
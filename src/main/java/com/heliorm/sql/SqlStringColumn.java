@@ -8,8 +8,8 @@ class SqlStringColumn extends SqlColumn implements StringColumn {
 
     private final int length;
 
-    public SqlStringColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defVal, int length) {
-        super(table, name, jdbcType, nullable, defVal, false);
+    public SqlStringColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defVal, int length) {
+        super(table, name, jdbcType, nullable, key, defVal, false);
         this.length = length;
     }
 
@@ -17,4 +17,14 @@ class SqlStringColumn extends SqlColumn implements StringColumn {
     public int getLength() {
         return length;
     }
+
+    @Override
+    boolean isSameType(SqlColumn other) {
+        return length == ((SqlStringColumn) other).length;
+    }
+
+    @Override
+    int typeHashCode() {
+        return length;
+    }
 }
@@ -1,32 +1,88 @@
 package com.heliorm.sql;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 
 
-/** Implementation of Table  that is populated by reading from SQL */
+/** Implementation of Table  that is populated by reading from SQL. Columns, keys and indexes are only added while the
+ * table is read, after that the table does not change and the views returned are never copied.
+ */
 final class SqlTable implements Table {
 
     private final Database database;
     private final String name;
-    private final Map<String, Column> columns = new HashMap<>();
-    private final Map<String, Index> indexes = new HashMap<>();
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private final Map<String, Index> indexes = new LinkedHashMap<>();
+    private final Map<String, ForeignKey> foreignKeys = new LinkedHashMap<>();
+    private final List<Column> primaryKey = new ArrayList<>();
+    private final Set<Column> columnView = Collections.unmodifiableSet(new ValueSet<>(columns, Column.class, Column::getName));
+    private final Set<Index> indexView = Collections.unmodifiableSet(new ValueSet<>(indexes, Index.class, Index::getName));
+    private final Set<ForeignKey> foreignKeyView = Collections.unmodifiableSet(new ValueSet<>(foreignKeys, ForeignKey.class, ForeignKey::getName));
+    private final List<Column> primaryKeyView = Collections.unmodifiableList(primaryKey);
+    private Partitioning partitioning;
+    private int hash;
 
     SqlTable(Database database, String name) {
         this.database = database;
         this.name = name;
     }
 
+    /** Create a copy of a table model in another database. This is used to apply the same model to databases
+     * with the same structure.
+     *
+     * @param table The table to copy
+     * @param database The database the copy is in
+     * @return The copy
+     * @throws SqlModellerException Thrown if the table has a column type that is not supported
+     */
+    static SqlTable copyOf(Table table, Database database) throws SqlModellerException {
+        SqlTable copy = new SqlTable(database, table.getName());
+        for (Column column : table.getColumns()) {
+            copy.addColumn(SqlColumn.copyOf(column, copy, column.isNullable()));
+        }
+        for (Column column : table.getPrimaryKey()) {
+            copy.addPrimaryKeyColumn(copy.getColumn(column.getName()));
+        }
+        for (Index index : table.getIndexes()) {
+            copy.addIndex(SqlIndex.copyOf(index, copy));
+        }
+        for (ForeignKey key : table.getForeignKeys()) {
+            copy.addForeignKey(SqlForeignKey.copyOf(key, copy));
+        }
+        if (table.getPartitioning() != null) {
+            copy.setPartitioning(SqlPartitioning.copyOf(table.getPartitioning(), copy));
+        }
+        return copy;
+    }
+
     void addColumn(Column column) {
         columns.put(column.getName(), column);
     }
 
+    void addPrimaryKeyColumn(Column column) {
+        primaryKey.add(column);
+    }
+
     void addIndex(Index index) {
         indexes.put(index.getName(), index);
     }
 
+    void addForeignKey(ForeignKey key) {
+        foreignKeys.put(key.getName(), key);
+    }
+
+    void setPartitioning(Partitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
     @Override
     public Database getDatabase() {
         return database;
@@ -39,12 +95,17 @@ final class SqlTable implements Table {
 
     @Override
     public Set<Column> getColumns() {
-        return new HashSet(columns.values());
+        return columnView;
+    }
+
+    @Override
+    public List<Column> getPrimaryKey() {
+        return primaryKeyView;
     }
 
     @Override
     public Set<Index> getIndexes() {
-        return new HashSet(indexes.values());
+        return indexView;
     }
 
     @Override
@@ -56,4 +117,95 @@ final class SqlTable implements Table {
     public Index getIndex(String name) {
         return indexes.get(name);
     }
+
+    @Override
+    public Set<ForeignKey> getForeignKeys() {
+        return foreignKeyView;
+    }
+
+    @Override
+    public ForeignKey getForeignKey(String name) {
+        return foreignKeys.get(name);
+    }
+
+    @Override
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SqlTable sqlTable = (SqlTable) o;
+        return hashCode() == sqlTable.hashCode()
+                && name.equals(sqlTable.name)
+                && database.getName().equals(sqlTable.database.getName())
+                && columns.equals(sqlTable.columns)
+                && primaryKey.equals(sqlTable.primaryKey)
+                && indexes.equals(sqlTable.indexes)
+                && foreignKeys.equals(sqlTable.foreignKeys)
+                && Objects.equals(partitioning, sqlTable.partitioning);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * name.hashCode() + database.getName().hashCode();
+            h = 31 * h + columns.hashCode();
+            h = 31 * h + primaryKey.hashCode();
+            h = 31 * h + indexes.hashCode();
+            h = 31 * h + foreignKeys.hashCode();
+            h = 31 * h + Objects.hashCode(partitioning);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlTable{" +
+                "name='" + name + '\'' +
+                ", columns=" + columns.keySet() +
+                ", indexes=" + indexes.keySet() +
+                ", foreignKeys=" + foreignKeys.keySet() +
+                ", partitioning=" + partitioning +
+                '}';
+    }
+
+    /** A set view of the values of a map keyed by name. The values are unique since each has a unique name,
+     * so membership is checked with a lookup by name.
+     */
+    private static final class ValueSet<T> extends AbstractSet<T> {
+
+        private final Map<String, T> map;
+        private final Class<T> type;
+        private final Function<T, String> name;
+
+        private ValueSet(Map<String, T> map, Class<T> type, Function<T, String> name) {
+            this.map = map;
+            this.type = type;
+            this.name = name;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return map.values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!type.isInstance(o)) {
+                return false;
+            }
+            T value = map.get(name.apply(type.cast(o)));
+            return value != null && value.equals(o);
+        }
+    }
 }
@@ -3,7 +3,7 @@ package com.heliorm.sql;
 import java.sql.JDBCType;
 
 public class SqlTimeStampColumn extends SqlColumn implements TimeStampColumn{
-    SqlTimeStampColumn(Table table, String name, JDBCType jdbcType, boolean nullable, String defaultValue) {
-        super(table, name, jdbcType, nullable, defaultValue, false);
+    SqlTimeStampColumn(Table table, String name, JDBCType jdbcType, boolean nullable, boolean key, String defaultValue) {
+        super(table, name, jdbcType, nullable, key, defaultValue, false);
     }
 }
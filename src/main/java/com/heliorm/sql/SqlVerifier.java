@@ -1,12 +1,19 @@
 package com.heliorm.sql;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static java.lang.String.format;
+
 /** Tool for verifying if a user supplied SQL data structure is the same as the one in a database.
  *
  */
@@ -15,6 +22,13 @@ public final class SqlVerifier {
     private final SqlModeller modeller;
     private boolean deleteMissingColumns = false;
     private boolean deleteMissingIndexes = false;
+    private boolean detectRenamedColumns = false;
+    private boolean dropRedundantIndexes = false;
+    private PlanPolicy policy = PlanPolicy.applyAll();
+    private Consumer<Action> progressListener = action -> {
+    };
+    private Function<Column, String> backfillExpressions = column -> null;
+    private BatchSettings backfillSettings = new BatchSettings();
 
     /** Create a new verifier for the supplied SQL modeller.
      *
@@ -33,127 +47,494 @@ public final class SqlVerifier {
         this.deleteMissingColumns = delete;
     }
 
+    /** Setup verifier to detect renamed columns without a rename hint. When exactly one column of the model is
+     * missing from a database table, and exactly one column of the table is missing from the model, and the two
+     * only differ in name, the column is renamed instead of a new column being added. Columns that give the name
+     * they were renamed from are always renamed.
+     *
+     * @param detect True if it must detect renamed columns
+     */
+    public void setDetectRenamedColumns(boolean detect) {
+        this.detectRenamedColumns = detect;
+    }
+
+    /** Setup verifier to drop indexes that the index advisor finds redundant. Only indexes that are not in the
+     * model are dropped, and only if the index that makes them redundant is in the model or is the primary key.
+     * Dropping all indexes that are not in the model, if that is set up, includes these.
+     *
+     * @param drop True if it must drop redundant indexes
+     * @see IndexAdvisor
+     */
+    public void setDropRedundantIndexes(boolean drop) {
+        this.dropRedundantIndexes = drop;
+    }
+
+    /** Set the policy that decides if the changes planned for a table may be applied. By default all changes are
+     * applied.
+     *
+     * @param policy The policy
+     */
+    public void setPolicy(PlanPolicy policy) {
+        this.policy = policy;
+    }
+
+    /** Set the SQL expressions used to fill columns that are added to tables that already exist. When a column
+     * that is not nullable and has no default is added, and an expression is given for it, the column is added as
+     * nullable and filled in batches before the NOT NULL constraint is applied.
+     *
+     * @param expressions A function that gives the SQL expression for a column, or null if there is none
+     * @param settings The batch settings used to fill columns
+     */
+    public void setBackfill(Function<Column, String> expressions, BatchSettings settings) {
+        this.backfillExpressions = expressions;
+        this.backfillSettings = settings;
+    }
+
+    /** Set a listener that is called when an action being applied reports progress. This allows long running
+     * changes, like online schema changes, to be monitored.
+     *
+     * @param listener The listener
+     */
+    public void setProgressListener(Consumer<Action> listener) {
+        this.progressListener = listener;
+    }
+
+    /** Determine the changes needed to make a table in a SQL database the same as the abstraction supplied,
+     * without changing the database.
+     *
+     * @param table The table
+     * @return The changes that will be made to synchronize the table.
+     */
+    public List<Action> planDatabaseTable(Table table) throws SqlModellerException {
+        return plan(table).stream()
+                .map(Step::getAction)
+                .collect(Collectors.toList());
+    }
+
     /** Verify that a table in a SQL database is the same as the abstraction supplied, and change the database
-     * to conform if not.
+     * to conform if not. The changes are only made if the policy allows it, if the policy postpones the changes
+     * the planned actions are returned without being applied.
      *
      * @param table The table
      * @return The changes made to synchronize the table.
      */
     public List<Action> synchronizeDatabaseTable(Table table) throws SqlModellerException {
+        long start = System.nanoTime();
+        List<Action> actions = Collections.emptyList();
+        Throwable failure = null;
+        try {
+            List<Step> steps = plan(table);
+            actions = steps.stream()
+                    .map(Step::getAction)
+                    .collect(Collectors.toList());
+            if (actions.isEmpty()) {
+                return actions;
+            }
+            if (!isAllowed(table, actions)) {
+                return actions;
+            }
+            apply(steps, actions, modeller, table);
+            return actions;
+        } catch (SqlModellerException | RuntimeException ex) {
+            failure = ex;
+            throw ex;
+        } finally {
+            modeller.getListener().tableSynchronized(table, actions, Duration.ofNanos(System.nanoTime() - start), failure);
+        }
+    }
+
+    /** Evaluate the policy for the actions planned for a table.
+     *
+     * @param table The table
+     * @param actions The planned actions
+     * @return True if the actions must be applied, false if they are postponed
+     * @throws SqlModellerException Thrown if the policy rejects the actions
+     */
+    boolean isAllowed(Table table, List<Action> actions) throws SqlModellerException {
+        switch (policy.evaluate(table, actions)) {
+            case REJECT:
+                throw new SqlModellerException(format("Changes to table '%s' were rejected by policy", table.getName()));
+            case POSTPONE:
+                return false;
+        }
+        return true;
+    }
+
+    /** Apply planned changes to a table, which can be the table they were planned for or a table with the same
+     * structure in another database.
+     *
+     * @param steps The planned steps
+     * @param actions The actions to update as the steps are applied, one for every step
+     * @param modeller The modeller for the database of the table
+     * @param table The table to change
+     * @throws SqlModellerException Thrown if a change fails
+     */
+    void apply(List<Step> steps, List<Action> actions, SqlModeller modeller, Table table) throws SqlModellerException {
+        for (int i = 0; i < steps.size(); ++i) {
+            Action action = actions.get(i);
+            long start = System.nanoTime();
+            List<String> statements = new ArrayList<>();
+            modeller.startRecording(statements);
+            try {
+                steps.get(i).getChange().apply(modeller, table, (done, total) -> {
+                    action.setProgress(done, total);
+                    action.setDuration(Duration.ofNanos(System.nanoTime() - start));
+                    progressListener.accept(action);
+                });
+            } finally {
+                modeller.stopRecording();
+                action.setStatements(statements);
+            }
+            action.setDuration(Duration.ofNanos(System.nanoTime() - start));
+            action.setApplied(true);
+        }
+    }
+
+    /** Plan the changes needed for a table. The changes refer to columns and indexes by name, so they can be
+     * applied to any table with the same structure.
+     *
+     * @param table The table
+     * @return The planned steps
+     * @throws SqlModellerException Thrown if the table cannot be read
+     */
+    List<Step> plan(Table table) throws SqlModellerException {
+        List<Step> steps = new ArrayList<>();
         if (!modeller.tableExists(table)) {
-            modeller.createTable(table);
-            return Collections.singletonList(Action.createTable(table));
+            steps.add(new Step(Action.createTable(table, new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, TableStatistics.EMPTY)),
+                    (m, t, l) -> m.createTable(t)));
+            steps.addAll(planForeignKeys(table, new SqlTable(table.getDatabase(), table.getName()), Collections.emptyMap(), TableStatistics.EMPTY));
         } else {
-            List<Action> actions = new ArrayList<>();
-            actions.addAll(synchronizeColumns(table));
-            actions.addAll(synchronizeIndexes(table));
-            return actions;
+            Table sqlTable = modeller.readTable(table.getDatabase(), table.getName());
+            TableStatistics statistics = modeller.readTableStatistics(table);
+            steps.addAll(plan(table, sqlTable, statistics));
         }
+        return steps;
     }
 
-    private List<Action> synchronizeColumns(Table table) throws SqlModellerException {
-        Table sqlTable = modeller.readTable(table.getDatabase(), table.getName());
-        Map<String, Column> tableColumns = table.getColumns().stream()
-                .collect(Collectors.toMap(Column::getName, col -> col));
-        Map<String, Column> sqlColumns = sqlTable.getColumns().stream()
-                .collect(Collectors.toMap(Column::getName, col -> col));
-        List<Action> actions = new ArrayList<>();
-        for (String name : tableColumns.keySet()) {
-            Column tableColumn = tableColumns.get(name);
-            if (!sqlColumns.containsKey(name)) {
-                modeller.addColumn(tableColumn);
-                actions.add(Action.addColumn(tableColumn));
-            } else {
-                Column sqlColumn = sqlColumns.get(name);
-                if (isNotSame(tableColumn, sqlColumn)) {
-                    modeller.modifyColumn(tableColumn);
-                    actions.add(Action.modifyColumn(tableColumn));
+    /** Plan the changes needed to make a table that exists in the database the same as its model, from the
+     * table as already read from the database.
+     *
+     * @param table The table model
+     * @param sqlTable The table as read from the database
+     * @param statistics The statistics of the table
+     * @return The planned steps
+     * @throws SqlModellerException Thrown if the impact of a change cannot be assessed
+     */
+    List<Step> plan(Table table, Table sqlTable, TableStatistics statistics) throws SqlModellerException {
+        Map<String, Column> renames = findRenamedColumns(table, sqlTable);
+        // indexes and foreign keys in the database refer to renamed columns by their previous names
+        Map<String, String> columnNames = new HashMap<>();
+        renames.forEach((name, sqlColumn) -> columnNames.put(sqlColumn.getName(), name));
+        List<Step> steps = planPartitions(table, sqlTable, statistics);
+        steps.addAll(planColumns(table, sqlTable, renames, statistics));
+        steps.addAll(planIndexes(table, sqlTable, columnNames, statistics));
+        steps.addAll(planForeignKeys(table, sqlTable, columnNames, statistics));
+        return steps;
+    }
+
+    private List<Step> planColumns(Table table, Table sqlTable, Map<String, Column> renames, TableStatistics statistics) throws SqlModellerException {
+        List<Step> steps = new ArrayList<>();
+        for (Column tableColumn : table.getColumns()) {
+            String name = tableColumn.getName();
+            Column sqlColumn = sqlTable.getColumn(name);
+            Column renamedColumn = renames.get(name);
+            if (renamedColumn != null) {
+                steps.add(new Step(Action.renameColumn(renamedColumn, tableColumn, modeller.assessColumnChange(Action.Type.RENAME_COLUMN, renamedColumn, tableColumn, statistics)),
+                        (m, t, l) -> m.renameColumn(SqlColumn.copyOf(renamedColumn, t, renamedColumn.isNullable()), t.getColumn(name))));
+                if (!isSameDefinition(tableColumn, renamedColumn)) {
+                    steps.add(new Step(Action.modifyColumn(tableColumn, modeller.assessColumnChange(Action.Type.MODIFY_COLUMN, renamedColumn, tableColumn, statistics)),
+                            (m, t, l) -> m.modifyColumn(t.getColumn(name), l)));
+                }
+            } else if (sqlColumn == null) {
+                String expression = backfillExpressions.apply(tableColumn);
+                if (!tableColumn.isNullable() && (tableColumn.getDefault() == null) && (expression != null)) {
+                    // every row is updated, but in batches that do not hold table locks
+                    steps.add(new Step(Action.addColumn(tableColumn, modeller.assessBackfill(tableColumn, statistics)),
+                            (m, t, l) -> m.addColumn(t.getColumn(name), expression, backfillSettings, l)));
+                } else {
+                    steps.add(new Step(Action.addColumn(tableColumn, modeller.assessColumnChange(Action.Type.ADD_COLUMN, null, tableColumn, statistics)),
+                            (m, t, l) -> m.addColumn(t.getColumn(name))));
                 }
+            } else if (isNotSame(tableColumn, sqlColumn)) {
+                steps.add(new Step(Action.modifyColumn(tableColumn, modeller.assessColumnChange(Action.Type.MODIFY_COLUMN, sqlColumn, tableColumn, statistics)),
+                        (m, t, l) -> m.modifyColumn(t.getColumn(name), l)));
             }
         }
-        for (String name : sqlColumns.keySet()) {
-            Column sqlColumn = sqlColumns.get(name);
-            if (!tableColumns.containsKey(name)) {
+        Set<String> renamed = renames.values().stream()
+                .map(Column::getName)
+                .collect(Collectors.toSet());
+        for (Column sqlColumn : sqlTable.getColumns()) {
+            if ((table.getColumn(sqlColumn.getName()) == null) && !renamed.contains(sqlColumn.getName())) {
                 if (deleteMissingColumns) {
-                    modeller.deleteColumn(sqlColumn);
-                    actions.add(Action.deleteColumn(sqlColumn));
+                    steps.add(new Step(Action.deleteColumn(sqlColumn, modeller.assessColumnChange(Action.Type.DELETE_COLUMN, sqlColumn, null, statistics)),
+                            (m, t, l) -> m.deleteColumn(SqlColumn.copyOf(sqlColumn, t, sqlColumn.isNullable()))));
                 }
                 else {
                     if (!sqlColumn.isNullable()) {
-                        if (sqlColumn instanceof SqlColumn) {
-                            ((SqlColumn) sqlColumn).setNullable(true);
-                            modeller.modifyColumn(sqlColumn);
-                            actions.add(Action.modifyColumn(sqlColumn));
-                        }
+                        // the model read from the database is immutable, so the change is made with a nullable copy
+                        Column nullableColumn = SqlColumn.copyOf(sqlColumn, true);
+                        steps.add(new Step(Action.modifyColumn(nullableColumn, modeller.assessColumnChange(Action.Type.MODIFY_COLUMN, sqlColumn, nullableColumn, statistics)),
+                                (m, t, l) -> m.modifyColumn(SqlColumn.copyOf(sqlColumn, t, true), l)));
                     }
                 }
             }
         }
-        return actions;
+        return steps;
     }
 
-    private List<Action> synchronizeIndexes(Table table) throws SqlModellerException {
-        Table sqlTable = modeller.readTable(table.getDatabase(), table.getName());
-        Map<String, Index> tableIndexes = table.getIndexes().stream()
-                .collect(Collectors.toMap(Index::getName, col -> col));
-        Map<String, Index> sqlIndexes = sqlTable.getIndexes().stream()
-                .collect(Collectors.toMap(Index::getName, col -> col));
-        List<Action> actions = new ArrayList<>();
-        for (String name : tableIndexes.keySet()) {
-            Index tableIndex = tableIndexes.get(name);
-            if (!sqlIndexes.containsKey(name)) {
-                modeller.addIndex(tableIndex);
-                actions.add(Action.addIndex(tableIndex));
+    /** Find the columns of a model that are renamed columns of the table in the database. A column is renamed if
+     * it gives the name of a column that is in the database but not in the model, or, if detection is enabled, if
+     * it is the only new column and it is the same as the only missing column apart from its name.
+     *
+     * @param table The table model
+     * @param sqlTable The table as read from the database
+     * @return The renamed columns in the database, by the name of the column in the model
+     */
+    private Map<String, Column> findRenamedColumns(Table table, Table sqlTable) {
+        Map<String, Column> renames = new HashMap<>();
+        List<Column> added = new ArrayList<>();
+        for (Column tableColumn : table.getColumns()) {
+            if (sqlTable.getColumn(tableColumn.getName()) != null) {
+                continue;
+            }
+            String from = tableColumn.getRenamedFrom();
+            Column sqlColumn = (from == null) ? null : sqlTable.getColumn(from);
+            // a column is only renamed if the model does not still have a column with the previous name
+            if ((sqlColumn != null) && (table.getColumn(from) == null) && !renames.containsValue(sqlColumn)) {
+                renames.put(tableColumn.getName(), sqlColumn);
             } else {
-                Index sqlIndex = sqlIndexes.get(name);
-                if (!isSame(tableIndex, sqlIndex)) {
-                    modeller.modifyIndex(tableIndex);
-                    actions.add(Action.modifyIndex(tableIndex));
+                added.add(tableColumn);
+            }
+        }
+        if (detectRenamedColumns && (added.size() == 1)) {
+            List<Column> missing = sqlTable.getColumns().stream()
+                    .filter(column -> table.getColumn(column.getName()) == null)
+                    .filter(column -> !renames.containsValue(column))
+                    .collect(Collectors.toList());
+            if ((missing.size() == 1) && isSameDefinition(added.get(0), missing.get(0))) {
+                renames.put(added.get(0).getName(), missing.get(0));
+            }
+        }
+        return renames;
+    }
+
+    private List<Step> planIndexes(Table table, Table sqlTable, Map<String, String> columnNames, TableStatistics statistics) throws SqlModellerException {
+        List<Step> steps = new ArrayList<>();
+        Set<String> renamed = new HashSet<>();
+        for (Index tableIndex : table.getIndexes()) {
+            String name = tableIndex.getName();
+            Index sqlIndex = sqlTable.getIndex(name);
+            Index renamedIndex = (sqlIndex == null) ? findRenamedIndex(tableIndex, table, sqlTable, columnNames, renamed) : null;
+            if (renamedIndex != null) {
+                renamed.add(renamedIndex.getName());
+                steps.add(new Step(Action.renameIndex(renamedIndex, tableIndex, modeller.assessIndexChange(Action.Type.RENAME_INDEX, tableIndex, statistics)),
+                        (m, t, l) -> m.renameIndex(SqlIndex.copyOf(renamedIndex, t), t.getIndex(name))));
+            } else if (sqlIndex == null) {
+                steps.add(new Step(Action.addIndex(tableIndex, modeller.assessIndexChange(Action.Type.ADD_INDEX, tableIndex, statistics)),
+                        (m, t, l) -> m.addIndex(t.getIndex(name))));
+            } else if (!isSame(tableIndex, sqlIndex, columnNames)) {
+                steps.add(new Step(Action.modifyIndex(tableIndex, modeller.assessIndexChange(Action.Type.MODIFY_INDEX, tableIndex, statistics)),
+                        (m, t, l) -> m.modifyIndex(t.getIndex(name))));
+            }
+        }
+        if (deleteMissingIndexes) {
+            for (Index sqlIndex : sqlTable.getIndexes()) {
+                if ((table.getIndex(sqlIndex.getName()) == null) && !renamed.contains(sqlIndex.getName())) {
+                    steps.add(new Step(Action.deleteIndex(sqlIndex, modeller.assessIndexChange(Action.Type.DELETE_INDEX, sqlIndex, statistics)),
+                            (m, t, l) -> m.removeIndex(SqlIndex.copyOf(sqlIndex, t))));
+                }
+            }
+        } else if (dropRedundantIndexes) {
+            for (IndexAdvice advice : IndexAdvisor.advise(sqlTable, modeller.readIndexSizes(sqlTable))) {
+                Index sqlIndex = advice.getIndex();
+                Index covering = advice.getCoveringIndex();
+                Index tableCovering = (covering == null) ? null : table.getIndex(covering.getName());
+                if ((table.getIndex(sqlIndex.getName()) == null) && !renamed.contains(sqlIndex.getName())
+                        && ((covering == null) || ((tableCovering != null) && isSame(tableCovering, covering, columnNames)))) {
+                    steps.add(new Step(Action.deleteRedundantIndex(advice, modeller.assessIndexChange(Action.Type.DELETE_INDEX, sqlIndex, statistics)),
+                            (m, t, l) -> m.removeIndex(SqlIndex.copyOf(sqlIndex, t))));
+                }
+            }
+        }
+        return steps;
+    }
+
+    /** Find an index in the database that has the same definition as an index of the model but another name, and
+     * that is not in the model itself, so the index can be renamed instead of being built again.
+     *
+     * @param tableIndex The index of the model
+     * @param table The table model
+     * @param sqlTable The table as read from the database
+     * @param columnNames The names of the renamed columns in the model, by their names in the database
+     * @param renamed The names of the indexes in the database that are already renamed
+     * @return The index in the database, or null if there is none
+     */
+    private Index findRenamedIndex(Index tableIndex, Table table, Table sqlTable, Map<String, String> columnNames, Set<String> renamed) {
+        for (Index sqlIndex : sqlTable.getIndexes()) {
+            if ((table.getIndex(sqlIndex.getName()) == null)
+                    && !renamed.contains(sqlIndex.getName())
+                    && (sqlIndex.isUnique() == tableIndex.isUnique())
+                    && isSame(tableIndex.getColumns(), sqlIndex.getColumns(), columnNames)) {
+                return sqlIndex;
+            }
+        }
+        return null;
+    }
+
+    /** Plan the foreign key changes for a table. If the database does not index the referencing columns of foreign
+     * keys itself, an index is added for every foreign key that no index of the table or of the model starts with,
+     * so that deleting a referenced row does not scan the whole table.
+     *
+     * @throws SqlModellerException Thrown if the impact of an index cannot be assessed
+     */
+    private List<Step> planForeignKeys(Table table, Table sqlTable, Map<String, String> columnNames, TableStatistics statistics) throws SqlModellerException {
+        List<Step> steps = new ArrayList<>();
+        for (ForeignKey tableKey : table.getForeignKeys()) {
+            String name = tableKey.getName();
+            ForeignKey sqlKey = sqlTable.getForeignKey(name);
+            if (sqlKey == null) {
+                steps.add(new Step(Action.addForeignKey(tableKey, modeller.assessForeignKeyChange(Action.Type.ADD_FOREIGN_KEY, tableKey, statistics)),
+                        (m, t, l) -> m.addForeignKey(t.getForeignKey(name))));
+            } else if (!isSame(tableKey, sqlKey, columnNames)) {
+                steps.add(new Step(Action.modifyForeignKey(tableKey, modeller.assessForeignKeyChange(Action.Type.MODIFY_FOREIGN_KEY, tableKey, statistics)),
+                        (m, t, l) -> m.modifyForeignKey(t.getForeignKey(name))));
+            }
+            if (!modeller.indexesForeignKeys() && !isIndexed(tableKey, table) && !isIndexed(tableKey, sqlTable)) {
+                String indexName = name + "_idx";
+                if ((table.getIndex(indexName) == null) && (sqlTable.getIndex(indexName) == null)) {
+                    SqlIndex index = new SqlIndex(table, indexName, false);
+                    for (Column column : tableKey.getColumns()) {
+                        index.addColunm(column);
+                    }
+                    steps.add(new Step(Action.addIndex(index, modeller.assessIndexChange(Action.Type.ADD_INDEX, index, statistics)),
+                            (m, t, l) -> m.addIndex(SqlIndex.copyOf(index, t))));
                 }
             }
         }
-        for (String name : sqlIndexes.keySet()) {
-            Index sqlIndex  = sqlIndexes.get(name);
-            if (!tableIndexes.containsKey(name)) {
-                if (deleteMissingIndexes) {
-                    modeller.removeIndex(sqlIndex);
-                    actions.add(Action.deleteIndex(sqlIndex));
+        return steps;
+    }
+
+    /** Plan the partitions to add to a partitioned table. A table is never partitioned, repartitioned or
+     * unpartitioned by the verifier, since that copies all its rows, and partitions are never dropped, since that
+     * deletes their rows. Partitions are matched by name and their bounds are not compared, because databases
+     * rewrite the literals of bounds. Range partitions are added from the last to the first, so that every
+     * partition is split off the partition that follows it.
+     *
+     */
+    private List<Step> planPartitions(Table table, Table sqlTable, TableStatistics statistics) throws SqlModellerException {
+        List<Step> steps = new ArrayList<>();
+        Partitioning partitioning = table.getPartitioning();
+        if (partitioning == null) {
+            return steps;
+        }
+        Partitioning sqlPartitioning = sqlTable.getPartitioning();
+        if (sqlPartitioning == null) {
+            throw new SqlModellerException(format("Table '%s' is not partitioned in the database and cannot be partitioned in place", table.getName()));
+        }
+        if ((partitioning.getType() != sqlPartitioning.getType())
+                || !isSame(partitioning.getColumns(), sqlPartitioning.getColumns(), Collections.emptyMap())) {
+            throw new SqlModellerException(format("Table '%s' is partitioned by %s in the database and cannot be repartitioned by %s in place",
+                    table.getName(), sqlPartitioning, partitioning));
+        }
+        List<Partition> partitions = new ArrayList<>(partitioning.getPartitions());
+        if (partitioning.getType() == Partitioning.Type.RANGE) {
+            Collections.reverse(partitions);
+        }
+        for (Partition partition : partitions) {
+            String name = partition.getName();
+            if (sqlPartitioning.getPartition(name) == null) {
+                if (partitioning.getType() == Partitioning.Type.HASH) {
+                    throw new SqlModellerException(format("Partition '%s' cannot be added to table '%s' without repartitioning all its rows", name, table.getName()));
                 }
+                steps.add(new Step(Action.addPartition(table, partition, modeller.assessPartitionChange(Action.Type.ADD_PARTITION, table, partition, statistics)),
+                        (m, t, l) -> m.addPartition(t, t.getPartitioning().getPartition(name))));
+            }
+        }
+        return steps;
+    }
+
+    /** Determine if the referencing columns of a foreign key are the leading columns of the primary key or of an
+     * index of a table, in any order, so that the index can be used to find the rows that refer to a row.
+     *
+     */
+    private boolean isIndexed(ForeignKey key, Table table) {
+        Set<String> columns = key.getColumns().stream()
+                .map(Column::getName)
+                .collect(Collectors.toSet());
+        List<List<Column>> candidates = table.getIndexes().stream()
+                .map(Index::getColumns)
+                .collect(Collectors.toList());
+        candidates.add(table.getColumns().stream()
+                .filter(Column::isKey)
+                .collect(Collectors.toList()));
+        for (List<Column> candidate : candidates) {
+            if ((candidate.size() >= columns.size()) && candidate.subList(0, columns.size()).stream()
+                    .map(Column::getName)
+                    .collect(Collectors.toSet())
+                    .equals(columns)) {
+                return true;
             }
         }
-        return actions;
+        return false;
+    }
+
+    /** Compare two foreign keys. NO ACTION and RESTRICT only differ in when the check is done, and some databases
+     * report one for the other, so they are treated as the same.
+     *
+     */
+    private boolean isSame(ForeignKey tableKey, ForeignKey sqlKey, Map<String, String> columnNames) {
+        return isSame(tableKey.getColumns(), sqlKey.getColumns(), columnNames)
+                && tableKey.getReferencedTable().equals(sqlKey.getReferencedTable())
+                && tableKey.getReferencedColumns().equals(sqlKey.getReferencedColumns())
+                && isSame(tableKey.getOnDelete(), sqlKey.getOnDelete())
+                && isSame(tableKey.getOnUpdate(), sqlKey.getOnUpdate());
+    }
+
+    private boolean isSame(ForeignKey.Rule one, ForeignKey.Rule other) {
+        return (one == other)
+                || ((one == ForeignKey.Rule.NO_ACTION || one == ForeignKey.Rule.RESTRICT)
+                && (other == ForeignKey.Rule.NO_ACTION || other == ForeignKey.Rule.RESTRICT));
     }
 
     private boolean isNotSame(Column one, Column other) {
-        return one.isAutoIncrement() != other.isAutoIncrement()
-                || one.isNullable() != other.isNullable()
-                || one.isKey() != other.isKey()
-                || !one.getName().equals(other.getName())
-                || ((one.getDefault() == null || other.getDefault() == null || !one.getDefault().equals(other.getDefault()))
-                && (one.getDefault() != null || other.getDefault() != null))
-                || !modeller.typesAreCompatible(one, other);
-    }
-
-    private boolean isSame(Index one, Index other) {
-        boolean same = one.getName().equals(other.getName())
-                && (one.isUnique() == other.isUnique());
+        return !one.getName().equals(other.getName())
+                || !isSameDefinition(one, other);
+    }
+
+    /** Compare two columns apart from their names.
+     *
+     */
+    private boolean isSameDefinition(Column one, Column other) {
+        return one.isAutoIncrement() == other.isAutoIncrement()
+                && one.isNullable() == other.isNullable()
+                && one.isKey() == other.isKey()
+                && ((one.getDefault() == null) ? (other.getDefault() == null) : one.getDefault().equals(other.getDefault()))
+                && modeller.typesAreCompatible(one, other);
+    }
+
+    private boolean isSame(Index tableIndex, Index sqlIndex, Map<String, String> columnNames) {
+        boolean same = tableIndex.getName().equals(sqlIndex.getName())
+                && (tableIndex.isUnique() == sqlIndex.isUnique());
         if (same) {
-            return isSame(one.getColumns(), other.getColumns());
+            return isSame(tableIndex.getColumns(), sqlIndex.getColumns(), columnNames);
         }
         return false;
     }
 
-    private boolean isSame(Set<Column> one, Set<Column> other) {
-        if (one.size() != other.size()) {
+    /** Compare the columns of a model with the columns in the database. Columns are compared by name only, since
+     * changes to the column definitions are planned as column changes before the index changes, and columns that
+     * are renamed are compared by their names in the model, since renaming a column renames it in the indexes and
+     * keys that use it. The order of the columns is part of an index, so indexes with the same columns in a
+     * different order are not the same.
+     *
+     */
+    private boolean isSame(List<Column> tableColumns, List<Column> sqlColumns, Map<String, String> columnNames) {
+        if (tableColumns.size() != sqlColumns.size()) {
             return false;
         }
-        Map<String, Column> oneMap = one.stream().collect(Collectors.toMap(Column::getName, col -> col));
-        Map<String, Column> otherMap = other.stream().collect(Collectors.toMap(Column::getName, col -> col));
-        for (String name : oneMap.keySet()) {
-            if (!otherMap.containsKey(name)) {
-                return false;
-            }
-            if (isNotSame(oneMap.get(name), otherMap.get(name))) {
+        for (int i = 0; i < tableColumns.size(); ++i) {
+            String sqlName = sqlColumns.get(i).getName();
+            if (!tableColumns.get(i).getName().equals(columnNames.getOrDefault(sqlName, sqlName))) {
                 return false;
             }
         }
@@ -164,4 +545,32 @@ public final class SqlVerifier {
         this.modeller = modeller;
     }
 
+    /** A change to apply to a table in a database using a modeller */
+    @FunctionalInterface
+    interface Change {
+
+        void apply(SqlModeller modeller, Table table, ProgressListener listener) throws SqlModellerException;
+
+    }
+
+    /** A planned action and the change that implements it */
+    static final class Step {
+
+        private final Action action;
+        private final Change change;
+
+        private Step(Action action, Change change) {
+            this.action = action;
+            this.change = change;
+        }
+
+        Action getAction() {
+            return action;
+        }
+
+        Change getChange() {
+            return change;
+        }
+    }
+
 }
@@ -0,0 +1,180 @@
+package com.heliorm.sql;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/** Writes SQL text straight to an output, quoting identifiers and literals for a specific database type. Quoted
+ * identifiers are cached by the modeller that created the writer, so names that are used often are only quoted
+ * once.
+ * <p>
+ * Errors writing to the output are thrown as {@link UncheckedIOException}.
+ *
+ */
+public final class SqlWriter {
+
+    private final Appendable out;
+    private final Quoter quoter;
+
+    SqlWriter(Appendable out, Quoter quoter) {
+        this.out = out;
+        this.quoter = quoter;
+    }
+
+    /** Append SQL text as is.
+     *
+     * @param text The text
+     * @return The writer
+     */
+    public SqlWriter append(CharSequence text) {
+        try {
+            out.append(text);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    /** Append a single character as is.
+     *
+     * @param c The character
+     * @return The writer
+     */
+    public SqlWriter append(char c) {
+        try {
+            out.append(c);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    /** Append a number.
+     *
+     * @param number The number
+     * @return The writer
+     */
+    public SqlWriter append(long number) {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(number);
+            return this;
+        }
+        return append(Long.toString(number));
+    }
+
+    /** Append an identifier, like a table or column name, quoted and escaped.
+     *
+     * @param identifier The identifier
+     * @return The writer
+     */
+    public SqlWriter name(String identifier) {
+        return append(quoter.quote(identifier));
+    }
+
+    /** Append the names of columns, quoted and separated by commas.
+     *
+     * @param columns The columns
+     * @return The writer
+     */
+    public SqlWriter names(List<Column> columns) {
+        for (int i = 0; i < columns.size(); ++i) {
+            if (i > 0) {
+                append(',');
+            }
+            name(columns.get(i).getName());
+        }
+        return this;
+    }
+
+    /** Append a string literal, quoted and escaped. Quotes are escaped by doubling them, and on databases that
+     * treat backslashes in literals as escape characters, backslashes are doubled too.
+     *
+     * @param value The value
+     * @return The writer
+     */
+    public SqlWriter literal(String value) {
+        append('\'');
+        int start = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if ((c == '\'') || ((c == '\\') && quoter.escapesBackslash())) {
+                // write up to and including the character, and the character again to escape it
+                append(value.subSequence(start, i + 1)).append(c);
+                start = i + 1;
+            }
+        }
+        return append(value.subSequence(start, value.length())).append('\'');
+    }
+
+    /** Append string literals, quoted and separated by commas.
+     *
+     * @param values The values
+     * @return The writer
+     */
+    public SqlWriter literals(Collection<String> values) {
+        boolean first = true;
+        for (String value : values) {
+            if (!first) {
+                append(',');
+            }
+            literal(value);
+            first = false;
+        }
+        return this;
+    }
+
+    /** Return the SQL written so far, if the output is a buffer.
+     *
+     * @return The SQL
+     */
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    /** Quotes identifiers for a database type and remembers the result, and knows how the database escapes
+     * string literals.
+     */
+    static final class Quoter {
+
+        private final char quote;
+        private final boolean escapeBackslash;
+        private final Map<String, String> cache = new ConcurrentHashMap<>();
+        private final Function<String, String> escape = this::escape;
+
+        Quoter(char quote, boolean escapeBackslash) {
+            this.quote = quote;
+            this.escapeBackslash = escapeBackslash;
+        }
+
+        boolean escapesBackslash() {
+            return escapeBackslash;
+        }
+
+        String quote(String identifier) {
+            String quoted = cache.get(identifier);
+            if (quoted == null) {
+                quoted = cache.computeIfAbsent(identifier, escape);
+            }
+            return quoted;
+        }
+
+        private String escape(String identifier) {
+            StringBuilder buf = new StringBuilder(identifier.length() + 2);
+            buf.append(quote);
+            for (int i = 0; i < identifier.length(); ++i) {
+                char c = identifier.charAt(i);
+                if (c == quote) {
+                    buf.append(quote);
+                }
+                buf.append(c);
+            }
+            return buf.append(quote).toString();
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.heliorm.sql;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 
 /** An abstraction for a database table.
@@ -20,7 +23,7 @@ public interface Table {
      */
     String getName();
 
-    /** Get the columns in this table
+    /** Get the columns in this table, in the order in which they appear in the table.
      *
      * @return The columns
      */
@@ -33,6 +36,17 @@ public interface Table {
      */
     Column getColumn(String name);
 
+    /** Get the columns of the primary key of this table, in key order. By default these are the key columns in
+     * the order in which they appear in the table.
+     *
+     * @return The key columns, which are empty if the table has no primary key
+     */
+    default List<Column> getPrimaryKey() {
+        return getColumns().stream()
+                .filter(Column::isKey)
+                .collect(Collectors.toList());
+    }
+
     /** Get the indexes in this table
      *
      * @return The indexes
@@ -46,4 +60,32 @@ public interface Table {
      */
     Index getIndex(String name);
 
+    /** Get the foreign keys of this table
+     *
+     * @return The foreign keys, which are none unless the table defines them
+     */
+    default Set<ForeignKey> getForeignKeys() {
+        return Collections.emptySet();
+    }
+
+    /** Get the foreign key with the given name
+     *
+     * @param name The name of the foreign key
+     * @return The foreign key or null if no foreign key with that name exists
+     */
+    default ForeignKey getForeignKey(String name) {
+        return getForeignKeys().stream()
+                .filter(key -> key.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /** Get the partitioning of this table
+     *
+     * @return The partitioning, or null if the table is not partitioned
+     */
+    default Partitioning getPartitioning() {
+        return null;
+    }
+
 }
@@ -0,0 +1,59 @@
+package com.heliorm.sql;
+
+/** Size statistics for a SQL table as estimated by the database catalog.
+ *
+ */
+public final class TableStatistics {
+
+    /** Statistics for a table that does not exist yet or for which no statistics are available */
+    public static final TableStatistics EMPTY = new TableStatistics(0, 0, 0);
+
+    private final long rows;
+    private final long dataLength;
+    private final long indexLength;
+
+    /** Create new table statistics.
+     *
+     * @param rows The estimated number of rows
+     * @param dataLength The estimated size of the table data in bytes
+     * @param indexLength The estimated size of the table indexes in bytes
+     */
+    public TableStatistics(long rows, long dataLength, long indexLength) {
+        this.rows = rows;
+        this.dataLength = dataLength;
+        this.indexLength = indexLength;
+    }
+
+    /** Get the estimated number of rows in the table.
+     *
+     * @return The number of rows
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /** Get the estimated size of the table data in bytes.
+     *
+     * @return The size
+     */
+    public long getDataLength() {
+        return dataLength;
+    }
+
+    /** Get the estimated size of the table indexes in bytes.
+     *
+     * @return The size
+     */
+    public long getIndexLength() {
+        return indexLength;
+    }
+
+    @Override
+    public String toString() {
+        return "TableStatistics{" +
+                "rows=" + rows +
+                ", dataLength=" + dataLength +
+                ", indexLength=" + indexLength +
+                '}';
+    }
+}
@@ -0,0 +1,459 @@
+package com.heliorm.sql.catalog;
+
+import com.heliorm.sql.BinaryColumn;
+import com.heliorm.sql.BitColumn;
+import com.heliorm.sql.BooleanColumn;
+import com.heliorm.sql.Column;
+import com.heliorm.sql.Database;
+import com.heliorm.sql.DateTimeColumn;
+import com.heliorm.sql.DecimalColumn;
+import com.heliorm.sql.EnumColumn;
+import com.heliorm.sql.Index;
+import com.heliorm.sql.IntegerColumn;
+import com.heliorm.sql.SetColumn;
+import com.heliorm.sql.SqlModellerException;
+import com.heliorm.sql.StringColumn;
+import com.heliorm.sql.Table;
+import com.heliorm.sql.TimeStampColumn;
+
+import java.sql.JDBCType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.lang.String.format;
+
+/** A compact, read only representation of the structure of many databases. Databases, tables, columns and indexes
+ * are stored in arrays of primitives instead of as objects, with names and enum and set values stored once in
+ * dictionaries and referred to by number. This uses a fraction of the memory of the object model and allows whole
+ * clusters to be scanned and compared in parallel.
+ * <p>
+ * The catalog can be used through the normal model interfaces, using views that are created as they are needed.
+ *
+ */
+public final class Catalog {
+
+    static final byte NULLABLE = 1;
+    static final byte KEY = 2;
+    static final byte AUTO_INCREMENT = 4;
+    static final byte UNIQUE = 1;
+    static final int NONE = -1;
+
+    /** The kinds of column, stored by ordinal */
+    enum Kind {
+        STRING, BINARY, BIT, BOOLEAN, DECIMAL, DATE_TIME, TIME_STAMP, INTEGER, ENUM, SET
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final JDBCType[] JDBC_TYPES = JDBCType.values();
+
+    // dictionaries
+    final String[] names;
+    private final Map<String, Integer> codes;
+    final List<Set<String>> valueSets;
+
+    // databases, with the tables of each database stored together
+    final int[] databaseName;
+    final int[] databaseFirstTable;
+    private final int[] databaseByName;
+    private final Database[] databaseViews;
+
+    // tables, with the columns and indexes of each table stored together
+    final int[] tableName;
+    final int[] tableDatabase;
+    final int[] tableFirstColumn;
+    final int[] tableFirstIndex;
+    private final NameIndex tableByName;
+
+    // columns
+    final int[] columnName;
+    final byte[] columnKind;
+    final byte[] columnJdbcType;
+    final byte[] columnFlags;
+    final int[] columnSize;
+    final int[] columnScale;
+    final int[] columnDefault;
+    final int[] columnValues;
+    private final NameIndex columnByName;
+
+    // indexes, with columns stored as the position of the column in its table
+    final int[] indexName;
+    final byte[] indexFlags;
+    final int[] indexFirstColumn;
+    final int[] indexColumns;
+    private final NameIndex indexByName;
+
+    /** Create a catalog containing the structure of the given databases.
+     *
+     * @param databases The databases
+     * @return The catalog
+     * @throws SqlModellerException Thrown if a database contains a column type that is not supported, or if two
+     *                              databases have the same name
+     */
+    public static Catalog of(Collection<? extends Database> databases) throws SqlModellerException {
+        return new Catalog(databases);
+    }
+
+    private Catalog(Collection<? extends Database> databases) throws SqlModellerException {
+        int tables = 0;
+        int columns = 0;
+        int indexes = 0;
+        int indexColumnCount = 0;
+        for (Database database : databases) {
+            for (Table table : database.getTables()) {
+                tables++;
+                columns += table.getColumns().size();
+                for (Index index : table.getIndexes()) {
+                    indexes++;
+                    indexColumnCount += index.getColumns().size();
+                }
+            }
+        }
+        Dictionary dictionary = new Dictionary();
+        Map<List<String>, Integer> valueCodes = new HashMap<>();
+        valueSets = new ArrayList<>();
+        databaseName = new int[databases.size()];
+        databaseFirstTable = new int[databases.size() + 1];
+        tableName = new int[tables];
+        tableDatabase = new int[tables];
+        tableFirstColumn = new int[tables + 1];
+        tableFirstIndex = new int[tables + 1];
+        columnName = new int[columns];
+        columnKind = new byte[columns];
+        columnJdbcType = new byte[columns];
+        columnFlags = new byte[columns];
+        columnSize = new int[columns];
+        columnScale = new int[columns];
+        columnDefault = new int[columns];
+        columnValues = new int[columns];
+        indexName = new int[indexes];
+        indexFlags = new byte[indexes];
+        indexFirstColumn = new int[indexes + 1];
+        indexColumns = new int[indexColumnCount];
+        tableByName = new NameIndex(tables);
+        columnByName = new NameIndex(columns);
+        indexByName = new NameIndex(indexes);
+        int d = 0;
+        int t = 0;
+        int c = 0;
+        int i = 0;
+        int ic = 0;
+        for (Database database : databases) {
+            databaseName[d] = dictionary.code(database.getName());
+            databaseFirstTable[d] = t;
+            for (Table table : database.getTables()) {
+                tableName[t] = dictionary.code(table.getName());
+                tableByName.put(d, tableName[t], t);
+                tableDatabase[t] = d;
+                tableFirstColumn[t] = c;
+                tableFirstIndex[t] = i;
+                Map<String, Integer> positions = new HashMap<>();
+                for (Column column : table.getColumns()) {
+                    positions.put(column.getName(), c - tableFirstColumn[t]);
+                    columnName[c] = dictionary.code(column.getName());
+                    columnByName.put(t, columnName[c], c);
+                    columnJdbcType[c] = (byte) column.getJdbcType().ordinal();
+                    columnFlags[c] = (byte) ((column.isNullable() ? NULLABLE : 0)
+                            | (column.isKey() ? KEY : 0)
+                            | (column.isAutoIncrement() ? AUTO_INCREMENT : 0));
+                    columnDefault[c] = column.getDefault() == null ? NONE : dictionary.code(column.getDefault());
+                    columnValues[c] = NONE;
+                    if (column instanceof EnumColumn) {
+                        columnKind[c] = (byte) Kind.ENUM.ordinal();
+                        columnValues[c] = valueCode(valueCodes, dictionary, ((EnumColumn) column).getEnumValues());
+                    } else if (column instanceof SetColumn) {
+                        columnKind[c] = (byte) Kind.SET.ordinal();
+                        columnValues[c] = valueCode(valueCodes, dictionary, ((SetColumn) column).getSetValues());
+                    } else if (column instanceof StringColumn) {
+                        columnKind[c] = (byte) Kind.STRING.ordinal();
+                        columnSize[c] = ((StringColumn) column).getLength();
+                    } else if (column instanceof BinaryColumn) {
+                        columnKind[c] = (byte) Kind.BINARY.ordinal();
+                        columnSize[c] = ((BinaryColumn) column).getLength();
+                    } else if (column instanceof BitColumn) {
+                        columnKind[c] = (byte) Kind.BIT.ordinal();
+                        columnSize[c] = ((BitColumn) column).getBits();
+                    } else if (column instanceof BooleanColumn) {
+                        columnKind[c] = (byte) Kind.BOOLEAN.ordinal();
+                    } else if (column instanceof DecimalColumn) {
+                        columnKind[c] = (byte) Kind.DECIMAL.ordinal();
+                        columnSize[c] = ((DecimalColumn) column).getPrecision();
+                        columnScale[c] = ((DecimalColumn) column).getScale();
+                    } else if (column instanceof DateTimeColumn) {
+                        columnKind[c] = (byte) Kind.DATE_TIME.ordinal();
+                    } else if (column instanceof TimeStampColumn) {
+                        columnKind[c] = (byte) Kind.TIME_STAMP.ordinal();
+                    } else if (column instanceof IntegerColumn) {
+                        columnKind[c] = (byte) Kind.INTEGER.ordinal();
+                    } else {
+                        throw new SqlModellerException(format("Unsupported column type %s for column '%s' in table '%s'",
+                                column.getClass().getSimpleName(), column.getName(), table.getName()));
+                    }
+                    c++;
+                }
+                for (Index index : table.getIndexes()) {
+                    indexName[i] = dictionary.code(index.getName());
+                    indexByName.put(t, indexName[i], i);
+                    indexFlags[i] = index.isUnique() ? UNIQUE : 0;
+                    indexFirstColumn[i] = ic;
+                    for (Column column : index.getColumns()) {
+                        Integer position = positions.get(column.getName());
+                        if (position == null) {
+                            throw new SqlModellerException(format("Index '%s' uses column '%s' that is not in table '%s'",
+                                    index.getName(), column.getName(), table.getName()));
+                        }
+                        indexColumns[ic++] = position;
+                    }
+                    i++;
+                }
+                t++;
+            }
+            d++;
+        }
+        databaseFirstTable[d] = t;
+        tableFirstColumn[t] = c;
+        tableFirstIndex[t] = i;
+        indexFirstColumn[i] = ic;
+        names = dictionary.names.toArray(new String[0]);
+        codes = dictionary.codes;
+        databaseViews = new Database[databaseName.length];
+        databaseByName = new int[names.length];
+        Arrays.fill(databaseByName, NONE);
+        for (d = 0; d < databaseName.length; ++d) {
+            if (databaseByName[databaseName[d]] != NONE) {
+                throw new SqlModellerException(format("Database '%s' is in the catalog more than once", names[databaseName[d]]));
+            }
+            databaseByName[databaseName[d]] = d;
+        }
+    }
+
+    /** Get the number of databases in the catalog.
+     *
+     * @return The number of databases
+     */
+    public int getDatabaseCount() {
+        return databaseName.length;
+    }
+
+    /** Get the number of tables in the catalog.
+     *
+     * @return The number of tables
+     */
+    public int getTableCount() {
+        return tableName.length;
+    }
+
+    /** Get the number of columns in the catalog.
+     *
+     * @return The number of columns
+     */
+    public int getColumnCount() {
+        return columnName.length;
+    }
+
+    /** Get the number of indexes in the catalog.
+     *
+     * @return The number of indexes
+     */
+    public int getIndexCount() {
+        return indexName.length;
+    }
+
+    /** Get a view of the databases in the catalog.
+     *
+     * @return The databases
+     */
+    public List<Database> getDatabases() {
+        Database[] databases = new Database[databaseName.length];
+        for (int d = 0; d < databases.length; ++d) {
+            databases[d] = database(d);
+        }
+        return Collections.unmodifiableList(Arrays.asList(databases));
+    }
+
+    /** Get a view of the database with the given name.
+     *
+     * @param name The name of the database
+     * @return The database or null if there is no database with that name
+     */
+    public Database getDatabase(String name) {
+        int d = findDatabase(name);
+        return d == NONE ? null : database(d);
+    }
+
+    private Database database(int database) {
+        Database view = databaseViews[database];
+        if (view == null) {
+            // views only refer to the catalog, so a view created twice by different threads does no harm
+            view = new CatalogDatabase(this, database);
+            databaseViews[database] = view;
+        }
+        return view;
+    }
+
+    /** Find the tables that are not the same in this catalog and another catalog. Tables are the same if they
+     * are in a database with the same name and have exactly the same columns and indexes. Tables that are in only
+     * one of the catalogs are also returned. Tables are compared in parallel.
+     * <p>
+     * This does not take into account the differences between database types, so it is useful to find the
+     * tables that need to be verified, but the verifier decides which changes are needed.
+     *
+     * @param other The other catalog
+     * @return The names of the tables that are not the same, as database.table
+     */
+    public Set<String> findChangedTables(Catalog other) {
+        Set<String> changed = IntStream.range(0, getTableCount()).parallel()
+                .filter(t -> !isSameTable(t, other))
+                .mapToObj(this::qualifiedName)
+                .collect(Collectors.toCollection(TreeSet::new));
+        changed.addAll(IntStream.range(0, other.getTableCount()).parallel()
+                .filter(t -> findTable(other.names[other.databaseName[other.tableDatabase[t]]], other.names[other.tableName[t]]) == NONE)
+                .mapToObj(other::qualifiedName)
+                .collect(Collectors.toList()));
+        return changed;
+    }
+
+    int findDatabase(String name) {
+        Integer code = codes.get(name);
+        return code == null ? NONE : databaseByName[code];
+    }
+
+    int findTable(String databaseName, String name) {
+        int d = findDatabase(databaseName);
+        Integer code = codes.get(name);
+        return (d == NONE || code == null) ? NONE : tableByName.get(d, code);
+    }
+
+    int findColumn(int table, String name) {
+        Integer code = codes.get(name);
+        return code == null ? NONE : columnByName.get(table, code);
+    }
+
+    int findIndex(int table, String name) {
+        Integer code = codes.get(name);
+        return code == null ? NONE : indexByName.get(table, code);
+    }
+
+    Kind kind(int column) {
+        return KINDS[columnKind[column]];
+    }
+
+    JDBCType jdbcType(int column) {
+        return JDBC_TYPES[columnJdbcType[column]];
+    }
+
+    String name(int code) {
+        return code == NONE ? null : names[code];
+    }
+
+    private String qualifiedName(int table) {
+        return names[databaseName[tableDatabase[table]]] + "." + names[tableName[table]];
+    }
+
+    private boolean isSameTable(int table, Catalog other) {
+        int o = other.findTable(names[databaseName[tableDatabase[table]]], names[tableName[table]]);
+        if (o == NONE) {
+            return false;
+        }
+        int columns = tableFirstColumn[table + 1] - tableFirstColumn[table];
+        int indexes = tableFirstIndex[table + 1] - tableFirstIndex[table];
+        if (columns != other.tableFirstColumn[o + 1] - other.tableFirstColumn[o]
+                || indexes != other.tableFirstIndex[o + 1] - other.tableFirstIndex[o]) {
+            return false;
+        }
+        for (int c = tableFirstColumn[table]; c < tableFirstColumn[table + 1]; ++c) {
+            // columns are usually in the same position, so look there before searching
+            int oc = other.tableFirstColumn[o] + c - tableFirstColumn[table];
+            if (!names[columnName[c]].equals(other.names[other.columnName[oc]])) {
+                oc = other.findColumn(o, names[columnName[c]]);
+                if (oc == NONE) {
+                    return false;
+                }
+            }
+            if (!isSameColumn(c, other, oc)) {
+                return false;
+            }
+        }
+        for (int i = tableFirstIndex[table]; i < tableFirstIndex[table + 1]; ++i) {
+            int oi = other.findIndex(o, names[indexName[i]]);
+            if (oi == NONE || !isSameIndex(table, i, other, o, oi)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSameColumn(int column, Catalog other, int otherColumn) {
+        return columnKind[column] == other.columnKind[otherColumn]
+                && columnJdbcType[column] == other.columnJdbcType[otherColumn]
+                && columnFlags[column] == other.columnFlags[otherColumn]
+                && columnSize[column] == other.columnSize[otherColumn]
+                && columnScale[column] == other.columnScale[otherColumn]
+                && Objects.equals(name(columnDefault[column]), other.name(other.columnDefault[otherColumn]))
+                && Objects.equals(values(columnValues[column]), other.values(other.columnValues[otherColumn]));
+    }
+
+    private boolean isSameIndex(int table, int index, Catalog other, int otherTable, int otherIndex) {
+        int size = indexFirstColumn[index + 1] - indexFirstColumn[index];
+        if (indexFlags[index] != other.indexFlags[otherIndex]
+                || size != other.indexFirstColumn[otherIndex + 1] - other.indexFirstColumn[otherIndex]) {
+            return false;
+        }
+        for (int k = 0; k < size; ++k) {
+            int c = tableFirstColumn[table] + indexColumns[indexFirstColumn[index] + k];
+            int oc = other.tableFirstColumn[otherTable] + other.indexColumns[other.indexFirstColumn[otherIndex] + k];
+            if (!names[columnName[c]].equals(other.names[other.columnName[oc]])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Set<String> values(int code) {
+        return code == NONE ? null : valueSets.get(code);
+    }
+
+    private int valueCode(Map<List<String>, Integer> valueCodes, Dictionary dictionary, Set<String> values) {
+        // values are only shared if they are in the same order, since the order is part of the column type
+        List<String> key = new ArrayList<>(values);
+        Integer code = valueCodes.get(key);
+        if (code == null) {
+            Set<String> copy = new LinkedHashSet<>();
+            for (String value : values) {
+                copy.add(dictionary.names.get(dictionary.code(value)));
+            }
+            code = valueSets.size();
+            valueSets.add(Collections.unmodifiableSet(copy));
+            valueCodes.put(key, code);
+        }
+        return code;
+    }
+
+    /** The dictionary of names used while building a catalog */
+    private static final class Dictionary {
+
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private int code(String name) {
+            Integer code = codes.get(name);
+            if (code == null) {
+                code = names.size();
+                names.add(name);
+                codes.put(name, code);
+            }
+            return code;
+        }
+    }
+
+}
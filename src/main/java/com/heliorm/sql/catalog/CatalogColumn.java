@@ -0,0 +1,232 @@
+package com.heliorm.sql.catalog;
+
+import com.heliorm.sql.BinaryColumn;
+import com.heliorm.sql.BitColumn;
+import com.heliorm.sql.BooleanColumn;
+import com.heliorm.sql.Column;
+import com.heliorm.sql.DateTimeColumn;
+import com.heliorm.sql.DecimalColumn;
+import com.heliorm.sql.EnumColumn;
+import com.heliorm.sql.IntegerColumn;
+import com.heliorm.sql.SetColumn;
+import com.heliorm.sql.StringColumn;
+import com.heliorm.sql.Table;
+import com.heliorm.sql.TimeStampColumn;
+
+import java.sql.JDBCType;
+import java.util.Set;
+
+/** View of a column stored in a catalog. There is a view class for every kind of column, so that the view
+ * implements the same column interface as the column the catalog was built from.
+ *
+ */
+abstract class CatalogColumn implements Column {
+
+    final Catalog catalog;
+    private final Table table;
+    final int column;
+
+    /** Create the view for a column.
+     *
+     * @param catalog The catalog
+     * @param table The view of the table the column is in
+     * @param column The column
+     * @return The view
+     */
+    static Column of(Catalog catalog, Table table, int column) {
+        switch (catalog.kind(column)) {
+            case STRING:
+                return new StringView(catalog, table, column);
+            case BINARY:
+                return new BinaryView(catalog, table, column);
+            case BIT:
+                return new BitView(catalog, table, column);
+            case BOOLEAN:
+                return new BooleanView(catalog, table, column);
+            case DECIMAL:
+                return new DecimalView(catalog, table, column);
+            case DATE_TIME:
+                return new DateTimeView(catalog, table, column);
+            case TIME_STAMP:
+                return new TimeStampView(catalog, table, column);
+            case ENUM:
+                return new EnumView(catalog, table, column);
+            case SET:
+                return new SetView(catalog, table, column);
+            default:
+                return new IntegerView(catalog, table, column);
+        }
+    }
+
+    private CatalogColumn(Catalog catalog, Table table, int column) {
+        this.catalog = catalog;
+        this.table = table;
+        this.column = column;
+    }
+
+    @Override
+    public String getName() {
+        return catalog.names[catalog.columnName[column]];
+    }
+
+    @Override
+    public JDBCType getJdbcType() {
+        return catalog.jdbcType(column);
+    }
+
+    @Override
+    public Table getTable() {
+        return table;
+    }
+
+    @Override
+    public boolean isNullable() {
+        return (catalog.columnFlags[column] & Catalog.NULLABLE) != 0;
+    }
+
+    @Override
+    public boolean isKey() {
+        return (catalog.columnFlags[column] & Catalog.KEY) != 0;
+    }
+
+    @Override
+    public boolean isAutoIncrement() {
+        return (catalog.columnFlags[column] & Catalog.AUTO_INCREMENT) != 0;
+    }
+
+    @Override
+    public String getDefault() {
+        return catalog.name(catalog.columnDefault[column]);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogColumn that = (CatalogColumn) o;
+        return column == that.column && catalog == that.catalog;
+    }
+
+    @Override
+    public int hashCode() {
+        return column;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{" +
+                "name='" + getName() + '\'' +
+                ", table=" + table.getName() +
+                ", jdbcType=" + getJdbcType() +
+                ", nullable=" + isNullable() +
+                ", key=" + isKey() +
+                ", autoIncrement=" + isAutoIncrement() +
+                ", default='" + getDefault() + '\'' +
+                '}';
+    }
+
+    private static final class StringView extends CatalogColumn implements StringColumn {
+
+        private StringView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+
+        @Override
+        public int getLength() {
+            return catalog.columnSize[column];
+        }
+    }
+
+    private static final class BinaryView extends CatalogColumn implements BinaryColumn {
+
+        private BinaryView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+
+        @Override
+        public int getLength() {
+            return catalog.columnSize[column];
+        }
+    }
+
+    private static final class BitView extends CatalogColumn implements BitColumn {
+
+        private BitView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+
+        @Override
+        public int getBits() {
+            return catalog.columnSize[column];
+        }
+    }
+
+    private static final class BooleanView extends CatalogColumn implements BooleanColumn {
+
+        private BooleanView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+    }
+
+    private static final class DecimalView extends CatalogColumn implements DecimalColumn {
+
+        private DecimalView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+
+        @Override
+        public int getPrecision() {
+            return catalog.columnSize[column];
+        }
+
+        @Override
+        public int getScale() {
+            return catalog.columnScale[column];
+        }
+    }
+
+    private static final class DateTimeView extends CatalogColumn implements DateTimeColumn {
+
+        private DateTimeView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+    }
+
+    private static final class TimeStampView extends CatalogColumn implements TimeStampColumn {
+
+        private TimeStampView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+    }
+
+    private static final class IntegerView extends CatalogColumn implements IntegerColumn {
+
+        private IntegerView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+    }
+
+    private static final class EnumView extends CatalogColumn implements EnumColumn {
+
+        private EnumView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+
+        @Override
+        public Set<String> getEnumValues() {
+            return catalog.values(catalog.columnValues[column]);
+        }
+    }
+
+    private static final class SetView extends CatalogColumn implements SetColumn {
+
+        private SetView(Catalog catalog, Table table, int column) {
+            super(catalog, table, column);
+        }
+
+        @Override
+        public Set<String> getSetValues() {
+            return catalog.values(catalog.columnValues[column]);
+        }
+    }
+}
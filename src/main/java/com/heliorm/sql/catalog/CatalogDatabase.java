@@ -0,0 +1,99 @@
+package com.heliorm.sql.catalog;
+
+import com.heliorm.sql.Database;
+import com.heliorm.sql.Table;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/** View of a database stored in a catalog. The views of its tables are created when they are first used and kept
+ * with the database view.
+ *
+ */
+final class CatalogDatabase implements Database {
+
+    private final Catalog catalog;
+    private final int database;
+    private final Table[] tables;
+
+    CatalogDatabase(Catalog catalog, int database) {
+        this.catalog = catalog;
+        this.database = database;
+        this.tables = new Table[catalog.databaseFirstTable[database + 1] - catalog.databaseFirstTable[database]];
+    }
+
+    @Override
+    public String getName() {
+        return catalog.names[catalog.databaseName[database]];
+    }
+
+    @Override
+    public Set<Table> getTables() {
+        int first = catalog.databaseFirstTable[database];
+        int last = catalog.databaseFirstTable[database + 1];
+        return new AbstractSet<Table>() {
+            @Override
+            public Iterator<Table> iterator() {
+                return new Iterator<Table>() {
+                    private int table = first;
+
+                    @Override
+                    public boolean hasNext() {
+                        return table < last;
+                    }
+
+                    @Override
+                    public Table next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return table(table++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return last - first;
+            }
+        };
+    }
+
+    @Override
+    public Table getTable(String name) {
+        int table = catalog.findTable(getName(), name);
+        return table == Catalog.NONE ? null : table(table);
+    }
+
+    private Table table(int table) {
+        int position = table - catalog.databaseFirstTable[database];
+        Table view = tables[position];
+        if (view == null) {
+            view = new CatalogTable(catalog, this, table);
+            tables[position] = view;
+        }
+        return view;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogDatabase that = (CatalogDatabase) o;
+        return database == that.database && catalog == that.catalog;
+    }
+
+    @Override
+    public int hashCode() {
+        return database;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogDatabase{" +
+                "name='" + getName() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,80 @@
+package com.heliorm.sql.catalog;
+
+import com.heliorm.sql.Column;
+import com.heliorm.sql.Index;
+import com.heliorm.sql.Table;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/** View of an index stored in a catalog.
+ *
+ */
+final class CatalogIndex implements Index {
+
+    private final Catalog catalog;
+    private final CatalogTable table;
+    private final int index;
+
+    CatalogIndex(Catalog catalog, CatalogTable table, int index) {
+        this.catalog = catalog;
+        this.table = table;
+        this.index = index;
+    }
+
+    @Override
+    public String getName() {
+        return catalog.names[catalog.indexName[index]];
+    }
+
+    @Override
+    public Table getTable() {
+        return table;
+    }
+
+    @Override
+    public List<Column> getColumns() {
+        int first = catalog.indexFirstColumn[index];
+        int last = catalog.indexFirstColumn[index + 1];
+        return new AbstractList<Column>() {
+            @Override
+            public Column get(int i) {
+                if (i < 0 || i >= last - first) {
+                    throw new IndexOutOfBoundsException("Index: " + i);
+                }
+                return table.columnAt(catalog.indexColumns[first + i]);
+            }
+
+            @Override
+            public int size() {
+                return last - first;
+            }
+        };
+    }
+
+    @Override
+    public boolean isUnique() {
+        return (catalog.indexFlags[index] & Catalog.UNIQUE) != 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogIndex that = (CatalogIndex) o;
+        return index == that.index && catalog == that.catalog;
+    }
+
+    @Override
+    public int hashCode() {
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogIndex{" +
+                "name='" + getName() + '\'' +
+                ", table=" + table.getName() +
+                '}';
+    }
+}
@@ -0,0 +1,164 @@
+package com.heliorm.sql.catalog;
+
+import com.heliorm.sql.Column;
+import com.heliorm.sql.Database;
+import com.heliorm.sql.Index;
+import com.heliorm.sql.Table;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/** View of a table stored in a catalog. The views of its columns are created when they are first used and kept
+ * with the table view, so they are the same objects every time.
+ *
+ */
+final class CatalogTable implements Table {
+
+    private final Catalog catalog;
+    private final Database database;
+    private final int table;
+    private final Column[] columns;
+    private final Set<Column> columnView;
+    private final Set<Index> indexView;
+
+    CatalogTable(Catalog catalog, Database database, int table) {
+        this.catalog = catalog;
+        this.database = database;
+        this.table = table;
+        this.columns = new Column[catalog.tableFirstColumn[table + 1] - catalog.tableFirstColumn[table]];
+        this.columnView = new ColumnSet();
+        this.indexView = new IndexSet();
+    }
+
+    @Override
+    public Database getDatabase() {
+        return database;
+    }
+
+    @Override
+    public String getName() {
+        return catalog.names[catalog.tableName[table]];
+    }
+
+    @Override
+    public Set<Column> getColumns() {
+        return columnView;
+    }
+
+    @Override
+    public Column getColumn(String name) {
+        int column = catalog.findColumn(table, name);
+        return column == Catalog.NONE ? null : column(column);
+    }
+
+    @Override
+    public Set<Index> getIndexes() {
+        return indexView;
+    }
+
+    @Override
+    public Index getIndex(String name) {
+        int index = catalog.findIndex(table, name);
+        return index == Catalog.NONE ? null : new CatalogIndex(catalog, this, index);
+    }
+
+    /** Get the view of a column in this table.
+     *
+     * @param column The position of the column in its table
+     * @return The column
+     */
+    Column columnAt(int column) {
+        return column(catalog.tableFirstColumn[table] + column);
+    }
+
+    private Column column(int column) {
+        int position = column - catalog.tableFirstColumn[table];
+        Column view = columns[position];
+        if (view == null) {
+            // views hold no state of their own, so a view created twice by different threads does no harm
+            view = CatalogColumn.of(catalog, this, column);
+            columns[position] = view;
+        }
+        return view;
+    }
+
+    /** The columns of the table, in the order in which they are stored */
+    private final class ColumnSet extends AbstractSet<Column> {
+
+        @Override
+        public Iterator<Column> iterator() {
+            return new Iterator<Column>() {
+                private int column = catalog.tableFirstColumn[table];
+
+                @Override
+                public boolean hasNext() {
+                    return column < catalog.tableFirstColumn[table + 1];
+                }
+
+                @Override
+                public Column next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return column(column++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return columns.length;
+        }
+    }
+
+    /** The indexes of the table, in the order in which they are stored */
+    private final class IndexSet extends AbstractSet<Index> {
+
+        @Override
+        public Iterator<Index> iterator() {
+            return new Iterator<Index>() {
+                private int index = catalog.tableFirstIndex[table];
+
+                @Override
+                public boolean hasNext() {
+                    return index < catalog.tableFirstIndex[table + 1];
+                }
+
+                @Override
+                public Index next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return new CatalogIndex(catalog, CatalogTable.this, index++);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return catalog.tableFirstIndex[table + 1] - catalog.tableFirstIndex[table];
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CatalogTable that = (CatalogTable) o;
+        return table == that.table && catalog == that.catalog;
+    }
+
+    @Override
+    public int hashCode() {
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogTable{" +
+                "name='" + getName() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,78 @@
+package com.heliorm.sql.catalog;
+
+import java.util.Arrays;
+
+/** Finds the position of a table, column or index in a catalog by the position of what it belongs to and the
+ * code of its name. Entries are stored in arrays of primitives with open addressing, so the index adds two
+ * numbers per entry to the catalog.
+ *
+ */
+final class NameIndex {
+
+    private static final long EMPTY = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int mask;
+
+    /** Create an index that can hold the given number of entries.
+     *
+     * @param size The number of entries
+     */
+    NameIndex(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size, 1)) * 4;
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /** Add an entry, unless there already is one for the same owner and name.
+     *
+     * @param owner The position of what the entry belongs to
+     * @param name The code of the name of the entry
+     * @param value The position of the entry
+     * @return The position of the entry that was already there, or {@link Catalog#NONE} if the entry was added
+     */
+    int put(int owner, int name, int value) {
+        long key = key(owner, name);
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        return Catalog.NONE;
+    }
+
+    /** Get the position of an entry.
+     *
+     * @param owner The position of what the entry belongs to
+     * @param name The code of the name of the entry
+     * @return The position, or {@link Catalog#NONE} if there is no such entry
+     */
+    int get(int owner, int name) {
+        long key = key(owner, name);
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return Catalog.NONE;
+    }
+
+    private int slot(long key) {
+        // the high bits of the product depend on all the bits of the key
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    private static long key(int owner, int name) {
+        return ((long) owner << 32) | name;
+    }
+
+}
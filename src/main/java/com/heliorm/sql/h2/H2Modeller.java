@@ -0,0 +1,494 @@
+package com.heliorm.sql.h2;
+
+import com.heliorm.sql.Action;
+import com.heliorm.sql.BinaryColumn;
+import com.heliorm.sql.BitColumn;
+import com.heliorm.sql.BooleanColumn;
+import com.heliorm.sql.Column;
+import com.heliorm.sql.Database;
+import com.heliorm.sql.DateTimeColumn;
+import com.heliorm.sql.DecimalColumn;
+import com.heliorm.sql.EnumColumn;
+import com.heliorm.sql.ForeignKey;
+import com.heliorm.sql.Impact;
+import com.heliorm.sql.Index;
+import com.heliorm.sql.Partition;
+import com.heliorm.sql.ServerCapabilities;
+import com.heliorm.sql.SetColumn;
+import com.heliorm.sql.SqlModeller;
+import com.heliorm.sql.SqlModellerException;
+import com.heliorm.sql.SqlWriter;
+import com.heliorm.sql.StringColumn;
+import com.heliorm.sql.Table;
+import com.heliorm.sql.TableStatistics;
+import com.heliorm.sql.TimeStampColumn;
+
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * An implementation of the SQL modeller that deals with H2 syntax. The database name of the models is used as the
+ * catalog name, so H2 databases must be opened with DATABASE_TO_UPPER=FALSE if their names are not in upper case.
+ * <p>
+ * Only H2 1.4 is supported. Tables, indexes and structure digests are read from the INFORMATION_SCHEMA tables of
+ * H2 1.4, which were replaced in H2 2.0.
+ */
+public final class H2Modeller extends SqlModeller {
+
+    /**
+     * Create a new modeller with the given connection supplier.
+     *
+     * @param supplier The connection supplier
+     */
+    public H2Modeller(Supplier<Connection> supplier) {
+        super(supplier, '"');
+    }
+
+    @Override
+    public void modifyIndex(Index index) throws SqlModellerException {
+        changed(index.getTable());
+        String newName = index.getName() + "__new";
+        try {
+            // a replacement left by an earlier failed change is dropped first
+            execute(makeDropIndexQuery(newName),
+                    makeModifyIndexQuery(index),
+                    makeRemoveIndexQuery(index),
+                    makeRenameIndexQuery(newName, index.getName()));
+        } catch (SqlModellerException ex) {
+            throw new SqlModellerException(format("Error modifying index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(index.getTable());
+        }
+    }
+
+    @Override
+    public boolean supportsSet() {
+        return false;
+    }
+
+    @Override
+    protected boolean indexesForeignKeys() {
+        return true;
+    }
+
+    @Override
+    protected boolean isEnumColumn(String columnName, JDBCType jdbcType, String typeName) {
+        return typeName.equals("ENUM");
+    }
+
+    @Override
+    protected boolean isSetColumn(String columnName, JDBCType jdbcType, String typeName) {
+        return false;
+    }
+
+    @Override
+    protected boolean isPrimaryKeyIndex(String indexName, Set<String> keyNames) {
+        // H2 names the index of a primary key separately from the constraint
+        return indexName.startsWith("PRIMARY_KEY_");
+    }
+
+    @Override
+    protected String makeReadSetQuery(SetColumn column) throws SqlModellerException {
+        throw new SqlModellerException("SET data types are not supported for H2");
+    }
+
+    @Override
+    protected Set<String> extractSetValues(String text) {
+        return null;
+    }
+
+    @Override
+    protected Set<String> readEnumValues(EnumColumn column) throws SqlModellerException {
+        try (Connection con = readCon(column.getTable()); PreparedStatement stmt = con.prepareStatement("SELECT COLUMN_TYPE FROM INFORMATION_SCHEMA.COLUMNS " +
+                "WHERE TABLE_CATALOG=? AND TABLE_SCHEMA=SCHEMA() AND TABLE_NAME=? AND COLUMN_NAME=?")) {
+            stmt.setString(1, column.getTable().getDatabase().getName());
+            stmt.setString(2, column.getTable().getName());
+            stmt.setString(3, column.getName());
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return extractEnumValues(rs.getString(1));
+                }
+            }
+            return Collections.emptySet();
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error reading enum values from %s.%s.%s (%s)",
+                    column.getTable().getDatabase().getName(), column.getTable().getName(), column.getName(), ex.getMessage()), ex);
+        }
+    }
+
+    @Override
+    protected String extractDefault(String text) {
+        if (text.startsWith("(NEXT VALUE FOR ")) {
+            // the sequence of an auto increment column, which is not a default in the model
+            return null;
+        }
+        if ((text.length() >= 2) && text.startsWith("'") && text.endsWith("'")) {
+            return text.substring(1, text.length() - 1).replace("''", "'");
+        }
+        return text;
+    }
+
+    @Override
+    protected String getDatabaseName(Database database) {
+        // only used as a catalog name in meta data lookups, which must not be quoted
+        return database.getName();
+    }
+
+    @Override
+    protected String getTableName(Table table) {
+        return quote(table.getName());
+    }
+
+    @Override
+    protected String getColumnName(Column column) {
+        return quote(column.getName());
+    }
+
+    @Override
+    protected String getIndexName(Index index) {
+        return quote(index.getName());
+    }
+
+    @Override
+    protected void writeCreateTableQuery(SqlWriter sql, Table table) throws SqlModellerException {
+        writeCreateTableColumns(sql, table);
+        writePartitionClause(sql, table);
+        for (Index index : table.getIndexes()) {
+            sql.append(";\n");
+            writeAddIndexQuery(sql, index);
+        }
+    }
+
+    @Override
+    protected void writeCreateType(SqlWriter sql, Column column) throws SqlModellerException {
+        writeColumnType(sql, column, true);
+    }
+
+    @Override
+    protected String makeModifyColumnQuery(Column column) throws SqlModellerException {
+        SqlWriter sql = writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" ALTER COLUMN ").name(column.getName())
+                .append(' ');
+        writeColumnType(sql, column, false);
+        return sql.toString();
+    }
+
+    @Override
+    protected List<String> makeSetNotNullQueries(Column column) {
+        return Collections.singletonList(writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" ALTER COLUMN ").name(column.getName()).append(" SET NOT NULL")
+                .toString());
+    }
+
+    @Override
+    protected String makeAddColumnQuery(Column column) throws SqlModellerException {
+        SqlWriter sql = writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" ADD COLUMN ").name(column.getName())
+                .append(' ');
+        writeColumnType(sql, column, true);
+        return sql.toString();
+    }
+
+    @Override
+    protected String makeRemoveIndexQuery(Index index) {
+        return makeDropIndexQuery(index.getName());
+    }
+
+    @Override
+    protected String makeModifyIndexQuery(Index index) {
+        // the replacement is built under a temporary name first, so the table is never without the index
+        return writer(new StringBuilder())
+                .append(index.isUnique() ? "CREATE UNIQUE INDEX " : "CREATE INDEX ").name(index.getName() + "__new")
+                .append(" ON ").name(index.getTable().getName())
+                .append(" (").names(index.getColumns()).append(')')
+                .toString();
+    }
+
+    @Override
+    protected String makeRenameIndexQuery(Index current, Index changed) {
+        return makeRenameIndexQuery(current.getName(), changed.getName());
+    }
+
+    /**
+     * Generate an SQL statement to drop an index by name if it exists.
+     *
+     * @param indexName The name of the index
+     * @return The SQL
+     */
+    private String makeDropIndexQuery(String indexName) {
+        return writer(new StringBuilder())
+                .append("DROP INDEX IF EXISTS ").name(indexName)
+                .toString();
+    }
+
+    /**
+     * Generate an SQL statement to rename an index by name.
+     *
+     * @param currentName The current name of the index
+     * @param newName     The new name of the index
+     * @return The SQL
+     */
+    private String makeRenameIndexQuery(String currentName, String newName) {
+        return writer(new StringBuilder())
+                .append("ALTER INDEX ").name(currentName).append(" RENAME TO ").name(newName)
+                .toString();
+    }
+
+    @Override
+    protected boolean typesAreCompatible(Column one, Column other) {
+        if (one instanceof EnumColumn) {
+            if (other instanceof EnumColumn) {
+                return ((EnumColumn) one).getEnumValues().equals(((EnumColumn) other).getEnumValues());
+            }
+            return false;
+        }
+        if (one instanceof BooleanColumn) {
+            if (other instanceof BitColumn) {
+                return ((BitColumn) other).getBits() == 1;
+            }
+            return other instanceof BooleanColumn;
+        }
+        if (one instanceof BitColumn) {
+            if (other instanceof BitColumn) {
+                return ((BitColumn) one).getBits() == ((BitColumn) other).getBits();
+            }
+            return other instanceof BooleanColumn && ((BitColumn) one).getBits() == 1;
+        }
+        if (one instanceof StringColumn) {
+            if (other instanceof StringColumn) {
+                // H2 keeps the declared length of every string column
+                return ((StringColumn) one).getLength() == ((StringColumn) other).getLength();
+            }
+            return false;
+        }
+        if (one instanceof BinaryColumn) {
+            if (other instanceof BinaryColumn) {
+                return ((BinaryColumn) one).getLength() == ((BinaryColumn) other).getLength();
+            }
+            return false;
+        }
+        if (one instanceof DecimalColumn) {
+            if (other instanceof DecimalColumn) {
+                if ((one.getJdbcType() == JDBCType.DOUBLE) && (other.getJdbcType() == JDBCType.DOUBLE)) {
+                    return true;
+                }
+                return ((DecimalColumn) one).getPrecision() == ((DecimalColumn) other).getPrecision()
+                        && ((DecimalColumn) one).getScale() == ((DecimalColumn) other).getScale();
+            }
+            return false;
+        }
+        return one.getJdbcType() == other.getJdbcType();
+    }
+
+    @Override
+    protected Impact assessColumnChange(Action.Type type, Column current, Column changed, TableStatistics statistics) {
+        switch (type) {
+            case RENAME_COLUMN:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+            case ADD_COLUMN:
+            case DELETE_COLUMN:
+            case MODIFY_COLUMN:
+                // H2 copies the rows of the table to a new table for all these changes
+                return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected Impact assessForeignKeyChange(Action.Type type, ForeignKey key, TableStatistics statistics) {
+        switch (type) {
+            case ADD_FOREIGN_KEY:
+            case MODIFY_FOREIGN_KEY:
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected Impact assessPartitionChange(Action.Type type, Table table, Partition partition, TableStatistics statistics) {
+        // H2 does not support partitioned tables
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected Impact assessIndexChange(Action.Type type, Index index, TableStatistics statistics) {
+        switch (type) {
+            case ADD_INDEX:
+            case MODIFY_INDEX:
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.EXCLUSIVE, statistics);
+            case RENAME_INDEX:
+            case DELETE_INDEX:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected ServerCapabilities probeCapabilities(Connection con) throws SQLException {
+        return new ServerCapabilities(con.getMetaData().getDatabaseProductName(), con.getMetaData().getDatabaseProductVersion(),
+                EnumSet.of(ServerCapabilities.Feature.RENAME_COLUMN, ServerCapabilities.Feature.RENAME_INDEX));
+    }
+
+    @Override
+    protected String makeReadTableStatisticsQuery(Table table) {
+        // H2 does not report the size of tables and indexes
+        return writer(new StringBuilder())
+                .append("SELECT ROW_COUNT_ESTIMATE, 0, 0 FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_CATALOG=").literal(table.getDatabase().getName())
+                .append(" AND TABLE_SCHEMA=SCHEMA() AND TABLE_NAME=").literal(table.getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeReadIndexSizesQuery(Table table) {
+        // H2 does not report the size of indexes
+        return writer(new StringBuilder())
+                .append("SELECT DISTINCT INDEX_NAME, 0 FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_CATALOG=").literal(table.getDatabase().getName())
+                .append(" AND TABLE_SCHEMA=SCHEMA() AND TABLE_NAME=").literal(table.getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeReadStructureQuery(Table table) {
+        // the names of sequences and primary key indexes are generated, and differ between databases
+        return writer(new StringBuilder()).append("SELECT 'C' AS k, COLUMN_NAME AS n, " +
+                        "CASE WHEN SEQUENCE_NAME IS NULL THEN COLUMN_TYPE ELSE TYPE_NAME || ' AUTO_INCREMENT' END AS t, " +
+                        "IS_NULLABLE AS f, CAST(ORDINAL_POSITION AS VARCHAR) AS o " +
+                        "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_CATALOG=").literal(table.getDatabase().getName())
+                .append(" AND TABLE_SCHEMA=SCHEMA() AND TABLE_NAME=").literal(table.getName()).append(" " +
+                        "UNION ALL " +
+                        "SELECT 'I', CASE WHEN PRIMARY_KEY THEN 'PRIMARY KEY' ELSE INDEX_NAME END, COLUMN_NAME, " +
+                        "CAST(NON_UNIQUE AS VARCHAR), CAST(ORDINAL_POSITION AS VARCHAR) " +
+                        "FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_CATALOG=").literal(table.getDatabase().getName())
+                .append(" AND TABLE_SCHEMA=SCHEMA() AND TABLE_NAME=").literal(table.getName()).append(" " +
+                        "UNION ALL " +
+                        "SELECT 'F', FK_NAME, FKCOLUMN_NAME, " +
+                        "PKTABLE_NAME || '.' || PKCOLUMN_NAME || ',' || DELETE_RULE || ',' || UPDATE_RULE, CAST(ORDINAL_POSITION AS VARCHAR) " +
+                        "FROM INFORMATION_SCHEMA.CROSS_REFERENCES WHERE FKTABLE_CATALOG=").literal(table.getDatabase().getName())
+                .append(" AND FKTABLE_SCHEMA=SCHEMA() AND FKTABLE_NAME=").literal(table.getName())
+                .append(" ORDER BY 1, 2, 5")
+                .toString();
+    }
+
+    /**
+     * Write the column type as used when creating or modifying a column. H2 replaces the whole definition of a
+     * column when it is modified, except for its nullability, so nullable columns are declared as such when they
+     * are modified.
+     *
+     * @param sql     The writer
+     * @param column  The column
+     * @param withKey True if the primary key must be declared for key columns
+     */
+    private void writeColumnType(SqlWriter sql, Column column, boolean withKey) throws SqlModellerException {
+        if (column instanceof EnumColumn) {
+            sql.append("ENUM(").literals(((EnumColumn) column).getEnumValues()).append(')');
+        } else if (column instanceof SetColumn) {
+            throw new SqlModellerException("SET data types are not supported for H2");
+        } else if (column instanceof StringColumn) {
+            sql.append("VARCHAR(").append(((StringColumn) column).getLength()).append(')');
+        } else if (column instanceof BinaryColumn) {
+            sql.append("VARBINARY(").append(((BinaryColumn) column).getLength()).append(')');
+        } else if (column instanceof BitColumn) {
+            if (((BitColumn) column).getBits() != 1) {
+                throw new SqlModellerException(format("BIT columns of %d bits are not supported for H2", ((BitColumn) column).getBits()));
+            }
+            sql.append("BOOLEAN");
+        } else if (column instanceof BooleanColumn) {
+            sql.append("BOOLEAN");
+        } else if (column instanceof DecimalColumn) {
+            switch (column.getJdbcType()) {
+                case DOUBLE:
+                case FLOAT:
+                    sql.append("DOUBLE");
+                    break;
+                case NUMERIC:
+                case DECIMAL:
+                    sql.append("DECIMAL(").append(((DecimalColumn) column).getPrecision())
+                            .append(',').append(((DecimalColumn) column).getScale()).append(')');
+                    break;
+                default:
+                    throw new SqlModellerException(format("Unexpected JDBC type %s in decimal column", column.getJdbcType()));
+            }
+        } else if ((column instanceof DateTimeColumn) || (column instanceof TimeStampColumn)) {
+            switch (column.getJdbcType()) {
+                case DATE:
+                    sql.append("DATE");
+                    break;
+                case TIME:
+                    sql.append("TIME");
+                    break;
+                default:
+                    sql.append("TIMESTAMP");
+            }
+        } else {
+            switch (column.getJdbcType()) {
+                case DOUBLE:
+                    sql.append("DOUBLE");
+                    break;
+                default:
+                    sql.append(column.getJdbcType().getName());
+            }
+        }
+        if ((column.getDefault() != null) && !column.isAutoIncrement()) {
+            sql.append(" DEFAULT ").literal(column.getDefault());
+        }
+        if (column.isAutoIncrement()) {
+            sql.append(" AUTO_INCREMENT");
+        }
+        if (withKey && column.isKey()) {
+            sql.append(" PRIMARY KEY");
+        }
+        if (!column.isNullable()) {
+            sql.append(" NOT NULL");
+        } else if (!withKey && !column.isKey()) {
+            sql.append(" NULL");
+        }
+    }
+
+    /**
+     * Extract the values of an enum from the column type reported by H2, which is like
+     * <code>ENUM('A', 'B') NOT NULL</code>.
+     *
+     * @param type The column type
+     * @return The values, in the order in which they are declared
+     */
+    private Set<String> extractEnumValues(String type) {
+        Set<String> values = new LinkedHashSet<>();
+        StringBuilder value = null;
+        for (int i = type.indexOf('(') + 1; i < type.length(); ++i) {
+            char c = type.charAt(i);
+            if (value == null) {
+                if (c == '\'') {
+                    value = new StringBuilder();
+                } else if (c == ')') {
+                    break;
+                }
+            } else if (c == '\'') {
+                if ((i + 1 < type.length()) && (type.charAt(i + 1) == '\'')) {
+                    value.append(c);
+                    ++i;
+                } else {
+                    values.add(value.toString());
+                    value = null;
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        return values;
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.heliorm.sql.mysql;
 
+import com.heliorm.sql.Action;
+import com.heliorm.sql.BatchSettings;
 import com.heliorm.sql.BinaryColumn;
 import com.heliorm.sql.BitColumn;
 import com.heliorm.sql.BooleanColumn;
@@ -7,24 +9,37 @@ import com.heliorm.sql.Database;
 import com.heliorm.sql.DateTimeColumn;
 import com.heliorm.sql.DecimalColumn;
 import com.heliorm.sql.EnumColumn;
+import com.heliorm.sql.ForeignKey;
+import com.heliorm.sql.Impact;
 import com.heliorm.sql.SqlModeller;
 import com.heliorm.sql.SqlModellerException;
+import com.heliorm.sql.SqlWriter;
 import com.heliorm.sql.Column;
 import com.heliorm.sql.Index;
+import com.heliorm.sql.Partition;
+import com.heliorm.sql.Partitioning;
+import com.heliorm.sql.ProgressListener;
+import com.heliorm.sql.ServerCapabilities;
 import com.heliorm.sql.SetColumn;
 import com.heliorm.sql.StringColumn;
 import com.heliorm.sql.Table;
+import com.heliorm.sql.TableStatistics;
 import com.heliorm.sql.TimeStampColumn;
 
 import java.sql.Connection;
 import java.sql.JDBCType;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.StringJoiner;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -34,41 +49,160 @@ import static java.lang.String.format;
  * An implementation of the SQL modeller that deals with MySQL/MariaDB syntax.
  */
 public final class MysqlModeller extends SqlModeller {
+
+    /** The longest identifier MySQL allows */
+    private static final int MAX_NAME_LENGTH = 64;
+
+    private BatchSettings onlineSchemaChange;
+    private boolean verifyChecksums;
+
     /**
      * Create a new modeller with the given connection supplier.
      *
      * @param supplier The connection supplier
      */
     public MysqlModeller(Supplier<Connection> supplier) {
-        super(supplier);
+        // MySQL treats backslashes in string literals as escape characters unless NO_BACKSLASH_ESCAPES is set
+        super(supplier, '`', true);
+    }
+
+    /**
+     * Enable online schema changes for column modifications that InnoDB cannot do in place. The column is then
+     * changed on a shadow copy of the table, which is kept in sync with triggers while the rows are copied in
+     * batches of primary key ranges, after which the tables are swapped with an atomic rename. This needs a
+     * single column primary key and the privileges to create triggers, and is refused for tables that reference
+     * or are referenced by foreign keys, since those would point to the wrong table after the swap.
+     * <p>
+     * Rows are copied without ignoring errors, so with a strict SQL mode, which is the default, a value that
+     * cannot be converted without loss fails the change.
+     *
+     * @param settings The batch settings used to copy rows, or null to disable online schema changes
+     */
+    public void setOnlineSchemaChange(BatchSettings settings) {
+        this.onlineSchemaChange = settings;
+    }
+
+    /**
+     * Set if the row counts and checksums of the original and shadow tables must be compared before the tables
+     * are swapped in an online schema change. Since the values of the modified column may be represented
+     * differently after the type change, that column is compared by value with the matching row of the original
+     * table instead of being part of the checksum.
+     *
+     * @param verify True to verify
+     */
+    public void setVerifyChecksums(boolean verify) {
+        this.verifyChecksums = verify;
+    }
+
+    @Override
+    public void modifyColumn(Column column, ProgressListener listener) throws SqlModellerException {
+        // the table is read from the primary while it is changed
+        changed(column.getTable());
+        try {
+            if (onlineSchemaChange != null) {
+                Table table = readTable(column.getTable().getDatabase(), column.getTable().getName());
+                Column current = table.getColumn(column.getName());
+                if ((current != null) && (current.isKey() == column.isKey())
+                        && assessColumnChange(Action.Type.MODIFY_COLUMN, current, column, TableStatistics.EMPTY).getAlgorithm() == Impact.Algorithm.REWRITE) {
+                    modifyColumnOnline(table, column, listener);
+                    return;
+                }
+            }
+            super.modifyColumn(column, listener);
+        } finally {
+            changed(column.getTable());
+        }
     }
 
     @Override
-    protected String makeCreateTableQuery(Table table) {
-        StringJoiner body = new StringJoiner(",");
+    protected void writeCreateTableQuery(SqlWriter sql, Table table) throws SqlModellerException {
+        sql.append("CREATE TABLE ").name(table.getName()).append(" (");
+        boolean first = true;
         for (Column column : table.getColumns()) {
-            body.add(format("%s %s", getColumnName(column), getCreateType(column)));
+            if (!first) {
+                sql.append(',');
+            }
+            sql.name(column.getName()).append(' ');
+            writeColumnType(sql, column, true);
+            first = false;
         }
         for (Index index : table.getIndexes()) {
-            body.add(format("%sKEY %s (%s)",
-                    index.isUnique() ? "UNIQUE " : "",
-                    getIndexName(index),
-                    index.getColumns().stream()
-                            .map(this::getColumnName)
-                            .reduce((c1, c2) -> c1 + "," + c2).get()));
+            if (!first) {
+                sql.append(',');
+            }
+            sql.append(index.isUnique() ? "UNIQUE KEY " : "KEY ")
+                    .name(index.getName())
+                    .append(" (")
+                    .names(index.getColumns())
+                    .append(')');
+            first = false;
+        }
+        sql.append(')');
+        writePartitionClause(sql, table);
+    }
+
+    @Override
+    protected void writePartitionClause(SqlWriter sql, Table table) throws SqlModellerException {
+        Partitioning partitioning = table.getPartitioning();
+        if (partitioning == null) {
+            return;
+        }
+        switch (partitioning.getType()) {
+            case RANGE:
+                sql.append(" PARTITION BY RANGE COLUMNS(");
+                break;
+            case LIST:
+                sql.append(" PARTITION BY LIST COLUMNS(");
+                break;
+            case HASH:
+                // KEY partitioning hashes the column values like HASH partitioning in other databases
+                sql.append(" PARTITION BY KEY (");
+                break;
+        }
+        sql.names(partitioning.getColumns()).append(") (");
+        boolean first = true;
+        for (Partition partition : partitioning.getPartitions()) {
+            if (!first) {
+                sql.append(',');
+            }
+            writePartitionDefinition(sql, table, partition);
+            first = false;
+        }
+        sql.append(')');
+    }
+
+    private void writePartitionDefinition(SqlWriter sql, Table table, Partition partition) throws SqlModellerException {
+        Partitioning partitioning = table.getPartitioning();
+        sql.append("PARTITION ").name(partition.getName());
+        switch (partitioning.getType()) {
+            case RANGE:
+                sql.append(" VALUES LESS THAN (");
+                if (partition.getValues().isEmpty()) {
+                    // MySQL has no default partition, the last range takes all values
+                    sql.append(String.join(",", Collections.nCopies(partitioning.getColumns().size(), "MAXVALUE")));
+                } else {
+                    sql.append(String.join(",", partition.getValues()));
+                }
+                sql.append(')');
+                break;
+            case LIST:
+                if (partition.getValues().isEmpty()) {
+                    throw new SqlModellerException(format("Default partition '%s' of table '%s' is not supported by MySQL", partition.getName(), table.getName()));
+                }
+                sql.append(" VALUES IN (").append(String.join(",", partition.getValues())).append(')');
+                break;
         }
-        return format("CREATE TABLE %s (", getTableName(table)) +
-                body +
-                ")";
     }
 
     @Override
     public void modifyIndex(Index index) throws SqlModellerException {
+        changed(index.getTable());
         try (Connection con = con(); Statement stmt = con.createStatement()) {
-            removeIndex(index);
-            addIndex(index);
+            executeUpdate(stmt, makeModifyIndexQuery(index));
         } catch (SQLException ex) {
             throw new SqlModellerException(format("Error modifying index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()));
+        } finally {
+            changed(index.getTable());
         }
     }
 
@@ -77,6 +211,17 @@ public final class MysqlModeller extends SqlModeller {
         return true;
     }
 
+    @Override
+    protected int getMaxNameLength() {
+        return MAX_NAME_LENGTH;
+    }
+
+    @Override
+    protected boolean indexesForeignKeys() {
+        // InnoDB requires an index on the referencing columns and creates one if there is none
+        return true;
+    }
+
     @Override
     protected boolean isEnumColumn(String columnName, JDBCType jdbcType, String typeName) {
         return typeName.equals("ENUM");
@@ -84,105 +229,100 @@ public final class MysqlModeller extends SqlModeller {
 
     @Override
     protected String getDatabaseName(Database database) {
-        return format("`%s`", database.getName());
+        return quote(database.getName());
     }
 
     @Override
     protected String getTableName(Table table) {
-        return format("`%s`", table.getName());
+        return quote(table.getName());
     }
 
     @Override
-    protected String getCreateType(Column column) {
-        String typeName = column.getJdbcType().getName();
-        StringBuilder type = new StringBuilder();
+    protected void writeCreateType(SqlWriter sql, Column column) {
+        writeColumnType(sql, column, true);
+    }
+
+    /**
+     * Write the column type as used when creating or modifying a column.
+     *
+     * @param sql     The writer
+     * @param column  The column
+     * @param withKey True if the primary key must be declared for key columns
+     */
+    private void writeColumnType(SqlWriter sql, Column column, boolean withKey) {
         if (column instanceof EnumColumn) {
-            EnumColumn ec = (EnumColumn) column;
-            Set<String> enumValues = ec.getEnumValues();
-            typeName = "ENUM("
-                    + enumValues.stream()
-                    .map(val -> "'" + val + "'")
-                    .reduce((v1, v2) -> v1 + "," + v2).get()
-                    + ")";
+            sql.append("ENUM(").literals(((EnumColumn) column).getEnumValues()).append(')');
         } else if (column instanceof SetColumn) {
-            SetColumn ec = (SetColumn) column;
-            Set<String> values = ec.getSetValues();
-            typeName = "SET("
-                    + values.stream()
-                    .map(val -> "'" + val + "'")
-                    .reduce((v1, v2) -> v1 + "," + v2).get()
-                    + ")";
+            sql.append("SET(").literals(((SetColumn) column).getSetValues()).append(')');
         } else if (column instanceof StringColumn) {
             int length = ((StringColumn) column).getLength();
             if (length >= 16777215) {
-                typeName = "LONGTEXT";
+                sql.append("LONGTEXT");
             } else if (length > 65535) {
-                typeName = "MEDIUMTEXT";
+                sql.append("MEDIUMTEXT");
             } else if (length > 255) {
-                typeName = "TEXT";
+                sql.append("TEXT");
             } else {
-                typeName = format("VARCHAR(%d)", length);
+                sql.append("VARCHAR(").append(length).append(')');
             }
         } else if (column instanceof DecimalColumn) {
-            typeName = format("DECIMAL(%d,%d)", ((DecimalColumn) column).getPrecision(), ((DecimalColumn) column).getScale());
+            sql.append("DECIMAL(").append(((DecimalColumn) column).getPrecision())
+                    .append(',').append(((DecimalColumn) column).getScale()).append(')');
         }
         else if (column instanceof BinaryColumn) {
             int length = ((BinaryColumn)column).getLength();
             if (length >= 16777215) {
-                typeName = "LONGBLOB";
+                sql.append("LONGBLOB");
             } else if (length > 65535) {
-                typeName = "MEDIUMBLOB";
+                sql.append("MEDIUMBLOB");
             } else if (length > 255) {
-                typeName = "BLOB";
+                sql.append("BLOB");
             } else {
-                typeName = "TINYBLOB";
+                sql.append("TINYBLOB");
             }
         }
         else if (column instanceof DateTimeColumn) {
-            typeName = "DATETIME";
+            sql.append("DATETIME");
         }
         else if (column instanceof TimeStampColumn) {
-            typeName = "TIMESTAMP";
+            sql.append("TIMESTAMP");
+        }
+        else {
+            sql.append(column.getJdbcType().getName());
         }
-        type.append(typeName);
         if (!column.isNullable()) {
-            type.append(" NOT NULL");
+            sql.append(" NOT NULL");
         }
         if ((column.getDefault() != null) && !column.isAutoIncrement()) {
-            type.append(format(" DEFAULT '%s'", column.getDefault()));
+            sql.append(" DEFAULT ").literal(column.getDefault());
         }
         if (column.isAutoIncrement()) {
-            type.append(" AUTO_INCREMENT");
+            sql.append(" AUTO_INCREMENT");
         }
-        if (column.isKey()) {
-            type.append(" PRIMARY KEY");
+        if (withKey && column.isKey()) {
+            sql.append(" PRIMARY KEY");
         }
-        return type.toString();
     }
 
     @Override
     protected String getColumnName(Column column) {
-        return format("`%s`", column.getName());
+        return quote(column.getName());
     }
 
     @Override
     protected String getIndexName(Index index) {
-        return format("`%s`", index.getName());
+        return quote(index.getName());
     }
 
     @Override
     protected Set<String> readEnumValues(EnumColumn column) throws SqlModellerException {
-        String query = format("SELECT SUBSTRING(COLUMN_TYPE,5) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA='%s' " +
-                        "AND TABLE_NAME='%s' AND COLUMN_NAME='%s'",
-                column.getTable().getDatabase().getName(),
-                column.getTable().getName(),
-                column.getName());
-        try (Connection con = con(); Statement stmt = con.createStatement(); ResultSet ers = stmt.executeQuery(query)) {
+        String query = makeReadColumnTypeQuery(column);
+        try (Connection con = readCon(column.getTable()); Statement stmt = con.createStatement(); ResultSet ers = stmt.executeQuery(query)) {
             if (ers.next()) {
                 return Arrays.stream(ers.getString(1).replace("enum", "").replace("(", "").replace(")", "")
                                 .split(","))
                         .map(val -> val.substring(1, val.length() - 1))
-                        .collect(Collectors.toSet());
+                        .collect(Collectors.toCollection(LinkedHashSet::new));
             }
             return Collections.EMPTY_SET;
         } catch (SQLException ex) {
@@ -192,8 +332,78 @@ public final class MysqlModeller extends SqlModeller {
     }
 
     @Override
-    protected String makeRenameIndexQuery(Index current, Index changed) {
-        return format("ALTER TABLE %s RENAME INDEX %s TO %s", getTableName(current.getTable()), getIndexName(current), getIndexName(changed));
+    protected String makeRenameIndexQuery(Index current, Index changed) throws SqlModellerException {
+        if (getCapabilities().supports(ServerCapabilities.Feature.RENAME_INDEX)) {
+            return writer(new StringBuilder())
+                    .append("ALTER TABLE ").name(current.getTable().getName())
+                    .append(" RENAME INDEX ").name(current.getName())
+                    .append(" TO ").name(changed.getName())
+                    .toString();
+        }
+        // dropping and adding in one statement keeps the table from being without the index
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(current.getTable().getName())
+                .append(" DROP INDEX ").name(current.getName())
+                .append(changed.isUnique() ? ", ADD UNIQUE INDEX " : ", ADD INDEX ").name(changed.getName())
+                .append(" (").names(changed.getColumns()).append(')')
+                .toString();
+    }
+
+    @Override
+    protected String makeRenameColumnQuery(Column column, Column changed) throws SqlModellerException {
+        if (getCapabilities().supports(ServerCapabilities.Feature.RENAME_COLUMN)) {
+            return super.makeRenameColumnQuery(column, changed);
+        }
+        SqlWriter sql = writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" CHANGE COLUMN ").name(column.getName())
+                .append(' ').name(changed.getName()).append(' ');
+        writeColumnType(sql, changed, false);
+        return sql.toString();
+    }
+
+    @Override
+    protected ServerCapabilities probeCapabilities(Connection con) throws SQLException {
+        String version;
+        try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("SELECT VERSION()")) {
+            rs.next();
+            version = rs.getString(1);
+        }
+        Set<ServerCapabilities.Feature> features = EnumSet.noneOf(ServerCapabilities.Feature.class);
+        if (version.contains("MariaDB")) {
+            // older clients see MariaDB versions behind a 5.5.5- prefix
+            int number = versionNumber(version.startsWith("5.5.5-") ? version.substring(6) : version);
+            if (number >= 100302) {
+                features.add(ServerCapabilities.Feature.INSTANT_ADD_COLUMN);
+            }
+            if (number >= 100400) {
+                features.add(ServerCapabilities.Feature.INSTANT_DROP_COLUMN);
+            }
+            if (number >= 100502) {
+                features.add(ServerCapabilities.Feature.RENAME_COLUMN);
+                features.add(ServerCapabilities.Feature.RENAME_INDEX);
+            }
+            if (number >= 100600) {
+                features.add(ServerCapabilities.Feature.INVISIBLE_INDEX);
+            }
+            return new ServerCapabilities("MariaDB", version, features);
+        }
+        int number = versionNumber(version);
+        if (number >= 50700) {
+            features.add(ServerCapabilities.Feature.RENAME_INDEX);
+        }
+        if (number >= 80000) {
+            features.add(ServerCapabilities.Feature.RENAME_COLUMN);
+            features.add(ServerCapabilities.Feature.INVISIBLE_INDEX);
+        }
+        if (number >= 80012) {
+            // columns are always added at the end of the table, which is all INSTANT supports before 8.0.29
+            features.add(ServerCapabilities.Feature.INSTANT_ADD_COLUMN);
+        }
+        if (number >= 80029) {
+            features.add(ServerCapabilities.Feature.INSTANT_DROP_COLUMN);
+        }
+        return new ServerCapabilities("MySQL", version, features);
     }
 
     @Override
@@ -203,8 +413,21 @@ public final class MysqlModeller extends SqlModeller {
 
     @Override
     protected String makeReadSetQuery(SetColumn column) {
-        return format("SELECT SUBSTRING(COLUMN_TYPE,5) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA='%s' " +
-                "AND TABLE_NAME='%s' AND COLUMN_NAME='%s'", column.getTable().getDatabase().getName(), column.getTable().getName(), column.getName());
+        return makeReadColumnTypeQuery(column);
+    }
+
+    /**
+     * Generate a query that reads the type of a column, without its first four characters, from the catalog.
+     *
+     * @param column The column
+     * @return The query
+     */
+    private String makeReadColumnTypeQuery(Column column) {
+        return writer(new StringBuilder())
+                .append("SELECT SUBSTRING(COLUMN_TYPE,5) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=").literal(column.getTable().getDatabase().getName())
+                .append(" AND TABLE_NAME=").literal(column.getTable().getName())
+                .append(" AND COLUMN_NAME=").literal(column.getName())
+                .toString();
     }
 
     @Override
@@ -212,40 +435,61 @@ public final class MysqlModeller extends SqlModeller {
         return Arrays.stream(text.replace("enum", "").replace("(", "").replace(")", "")
                         .split(","))
                 .map(val -> val.substring(1, val.length() - 1))
-                .collect(Collectors.toSet());
+                .collect(Collectors.toCollection(LinkedHashSet::new));
     }
 
     protected String makeModifyColumnQuery(Column column) {
-        return format("ALTER TABLE %s MODIFY COLUMN %s %s",
-                getTableName(column.getTable()),
-                getColumnName(column),
-                getCreateType(column));
+        return makeModifyColumnQuery(column.getTable().getName(), column, true);
+    }
+
+    @Override
+    protected List<String> makeSetNotNullQueries(Column column) {
+        return Collections.singletonList(makeModifyColumnQuery(column.getTable().getName(), column, false) + ", ALGORITHM=INPLACE, LOCK=NONE");
+    }
+
+    /**
+     * Generate a query to modify a column in a table, which may be another table than the one of the column.
+     *
+     * @param tableName The name of the table
+     * @param column    The column
+     * @param withKey   True if the primary key must be declared for key columns
+     * @return The query
+     */
+    private String makeModifyColumnQuery(String tableName, Column column, boolean withKey) {
+        SqlWriter sql = writer(new StringBuilder())
+                .append("ALTER TABLE ").name(tableName)
+                .append(" MODIFY COLUMN ").name(column.getName()).append(' ');
+        writeColumnType(sql, column, withKey);
+        return sql.toString();
     }
 
     @Override
     protected String makeAddColumnQuery(Column column) {
-        return format("ALTER TABLE %s ADD COLUMN %s %s",
-                getTableName(column.getTable()),
-                getColumnName(column),
-                getCreateType(column));
+        SqlWriter sql = writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" ADD COLUMN ").name(column.getName()).append(' ');
+        writeColumnType(sql, column, true);
+        return sql.toString();
     }
 
     @Override
     protected String makeRemoveIndexQuery(Index index) {
-        return format("DROP INDEX %s on %s",
-                getIndexName(index),
-                getTableName(index.getTable()));
+        return writer(new StringBuilder())
+                .append("DROP INDEX ").name(index.getName())
+                .append(" on ").name(index.getTable().getName())
+                .toString();
     }
 
     @Override
     protected String makeModifyIndexQuery(Index index) {
-        return format("ALTER %sINDEX %s ON %s %s",
-                index.isUnique() ? "UNIQUE " : "",
-                getIndexName(index),
-                getTableName(index.getTable()),
-                index.getColumns().stream()
-                        .map(this::getColumnName)
-                        .reduce((c1, c2) -> c1 + "," + c2).get());
+        // in a single statement the new index is built before the old one is dropped, so the table is never without it
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(index.getTable().getName())
+                .append(" DROP INDEX ").name(index.getName())
+                .append(index.isUnique() ? ", ADD UNIQUE INDEX " : ", ADD INDEX ").name(index.getName())
+                .append(" (").names(index.getColumns()).append(')')
+                .append(", ALGORITHM=INPLACE, LOCK=NONE")
+                .toString();
     }
 
     @Override
@@ -305,4 +549,498 @@ public final class MysqlModeller extends SqlModeller {
     protected String extractDefault(String text) {
         return text;
     }
+
+    @Override
+    protected Impact assessColumnChange(Action.Type type, Column current, Column changed, TableStatistics statistics) throws SqlModellerException {
+        switch (type) {
+            case RENAME_COLUMN:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, statistics);
+            case ADD_COLUMN:
+                // the server uses INSTANT by default when it can
+                return new Impact(getCapabilities().supports(ServerCapabilities.Feature.INSTANT_ADD_COLUMN) ? Impact.Algorithm.METADATA : Impact.Algorithm.IN_PLACE,
+                        Impact.Lock.NONE, statistics);
+            case DELETE_COLUMN:
+                return new Impact(getCapabilities().supports(ServerCapabilities.Feature.INSTANT_DROP_COLUMN) ? Impact.Algorithm.METADATA : Impact.Algorithm.IN_PLACE,
+                        Impact.Lock.NONE, statistics);
+            case MODIFY_COLUMN:
+                if (current == null) {
+                    return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.SHARED, statistics);
+                }
+                if (current.isKey() != changed.isKey() || current.isAutoIncrement() != changed.isAutoIncrement()) {
+                    return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.SHARED, statistics);
+                }
+                if (!typesAreCompatible(changed, current) && !isValueExtension(current, changed)) {
+                    // an online schema change copies the table but keeps it writable
+                    return new Impact(Impact.Algorithm.REWRITE, onlineSchemaChange == null ? Impact.Lock.SHARED : Impact.Lock.NONE, statistics);
+                }
+                if (current.isNullable() != changed.isNullable()) {
+                    return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.NONE, statistics);
+                }
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected Impact assessForeignKeyChange(Action.Type type, ForeignKey key, TableStatistics statistics) {
+        switch (type) {
+            case ADD_FOREIGN_KEY:
+            case MODIFY_FOREIGN_KEY:
+                // with foreign key checks enabled a foreign key can only be added by copying the table
+                return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.SHARED, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected Impact assessPartitionChange(Action.Type type, Table table, Partition partition, TableStatistics statistics) {
+        switch (type) {
+            case ADD_PARTITION:
+                if (getNextPartition(table, partition) != null) {
+                    // the rows of the next partition are copied into the two partitions it is split into
+                    return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.SHARED, statistics);
+                }
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, statistics);
+            case DETACH_PARTITION:
+            case DELETE_PARTITION:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    public void detachPartition(Table table, Partition partition) throws SqlModellerException {
+        // MySQL cannot detach a partition, so its rows are exchanged with an empty table and the partition is dropped
+        changed(table);
+        try (Connection con = con(); Statement stmt = con.createStatement()) {
+            String partitionRows = writer(new StringBuilder())
+                    .append("SELECT 1 FROM ").name(table.getName()).append(" PARTITION (").name(partition.getName()).append(") LIMIT 1")
+                    .toString();
+            if (hasRow(stmt, writer(new StringBuilder())
+                    .append("SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA=").literal(table.getDatabase().getName())
+                    .append(" AND TABLE_NAME=").literal(partition.getName())
+                    .toString())) {
+                // a table left by an earlier run that holds rows already has the rows of the partition
+                if (hasRow(stmt, writer(new StringBuilder()).append("SELECT 1 FROM ").name(partition.getName()).append(" LIMIT 1").toString())) {
+                    if (hasRow(stmt, partitionRows)) {
+                        throw new SqlModellerException(format("Table '%s' already exists and holds rows, and partition '%s' of table '%s' is not empty",
+                                partition.getName(), partition.getName(), table.getName()));
+                    }
+                    executeUpdate(stmt, makeRemovePartitionQuery(table, partition));
+                    return;
+                }
+                executeUpdate(stmt, makeDropPartitionTableQuery(partition));
+            }
+            try {
+                executeUpdate(stmt, writer(new StringBuilder())
+                        .append("CREATE TABLE ").name(partition.getName())
+                        .append(" LIKE ").name(table.getName())
+                        .toString());
+                executeUpdate(stmt, writer(new StringBuilder())
+                        .append("ALTER TABLE ").name(partition.getName())
+                        .append(" REMOVE PARTITIONING")
+                        .toString());
+                executeUpdate(stmt, writer(new StringBuilder())
+                        .append("ALTER TABLE ").name(table.getName())
+                        .append(" EXCHANGE PARTITION ").name(partition.getName())
+                        .append(" WITH TABLE ").name(partition.getName())
+                        .toString());
+            } catch (SQLException ex) {
+                // until the exchange is done the new table is empty, so it is removed and the next run starts over
+                try {
+                    executeUpdate(stmt, makeDropPartitionTableQuery(partition));
+                } catch (SQLException cleanup) {
+                    ex.addSuppressed(cleanup);
+                }
+                throw ex;
+            }
+            // if dropping the partition fails, the next run finds the table with the rows and only drops the partition
+            executeUpdate(stmt, makeRemovePartitionQuery(table, partition));
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error detaching partition '%s' from table '%s' (%s)", partition.getName(), table.getName(), ex.getMessage()), ex);
+        } finally {
+            changed(table);
+        }
+    }
+
+    private String makeDropPartitionTableQuery(Partition partition) {
+        return writer(new StringBuilder()).append("DROP TABLE IF EXISTS ").name(partition.getName()).toString();
+    }
+
+    /**
+     * Check if a query returns a row.
+     *
+     * @param stmt  The statement to use
+     * @param query The query
+     * @return True if it returns a row
+     */
+    private boolean hasRow(Statement stmt, String query) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(query)) {
+            return rs.next();
+        }
+    }
+
+    @Override
+    protected String makeRemovePartitionQuery(Table table, Partition partition) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(table.getName())
+                .append(" DROP PARTITION ").name(partition.getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeTryLockQuery() {
+        return "SELECT GET_LOCK(?, 0)";
+    }
+
+    @Override
+    protected String makeUnlockQuery() {
+        return "SELECT RELEASE_LOCK(?)";
+    }
+
+    @Override
+    protected String makeAddPartitionQuery(Table table, Partition partition) throws SqlModellerException {
+        if (table.getPartitioning().getType() == Partitioning.Type.HASH) {
+            throw new SqlModellerException(format("Partition '%s' cannot be added to table '%s' without repartitioning all its rows", partition.getName(), table.getName()));
+        }
+        SqlWriter sql = writer(new StringBuilder()).append("ALTER TABLE ").name(table.getName());
+        Partition next = getNextPartition(table, partition);
+        if (next != null) {
+            // a range can only be added at the end, so a range before others is split off the range that follows it
+            sql.append(" REORGANIZE PARTITION ").name(next.getName()).append(" INTO (");
+            writePartitionDefinition(sql, table, partition);
+            sql.append(',');
+            writePartitionDefinition(sql, table, next);
+            sql.append(')');
+        } else {
+            sql.append(" ADD PARTITION (");
+            writePartitionDefinition(sql, table, partition);
+            sql.append(')');
+        }
+        return sql.toString();
+    }
+
+    /** Find the range partition that follows a partition in the table model.
+     *
+     */
+    private Partition getNextPartition(Table table, Partition partition) {
+        Partitioning partitioning = table.getPartitioning();
+        if (partitioning.getType() != Partitioning.Type.RANGE) {
+            return null;
+        }
+        List<Partition> partitions = partitioning.getPartitions();
+        for (int i = 0; i < partitions.size() - 1; ++i) {
+            if (partitions.get(i).getName().equals(partition.getName())) {
+                return partitions.get(i + 1);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected String makeReadPartitionsQuery(Table table) {
+        return writer(new StringBuilder())
+                .append("SELECT CASE WHEN PARTITION_METHOD LIKE 'RANGE%' THEN 'RANGE' WHEN PARTITION_METHOD LIKE 'LIST%' THEN 'LIST' ELSE 'HASH' END, " +
+                        "REPLACE(PARTITION_EXPRESSION, '`', ''), PARTITION_NAME, PARTITION_DESCRIPTION " +
+                        "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA=").literal(table.getDatabase().getName())
+                .append(" AND TABLE_NAME=").literal(table.getName())
+                .append(" AND PARTITION_NAME IS NOT NULL " +
+                        "AND (SUBPARTITION_ORDINAL_POSITION IS NULL OR SUBPARTITION_ORDINAL_POSITION = 1) " +
+                        "ORDER BY PARTITION_ORDINAL_POSITION")
+                .toString();
+    }
+
+    @Override
+    protected String makeRemoveForeignKeyQuery(ForeignKey key) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(key.getTable().getName())
+                .append(" DROP FOREIGN KEY ").name(key.getName())
+                .toString();
+    }
+
+    @Override
+    protected Impact assessIndexChange(Action.Type type, Index index, TableStatistics statistics) throws SqlModellerException {
+        switch (type) {
+            case ADD_INDEX:
+            case MODIFY_INDEX:
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.NONE, statistics);
+            case RENAME_INDEX:
+                if (!getCapabilities().supports(ServerCapabilities.Feature.RENAME_INDEX)) {
+                    // the index is dropped and built again under the new name
+                    return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.NONE, statistics);
+                }
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, statistics);
+            case DELETE_INDEX:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected String makeReadIndexSizesQuery(Table table) {
+        // accounts that may not read the mysql schema get no sizes, which readIndexSizes allows for
+        return writer(new StringBuilder())
+                .append("SELECT index_name, stat_value * @@innodb_page_size FROM mysql.innodb_index_stats WHERE database_name=").literal(table.getDatabase().getName())
+                .append(" AND table_name=").literal(table.getName())
+                .append(" AND stat_name='size'")
+                .toString();
+    }
+
+    @Override
+    protected String makeReadTableStatisticsQuery(Table table) {
+        return writer(new StringBuilder())
+                .append("SELECT TABLE_ROWS, DATA_LENGTH, INDEX_LENGTH FROM information_schema.TABLES WHERE TABLE_SCHEMA=").literal(table.getDatabase().getName())
+                .append(" AND TABLE_NAME=").literal(table.getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeReadStructureQuery(Table table) {
+        String database = table.getDatabase().getName();
+        return writer(new StringBuilder())
+                .append("SELECT 'C' AS k, COLUMN_NAME AS n, COLUMN_TYPE AS t, IS_NULLABLE AS f, COLUMN_DEFAULT AS d, EXTRA AS e, COLUMN_KEY AS x, ORDINAL_POSITION AS o " +
+                        "FROM information_schema.COLUMNS WHERE TABLE_SCHEMA=").literal(database)
+                .append(" AND TABLE_NAME=").literal(table.getName())
+                .append(" UNION ALL " +
+                        "SELECT 'I', INDEX_NAME, COLUMN_NAME, NON_UNIQUE, SEQ_IN_INDEX, NULL, NULL, NULL " +
+                        "FROM information_schema.STATISTICS WHERE TABLE_SCHEMA=").literal(database)
+                .append(" AND TABLE_NAME=").literal(table.getName())
+                .append(" UNION ALL " +
+                        "SELECT 'F', k.CONSTRAINT_NAME, k.COLUMN_NAME, CONCAT(k.REFERENCED_TABLE_NAME, '.', k.REFERENCED_COLUMN_NAME), " +
+                        "k.ORDINAL_POSITION, r.DELETE_RULE, r.UPDATE_RULE, NULL " +
+                        "FROM information_schema.KEY_COLUMN_USAGE k JOIN information_schema.REFERENTIAL_CONSTRAINTS r " +
+                        "ON r.CONSTRAINT_SCHEMA = k.CONSTRAINT_SCHEMA AND r.CONSTRAINT_NAME = k.CONSTRAINT_NAME " +
+                        "WHERE k.TABLE_SCHEMA=").literal(database)
+                .append(" AND k.TABLE_NAME=").literal(table.getName())
+                .append(" AND k.REFERENCED_TABLE_NAME IS NOT NULL " +
+                        "UNION ALL " +
+                        "SELECT 'P', PARTITION_NAME, PARTITION_METHOD, PARTITION_EXPRESSION, PARTITION_ORDINAL_POSITION, PARTITION_DESCRIPTION, NULL, NULL " +
+                        "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA=").literal(database)
+                .append(" AND TABLE_NAME=").literal(table.getName())
+                .append(" AND PARTITION_NAME IS NOT NULL " +
+                        "AND (SUBPARTITION_ORDINAL_POSITION IS NULL OR SUBPARTITION_ORDINAL_POSITION = 1) " +
+                        "ORDER BY 1, 2, 5")
+                .toString();
+    }
+
+    /**
+     * Modify a column by copying the table to a shadow table with the changed column, while triggers keep the
+     * shadow table in sync with changes made to the original table. Once all rows are copied the tables are
+     * swapped with an atomic rename and the original table is dropped.
+     *
+     * @param table    The table as it is in the database
+     * @param column   The changed column
+     * @param listener The listener that receives the copy progress
+     * @throws SqlModellerException Thrown if the change fails, in which case the original table is left as is
+     */
+    private void modifyColumnOnline(Table table, Column column, ProgressListener listener) throws SqlModellerException {
+        Column key = getKeyColumn(table);
+        if (hasForeignKeys(table)) {
+            throw new SqlModellerException(format("Column '%s' of table '%s' cannot be changed online since the table has foreign keys",
+                    column.getName(), table.getName()));
+        }
+        String shadowName = limitName("_" + table.getName() + "_new", MAX_NAME_LENGTH);
+        String oldName = limitName("_" + table.getName() + "_old", MAX_NAME_LENGTH);
+        String[] triggers = new String[]{limitName("_" + table.getName() + "_ins", MAX_NAME_LENGTH),
+                limitName("_" + table.getName() + "_upd", MAX_NAME_LENGTH),
+                limitName("_" + table.getName() + "_del", MAX_NAME_LENGTH)};
+        List<Column> columns = new ArrayList<>(table.getColumns());
+        String newValues = columns.stream()
+                .map(col -> "NEW." + quote(col.getName()))
+                .collect(Collectors.joining(","));
+        long total = readTableStatistics(table).getRows();
+        execute(writer(new StringBuilder())
+                .append("CREATE TABLE ").name(shadowName)
+                .append(" LIKE ").name(table.getName())
+                .toString());
+        try {
+            execute(makeModifyColumnQuery(shadowName, column, false),
+                    writer(new StringBuilder())
+                            .append("CREATE TRIGGER ").name(triggers[0])
+                            .append(" AFTER INSERT ON ").name(table.getName())
+                            .append(" FOR EACH ROW REPLACE INTO ").name(shadowName)
+                            .append(" (").names(columns).append(") VALUES (").append(newValues).append(')')
+                            .toString(),
+                    writer(new StringBuilder())
+                            .append("CREATE TRIGGER ").name(triggers[1])
+                            .append(" AFTER UPDATE ON ").name(table.getName())
+                            .append(" FOR EACH ROW BEGIN DELETE IGNORE FROM ").name(shadowName)
+                            .append(" WHERE ").name(key.getName()).append(" <=> OLD.").name(key.getName())
+                            .append("; REPLACE INTO ").name(shadowName)
+                            .append(" (").names(columns).append(") VALUES (").append(newValues).append("); END")
+                            .toString(),
+                    writer(new StringBuilder())
+                            .append("CREATE TRIGGER ").name(triggers[2])
+                            .append(" AFTER DELETE ON ").name(table.getName())
+                            .append(" FOR EACH ROW DELETE IGNORE FROM ").name(shadowName)
+                            .append(" WHERE ").name(key.getName()).append(" <=> OLD.").name(key.getName())
+                            .toString());
+            // rows the triggers already copied are newer than the ones read here, so they are kept as they are
+            String copy = writer(new StringBuilder())
+                    .append("INSERT INTO ").name(shadowName)
+                    .append(" (").names(columns).append(") SELECT ").names(columns)
+                    .append(" FROM ").name(table.getName())
+                    .append(" WHERE ")
+                    .toString();
+            String duplicates = writer(new StringBuilder())
+                    .append(" LOCK IN SHARE MODE ON DUPLICATE KEY UPDATE ").name(key.getName()).append('=').name(shadowName).append('.').name(key.getName())
+                    .toString();
+            forEachKeyRange(table, key, onlineSchemaChange, total, listener, (con, range) -> {
+                try (PreparedStatement stmt = con.prepareStatement(copy + range.condition(quote(key.getName())) + duplicates)) {
+                    range.bind(stmt, 1);
+                    return stmt.executeUpdate();
+                }
+            });
+            if (verifyChecksums) {
+                verifyChecksum(table, shadowName, column);
+            }
+            execute(writer(new StringBuilder())
+                    .append("RENAME TABLE ").name(table.getName()).append(" TO ").name(oldName)
+                    .append(", ").name(shadowName).append(" TO ").name(table.getName())
+                    .toString());
+        } catch (SqlModellerException ex) {
+            try {
+                execute(makeDropTriggerQuery(triggers[0]),
+                        makeDropTriggerQuery(triggers[1]),
+                        makeDropTriggerQuery(triggers[2]),
+                        writer(new StringBuilder()).append("DROP TABLE IF EXISTS ").name(shadowName).toString());
+            } catch (SqlModellerException cleanup) {
+                ex.addSuppressed(cleanup);
+            }
+            throw ex;
+        }
+        execute(makeDropTriggerQuery(triggers[0]),
+                makeDropTriggerQuery(triggers[1]),
+                makeDropTriggerQuery(triggers[2]),
+                writer(new StringBuilder()).append("DROP TABLE ").name(oldName).toString());
+    }
+
+    /**
+     * Determine if a table references, or is referenced by, a foreign key.
+     *
+     * @param table The table
+     * @return True if it has foreign keys
+     * @throws SqlModellerException Thrown if the foreign keys cannot be read
+     */
+    private boolean hasForeignKeys(Table table) throws SqlModellerException {
+        String query = writer(new StringBuilder())
+                .append("SELECT COUNT(*) FROM information_schema.KEY_COLUMN_USAGE WHERE REFERENCED_TABLE_NAME IS NOT NULL AND ((TABLE_SCHEMA=")
+                .literal(table.getDatabase().getName()).append(" AND TABLE_NAME=").literal(table.getName())
+                .append(") OR (REFERENCED_TABLE_SCHEMA=").literal(table.getDatabase().getName())
+                .append(" AND REFERENCED_TABLE_NAME=").literal(table.getName()).append("))")
+                .toString();
+        try (Connection con = con(); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return rs.getLong(1) > 0;
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error reading foreign keys of table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        }
+    }
+
+    private String makeDropTriggerQuery(String name) {
+        return writer(new StringBuilder()).append("DROP TRIGGER IF EXISTS ").name(name).toString();
+    }
+
+    /**
+     * Compare the row count and checksum of a table and its shadow table, and the values of the changed column in
+     * matching rows. Everything is read from the same consistent snapshot, so changes made while checking do not
+     * cause false differences.
+     *
+     * @param table      The table
+     * @param shadowName The name of the shadow table
+     * @param changed    The column that is changed, which is compared by value
+     * @throws SqlModellerException Thrown if the tables differ or cannot be read
+     */
+    private void verifyChecksum(Table table, String shadowName, Column changed) throws SqlModellerException {
+        Column key = getKeyColumn(table);
+        List<String> columns = table.getColumns().stream()
+                .filter(column -> !column.getName().equals(changed.getName()))
+                .map(column -> quote(column.getName()))
+                .collect(Collectors.toList());
+        String checksum = columns.isEmpty() ? "0" : "COALESCE(SUM(CRC32(CONCAT_WS('#'," + String.join(",", columns) + ","
+                + columns.stream().map(name -> "ISNULL(" + name + ")").collect(Collectors.joining(",")) + "))),0)";
+        try (Connection con = con()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (Statement stmt = con.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+                String original = readChecksum(stmt, writer(new StringBuilder())
+                        .append("SELECT COUNT(*), ").append(checksum).append(" FROM ").name(table.getName()).toString());
+                String shadow = readChecksum(stmt, writer(new StringBuilder())
+                        .append("SELECT COUNT(*), ").append(checksum).append(" FROM ").name(shadowName).toString());
+                // values compare equal across the types they are converted between, like 5 and 5.00
+                String different = readChecksum(stmt, writer(new StringBuilder())
+                        .append("SELECT COUNT(*), 0 FROM ").name(table.getName()).append(" o JOIN ").name(shadowName)
+                        .append(" s ON s.").name(key.getName()).append(" = o.").name(key.getName())
+                        .append(" WHERE NOT (s.").name(changed.getName()).append(" <=> o.").name(changed.getName()).append(')')
+                        .toString());
+                con.commit();
+                if (!original.equals(shadow)) {
+                    throw new SqlModellerException(format("Checksum of shadow table '%s' (%s) does not match table '%s' (%s)",
+                            shadowName, shadow, table.getName(), original));
+                }
+                if (!different.equals("0/0")) {
+                    throw new SqlModellerException(format("Column '%s' of shadow table '%s' differs from table '%s' in %s rows",
+                            changed.getName(), shadowName, table.getName(), different.substring(0, different.indexOf('/'))));
+                }
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error verifying checksum of table '%s' (%s)", table.getName(), ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Read a row count and checksum.
+     *
+     * @param stmt  The statement to use
+     * @param query The query returning the row count and checksum
+     * @return The count and checksum as text
+     */
+    private String readChecksum(Statement stmt, String query) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(query)) {
+            rs.next();
+            return rs.getLong(1) + "/" + rs.getString(2);
+        }
+    }
+
+    /**
+     * Determine if a changed ENUM or SET column only adds values to the current column. InnoDB does this
+     * by only changing the table metadata, as long as the new values are added at the end of the list.
+     *
+     * @param current The current column
+     * @param changed The changed column
+     * @return True if values are only added after the current values, which keep their order
+     */
+    private boolean isValueExtension(Column current, Column changed) {
+        if ((current instanceof EnumColumn) && (changed instanceof EnumColumn)) {
+            return isPrefix(((EnumColumn) current).getEnumValues(), ((EnumColumn) changed).getEnumValues());
+        }
+        if ((current instanceof SetColumn) && (changed instanceof SetColumn)) {
+            return isPrefix(((SetColumn) current).getSetValues(), ((SetColumn) changed).getSetValues());
+        }
+        return false;
+    }
+
+    /**
+     * Determine if the values of a column, in the order they are declared, start with the current values in
+     * the same order.
+     *
+     * @param current The current values, in the order they are declared in the database
+     * @param changed The changed values, in the order they will be declared
+     * @return True if the current values are a prefix of the changed values
+     */
+    private static boolean isPrefix(Set<String> current, Set<String> changed) {
+        if (current.size() > changed.size()) {
+            return false;
+        }
+        Iterator<String> values = changed.iterator();
+        for (String value : current) {
+            if (!value.equals(values.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
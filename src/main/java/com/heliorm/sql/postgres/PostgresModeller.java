@@ -1,5 +1,7 @@
 package com.heliorm.sql.postgres;
 
+import com.heliorm.sql.Action;
+import com.heliorm.sql.BatchSettings;
 import com.heliorm.sql.BinaryColumn;
 import com.heliorm.sql.BitColumn;
 import com.heliorm.sql.BooleanColumn;
@@ -7,19 +9,34 @@ import com.heliorm.sql.Column;
 import com.heliorm.sql.Database;
 import com.heliorm.sql.DecimalColumn;
 import com.heliorm.sql.EnumColumn;
+import com.heliorm.sql.ForeignKey;
+import com.heliorm.sql.Impact;
 import com.heliorm.sql.Index;
+import com.heliorm.sql.Partition;
+import com.heliorm.sql.Partitioning;
+import com.heliorm.sql.ProgressListener;
+import com.heliorm.sql.ServerCapabilities;
 import com.heliorm.sql.SetColumn;
 import com.heliorm.sql.SqlModeller;
 import com.heliorm.sql.SqlModellerException;
+import com.heliorm.sql.SqlWriter;
 import com.heliorm.sql.StringColumn;
 import com.heliorm.sql.Table;
+import com.heliorm.sql.TableStatistics;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.JDBCType;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.function.Supplier;
@@ -32,30 +49,91 @@ import static java.lang.String.format;
  * An implementation of the SQL modeller that deals with PostgreSQL syntax.
  */
 public final class PostgresModeller extends SqlModeller {
+
+    /** The longest time the column swap of an expand/contract change waits for its table lock */
+    private static final long SWAP_LOCK_TIMEOUT_MILLIS = 10000;
+
+    private BatchSettings expandContract;
+
     /**
      * Create a new modeller with the given connection supplier and driver.
      *
      * @param supplier The connection supplier
      */
     public PostgresModeller(Supplier<Connection> supplier) {
-        super(supplier);
+        super(supplier, '"');
+    }
+
+    /**
+     * Enable expand/contract changes for column type modifications. Instead of rewriting the table under an
+     * exclusive lock, a column of the new type is added and kept in sync with a trigger while existing rows are
+     * copied in batches that are committed separately. The columns are then swapped in one short transaction and
+     * the old column is dropped. This needs a single column primary key, and is refused for columns that are
+     * part of a foreign key, in either the referencing or the referenced table.
+     * <p>
+     * Since the changed column is a new column, it moves to the end of the table. After the swap its default is
+     * the one in the model, except that the sequence of a serial column is kept.
+     *
+     * @param settings The batch settings used to copy values, or null to disable expand/contract changes
+     */
+    public void setExpandContract(BatchSettings settings) {
+        this.expandContract = settings;
     }
 
     @Override
-    public void modifyColumn(Column column) throws SqlModellerException {
-        if (column instanceof EnumColumn) {
-            modifyEnumColumn((EnumColumn) column);
-        } else {
-            super.modifyColumn(column);
+    public void modifyColumn(Column column, ProgressListener listener) throws SqlModellerException {
+        // the table is read from the primary while it is changed
+        changed(column.getTable());
+        try {
+            if (column instanceof EnumColumn) {
+                modifyEnumColumn((EnumColumn) column);
+            } else {
+                if (expandContract != null) {
+                    Table table = readTable(column.getTable().getDatabase(), column.getTable().getName());
+                    Column current = table.getColumn(column.getName());
+                    if ((current != null) && (current.isKey() == column.isKey()) && !typesAreCompatible(column, current)) {
+                        modifyColumnExpandContract(table, column, listener);
+                        return;
+                    }
+                }
+                super.modifyColumn(column, listener);
+            }
+        } finally {
+            changed(column.getTable());
         }
     }
 
     @Override
     public void modifyIndex(Index index) throws SqlModellerException {
-        try (Connection con = con(); Statement stmt = con.createStatement()) {
-            stmt.executeUpdate(makeModifyIndexQuery(index));
-        } catch (SQLException ex) {
-            throw new SqlModellerException(format("Error modifying index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()));
+        changed(index.getTable());
+        // a name cut short by PostgreSQL could be the name of the live index, which is dropped if it exists
+        String newName = limitName(index.getName() + "__new", getMaxNameLength());
+        try {
+            // the replacement is built next to the old index, so queries can use the old one until the swap
+            try {
+                execute(makeDropIndexQuery(newName),
+                        writer(new StringBuilder())
+                                .append("CREATE ").append(index.isUnique() ? "UNIQUE " : "")
+                                .append("INDEX CONCURRENTLY ").name(newName)
+                                .append(" ON ").name(index.getTable().getName())
+                                .append(" (").names(index.getColumns()).append(')')
+                                .toString());
+            } catch (SqlModellerException ex) {
+                // a failed concurrent build leaves an invalid index behind
+                try {
+                    execute(makeDropIndexQuery(newName));
+                } catch (SqlModellerException failed) {
+                    ex.addSuppressed(failed);
+                }
+                throw ex;
+            }
+            executeInTransaction(format("SET LOCAL lock_timeout = %d", SWAP_LOCK_TIMEOUT_MILLIS),
+                    makeRemoveIndexQuery(index),
+                    makeRenameIndexQuery(newName, index.getName()));
+        } catch (SqlModellerException ex) {
+            throw new SqlModellerException(format("Error modifying index '%s' in table '%s' (%s)", index.getName(), index.getTable().getName(), ex.getMessage()), ex);
+        } finally {
+            changed(index.getTable());
         }
     }
 
@@ -64,10 +142,22 @@ public final class PostgresModeller extends SqlModeller {
         return false;
     }
 
+    @Override
+    protected int getMaxNameLength() {
+        // identifiers longer than NAMEDATALEN - 1 are cut short without an error
+        return 63;
+    }
+
+    @Override
+    protected boolean indexesForeignKeys() {
+        return false;
+    }
+
     @Override
     protected boolean isEnumColumn(String columnName, JDBCType jdbcType, String typeName) throws SqlModellerException {
         if (jdbcType == JDBCType.VARCHAR) {
-            try (Connection con = con(); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(makeReadEnumQuery(typeName))) {
+            // enum types are not tied to a table, so any recent change means the replica may not have them yet
+            try (Connection con = readCon(null); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(makeReadEnumQuery(typeName))) {
                 return rs.next();
             } catch (SQLException ex) {
                 throw new SqlModellerException(format("Error reading enum values from databases (%s)", ex.getMessage()), ex);
@@ -138,49 +228,42 @@ public final class PostgresModeller extends SqlModeller {
 
     @Override
     public String makeModifyColumnQuery(Column column) throws SqlModellerException {
-        StringBuilder sql = new StringBuilder();
-        sql.append(format("ALTER TABLE %s", getTableName(column.getTable())));
-        sql.append(format("ALTER %s DROP DEFAULT", getColumnName(column)));
-        sql.append(format(",ALTER %s TYPE %s USING(%s::text::%s)",
-                getColumnName(column), createBasicType(column),
-                getColumnName(column),
-                typeName(column)));
-        if (!column.isNullable()) {
-            sql.append(format(",ALTER %s SET NOT NULL", getColumnName(column)));
-        } else {
-            sql.append(format(",ALTER %s DROP NOT NULL", getColumnName(column)));
-        }
-        return sql.toString();
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" ALTER ").name(column.getName()).append(" DROP DEFAULT")
+                .append(",ALTER ").name(column.getName()).append(" TYPE ").append(createBasicType(column))
+                .append(" USING(").name(column.getName()).append("::text::").append(typeName(column)).append(')')
+                .append(",ALTER ").name(column.getName()).append(column.isNullable() ? " DROP NOT NULL" : " SET NOT NULL")
+                .toString();
     }
 
     @Override
     protected String getDatabaseName(Database database) {
-        return format("\"%s\"", database.getName());
+        return quote(database.getName());
     }
 
     @Override
     protected String getTableName(Table table) {
-        return format("\"%s\"", table.getName());
+        return quote(table.getName());
     }
 
     @Override
-    protected String getCreateType(Column column) throws SqlModellerException {
-        StringBuilder type = new StringBuilder();
-        type.append(createBasicType(column));
+    protected void writeCreateType(SqlWriter sql, Column column) throws SqlModellerException {
+        sql.append(createBasicType(column));
         if (column.isKey()) {
-            type.append(" PRIMARY KEY");
+            sql.append(" PRIMARY KEY");
         }
         if (!column.isNullable()) {
-            type.append(" NOT NULL");
+            sql.append(" NOT NULL");
+        }
+        if (column.getDefault() != null) {
+            sql.append(" DEFAULT ").literal(column.getDefault());
         }
-        if (column.getDefault() != null)
-            type.append(format(" DEFAULT '%s'", column.getDefault()));
-        return type.toString();
     }
 
     @Override
     protected String makeRemoveIndexQuery(Index index) {
-        return format("DROP INDEX IF EXISTS %s", getIndexName(index));
+        return makeDropIndexQuery(index.getName());
     }
 
     @Override
@@ -190,63 +273,226 @@ public final class PostgresModeller extends SqlModeller {
 
     @Override
     protected String getColumnName(Column column) {
-        return format("\"%s\"", column.getName());
+        return quote(column.getName());
     }
 
     @Override
     protected String getIndexName(Index index) {
-        return format("\"%s\"", index.getName());
+        return quote(index.getName());
+    }
+
+    @Override
+    protected List<String> makeSetNotNullQueries(Column column) throws SqlModellerException {
+        String tableName = column.getTable().getName();
+        if (!getCapabilities().supports(ServerCapabilities.Feature.NOT_NULL_BY_CONSTRAINT)) {
+            // SET NOT NULL scans the table whatever constraints exist, so a check constraint would only add a scan
+            return Collections.singletonList(makeAlterColumnQuery(tableName, column.getName(), " SET NOT NULL"));
+        }
+        String check = limitName(tableName + "_" + column.getName() + "_not_null", getMaxNameLength());
+        List<String> queries = new ArrayList<>();
+        queries.add(makeAddNotNullCheckQuery(tableName, check, column.getName()));
+        // validating only takes a lock that allows writes, and the validated constraint lets SET NOT NULL skip the scan
+        queries.add(makeConstraintQuery(tableName, "VALIDATE", check));
+        queries.add(makeAlterColumnQuery(tableName, column.getName(), " SET NOT NULL"));
+        queries.add(makeConstraintQuery(tableName, "DROP", check));
+        return queries;
     }
 
     @Override
     protected String makeAddColumnQuery(Column column) throws SqlModellerException {
-        StringBuilder buf = new StringBuilder();
+        SqlWriter sql = writer(new StringBuilder());
         if (column instanceof EnumColumn) {
-            buf.append(makeAddEnumTypeQuery((EnumColumn) column));
+            writeAddEnumTypeQuery(sql, (EnumColumn) column);
         } else if (column instanceof SetColumn) {
             throw new SqlModellerException("SET data types are not supported for PostgreSQL");
         }
-        buf.append(format("ALTER TABLE %s ADD COLUMN %s %s",
-                getTableName(column.getTable()),
-                getColumnName(column),
-                getCreateType(column)));
-        return buf.toString();
+        sql.append("ALTER TABLE ").name(column.getTable().getName())
+                .append(" ADD COLUMN ").name(column.getName()).append(' ');
+        writeCreateType(sql, column);
+        return sql.toString();
     }
 
     @Override
-    protected String makeCreateTableQuery(Table table) throws SqlModellerException {
-        StringBuilder head = new StringBuilder();
-        StringJoiner body = new StringJoiner(",");
+    protected void writeCreateTableQuery(SqlWriter sql, Table table) throws SqlModellerException {
         for (Column column : table.getColumns()) {
             if (column instanceof EnumColumn) {
-                head.append(makeAddEnumTypeQuery((EnumColumn) column));
+                writeAddEnumTypeQuery(sql, (EnumColumn) column);
             }
             if (column instanceof SetColumn) {
                 throw new SqlModellerException("SET data types are not supported for PostgreSQL");
             }
-            body.add(format("%s %s", getColumnName(column), getCreateType(column)));
         }
-        StringBuilder sql = new StringBuilder(head.toString());
-        sql.append(format("CREATE TABLE %s (", getTableName(table)));
-        sql.append(body);
-        sql.append(")");
+        writeCreateTableColumns(sql, table);
+        writePartitionClause(sql, table);
+        if (table.getPartitioning() != null) {
+            for (Partition partition : table.getPartitioning().getPartitions()) {
+                sql.append(";\n");
+                writeCreatePartitionQuery(sql, table, partition);
+            }
+        }
         for (Index index : table.getIndexes()) {
             sql.append(";\n");
-            sql.append(makeAddIndexQuery(index));
+            writeAddIndexQuery(sql, index);
+        }
+    }
+
+    @Override
+    protected void writePartitionClause(SqlWriter sql, Table table) {
+        Partitioning partitioning = table.getPartitioning();
+        if (partitioning != null) {
+            sql.append(" PARTITION BY ").append(partitioning.getType().name())
+                    .append(" (").names(partitioning.getColumns()).append(')');
+        }
+    }
+
+    @Override
+    protected void writeCreatePartitions(SqlWriter sql, Table table) {
+        if (table.getPartitioning() != null) {
+            for (Partition partition : table.getPartitioning().getPartitions()) {
+                writeCreatePartitionQuery(sql, table, partition);
+                sql.append(";\n");
+            }
         }
+    }
+
+    /** Write the statement that creates a partition of a table. The lower bound of a range partition is the upper
+     * bound of the range partition before it in the model.
+     *
+     */
+    private void writeCreatePartitionQuery(SqlWriter sql, Table table, Partition partition) {
+        Partitioning partitioning = table.getPartitioning();
+        sql.append("CREATE TABLE ").name(partition.getName()).append(" PARTITION OF ").name(table.getName());
+        List<Partition> partitions = partitioning.getPartitions();
+        if (partitioning.getType() == Partitioning.Type.HASH) {
+            sql.append(format(" FOR VALUES WITH (MODULUS %d, REMAINDER %d)", partitions.size(), indexOf(partitions, partition)));
+        } else if (partition.getValues().isEmpty()) {
+            sql.append(" DEFAULT");
+        } else if (partitioning.getType() == Partitioning.Type.LIST) {
+            sql.append(" FOR VALUES IN (").append(String.join(",", partition.getValues())).append(')');
+        } else {
+            List<String> lower = Collections.nCopies(partitioning.getColumns().size(), "MINVALUE");
+            for (int i = indexOf(partitions, partition) - 1; i >= 0; --i) {
+                if (!partitions.get(i).getValues().isEmpty()) {
+                    lower = partitions.get(i).getValues();
+                    break;
+                }
+            }
+            sql.append(" FOR VALUES FROM (").append(String.join(",", lower))
+                    .append(") TO (").append(String.join(",", partition.getValues())).append(')');
+        }
+    }
+
+    private static int indexOf(List<Partition> partitions, Partition partition) {
+        for (int i = 0; i < partitions.size(); ++i) {
+            if (partitions.get(i).getName().equals(partition.getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    protected String makeAddPartitionQuery(Table table, Partition partition) throws SqlModellerException {
+        if (table.getPartitioning().getType() == Partitioning.Type.HASH) {
+            throw new SqlModellerException(format("Partition '%s' cannot be added to table '%s' without repartitioning all its rows", partition.getName(), table.getName()));
+        }
+        SqlWriter sql = writer(new StringBuilder());
+        writeCreatePartitionQuery(sql, table, partition);
         return sql.toString();
     }
 
+    @Override
+    protected Impact assessPartitionChange(Action.Type type, Table table, Partition partition, TableStatistics statistics) {
+        switch (type) {
+            case ADD_PARTITION:
+                // the parent is locked while the partition is attached, and the rows of a default partition are checked
+            case DETACH_PARTITION:
+            case DELETE_PARTITION:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected String makeDetachPartitionQuery(Table table, Partition partition) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(table.getName())
+                .append(" DETACH PARTITION ").name(partition.getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeRemovePartitionQuery(Table table, Partition partition) {
+        return writer(new StringBuilder())
+                .append("DROP TABLE ").name(partition.getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeTryLockQuery() {
+        return "SELECT pg_try_advisory_lock(hashtext(?))";
+    }
+
+    @Override
+    protected String makeUnlockQuery() {
+        return "SELECT pg_advisory_unlock(hashtext(?))";
+    }
+
+    @Override
+    protected String makeReadTableNamesQuery(String database) {
+        // JDBC lists partitions as plain tables and leaves out the partitioned tables they belong to
+        return writer(new StringBuilder()).append("SELECT c.relname::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relkind IN ('r', 'p') AND NOT c.relispartition AND pg_table_is_visible(c.oid) " +
+                "AND n.nspname NOT LIKE 'pg\\_%' AND n.nspname <> 'information_schema' AND current_database() = ").literal(database)
+                .append(" ORDER BY 1")
+                .toString();
+    }
+
+    @Override
+    protected String makeReadPartitionsQuery(Table table) {
+        return writer(new StringBuilder()).append("SELECT CASE p.partstrat WHEN 'r' THEN 'RANGE' WHEN 'l' THEN 'LIST' ELSE 'HASH' END, " +
+                "(SELECT string_agg(a.attname::text, ',' ORDER BY k.o) FROM unnest(p.partattrs::int2[]) WITH ORDINALITY AS k(num, o) " +
+                "JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum = k.num " +
+                "HAVING count(*) = array_length(p.partattrs::int2[], 1)), " +
+                "pc.relname::text, pg_get_expr(pc.relpartbound, pc.oid) " +
+                "FROM pg_partitioned_table p JOIN pg_class c ON c.oid = p.partrelid " +
+                "LEFT JOIN pg_inherits i ON i.inhparent = c.oid LEFT JOIN pg_class pc ON pc.oid = i.inhrelid " +
+                "WHERE c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName()).append(" " +
+                "ORDER BY COALESCE(substring(pg_get_expr(pc.relpartbound, pc.oid) from 'remainder (\\d+)')::int, 0), 3")
+                .toString();
+    }
+
+    @Override
+    protected List<String> extractPartitionValues(Partitioning.Type type, String bound) {
+        // bounds are described as FOR VALUES FROM (..) TO (..), FOR VALUES IN (..), FOR VALUES WITH (..) or DEFAULT
+        if (bound == null || (type == Partitioning.Type.HASH)) {
+            return Collections.emptyList();
+        }
+        int from = bound.indexOf(type == Partitioning.Type.RANGE ? ") TO (" : "IN (");
+        if (from < 0) {
+            return Collections.emptyList();
+        }
+        return splitValues(bound.substring(bound.indexOf('(', from + 1) + 1, bound.lastIndexOf(')')));
+    }
+
+    @Override
+    protected void writeCreateTypes(SqlWriter sql, Table table) throws SqlModellerException {
+        for (Column column : table.getColumns()) {
+            if (column instanceof EnumColumn) {
+                writeAddEnumTypeQuery(sql, (EnumColumn) column);
+                sql.append('\n');
+            }
+        }
+    }
+
     @Override
     protected String makeRenameIndexQuery(Index current, Index changed) {
-        return format("ALTER INDEX %s RENAME to %s",
-                getIndexName(current),
-                getIndexName(changed));
+        return makeRenameIndexQuery(current.getName(), changed.getName());
     }
 
     @Override
     protected Set<String> readEnumValues(EnumColumn column) throws SqlModellerException {
-        try (Connection con = con(); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(makeReadEnumQuery(getSqlTypeName(column)))) {
+        try (Connection con = readCon(column.getTable()); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(makeReadEnumQuery(getSqlTypeName(column)))) {
             if (rs.next()) {
                 return Stream.of(rs.getString("enum_value").split(","))
                         .map(String::trim)
@@ -268,6 +514,480 @@ public final class PostgresModeller extends SqlModeller {
         return text;
     }
 
+    @Override
+    protected Impact assessColumnChange(Action.Type type, Column current, Column changed, TableStatistics statistics) throws SqlModellerException {
+        switch (type) {
+            case ADD_COLUMN:
+                if ((changed.getDefault() != null) && !getCapabilities().supports(ServerCapabilities.Feature.INSTANT_ADD_COLUMN)) {
+                    // before PostgreSQL 11 the default is written to every row
+                    return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+                }
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+            case DELETE_COLUMN:
+            case RENAME_COLUMN:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+            case MODIFY_COLUMN:
+                if ((expandContract != null) && (current != null) && (current.isKey() == changed.isKey())
+                        && !(changed instanceof EnumColumn) && !typesAreCompatible(changed, current)) {
+                    // all rows are updated in batches, but the table is only locked to swap the columns
+                    return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.NONE, statistics);
+                }
+                // the column type is always changed with a USING clause, which forces PostgreSQL to rewrite the table
+                return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected Impact assessForeignKeyChange(Action.Type type, ForeignKey key, TableStatistics statistics) {
+        switch (type) {
+            case ADD_FOREIGN_KEY:
+                // adding the key without checking the rows takes SHARE ROW EXCLUSIVE on both tables, which blocks writes
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.SHARED, statistics);
+            case MODIFY_FOREIGN_KEY:
+                // dropping the old key takes ACCESS EXCLUSIVE, which blocks reads until the change is committed
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected String makeAddForeignKeyQuery(ForeignKey key) {
+        return super.makeAddForeignKeyQuery(key) + " NOT VALID";
+    }
+
+    @Override
+    protected String makeValidateForeignKeyQuery(ForeignKey key) {
+        return makeConstraintQuery(key.getTable().getName(), "VALIDATE", key.getName());
+    }
+
+    @Override
+    protected Impact assessIndexChange(Action.Type type, Index index, TableStatistics statistics) {
+        switch (type) {
+            case ADD_INDEX:
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.SHARED, statistics);
+            case MODIFY_INDEX:
+                // the replacement is built concurrently, and only the swap with the old index locks the table
+                return new Impact(Impact.Algorithm.IN_PLACE, Impact.Lock.NONE, statistics);
+            case RENAME_INDEX:
+                // renaming takes a SHARE UPDATE EXCLUSIVE lock, which does not block reads or writes
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.NONE, statistics);
+            case DELETE_INDEX:
+                return new Impact(Impact.Algorithm.METADATA, Impact.Lock.EXCLUSIVE, statistics);
+        }
+        return new Impact(Impact.Algorithm.REWRITE, Impact.Lock.EXCLUSIVE, statistics);
+    }
+
+    @Override
+    protected ServerCapabilities probeCapabilities(Connection con) throws SQLException {
+        String version;
+        try (Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery("SHOW server_version")) {
+            rs.next();
+            version = rs.getString(1);
+        }
+        Set<ServerCapabilities.Feature> features = EnumSet.of(ServerCapabilities.Feature.INSTANT_DROP_COLUMN,
+                ServerCapabilities.Feature.RENAME_COLUMN, ServerCapabilities.Feature.RENAME_INDEX);
+        int number = versionNumber(version);
+        if (number >= 110000) {
+            features.add(ServerCapabilities.Feature.INSTANT_ADD_COLUMN);
+        }
+        if (number >= 120000) {
+            features.add(ServerCapabilities.Feature.REINDEX_CONCURRENTLY);
+            features.add(ServerCapabilities.Feature.NOT_NULL_BY_CONSTRAINT);
+        }
+        return new ServerCapabilities("PostgreSQL", version, features);
+    }
+
+    @Override
+    protected String makeReadIndexSizesQuery(Table table) {
+        return writer(new StringBuilder())
+                .append("SELECT i.relname, i.relpages::bigint * current_setting('block_size')::bigint " +
+                        "FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid JOIN pg_class c ON c.oid = x.indrelid " +
+                        "WHERE c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeReadTableStatisticsQuery(Table table) {
+        return writer(new StringBuilder())
+                .append("SELECT GREATEST(c.reltuples, 0)::bigint, " +
+                        "c.relpages::bigint * current_setting('block_size')::bigint, " +
+                        "COALESCE((SELECT SUM(i.relpages) FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid WHERE x.indrelid = c.oid), 0)::bigint " +
+                        "* current_setting('block_size')::bigint " +
+                        "FROM pg_class c " +
+                        "WHERE c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName())
+                .toString();
+    }
+
+    @Override
+    protected String makeReadStructureQuery(Table table) {
+        return writer(new StringBuilder()).append("SELECT 'C' AS k, a.attname::text AS n, format_type(a.atttypid, a.atttypmod) AS t, a.attnotnull::text AS f, " +
+                        "pg_get_expr(d.adbin, d.adrelid) AS d, " +
+                        "(SELECT string_agg(e.enumlabel::text, ',' ORDER BY e.enumsortorder) FROM pg_enum e WHERE e.enumtypid = a.atttypid) AS e " +
+                        "FROM pg_attribute a JOIN pg_class c ON c.oid = a.attrelid " +
+                        "LEFT JOIN pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum " +
+                        "WHERE c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName()).append(" AND a.attnum > 0 AND NOT a.attisdropped " +
+                        "UNION ALL " +
+                        "SELECT 'I', i.relname::text, x.indisunique::text || ',' || x.indisprimary::text, " +
+                        "(SELECT string_agg(a.attname::text, ',' ORDER BY k.o) FROM unnest(x.indkey::int2[]) WITH ORDINALITY AS k(num, o) " +
+                        "JOIN pg_attribute a ON a.attrelid = c.oid AND a.attnum = k.num), NULL, NULL " +
+                        "FROM pg_index x JOIN pg_class i ON i.oid = x.indexrelid JOIN pg_class c ON c.oid = x.indrelid " +
+                        "WHERE c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName()).append(" " +
+                        "UNION ALL " +
+                        "SELECT 'F', k.conname::text, pg_get_constraintdef(k.oid), NULL, NULL, NULL " +
+                        "FROM pg_constraint k JOIN pg_class c ON c.oid = k.conrelid " +
+                        "WHERE k.contype = 'f' AND c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName()).append(" " +
+                        "UNION ALL " +
+                        "SELECT 'P', COALESCE(pc.relname::text, ''), COALESCE(pg_get_expr(pc.relpartbound, pc.oid), pg_get_partkeydef(c.oid)), NULL, NULL, NULL " +
+                        "FROM pg_class c " +
+                        "LEFT JOIN pg_inherits i ON i.inhparent = c.oid LEFT JOIN pg_class pc ON pc.oid = i.inhrelid " +
+                        "WHERE c.relkind = 'p' AND c.relname = ").literal(table.getName()).append(" AND pg_table_is_visible(c.oid) AND current_database() = ").literal(table.getDatabase().getName()).append(" " +
+                        "ORDER BY 1, 2")
+                .toString();
+    }
+
+    /**
+     * Modify a column type with an expand/contract change. A new column is added and filled, and indexes on the
+     * column are built concurrently on the new column, before the columns are swapped in a short transaction.
+     * Objects left by an earlier change that could not clean up are dropped first. Before PostgreSQL 12 setting a
+     * column not null always scans the table, so a not null column is then enforced by a check constraint instead.
+     *
+     * @param table    The table as it is in the database
+     * @param column   The changed column
+     * @param listener The listener that receives the backfill progress
+     * @throws SqlModellerException Thrown if the change fails, in which case the original column is left as is
+     */
+    private void modifyColumnExpandContract(Table table, Column column, ProgressListener listener) throws SqlModellerException {
+        Column key = getKeyColumn(table);
+        String tableName = table.getName();
+        // PostgreSQL cuts long names short without an error, which could make generated names clash
+        int length = getMaxNameLength();
+        String newName = limitName(column.getName() + "__new", length);
+        String oldName = limitName(column.getName() + "__old", length);
+        String function = limitName(tableName + "_" + column.getName() + "_sync", length);
+        String check = limitName(tableName + "_" + newName + "_not_null", length);
+        Map<Index, String> indexes = new LinkedHashMap<>();
+        for (Index index : table.getIndexes()) {
+            if (index.getColumns().stream().anyMatch(col -> col.getName().equals(column.getName()))) {
+                indexes.put(index, limitName(index.getName() + "__new", length));
+            }
+        }
+        String primaryKey = key.getName().equals(column.getName())
+                ? queryString(writer(new StringBuilder())
+                .append("SELECT conname FROM pg_constraint WHERE conrelid = ").literal(quote(tableName))
+                .append("::regclass AND contype = 'p'").toString())
+                : null;
+        String newPrimaryKey = primaryKey == null ? null : limitName(primaryKey + "__new", length);
+        String foreignKeys = queryString(writer(new StringBuilder())
+                .append("SELECT COUNT(*) FROM pg_constraint k JOIN pg_attribute a ON a.attrelid = ").literal(quote(tableName))
+                .append("::regclass AND a.attname = ").literal(column.getName())
+                .append(" WHERE k.contype = 'f' AND ((k.conrelid = a.attrelid AND a.attnum = ANY(k.conkey)) " +
+                        "OR (k.confrelid = a.attrelid AND a.attnum = ANY(k.confkey)))")
+                .toString());
+        if (!"0".equals(foreignKeys)) {
+            // the constraints would have to be dropped with the old column, or with the primary key it references
+            throw new SqlModellerException(format("Column '%s' of table '%s' cannot be changed with expand/contract since it is part of a foreign key",
+                    column.getName(), tableName));
+        }
+        String sequence = queryString(writer(new StringBuilder())
+                .append("SELECT pg_get_serial_sequence(").literal(quote(tableName)).append(", ").literal(column.getName()).append(')')
+                .toString());
+        String sequenceDefault = sequence == null ? null : queryString(writer(new StringBuilder())
+                .append("SELECT pg_get_expr(d.adbin, d.adrelid) FROM pg_attrdef d " +
+                        "JOIN pg_attribute a ON a.attrelid = d.adrelid AND a.attnum = d.adnum " +
+                        "WHERE d.adrelid = ").literal(quote(tableName)).append("::regclass AND a.attname = ").literal(column.getName())
+                .toString());
+        long total = readTableStatistics(table).getRows();
+        List<String> cleanup = new ArrayList<>();
+        cleanup.add(writer(new StringBuilder())
+                .append("DROP TRIGGER IF EXISTS ").name(function).append(" ON ").name(tableName)
+                .toString());
+        cleanup.add(writer(new StringBuilder())
+                .append("DROP FUNCTION IF EXISTS ").name(function).append("()")
+                .toString());
+        if (newPrimaryKey != null) {
+            cleanup.add(makeDropIndexQuery(newPrimaryKey));
+        }
+        for (String indexName : indexes.values()) {
+            cleanup.add(makeDropIndexQuery(indexName));
+        }
+        cleanup.add(writer(new StringBuilder())
+                .append("ALTER TABLE ").name(tableName).append(" DROP COLUMN IF EXISTS ").name(newName)
+                .toString());
+        execute(cleanup.toArray(new String[0]));
+        try {
+            execute(writer(new StringBuilder())
+                    .append("ALTER TABLE ").name(tableName).append(" ADD COLUMN ").name(newName).append(' ').append(castType(column))
+                    .toString());
+            execute(writer(new StringBuilder())
+                            .append("CREATE OR REPLACE FUNCTION ").name(function).append("() RETURNS trigger AS $$ BEGIN NEW.").name(newName)
+                            .append(" := NEW.").name(column.getName()).append("::text::").append(castType(column))
+                            .append("; RETURN NEW; END $$ LANGUAGE plpgsql")
+                            .toString(),
+                    writer(new StringBuilder())
+                            .append("CREATE TRIGGER ").name(function).append(" BEFORE INSERT OR UPDATE ON ").name(tableName)
+                            .append(" FOR EACH ROW EXECUTE PROCEDURE ").name(function).append("()")
+                            .toString());
+            String copy = writer(new StringBuilder())
+                    .append("UPDATE ").name(tableName).append(" SET ").name(newName).append(" = ").name(column.getName())
+                    .append("::text::").append(castType(column)).append(" WHERE ")
+                    .toString();
+            forEachKeyRange(table, key, expandContract, total, listener, (con, range) -> {
+                try (PreparedStatement stmt = con.prepareStatement(copy + range.condition(getColumnName(key)))) {
+                    range.bind(stmt, 1);
+                    return stmt.executeUpdate();
+                }
+            });
+            if (newPrimaryKey != null) {
+                execute(makeCreateIndexQuery(true, newPrimaryKey, tableName, Collections.singletonList(newName)));
+            }
+            for (Map.Entry<Index, String> entry : indexes.entrySet()) {
+                Index index = entry.getKey();
+                execute(makeCreateIndexQuery(index.isUnique(), entry.getValue(), tableName,
+                        index.getColumns().stream()
+                                .map(col -> col.getName().equals(column.getName()) ? newName : col.getName())
+                                .collect(Collectors.toList())));
+            }
+            if (!column.isNullable()) {
+                execute(makeAddNotNullCheckQuery(tableName, check, newName),
+                        makeConstraintQuery(tableName, "VALIDATE", check));
+            }
+            List<String> swap = new ArrayList<>();
+            swap.add(format("SET LOCAL lock_timeout = %d", SWAP_LOCK_TIMEOUT_MILLIS));
+            swap.add(writer(new StringBuilder())
+                    .append("LOCK TABLE ").name(tableName).append(" IN ACCESS EXCLUSIVE MODE")
+                    .toString());
+            swap.add(writer(new StringBuilder())
+                    .append("DROP TRIGGER ").name(function).append(" ON ").name(tableName)
+                    .toString());
+            swap.add(writer(new StringBuilder())
+                    .append("DROP FUNCTION ").name(function).append("()")
+                    .toString());
+            if (primaryKey != null) {
+                swap.add(makeConstraintQuery(tableName, "DROP", primaryKey));
+            }
+            swap.add(makeRenameColumnQuery(tableName, column.getName(), oldName));
+            swap.add(makeRenameColumnQuery(tableName, newName, column.getName()));
+            if (primaryKey != null) {
+                swap.add(writer(new StringBuilder())
+                        .append("ALTER TABLE ").name(tableName).append(" ADD CONSTRAINT ").name(primaryKey)
+                        .append(" PRIMARY KEY USING INDEX ").name(newPrimaryKey)
+                        .toString());
+            }
+            if (sequence != null) {
+                swap.add(writer(new StringBuilder())
+                        .append("ALTER SEQUENCE ").append(sequence).append(" OWNED BY ").name(tableName).append('.').name(column.getName())
+                        .toString());
+            }
+            if (sequenceDefault != null) {
+                // a serial column keeps taking its values from its sequence
+                swap.add(makeAlterColumnQuery(tableName, column.getName(), " SET DEFAULT " + sequenceDefault));
+            } else if (column.getDefault() != null) {
+                swap.add(writer(new StringBuilder())
+                        .append("ALTER TABLE ").name(tableName).append(" ALTER COLUMN ").name(column.getName())
+                        .append(" SET DEFAULT ").literal(column.getDefault())
+                        .toString());
+            }
+            boolean keepCheck = !column.isNullable() && !getCapabilities().supports(ServerCapabilities.Feature.NOT_NULL_BY_CONSTRAINT);
+            if (!column.isNullable() && !keepCheck) {
+                // from PostgreSQL 12 the validated check constraint lets SET NOT NULL skip the table scan
+                swap.add(makeAlterColumnQuery(tableName, column.getName(), " SET NOT NULL"));
+                swap.add(makeConstraintQuery(tableName, "DROP", check));
+            }
+            swap.add(writer(new StringBuilder())
+                    .append("ALTER TABLE ").name(tableName).append(" DROP COLUMN ").name(oldName)
+                    .toString());
+            if (keepCheck) {
+                // older servers would scan the table under the exclusive lock, so the check constraint is kept, and the
+                // constraint of an earlier change went with the old column
+                swap.add(writer(new StringBuilder())
+                        .append("ALTER TABLE ").name(tableName).append(" RENAME CONSTRAINT ").name(check)
+                        .append(" TO ").name(limitName(tableName + "_" + column.getName() + "_not_null", length))
+                        .toString());
+            }
+            for (Map.Entry<Index, String> entry : indexes.entrySet()) {
+                swap.add(makeRenameIndexQuery(entry.getValue(), entry.getKey().getName()));
+            }
+            executeInTransaction(swap.toArray(new String[0]));
+        } catch (SqlModellerException ex) {
+            // the swap is one transaction, so until it commits the original column is unchanged
+            try {
+                execute(cleanup.toArray(new String[0]));
+            } catch (SqlModellerException failed) {
+                ex.addSuppressed(failed);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Generate an SQL statement that builds an index concurrently.
+     *
+     * @param unique      Whether the index is unique
+     * @param indexName   The index name
+     * @param tableName   The table name
+     * @param columnNames The names of the indexed columns
+     * @return The SQL
+     */
+    private String makeCreateIndexQuery(boolean unique, String indexName, String tableName, List<String> columnNames) {
+        SqlWriter sql = writer(new StringBuilder())
+                .append("CREATE ").append(unique ? "UNIQUE " : "").append("INDEX CONCURRENTLY ").name(indexName)
+                .append(" ON ").name(tableName).append(" (");
+        for (int i = 0; i < columnNames.size(); ++i) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.name(columnNames.get(i));
+        }
+        return sql.append(')').toString();
+    }
+
+    /**
+     * Generate an SQL statement that drops an index if it exists.
+     *
+     * @param indexName The index name
+     * @return The SQL
+     */
+    private String makeDropIndexQuery(String indexName) {
+        return writer(new StringBuilder())
+                .append("DROP INDEX IF EXISTS ").name(indexName)
+                .toString();
+    }
+
+    /**
+     * Generate an SQL statement that renames an index.
+     *
+     * @param indexName The current index name
+     * @param newName   The new index name
+     * @return The SQL
+     */
+    private String makeRenameIndexQuery(String indexName, String newName) {
+        return writer(new StringBuilder())
+                .append("ALTER INDEX ").name(indexName).append(" RENAME TO ").name(newName)
+                .toString();
+    }
+
+    /**
+     * Generate an SQL statement that renames a column.
+     *
+     * @param tableName  The table name
+     * @param columnName The current column name
+     * @param newName    The new column name
+     * @return The SQL
+     */
+    private String makeRenameColumnQuery(String tableName, String columnName, String newName) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(tableName).append(" RENAME COLUMN ").name(columnName).append(" TO ").name(newName)
+                .toString();
+    }
+
+    /**
+     * Generate an SQL statement that alters a column.
+     *
+     * @param tableName  The table name
+     * @param columnName The column name
+     * @param change     The change, like <code> SET NOT NULL</code>
+     * @return The SQL
+     */
+    private String makeAlterColumnQuery(String tableName, String columnName, String change) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(tableName).append(" ALTER COLUMN ").name(columnName).append(change)
+                .toString();
+    }
+
+    /**
+     * Generate an SQL statement that adds a check constraint, without validating it, that a column is not null.
+     *
+     * @param tableName  The table name
+     * @param check      The constraint name
+     * @param columnName The column name
+     * @return The SQL
+     */
+    private String makeAddNotNullCheckQuery(String tableName, String check, String columnName) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(tableName).append(" ADD CONSTRAINT ").name(check)
+                .append(" CHECK (").name(columnName).append(" IS NOT NULL) NOT VALID")
+                .toString();
+    }
+
+    /**
+     * Generate an SQL statement that validates or drops a constraint.
+     *
+     * @param tableName  The table name
+     * @param operation  The operation, VALIDATE or DROP
+     * @param constraint The constraint name
+     * @return The SQL
+     */
+    private String makeConstraintQuery(String tableName, String operation, String constraint) {
+        return writer(new StringBuilder())
+                .append("ALTER TABLE ").name(tableName).append(' ').append(operation).append(" CONSTRAINT ").name(constraint)
+                .toString();
+    }
+
+    /**
+     * Run a query that returns a single text value.
+     *
+     * @param query The query
+     * @return The value or null if there is none
+     * @throws SqlModellerException Thrown if the query fails
+     */
+    private String queryString(String query) throws SqlModellerException {
+        try (Connection con = con(); Statement stmt = con.createStatement(); ResultSet rs = stmt.executeQuery(query)) {
+            if (rs.next()) {
+                return rs.getString(1);
+            }
+            return null;
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error executing '%s' (%s)", query, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Execute SQL statements in order in a single transaction.
+     *
+     * @param queries The statements
+     * @throws SqlModellerException Thrown if a statement fails, in which case the transaction is rolled back
+     */
+    private void executeInTransaction(String... queries) throws SqlModellerException {
+        String query = null;
+        try (Connection con = con()) {
+            boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit(false);
+            try (Statement stmt = con.createStatement()) {
+                for (String q : queries) {
+                    query = q;
+                    executeUpdate(stmt, query);
+                }
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw ex;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException ex) {
+            throw new SqlModellerException(format("Error executing '%s' (%s)", query, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Determine the type a column value is converted to. This is the column type, except that serial types are
+     * replaced by the integer types they are based on.
+     *
+     * @param column The column
+     * @return The type
+     */
+    private String castType(Column column) throws SqlModellerException {
+        String type = createBasicType(column);
+        switch (type) {
+            case "SERIAL":
+                return "INTEGER";
+            case "BIGSERIAL":
+                return "BIGINT";
+        }
+        return type;
+    }
+
     /**
      * Read the SQL type name for the give column from the database meta data.
      *
@@ -275,7 +995,7 @@ public final class PostgresModeller extends SqlModeller {
      * @return The type name
      */
     private String getSqlTypeName(Column column) throws SqlModellerException {
-        try (Connection con = con()) {
+        try (Connection con = readCon(column.getTable())) {
             DatabaseMetaData dbm = con.getMetaData();
             try (ResultSet rs = dbm.getColumns(column.getTable().getDatabase().getName(), null, column.getTable().getName(), column.getName())) {
                 if (rs.next()) {
@@ -299,14 +1019,15 @@ public final class PostgresModeller extends SqlModeller {
         Set<String> have = readEnumValues(column);
         if (!want.equals(have)) {
             StringJoiner query = new StringJoiner(";");
-            query.add(format("ALTER TYPE %s RENAME TO %s_old", typeName(column), typeName(column)));
+            query.add(writer(new StringBuilder())
+                    .append("ALTER TYPE ").name(typeName(column)).append(" RENAME TO ").name(typeName(column) + "_old")
+                    .toString());
             query.add(makeAddEnumTypeQuery(column));
-            query.add(format("ALTER TABLE %s COLUMN %s TYPE %s USING %s::text::%s",
-                    getTableName(column.getTable()),
-                    getColumnName(column),
-                    typeName(column),
-                    getColumnName(column),
-                    typeName(column)));
+            query.add(writer(new StringBuilder())
+                    .append("ALTER TABLE ").name(column.getTable().getName())
+                    .append(" COLUMN ").name(column.getName()).append(" TYPE ").name(typeName(column))
+                    .append(" USING ").name(column.getName()).append("::text::").name(typeName(column))
+                    .toString());
         }
     }
 
@@ -317,19 +1038,23 @@ public final class PostgresModeller extends SqlModeller {
      * @return The SQL
      */
     private String makeAddEnumTypeQuery(EnumColumn column) {
+        SqlWriter sql = writer(new StringBuilder());
+        writeAddEnumTypeQuery(sql, column);
+        return sql.toString();
+    }
+
+    /**
+     * Write an SQL statement to create the PostgreSQL enum type for a column if it does not exist.
+     *
+     * @param sql    The writer
+     * @param column The column
+     */
+    private void writeAddEnumTypeQuery(SqlWriter sql, EnumColumn column) {
         String typeName = typeName(column);
-        StringJoiner buf = new StringJoiner("\n");
-        buf.add("DO $$");
-        buf.add("BEGIN");
-        buf.add(format("    IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = '%s') THEN", typeName));
-        buf.add(format("        CREATE TYPE \"%s\" AS ENUM(", typeName));
-        buf.add(column.getEnumValues().stream()
-                .map(v -> "'" + v + "'")
-                .collect(Collectors.joining(",")));
-        buf.add(");");
-        buf.add("    END IF;");
-        buf.add("END$$;");
-        return buf.toString();
+        sql.append("DO $$\nBEGIN\n    IF NOT EXISTS (SELECT 1 FROM pg_type WHERE typname = ").literal(typeName)
+                .append(") THEN\n        CREATE TYPE ").name(typeName)
+                .append(" AS ENUM(\n").literals(column.getEnumValues())
+                .append("\n);\n    END IF;\nEND$$;");
     }
 
     /**
@@ -342,7 +1067,7 @@ public final class PostgresModeller extends SqlModeller {
         StringBuilder type = new StringBuilder();
         String typeName;
         if (column instanceof EnumColumn) {
-            typeName = "\"" + typeName(column) + "\"";
+            typeName = quote(typeName(column));
         } else if (column instanceof SetColumn) {
             throw new SqlModellerException("SET data types are not supported for Postgres");
         } else if (column instanceof StringColumn) {
@@ -468,14 +1193,16 @@ public final class PostgresModeller extends SqlModeller {
      * @return The SQL query
      */
     private String makeReadEnumQuery(String typeName) {
-        return "select n.nspname as enum_schema,  \n" +
-                "    t.typname as enum_name,\n" +
-                "    string_agg(e.enumlabel, ', ') as enum_value\n" +
-                "from pg_type t \n" +
-                "    join pg_enum e on t.oid = e.enumtypid  \n" +
-                "    join pg_catalog.pg_namespace n ON n.oid = t.typnamespace\n" +
-                "    where t.typname = '" + typeName + "' " +
-                "group by enum_schema, enum_name;";
+        return writer(new StringBuilder())
+                .append("select n.nspname as enum_schema,  \n" +
+                        "    t.typname as enum_name,\n" +
+                        "    string_agg(e.enumlabel, ', ') as enum_value\n" +
+                        "from pg_type t \n" +
+                        "    join pg_enum e on t.oid = e.enumtypid  \n" +
+                        "    join pg_catalog.pg_namespace n ON n.oid = t.typnamespace\n" +
+                        "    where t.typname = ").literal(typeName)
+                .append(" group by enum_schema, enum_name;")
+                .toString();
     }
 
 }
@@ -10,6 +10,7 @@ import org.testcontainers.utility.DockerImageName;
 
 import javax.sql.DataSource;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -19,7 +20,7 @@ import static java.lang.String.format;
 
 class AbstractSqlTest {
 
-    private static DataSource jdbcDataSource;
+    protected static DataSource jdbcDataSource;
     protected static SqlModeller modeller;
     protected static SqlVerifier verifier;
     protected static TestDatabase db = new TestDatabase("neutral");
@@ -53,6 +54,16 @@ class AbstractSqlTest {
                     }
                 });
                 break;
+            case "h2":
+                jdbcDataSource = setupH2DataSource();
+                modeller = SqlModeller.h2(() -> {
+                    try {
+                        return jdbcDataSource.getConnection();
+                    } catch (SQLException ex) {
+                        throw new RuntimeException(ex.getMessage(), ex);
+                    }
+                });
+                break;
             case "mysql":
             default:
                 jdbcDataSource = setupMysqlDataSource();
@@ -95,6 +106,12 @@ class AbstractSqlTest {
         return new HikariDataSource(conf);
     }
 
+    private static DataSource setupH2DataSource() throws SQLException {
+        HikariConfig conf = new HikariConfig();
+        conf.setJdbcUrl("jdbc:h2:mem:neutral;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1");
+        return new HikariDataSource(conf);
+    }
+
     protected boolean isSameTable(Table one, TestTable other) {
         return one.getDatabase().getName().equals(other.getDatabase().getName())
                 && isSameColumns(one.getColumns(), other.getColumns())
@@ -142,11 +159,25 @@ class AbstractSqlTest {
         boolean same = one.getName().equals(other.getName())
                 && (one.isUnique() == other.isUnique());
         if (same) {
-            return isSameColumns(one.getColumns(), other.getColumns());
+            return isSameIndexColumns(one.getColumns(), other.getColumns());
         }
         return false;
     }
 
+    protected boolean isSameIndexColumns(List<Column> one, List<Column> other) {
+        if (one.size() != other.size()) {
+            say("Index columns: one.size %d != other.size %d", one.size(), other.size());
+            return false;
+        }
+        for (int i = 0; i < one.size(); ++i) {
+            if (!isSameColumn(one.get(i), other.get(i))) {
+                say("Index column %d differs", i);
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected boolean isSameColumn(Column one, Column other) {
         boolean same = one.isAutoIncrement() == other.isAutoIncrement()
                 && one.isNullable() == other.isNullable()
@@ -162,9 +193,45 @@ class AbstractSqlTest {
         return same;
     }
 
+    /**
+     * Create tables for a test and delete them after it. Tables left by an earlier run are deleted first. Tables
+     * are created in the given order and deleted in the reverse order, so tables can refer to the ones before them.
+     *
+     * @param test   The test
+     * @param tables The tables
+     * @throws SqlModellerException Thrown if the test fails or the tables cannot be created or deleted
+     */
+    protected void withTables(TableTest test, TestTable... tables) throws SqlModellerException {
+        deleteTables(tables);
+        for (TestTable table : tables) {
+            modeller.createTable(table);
+        }
+        try {
+            test.run();
+        } finally {
+            deleteTables(tables);
+        }
+    }
+
+    private void deleteTables(TestTable... tables) throws SqlModellerException {
+        for (int i = tables.length - 1; i >= 0; --i) {
+            if (modeller.tableExists(tables[i])) {
+                modeller.deleteTable(tables[i]);
+            }
+        }
+    }
+
     protected String makeUnique(int length) {
         return UUID.randomUUID().toString().substring(0,length);
     }
-}
 
+    /**
+     * A test that uses tables created for it.
+     */
+    @FunctionalInterface
+    protected interface TableTest {
+
+        void run() throws SqlModellerException;
 
+    }
+}
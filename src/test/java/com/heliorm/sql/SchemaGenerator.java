@@ -0,0 +1,324 @@
+package com.heliorm.sql;
+
+import java.sql.JDBCType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static java.lang.String.format;
+
+/** Generates table models of any size for scale tests and benchmarks. The same seed and settings always give the
+ * same models, so workloads can be compared across runs and commits.
+ * <p>
+ * Every table has an auto increment primary key column called <code>id</code>, followed by columns of the
+ * configured types, and indexes over one to three of those columns, some of them unique. A generated model can be
+ * drifted, which gives the model of a live schema that differs from it in a controlled number of tables and
+ * changes per table.
+ * <p>
+ * The generator is kept with the tests of the library, which test it, and the benchmarks use it from the test jar.
+ *
+ */
+final class SchemaGenerator {
+
+    /** The kinds of drift between an expected table and its live version */
+    enum Drift {
+        /** A column has a wider or different type */
+        COLUMN_TYPE,
+        /** A column has the opposite nullability */
+        NULLABILITY,
+        /** A column is missing */
+        MISSING_COLUMN,
+        /** An extra column is present */
+        EXTRA_COLUMN,
+        /** An index has different columns */
+        INDEX_COLUMNS,
+        /** An index is missing */
+        MISSING_INDEX;
+    }
+
+    private static final List<String> WORDS = Arrays.asList("NEW", "OPEN", "BUSY", "HELD", "DONE", "LOST", "NORTH",
+            "SOUTH", "EAST", "WEST", "RED", "GREEN", "BLUE");
+    private static final int[] STRING_LENGTHS = {16, 32, 64, 128, 255};
+    private static final JDBCType[] INTEGER_TYPES = {JDBCType.SMALLINT, JDBCType.INTEGER, JDBCType.BIGINT};
+    private static final JDBCType[] TIME_TYPES = {JDBCType.DATE, JDBCType.TIME, JDBCType.TIMESTAMP};
+
+    private final long seed;
+    private int columns = 10;
+    private int indexes = 2;
+    private int maxBits = 1;
+    private List<Class<? extends Column>> columnTypes = Arrays.asList(IntegerColumn.class, StringColumn.class,
+            BinaryColumn.class, DecimalColumn.class, BooleanColumn.class, BitColumn.class, TimeStampColumn.class,
+            EnumColumn.class);
+
+    /** Create a new generator.
+     *
+     * @param seed The seed that determines the generated models
+     */
+    SchemaGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Set the number of columns in each table, including the primary key. The default is 10.
+     *
+     * @param columns The number of columns
+     */
+    void setColumns(int columns) {
+        this.columns = columns;
+    }
+
+    /** Set the number of indexes on each table, not counting the primary key. The default is 2.
+     *
+     * @param indexes The number of indexes
+     */
+    void setIndexes(int indexes) {
+        this.indexes = indexes;
+    }
+
+    /** Set the types of the columns generated after the primary key. The default is all the types supported by
+     * every modeller, which excludes {@link SetColumn} and {@link DateTimeColumn}.
+     *
+     * @param columnTypes The column model interfaces to generate
+     */
+    void setColumnTypes(Collection<Class<? extends Column>> columnTypes) {
+        this.columnTypes = new ArrayList<>(columnTypes);
+    }
+
+    /** Set the largest number of bits of generated bit columns. The default is 1, which every modeller supports.
+     *
+     * @param maxBits The largest number of bits
+     */
+    void setMaxBits(int maxBits) {
+        this.maxBits = maxBits;
+    }
+
+    /** Generate a database model with tables.
+     *
+     * @param name The name of the database
+     * @param tables The number of tables
+     * @return The database model
+     * @throws SqlModellerException Thrown if a model cannot be built
+     */
+    Database generate(String name, int tables) throws SqlModellerException {
+        Random random = new Random(seed);
+        SqlDatabase database = new SqlDatabase(name);
+        for (int i = 0; i < tables; ++i) {
+            database.addTable(generateTable(database, tableName(i), random));
+        }
+        return database;
+    }
+
+    /** Generate the model of a live schema that differs from an expected model. Each table is drifted with the
+     * given probability, and drifted tables get the given number of changes, of kinds chosen at random. The drift
+     * is determined by the seed, like the models.
+     *
+     * @param expected The expected model
+     * @param name The name of the database of the live model
+     * @param fraction The fraction of the tables that differ, from 0 to 1
+     * @param changes The number of changes in each table that differs
+     * @return The live model
+     * @throws SqlModellerException Thrown if a model cannot be built
+     */
+    Database drift(Database expected, String name, double fraction, int changes) throws SqlModellerException {
+        Random random = new Random(~seed);
+        SqlDatabase database = new SqlDatabase(name);
+        for (Table table : expected.getTables()) {
+            if (random.nextDouble() < fraction) {
+                database.addTable(driftTable(database, table, random, changes));
+            } else {
+                database.addTable(SqlTable.copyOf(table, database));
+            }
+        }
+        return database;
+    }
+
+    /** Create the tables of a model in the database of a modeller.
+     *
+     * @param modeller The modeller
+     * @param database The model
+     * @throws SqlModellerException Thrown if a table cannot be created
+     */
+    void createSchema(SqlModeller modeller, Database database) throws SqlModellerException {
+        for (Table table : database.getTables()) {
+            modeller.createTable(table);
+        }
+    }
+
+    /** Get the name of a generated table by its position.
+     *
+     * @param i The position
+     * @return The table name
+     */
+    static String tableName(int i) {
+        return format("t%05d", i);
+    }
+
+    private SqlTable generateTable(Database database, String name, Random random) {
+        SqlTable table = new SqlTable(database, name);
+        table.addColumn(new SqlIntegerColumn(table, "id", JDBCType.BIGINT, false, true, null, true));
+        table.addPrimaryKeyColumn(table.getColumn("id"));
+        List<Column> candidates = new ArrayList<>();
+        for (int i = 1; i < columns; ++i) {
+            Column column = generateColumn(table, format("c%03d", i), columnTypes.get(random.nextInt(columnTypes.size())), random);
+            table.addColumn(column);
+            if (!(column instanceof BinaryColumn)) {
+                candidates.add(column);
+            }
+        }
+        for (int i = 0; i < indexes && !candidates.isEmpty(); ++i) {
+            SqlIndex index = new SqlIndex(table, format("%s_i%02d", name, i), random.nextInt(4) == 0);
+            for (Column column : pick(candidates, 1 + random.nextInt(Math.min(3, candidates.size())), random)) {
+                index.addColunm(column);
+            }
+            table.addIndex(index);
+        }
+        return table;
+    }
+
+    private Column generateColumn(Table table, String name, Class<? extends Column> type, Random random) {
+        boolean nullable = random.nextBoolean();
+        if (type == IntegerColumn.class) {
+            return new SqlIntegerColumn(table, name, INTEGER_TYPES[random.nextInt(INTEGER_TYPES.length)], nullable, false,
+                    random.nextInt(5) == 0 ? Integer.toString(random.nextInt(100)) : null, false);
+        } else if (type == StringColumn.class) {
+            return new SqlStringColumn(table, name, JDBCType.VARCHAR, nullable, false, null, STRING_LENGTHS[random.nextInt(STRING_LENGTHS.length)]);
+        } else if (type == BinaryColumn.class) {
+            return new SqlBinaryColumn(table, name, JDBCType.VARBINARY, nullable, false, null, STRING_LENGTHS[random.nextInt(STRING_LENGTHS.length)]);
+        } else if (type == DecimalColumn.class) {
+            int precision = 8 + random.nextInt(11);
+            return new SqlDecimalColumn(table, name, JDBCType.DECIMAL, nullable, false, null, precision, random.nextInt(5));
+        } else if (type == BooleanColumn.class) {
+            return new SqlBooleanColumn(table, name, nullable, false, null);
+        } else if (type == BitColumn.class) {
+            return new SqlBitColumn(table, name, nullable, false, null, 1 + random.nextInt(maxBits));
+        } else if (type == TimeStampColumn.class) {
+            return new SqlTimeStampColumn(table, name, TIME_TYPES[random.nextInt(TIME_TYPES.length)], nullable, false, null);
+        } else if (type == DateTimeColumn.class) {
+            return new SqlDateTimeColumn(table, name, JDBCType.TIMESTAMP, nullable, false, null);
+        } else if (type == EnumColumn.class) {
+            return new SqlEnumColumn(table, name, nullable, false, null, new LinkedHashSet<>(pick(WORDS, 2 + random.nextInt(4), random)));
+        } else if (type == SetColumn.class) {
+            return new SqlSetColumn(table, name, nullable, false, null, new LinkedHashSet<>(pick(WORDS, 2 + random.nextInt(4), random)));
+        }
+        throw new IllegalArgumentException(format("Unsupported column type %s", type.getSimpleName()));
+    }
+
+    private SqlTable driftTable(Database database, Table expected, Random random, int changes) throws SqlModellerException {
+        SqlTable table = new SqlTable(database, expected.getName());
+        List<Column> columns = new ArrayList<>();
+        for (Column column : expected.getColumns()) {
+            if (!column.isKey()) {
+                columns.add(column);
+            }
+        }
+        List<Index> indexes = new ArrayList<>(expected.getIndexes());
+        // the changes are decided first, and the live table is built from them
+        Map<String, Column> changed = new HashMap<>();
+        Map<String, List<String>> changedIndexes = new HashMap<>();
+        int extra = 0;
+        Drift[] drifts = Drift.values();
+        for (int i = 0; i < changes; ++i) {
+            Drift drift = drifts[random.nextInt(drifts.length)];
+            Column column = columns.isEmpty() ? null : columns.get(random.nextInt(columns.size()));
+            Index index = indexes.isEmpty() ? null : indexes.get(random.nextInt(indexes.size()));
+            if (drift == Drift.COLUMN_TYPE && column != null) {
+                changed.put(column.getName(), widen(table, column));
+            } else if (drift == Drift.MISSING_COLUMN && column != null) {
+                changed.put(column.getName(), null);
+            } else if (drift == Drift.INDEX_COLUMNS && index != null) {
+                List<String> names = new ArrayList<>();
+                for (Column indexColumn : index.getColumns()) {
+                    names.add(0, indexColumn.getName());
+                }
+                if (names.size() == 1) {
+                    names.add(columns.get(random.nextInt(columns.size())).getName());
+                }
+                changedIndexes.put(index.getName(), names);
+            } else if (drift == Drift.MISSING_INDEX && index != null) {
+                changedIndexes.put(index.getName(), null);
+            } else if (drift == Drift.EXTRA_COLUMN) {
+                ++extra;
+            } else if (column != null) {
+                changed.put(column.getName(), SqlColumn.copyOf(column, table, !column.isNullable()));
+            }
+        }
+        for (Column column : expected.getColumns()) {
+            if (!changed.containsKey(column.getName())) {
+                table.addColumn(SqlColumn.copyOf(column, table, column.isNullable()));
+            } else if (changed.get(column.getName()) != null) {
+                table.addColumn(changed.get(column.getName()));
+            }
+        }
+        for (Column column : expected.getPrimaryKey()) {
+            table.addPrimaryKeyColumn(table.getColumn(column.getName()));
+        }
+        for (int i = 0; i < extra; ++i) {
+            table.addColumn(new SqlStringColumn(table, format("x%03d", i), JDBCType.VARCHAR, true, false, null, 64));
+        }
+        for (Index index : expected.getIndexes()) {
+            List<String> names = new ArrayList<>();
+            if (changedIndexes.containsKey(index.getName())) {
+                if (changedIndexes.get(index.getName()) == null) {
+                    continue;
+                }
+                names.addAll(changedIndexes.get(index.getName()));
+            } else {
+                for (Column column : index.getColumns()) {
+                    names.add(column.getName());
+                }
+            }
+            SqlIndex copy = new SqlIndex(table, index.getName(), index.isUnique());
+            for (String name : new LinkedHashSet<>(names)) {
+                if (table.getColumn(name) != null) {
+                    copy.addColunm(table.getColumn(name));
+                }
+            }
+            if (!copy.getColumns().isEmpty()) {
+                table.addIndex(copy);
+            }
+        }
+        return table;
+    }
+
+    /** Create a copy of a column with a wider type, or the opposite nullability if the type cannot be widened.
+     *
+     * @param table The table the copy is in
+     * @param column The column
+     * @return The copy
+     * @throws SqlModellerException Thrown if the column cannot be copied
+     */
+    private Column widen(Table table, Column column) throws SqlModellerException {
+        String name = column.getName();
+        boolean nullable = column.isNullable();
+        if ((column instanceof StringColumn) && (((StringColumn) column).getLength() < 255)) {
+            // kept within 255 characters so that indexes on the column stay within key length limits
+            return new SqlStringColumn(table, name, column.getJdbcType(), nullable, false, column.getDefault(), Math.min(((StringColumn) column).getLength() * 2, 255));
+        } else if (column instanceof DecimalColumn) {
+            DecimalColumn decimal = (DecimalColumn) column;
+            return new SqlDecimalColumn(table, name, column.getJdbcType(), nullable, false, column.getDefault(), decimal.getPrecision() + 2, decimal.getScale());
+        } else if ((column instanceof IntegerColumn) && (column.getJdbcType() != JDBCType.BIGINT)) {
+            return new SqlIntegerColumn(table, name, column.getJdbcType() == JDBCType.SMALLINT ? JDBCType.INTEGER : JDBCType.BIGINT,
+                    nullable, false, column.getDefault(), false);
+        } else if (column instanceof EnumColumn) {
+            Set<String> values = new LinkedHashSet<>(((EnumColumn) column).getEnumValues());
+            values.add("EXTRA");
+            return new SqlEnumColumn(table, name, nullable, false, column.getDefault(), values);
+        }
+        return SqlColumn.copyOf(column, table, !nullable);
+    }
+
+    private static <T> List<T> pick(List<T> from, int count, Random random) {
+        List<T> pool = new ArrayList<>(from);
+        List<T> picked = new ArrayList<>();
+        for (int i = 0; i < count && !pool.isEmpty(); ++i) {
+            picked.add(pool.remove(random.nextInt(pool.size())));
+        }
+        return picked;
+    }
+
+}
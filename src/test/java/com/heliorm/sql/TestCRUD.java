@@ -1,16 +1,45 @@
 package com.heliorm.sql;
 
+import com.heliorm.sql.catalog.Catalog;
+import com.heliorm.sql.h2.H2Modeller;
+import com.heliorm.sql.mysql.MysqlModeller;
+import com.heliorm.sql.postgres.PostgresModeller;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
 import java.sql.JDBCType;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 import static org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 
 @TestMethodOrder(OrderAnnotation.class)
@@ -137,7 +166,7 @@ public class TestCRUD extends AbstractSqlTest {
     }
 
     @Test
-    @Order(30)
+    @Order(27)
     public void addLongTextColumn() throws SqlModellerException {
         TestColumn notes = new TestStringColumn(table, "notes", JDBCType.LONGVARCHAR, 10000);
         TestColumn lnotes = new TestStringColumn(table, "longNotes", JDBCType.LONGVARCHAR, 16 * 1024 * 1024);
@@ -354,6 +383,45 @@ public class TestCRUD extends AbstractSqlTest {
     }
 
 
+    @Test
+    @Order(113)
+    public void changeIndexColumnOrder() throws SqlModellerException {
+        TestIndex index = new TestIndex(table, "index1", false);
+        index.addColumn(table.getColumn("age"));
+        index.addColumn(table.getColumn("fullName"));
+        table.addIndex(index);
+        List<Action> plan = verifier.planDatabaseTable(table);
+        assertEquals(1, plan.size(), "Only the reordered index must be planned");
+        assertEquals(Action.Type.MODIFY_INDEX, plan.get(0).getType());
+        verifier.synchronizeDatabaseTable(table);
+        Table loaded = modeller.readTable(db, "Person");
+        assertEquals("age", loaded.getIndex("index1").getColumns().get(0).getName(), "Index columns must be kept in order");
+        assertTrue(isSameTable(loaded, table), "Table we modified must be the same as the one loaded");
+    }
+
+    @Test
+    @Order(114)
+    public void modifyIndexWithLongName() throws SqlModellerException {
+        TestTable tags = new TestTable(db, "Tag");
+        tags.addColumn(new TestIntegerColumn(tags, "id", JDBCType.INTEGER, false, true, false));
+        tags.addColumn(new TestStringColumn(tags, "name", JDBCType.VARCHAR, 40));
+        // PostgreSQL allows names of 63 characters, so a suffix added to this name would be cut off
+        String name = String.join("", Collections.nCopies(9, "tag_idx")).substring(0, 63);
+        TestIndex index = new TestIndex(tags, name, false);
+        index.addColumn(tags.getColumn("name"));
+        tags.addIndex(index);
+        withTables(() -> {
+            TestIndex unique = new TestIndex(tags, name, true);
+            unique.addColumn(tags.getColumn("name"));
+            tags.addIndex(unique);
+            modeller.modifyIndex(unique);
+            Table loaded = modeller.readTable(db, "Tag");
+            assertNotNull(loaded.getIndex(name), "Index with a name at the length limit must be kept");
+            assertTrue(loaded.getIndex(name).isUnique(), "Index with a name at the length limit must be changed");
+            assertTrue(isSameTable(loaded, tags), "Table we modified must be the same as the one loaded");
+        }, tags);
+    }
+
     @Test
     @Order(120)
     public void addColumnToIndex() throws SqlModellerException {
@@ -390,8 +458,541 @@ public class TestCRUD extends AbstractSqlTest {
         assertTrue(isSameTable(loaded, table), "Table we modified must be the same as the one loaded");
     }
 
+    @Test
+    @Order(131)
+    public void generateSchemaToOutput() throws SqlModellerException {
+        Table loaded = modeller.readTable(db, "Person");
+        StringBuilder out = new StringBuilder();
+        modeller.generateSchema(loaded, out);
+        assertEquals(modeller.generateSchema(loaded), out.toString(), "Schema written to an output must be the same as the one generated");
+    }
+
+    @Test
+    @Order(132)
+    public void generateDatabaseSchema() throws SqlModellerException {
+        TestDatabase database = new TestDatabase(db.getName());
+        database.addTable(modeller.readTable(db, "Person"));
+        StringWriter writer = new StringWriter();
+        modeller.generateSchema(database, writer);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        modeller.generateSchema(database, Channels.newChannel(bytes));
+        assertTrue(writer.toString().contains("CREATE TABLE"), "Schema must create the table");
+        assertEquals(writer.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8), "Schema written to a channel must be the same as the one written to a writer");
+        TestDatabase again = new TestDatabase(db.getName());
+        again.addTable(modeller.readTable(db, "Person"));
+        StringWriter other = new StringWriter();
+        modeller.generateSchema(again, other);
+        assertEquals(writer.toString(), other.toString(), "Databases with the same structure must have the same schema");
+    }
+
+    @Test
+    @Order(133)
+    public void verifyFleet() throws SqlModellerException {
+        assertEquals(modeller.readStructureDigest(table), modeller.readStructureDigest(table), "Digest of a table must not change");
+        FleetVerifier fleet = FleetVerifier.forTenants(Collections.singletonMap(db.getName(), modeller));
+        Map<String, List<Action>> actions = fleet.synchronizeDatabaseTables(Collections.singletonList(table));
+        assertTrue(actions.get(db.getName()).isEmpty(), "Table in sync must not be changed");
+    }
+
+    @Test
+    @Order(134)
+    public void catalogOfLoadedTables() throws SqlModellerException {
+        TestDatabase one = new TestDatabase(db.getName());
+        one.addTable(modeller.readTable(db, "Person"));
+        TestDatabase two = new TestDatabase(db.getName());
+        two.addTable(modeller.readTable(db, "Person"));
+        Catalog catalog = Catalog.of(Collections.singletonList(one));
+        assertEquals(table.getColumns().size(), catalog.getColumnCount(), "Catalog must hold all the columns");
+        Table view = catalog.getDatabase(db.getName()).getTable("Person");
+        assertTrue(isSameTable(view, table), "Table in the catalog must be the same as the one loaded");
+        assertTrue(catalog.findChangedTables(Catalog.of(Collections.singletonList(two))).isEmpty(), "Catalogs of the same table must not differ");
+        assertEquals(Collections.singleton(db.getName() + ".Person"), catalog.findChangedTables(Catalog.of(Collections.singletonList(new TestDatabase(db.getName())))),
+                "Tables missing from a catalog must be found");
+        assertSame(view, catalog.getDatabase(db.getName()).getTable("Person"), "Catalog must return the same table view");
+        assertSame(view.getColumn("name"), view.getColumns().stream().filter(column -> column.getName().equals("name")).findFirst().orElse(null),
+                "Catalog must return the same column view");
+        assertNull(view.getColumn("missing"), "Catalog must not find a missing column");
+        assertThrows(SqlModellerException.class, () -> Catalog.of(Arrays.asList(one, two)), "Catalog must not hold two databases with the same name");
+    }
+
+    @Test
+    @Order(135)
+    public void readTablesShareValues() throws SqlModellerException {
+        Table one = modeller.readTable(db, "Person");
+        Table two = modeller.readTable(db, "Person");
+        for (Column column : one.getColumns()) {
+            Column other = two.getColumn(column.getName());
+            assertSame(column.getName(), other.getName(), "Column names must be shared");
+            if (column instanceof EnumColumn) {
+                assertSame(((EnumColumn) column).getEnumValues(), ((EnumColumn) other).getEnumValues(), "Enum values must be shared");
+            }
+        }
+    }
+
+    @Test
+    @Order(136)
+    public void planAndRejectColumnRewrite() throws SqlModellerException {
+        TestColumn age = new TestIntegerColumn(table, "age", JDBCType.SMALLINT, false, false, false);
+        table.addColumn(age);
+        List<Action> plan = verifier.planDatabaseTable(table);
+        assertEquals(1, plan.size(), "Only the modified column must be planned");
+        assertEquals(Action.Type.MODIFY_COLUMN, plan.get(0).getType());
+        assertEquals(Impact.Algorithm.REWRITE, plan.get(0).getImpact().getAlgorithm(), "Changing the column type must rewrite the table");
+        assertFalse(plan.get(0).isApplied(), "Planned actions must not be applied");
+        verifier.setPolicy(PlanPolicy.rejectOver(0, Impact.Lock.NONE));
+        assertThrows(SqlModellerException.class, () -> verifier.synchronizeDatabaseTable(table), "Rewrite must be rejected by policy");
+        verifier.setPolicy(PlanPolicy.applyAll());
+        List<Action> actions = verifier.synchronizeDatabaseTable(table);
+        assertTrue(actions.get(0).isApplied(), "Action must be applied");
+        Table loaded = modeller.readTable(db, "Person");
+        assertTrue(isSameTable(loaded, table), "Table we synchronized must be the same as the one loaded");
+    }
+
+    @Test
+    @Order(137)
+    public void modifyColumnOnline() throws SqlModellerException {
+        assumeTrue(modeller instanceof MysqlModeller, "Online schema changes are only supported for MySQL");
+        MysqlModeller mysql = (MysqlModeller) modeller;
+        mysql.setOnlineSchemaChange(new BatchSettings());
+        mysql.setVerifyChecksums(true);
+        try {
+            // a column left by an earlier change that failed must not stop the change
+            try (Connection con = jdbcDataSource.getConnection(); Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("ALTER TABLE \"Person\" ADD COLUMN \"age__new\" TEXT");
+            } catch (SQLException ex) {
+                throw new SqlModellerException(ex.getMessage(), ex);
+            }
+            TestColumn age = new TestIntegerColumn(table, "age", JDBCType.BIGINT, false, false, false);
+            table.addColumn(age);
+            List<Action> actions = verifier.synchronizeDatabaseTable(table);
+            assertEquals(1, actions.size(), "Only the modified column must be changed");
+            assertTrue(actions.get(0).isApplied(), "Action must be applied");
+            Table loaded = modeller.readTable(db, "Person");
+            assertTrue(isSameTable(loaded, table), "Table we changed online must be the same as the one loaded");
+        } finally {
+            mysql.setOnlineSchemaChange(null);
+        }
+    }
+
+    @Test
+    @Order(138)
+    public void modifyColumnExpandContract() throws SqlModellerException {
+        assumeTrue(modeller instanceof PostgresModeller, "Expand/contract changes are only supported for PostgreSQL");
+        PostgresModeller postgres = (PostgresModeller) modeller;
+        postgres.setExpandContract(new BatchSettings());
+        try {
+            // a column left by an earlier change that failed must not stop the change
+            try (Connection con = jdbcDataSource.getConnection(); Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("ALTER TABLE \"Person\" ADD COLUMN \"age__new\" TEXT");
+            } catch (SQLException ex) {
+                throw new SqlModellerException(ex.getMessage(), ex);
+            }
+            TestColumn age = new TestIntegerColumn(table, "age", JDBCType.BIGINT, false, false, false);
+            table.addColumn(age);
+            List<Action> actions = verifier.synchronizeDatabaseTable(table);
+            assertEquals(1, actions.size(), "Only the modified column must be changed");
+            assertEquals(Impact.Lock.NONE, actions.get(0).getImpact().getLock(), "Expand/contract must not lock the table while copying");
+            Table loaded = modeller.readTable(db, "Person");
+            assertTrue(isSameTable(loaded, table), "Table we changed must be the same as the one loaded");
+        } finally {
+            postgres.setExpandContract(null);
+        }
+    }
+
+    @Test
+    @Order(139)
+    public void addNotNullColumnWithBackfill() throws SqlModellerException {
+        TestColumn nickname = new TestStringColumn(table, "nickname", JDBCType.VARCHAR, false, null, false, false, 32);
+        table.addColumn(nickname);
+        verifier.setBackfill(column -> column.getName().equals("nickname") ? "'none'" : null, new BatchSettings());
+        try {
+            List<Action> actions = verifier.synchronizeDatabaseTable(table);
+            assertEquals(1, actions.size(), "Only the added column must be changed");
+            assertEquals(Action.Type.ADD_COLUMN, actions.get(0).getType());
+            Table loaded = modeller.readTable(db, "Person");
+            assertTrue(isSameTable(loaded, table), "Table we changed must be the same as the one loaded");
+        } finally {
+            verifier.setBackfill(column -> null, new BatchSettings());
+        }
+    }
+
     @Test
     @Order(140)
+    public void reportTimings() throws SqlModellerException {
+        TestTable timed = new TestTable(db, "timings");
+        timed.addColumn(new TestIntegerColumn(timed, "id", JDBCType.INTEGER, false, true, false));
+        timed.addColumn(new TestStringColumn(timed, "name", JDBCType.VARCHAR, 42));
+        withTables(() -> {
+            List<String> executed = new ArrayList<>();
+            List<String> operations = new ArrayList<>();
+            List<Table> synced = new ArrayList<>();
+            List<String> others = new ArrayList<>();
+            modeller.setListener(ModellerListener.of(new ModellerListener() {
+                @Override
+                public void catalogRead(String operation, String table, long rows, Duration duration, Throwable failure) {
+                    operations.add(operation);
+                }
+
+                @Override
+                public void statementExecuted(String sql, Duration duration, Throwable failure) {
+                    executed.add(sql);
+                }
+
+                @Override
+                public void tableSynchronized(Table table, List<Action> actions, Duration duration, Throwable failure) {
+                    synced.add(table);
+                }
+            }, new ModellerListener() {
+                @Override
+                public void statementExecuted(String sql, Duration duration, Throwable failure) {
+                    others.add(sql);
+                }
+            }));
+            try {
+                timed.addColumn(new TestStringColumn(timed, "remark", JDBCType.VARCHAR, 64));
+                List<Action> actions = verifier.synchronizeDatabaseTable(timed);
+                assertEquals(1, actions.size(), "Only the added column must be changed");
+                assertFalse(actions.get(0).getStatements().isEmpty(), "Action must carry the statements executed");
+                assertEquals(executed, actions.get(0).getStatements(), "Statements executed must be reported");
+                assertEquals(executed, others, "Reports must be passed to all the listeners");
+                assertTrue(operations.contains("readTable"), "Reading the table must be reported");
+                assertTrue(operations.containsAll(Arrays.asList("getPrimaryKeys", "getColumns", "getIndexInfo", "getImportedKeys")),
+                        "Queries made to read the table must be reported");
+                assertEquals(Collections.singletonList(timed), synced, "Synchronizing the table must be reported");
+            } finally {
+                modeller.setListener(ModellerListener.NONE);
+            }
+        }, timed);
+    }
+
+    @Test
+    @Order(141)
+    public void readDatabase() throws SqlModellerException {
+        Database database = modeller.readDatabase(db.getName());
+        Table loaded = database.getTable("Person");
+        assertNotNull(loaded, "Database must contain the table");
+        assertTrue(isSameTable(loaded, table), "Table in the database must be the same as the one loaded");
+    }
+
+    @Test
+    @Order(142)
+    public void readFromReplica() throws SqlModellerException {
+        AtomicInteger replicaReads = new AtomicInteger();
+        modeller.setReadConnections(() -> {
+            replicaReads.incrementAndGet();
+            try {
+                return jdbcDataSource.getConnection();
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        }, Duration.ofHours(1));
+        try {
+            modeller.readTable(db, "Person");
+            assertTrue(replicaReads.get() > 0, "Unchanged table must be read from the replica");
+            Column column = new TestStringColumn(table, "replicated", JDBCType.VARCHAR, 32);
+            modeller.addColumn(column);
+            replicaReads.set(0);
+            Table loaded = modeller.readTable(db, "Person");
+            assertEquals(0, replicaReads.get(), "Changed table must be read from the primary within the lag");
+            assertNotNull(loaded.getColumn("replicated"), "Changed table must contain the new column");
+            modeller.deleteColumn(column);
+        } finally {
+            modeller.setReadConnections(null, Duration.ZERO);
+        }
+    }
+
+    @Test
+    @Order(143)
+    public void synchronizeRenamedColumn() throws SqlModellerException {
+        TestTable renames = new TestTable(db, "Renames");
+        renames.addColumn(new TestIntegerColumn(renames, "id", JDBCType.INTEGER, false, true, true));
+        renames.addColumn(new TestStringColumn(renames, "given_name", JDBCType.VARCHAR, 42));
+        TestIndex index = new TestIndex(renames, "name_idx", false);
+        index.addColumn(renames.getColumn("given_name"));
+        renames.addIndex(index);
+        withTables(() -> {
+            renames.deleteColumn(renames.getColumn("given_name"));
+            renames.addColumn(new TestStringColumn(renames, "first_name", JDBCType.VARCHAR, 42) {
+                @Override
+                public String getRenamedFrom() {
+                    return "given_name";
+                }
+            });
+            TestIndex firstName = new TestIndex(renames, "name_idx", false);
+            firstName.addColumn(renames.getColumn("first_name"));
+            renames.addIndex(firstName);
+            List<Action> actions = verifier.synchronizeDatabaseTable(renames);
+            assertEquals(1, actions.size(), "Renamed column must be one action, without changing the index on it");
+            assertEquals(Action.Type.RENAME_COLUMN, actions.get(0).getType(), "Hinted column must be renamed");
+            assertTrue(isSameTable(modeller.readTable(db, "Renames"), renames), "Table must have the renamed column");
+            renames.deleteColumn(renames.getColumn("first_name"));
+            renames.addColumn(new TestStringColumn(renames, "forename", JDBCType.VARCHAR, 42));
+            TestIndex forename = new TestIndex(renames, "name_idx", false);
+            forename.addColumn(renames.getColumn("forename"));
+            renames.addIndex(forename);
+            verifier.setDetectRenamedColumns(true);
+            try {
+                actions = verifier.synchronizeDatabaseTable(renames);
+                assertEquals(1, actions.size(), "Renamed column must be one action, without changing the index on it");
+                assertEquals(Action.Type.RENAME_COLUMN, actions.get(0).getType(), "Matching column must be renamed");
+                assertTrue(isSameTable(modeller.readTable(db, "Renames"), renames), "Table must have the renamed column");
+            } finally {
+                verifier.setDetectRenamedColumns(false);
+            }
+        }, renames);
+    }
+
+    @Test
+    @Order(144)
+    public void synchronizeRenamedIndex() throws SqlModellerException {
+        TestTable renames = new TestTable(db, "RenamedIndexes");
+        renames.addColumn(new TestIntegerColumn(renames, "id", JDBCType.INTEGER, false, true, true));
+        renames.addColumn(new TestStringColumn(renames, "code", JDBCType.VARCHAR, 16));
+        TestIndex index = new TestIndex(renames, "code_idx", true);
+        index.addColumn(renames.getColumn("code"));
+        renames.addIndex(index);
+        withTables(() -> {
+            TestIndex renamed = new TestIndex(renames, "code_ux", true);
+            renamed.addColumn(renames.getColumn("code"));
+            renames.removeIndex(index);
+            renames.addIndex(renamed);
+            List<Action> actions = verifier.synchronizeDatabaseTable(renames);
+            assertEquals(1, actions.size(), "Renamed index must be one action");
+            assertEquals(Action.Type.RENAME_INDEX, actions.get(0).getType(), "Index with the same definition must be renamed");
+            assertTrue(isSameTable(modeller.readTable(db, "RenamedIndexes"), renames), "Table must have the renamed index");
+        }, renames);
+    }
+
+    @Test
+    @Order(145)
+    public void adviseRedundantIndexes() throws SqlModellerException {
+        TestTable redundant = new TestTable(db, "Redundant");
+        redundant.addColumn(new TestIntegerColumn(redundant, "id", JDBCType.INTEGER, false, true, true));
+        redundant.addColumn(new TestStringColumn(redundant, "surname", JDBCType.VARCHAR, 42));
+        redundant.addColumn(new TestStringColumn(redundant, "forename", JDBCType.VARCHAR, 42));
+        TestIndex names = new TestIndex(redundant, "names", false);
+        names.addColumn(redundant.getColumn("surname"));
+        names.addColumn(redundant.getColumn("forename"));
+        redundant.addIndex(names);
+        withTables(() -> {
+            TestIndex names2 = new TestIndex(redundant, "names2", false);
+            names2.addColumn(redundant.getColumn("surname"));
+            names2.addColumn(redundant.getColumn("forename"));
+            modeller.addIndex(names2);
+            TestIndex surname = new TestIndex(redundant, "surname_idx", false);
+            surname.addColumn(redundant.getColumn("surname"));
+            modeller.addIndex(surname);
+            TestIndex id = new TestIndex(redundant, "id_ux", true);
+            id.addColumn(redundant.getColumn("id"));
+            modeller.addIndex(id);
+            Map<String, IndexAdvice.Reason> reasons = new HashMap<>();
+            for (IndexAdvice advice : IndexAdvisor.forModeller(modeller).advise(redundant)) {
+                reasons.put(advice.getIndex().getName(), advice.getReason());
+            }
+            assertEquals(IndexAdvice.Reason.DUPLICATE, reasons.get("names2"), "Index with the same columns must be a duplicate");
+            assertEquals(IndexAdvice.Reason.LEFT_PREFIX, reasons.get("surname_idx"), "Index on leading columns must be a left prefix");
+            assertEquals(IndexAdvice.Reason.PRIMARY_KEY, reasons.get("id_ux"), "Unique index on the key must be covered by it");
+            assertEquals(3, reasons.size(), "Only redundant indexes must be reported");
+            assertTrue(verifier.planDatabaseTable(redundant).isEmpty(), "Redundant indexes must only be dropped when asked for");
+            verifier.setDropRedundantIndexes(true);
+            try {
+                List<Action> actions = verifier.synchronizeDatabaseTable(redundant);
+                assertEquals(3, actions.size(), "All redundant indexes must be dropped");
+                assertTrue(isSameTable(modeller.readTable(db, "Redundant"), redundant), "Only the indexes in the model must remain");
+            } finally {
+                verifier.setDropRedundantIndexes(false);
+            }
+        }, redundant);
+    }
+
+    @Test
+    @Order(146)
+    public void synchronizeForeignKeys() throws SqlModellerException {
+        TestTable parent = new TestTable(db, "Parent");
+        parent.addColumn(new TestIntegerColumn(parent, "id", JDBCType.INTEGER, false, true, true));
+        TestTable child = new TestTable(db, "Child");
+        child.addColumn(new TestIntegerColumn(child, "id", JDBCType.INTEGER, false, true, true));
+        child.addColumn(new TestIntegerColumn(child, "parent_id", JDBCType.INTEGER, true, false, false));
+        TestForeignKey key = new TestForeignKey(child, "child_parent", "Parent", ForeignKey.Rule.CASCADE, ForeignKey.Rule.NO_ACTION);
+        key.addColumn(child.getColumn("parent_id"), "id");
+        child.addForeignKey(key);
+        withTables(() -> {
+            List<Action> actions = verifier.synchronizeDatabaseTable(child);
+            assertTrue(actions.stream().anyMatch(action -> action.getType() == Action.Type.ADD_FOREIGN_KEY), "Foreign key must be added");
+            if (modeller instanceof PostgresModeller) {
+                assertEquals(Impact.Lock.SHARED, actions.stream().filter(action -> action.getType() == Action.Type.ADD_FOREIGN_KEY)
+                        .findFirst().get().getImpact().getLock(), "Adding a foreign key must block writes");
+            }
+            ForeignKey loaded = modeller.readTable(db, "Child").getForeignKey("child_parent");
+            assertNotNull(loaded, "Table must have the foreign key");
+            assertEquals("Parent", loaded.getReferencedTable(), "Foreign key must refer to the parent table");
+            assertEquals(Collections.singletonList("id"), loaded.getReferencedColumns(), "Foreign key must refer to the parent key");
+            assertEquals("parent_id", loaded.getColumns().get(0).getName(), "Foreign key must be on the referencing column");
+            assertEquals(ForeignKey.Rule.CASCADE, loaded.getOnDelete(), "Foreign key must cascade deletes");
+            assertTrue(verifier.planDatabaseTable(child).isEmpty(), "Table with the foreign key must not be changed");
+            TestForeignKey changed = new TestForeignKey(child, "child_parent", "Parent", ForeignKey.Rule.SET_NULL, ForeignKey.Rule.NO_ACTION);
+            changed.addColumn(child.getColumn("parent_id"), "id");
+            child.addForeignKey(changed);
+            actions = verifier.synchronizeDatabaseTable(child);
+            assertEquals(1, actions.size(), "Changed foreign key must be one action");
+            assertEquals(Action.Type.MODIFY_FOREIGN_KEY, actions.get(0).getType(), "Changed foreign key must be modified");
+            if (modeller instanceof PostgresModeller) {
+                assertEquals(Impact.Lock.EXCLUSIVE, actions.get(0).getImpact().getLock(), "Changing a foreign key must block reads");
+            }
+            assertEquals(ForeignKey.Rule.SET_NULL, modeller.readTable(db, "Child").getForeignKey("child_parent").getOnDelete(),
+                    "Foreign key must set null on delete");
+        }, parent, child);
+    }
+
+    @Test
+    @Order(147)
+    public void synchronizePartitionedTable() throws SqlModellerException {
+        TestTable events = TestSchemaGeneration.makePartitionedTable(db);
+        if (modeller instanceof H2Modeller) {
+            assertThrows(SqlModellerException.class, () -> modeller.createTable(events), "H2 must refuse partitioned tables");
+            return;
+        }
+        withTables(() -> {
+            Partitioning loaded = modeller.readTable(db, "Event").getPartitioning();
+            assertNotNull(loaded, "Table must be partitioned");
+            assertEquals(Partitioning.Type.RANGE, loaded.getType(), "Table must be partitioned by range");
+            assertEquals("day", loaded.getColumns().get(0).getName(), "Table must be partitioned by day");
+            Database read = modeller.readDatabase(db.getName());
+            assertNotNull(read.getTable("Event"), "Partitioned table must be read with the database");
+            assertNull(read.getTable("p1"), "Partitions must not be read as tables");
+            assertTrue(verifier.planDatabaseTable(events).isEmpty(), "Partitioned table must not be changed");
+            TestPartitioning partitioning = new TestPartitioning(Partitioning.Type.RANGE);
+            partitioning.addColumn(events.getColumn("day"));
+            partitioning.addPartition(new TestPartition("p1", "100"));
+            partitioning.addPartition(new TestPartition("p2", "200"));
+            partitioning.addPartition(new TestPartition("pmax"));
+            events.setPartitioning(partitioning);
+            List<Action> actions = verifier.synchronizeDatabaseTable(events);
+            assertEquals(1, actions.size(), "Missing partition must be one action");
+            assertEquals(Action.Type.ADD_PARTITION, actions.get(0).getType(), "Missing partition must be added");
+            List<String> names = new ArrayList<>();
+            for (Partition partition : modeller.readTable(db, "Event").getPartitioning().getPartitions()) {
+                names.add(partition.getName());
+            }
+            assertEquals(Arrays.asList("p1", "p2", "pmax"), names, "Partitions must be in order of their bounds");
+            TestTable unpartitioned = new TestTable(db, "Event");
+            for (Column column : events.getColumns()) {
+                unpartitioned.addColumn(column);
+            }
+            assertTrue(verifier.planDatabaseTable(unpartitioned).isEmpty(), "Partitioned table must not be unpartitioned");
+        }, events);
+    }
+
+    @Test
+    @Order(148)
+    public void maintainPartitions() throws SqlModellerException {
+        PartitionMaintainer maintainer = PartitionMaintainer.forModeller(modeller);
+        maintainer.setClock(Clock.fixed(Instant.parse("2021-01-10T12:00:00Z"), ZoneOffset.UTC));
+        if (modeller instanceof H2Modeller) {
+            assertThrows(SqlModellerException.class, () -> maintainer.maintain(table), "Table that is not partitioned must be refused");
+            return;
+        }
+        TestTable log = new TestTable(db, "Log");
+        log.addColumn(new TestIntegerColumn(log, "id", JDBCType.INTEGER, false, false, false));
+        log.addColumn(new TestDateTimeColumn(log, "day", JDBCType.DATE, false));
+        TestPartitioning partitioning = new TestPartitioning(Partitioning.Type.RANGE);
+        partitioning.addColumn(log.getColumn("day"));
+        partitioning.addPartition(new TestPartition("p20210109", "'2021-01-10'"));
+        partitioning.addPartition(new TestPartition("pmax"));
+        log.setPartitioning(partitioning);
+        withTables(() -> {
+            List<Action> actions = maintainer.maintain(log);
+            assertEquals(4, actions.size(), "Partitions must be created for today and three days ahead");
+            assertTrue(actions.stream().allMatch(action -> action.getType() == Action.Type.ADD_PARTITION), "Partitions must only be added");
+            if (modeller instanceof MysqlModeller) {
+                assertTrue(actions.stream().allMatch(action -> action.getStatements().get(0).contains("REORGANIZE PARTITION `pmax`")),
+                        "Partitions must only be split off the partition that exists in the database");
+            }
+            assertTrue(maintainer.maintain(log).isEmpty(), "Second run must not change anything");
+            maintainer.setClock(Clock.fixed(Instant.parse("2021-01-12T12:00:00Z"), ZoneOffset.UTC));
+            maintainer.setRetention(1);
+            List<Partition> archived = new ArrayList<>();
+            maintainer.setArchiver((t, partition) -> archived.add(partition));
+            actions = maintainer.maintain(log);
+            assertEquals(Arrays.asList(Action.Type.ADD_PARTITION, Action.Type.ADD_PARTITION,
+                    Action.Type.DETACH_PARTITION, Action.Type.DETACH_PARTITION),
+                    actions.stream().map(Action::getType).collect(Collectors.toList()), "Expired partitions must be detached");
+            assertEquals(2, archived.size(), "Expired partitions must be archived first");
+            List<String> names = new ArrayList<>();
+            for (Partition partition : modeller.readTable(db, "Log").getPartitioning().getPartitions()) {
+                names.add(partition.getName());
+            }
+            assertEquals(Arrays.asList("Log_p20210111", "Log_p20210112", "Log_p20210113", "Log_p20210114", "Log_p20210115", "pmax"), names,
+                    "Partitions from the day before to three days ahead must remain");
+            for (Partition partition : archived) {
+                modeller.deleteTable(new TestTable(db, partition.getName()));
+            }
+        }, log);
+    }
+
+    @Test
+    @Order(149)
+    public void readTableIsImmutable() throws SqlModellerException {
+        Table one = modeller.readTable(db, "Person");
+        Table two = modeller.readTable(db, "Person");
+        assertEquals(one, two, "Tables read twice must be equal");
+        assertEquals(one.hashCode(), two.hashCode(), "Tables read twice must have the same hash");
+        assertTrue(one.getColumns() == one.getColumns(), "Columns must not be copied");
+        assertThrows(UnsupportedOperationException.class, () -> one.getColumns().clear(), "Columns must not be modifiable");
+        for (Column column : one.getColumns()) {
+            assertTrue(one.getColumns().contains(column), "Column must be found in its table");
+        }
+    }
+
+    @Test
+    @Order(150)
+    public void probeCapabilities() throws SqlModellerException {
+        ServerCapabilities capabilities = modeller.getCapabilities();
+        assertNotNull(capabilities.getProduct(), "Capabilities must name the product");
+        assertNotNull(capabilities.getVersion(), "Capabilities must have a version");
+        assertSame(capabilities, modeller.getCapabilities(), "Capabilities must only be probed once");
+    }
+
+    @Test
+    @Order(151)
+    public void removeColumnAfterFailedBackfill() throws SqlModellerException {
+        TestTable backfills = new TestTable(db, "backfill");
+        backfills.addColumn(new TestIntegerColumn(backfills, "id", JDBCType.INTEGER, false, true, false));
+        withTables(() -> {
+            try (Connection con = jdbcDataSource.getConnection(); Statement stmt = con.createStatement()) {
+                stmt.executeUpdate("INSERT INTO backfill (id) VALUES (1)");
+            } catch (SQLException ex) {
+                throw new SqlModellerException(ex.getMessage(), ex);
+            }
+            backfills.addColumn(new TestStringColumn(backfills, "code", JDBCType.VARCHAR, false, null, false, false, 16));
+            verifier.setBackfill(column -> column.getName().equals("code") ? "no_such_column" : null, new BatchSettings());
+            try {
+                assertThrows(SqlModellerException.class, () -> verifier.synchronizeDatabaseTable(backfills), "Backfill with a bad expression must fail");
+                assertNull(modeller.readTable(db, "backfill").getColumn("code"), "Column must be removed after a failed backfill");
+                verifier.setBackfill(column -> column.getName().equals("code") ? "'none'" : null, new BatchSettings());
+                verifier.synchronizeDatabaseTable(backfills);
+                assertTrue(isSameTable(modeller.readTable(db, "backfill"), backfills), "Column must be added when the backfill is retried");
+            } finally {
+                verifier.setBackfill(column -> null, new BatchSettings());
+            }
+        }, backfills);
+    }
+
+    @Test
+    @Order(152)
+    public void skipPartitionsMaintainedElsewhere() throws SqlModellerException {
+        assumeFalse(modeller instanceof H2Modeller, "H2 has no named locks, so the lock is always taken");
+        PartitionMaintainer maintainer = PartitionMaintainer.forModeller(modeller);
+        try (SqlLock lock = modeller.tryLock(format("partitions:%s.%s", db.getName(), table.getName()))) {
+            assertNotNull(lock, "Lock must be taken when nobody holds it");
+            assertTrue(maintainer.maintain(table).isEmpty(), "Table must not be maintained while another node holds the lock");
+            assertNull(modeller.tryLock(format("partitions:%s.%s", db.getName(), table.getName())), "Lock must not be taken twice");
+        }
+        assertThrows(SqlModellerException.class, () -> maintainer.maintain(table), "Table must be maintained once the lock is released");
+    }
+
+    @Test
+    @Order(200)
     public void deleteTable() throws SqlModellerException {
         modeller.deleteTable(table);
         assertTrue(!modeller.tableExists(table), "Table must not exist any more");
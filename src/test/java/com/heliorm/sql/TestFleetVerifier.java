@@ -0,0 +1,156 @@
+package com.heliorm.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.JDBCType;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for verifying many databases, which use a separate H2 in-memory database for every tenant.
+ */
+public class TestFleetVerifier {
+
+    @Test
+    public void planOncePerGroup() throws SqlModellerException {
+        Map<String, SqlModeller> tenants = makeTenants("group_one", "group_two", "group_three", "group_four");
+        Map<String, AtomicInteger> reads = new ConcurrentHashMap<>();
+        tenants.forEach((tenant, modeller) -> {
+            AtomicInteger count = new AtomicInteger();
+            reads.put(tenant, count);
+            modeller.setListener(new ModellerListener() {
+                @Override
+                public void catalogRead(String operation, String table, long rows, Duration duration, Throwable failure) {
+                    if (operation.equals("readTable")) {
+                        count.incrementAndGet();
+                    }
+                }
+            });
+        });
+        for (String tenant : new String[]{"group_one", "group_two", "group_three"}) {
+            tenants.get(tenant).createTable(makeAccountTable(tenant, false));
+        }
+        FleetVerifier fleet = FleetVerifier.forTenants(tenants);
+        Map<String, List<Action>> actions = fleet.synchronizeDatabaseTables(Collections.singletonList(makeAccountTable("model", true)));
+        assertEquals(1, reads.get("group_one").get() + reads.get("group_two").get() + reads.get("group_three").get(),
+                "Tables with the same structure must be read once");
+        assertEquals(0, reads.get("group_four").get(), "Missing table must not be read");
+        assertEquals(tenants.keySet(), actions.keySet(), "Actions must be reported for every tenant");
+        for (String tenant : new String[]{"group_one", "group_two", "group_three"}) {
+            assertEquals(1, actions.get(tenant).size(), "Index must be added in every database of the group");
+            assertEquals(Action.Type.ADD_INDEX, actions.get(tenant).get(0).getType(), "Index must be added in every database of the group");
+        }
+        assertEquals(Action.Type.CREATE_TABLE, actions.get("group_four").get(0).getType(), "Missing table must be created");
+        for (String tenant : tenants.keySet()) {
+            for (Action action : actions.get(tenant)) {
+                assertEquals(tenant, action.getDatabase(), "Action must be reported for the database it was applied to");
+                assertTrue(action.isApplied(), "Action must be applied in every database");
+            }
+            Table table = tenants.get(tenant).readTable(new TestDatabase(tenant), "Account");
+            assertNotNull(table.getIndex("name_idx"), "Index must exist in every database");
+        }
+        assertEquals(tenants.get("group_one").readStructureDigest(makeAccountTable("group_one", true)),
+                tenants.get("group_four").readStructureDigest(makeAccountTable("group_four", true)),
+                "Databases must have the same structure after they are changed");
+    }
+
+    @Test
+    public void failTenantsIndependently() throws SqlModellerException {
+        Map<String, SqlModeller> tenants = makeTenants("failure_one", "failure_two");
+        for (String tenant : tenants.keySet()) {
+            tenants.get(tenant).createTable(makeAccountTable(tenant, false));
+        }
+        // the duplicate names only fail the unique index in the second database, which has the same structure
+        execute("failure_two", "INSERT INTO \"Account\" (\"id\", \"name\") VALUES (1, 'same'), (2, 'same')");
+        FleetVerifier fleet = FleetVerifier.forTenants(tenants);
+        SqlModellerException ex = assertThrows(SqlModellerException.class,
+                () -> fleet.synchronizeDatabaseTables(Collections.singletonList(makeAccountTable("model", true))));
+        assertTrue(ex.getMessage().contains("[failure_two]"), "Failure must name the database that failed");
+        assertNotNull(tenants.get("failure_one").readTable(new TestDatabase("failure_one"), "Account").getIndex("name_idx"),
+                "Database that did not fail must be changed");
+        assertNull(tenants.get("failure_two").readTable(new TestDatabase("failure_two"), "Account").getIndex("name_idx"),
+                "Database that failed must not be changed");
+    }
+
+    @Test
+    public void digestColumnOrder() throws SqlModellerException {
+        Map<String, SqlModeller> tenants = makeTenants("order_one", "order_two");
+        TestTable one = makeAccountTable("order_one", false);
+        TestTable two = new TestTable(new TestDatabase("order_two"), "Account");
+        two.addColumn(new TestStringColumn(two, "name", JDBCType.VARCHAR, 40));
+        two.addColumn(new TestIntegerColumn(two, "id", JDBCType.INTEGER, false, true, false));
+        tenants.get("order_one").createTable(one);
+        tenants.get("order_two").createTable(two);
+        assertNotEquals(tenants.get("order_one").readStructureDigest(one), tenants.get("order_two").readStructureDigest(two),
+                "Tables with columns in a different order must have different digests");
+    }
+
+    /**
+     * Make the account table, with or without a unique index on its name.
+     *
+     * @param database The name of the database for the table
+     * @param indexed  True if the name must be indexed
+     * @return The table
+     */
+    private static TestTable makeAccountTable(String database, boolean indexed) {
+        TestTable accounts = new TestTable(new TestDatabase(database), "Account");
+        accounts.addColumn(new TestIntegerColumn(accounts, "id", JDBCType.INTEGER, false, true, false));
+        accounts.addColumn(new TestStringColumn(accounts, "name", JDBCType.VARCHAR, 40));
+        if (indexed) {
+            TestIndex index = new TestIndex(accounts, "name_idx", true);
+            index.addColumn(accounts.getColumn("name"));
+            accounts.addIndex(index);
+        }
+        return accounts;
+    }
+
+    /**
+     * Make the modellers for a number of tenants, each with its own empty in-memory database.
+     *
+     * @param names The names of the databases
+     * @return The modellers, by database name
+     */
+    private static Map<String, SqlModeller> makeTenants(String... names) {
+        Map<String, SqlModeller> tenants = new LinkedHashMap<>();
+        for (String name : names) {
+            tenants.put(name, SqlModeller.h2(() -> {
+                try {
+                    return connect(name);
+                } catch (SQLException ex) {
+                    throw new RuntimeException(ex.getMessage(), ex);
+                }
+            }));
+        }
+        return tenants;
+    }
+
+    private static void execute(String database, String sql) throws SqlModellerException {
+        try (Connection con = connect(database); Statement stmt = con.createStatement()) {
+            stmt.executeUpdate(sql);
+        } catch (SQLException ex) {
+            throw new SqlModellerException(ex.getMessage(), ex);
+        }
+    }
+
+    private static Connection connect(String database) throws SQLException {
+        return DriverManager.getConnection(format("jdbc:h2:mem:%s;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1", database));
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class TestForeignKey implements ForeignKey {
+
+    private final Table table;
+    private final String name;
+    private final String referencedTable;
+    private final Rule onDelete;
+    private final Rule onUpdate;
+    private final List<Column> columns;
+    private final List<String> referencedColumns;
+
+    public TestForeignKey(Table table, String name, String referencedTable, Rule onDelete, Rule onUpdate) {
+        this.table = table;
+        this.name = name;
+        this.referencedTable = referencedTable;
+        this.onDelete = onDelete;
+        this.onUpdate = onUpdate;
+        this.columns = new ArrayList<>();
+        this.referencedColumns = new ArrayList<>();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Table getTable() {
+        return table;
+    }
+
+    @Override
+    public List<Column> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    @Override
+    public String getReferencedTable() {
+        return referencedTable;
+    }
+
+    @Override
+    public List<String> getReferencedColumns() {
+        return new ArrayList<>(referencedColumns);
+    }
+
+    @Override
+    public Rule getOnDelete() {
+        return onDelete;
+    }
+
+    @Override
+    public Rule getOnUpdate() {
+        return onUpdate;
+    }
+
+    void addColumn(Column column, String referencedColumn) {
+        columns.add(column);
+        referencedColumns.add(referencedColumn);
+    }
+}
@@ -1,22 +1,20 @@
 package com.heliorm.sql;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 
 final class TestIndex implements Index {
 
     private final Table table;
     private final String name;
     private final boolean unique;
-    private final Map<String, Column> columns;
+    private final List<Column> columns;
 
     public TestIndex(Table table, String name, boolean unique) {
         this.table = table;
         this.name = name;
         this.unique = unique;
-        this.columns = new HashMap();
+        this.columns = new ArrayList<>();
     }
 
     @Override
@@ -30,8 +28,8 @@ final class TestIndex implements Index {
     }
 
     @Override
-    public Set<Column> getColumns() {
-        return new HashSet<>(columns.values());
+    public List<Column> getColumns() {
+        return new ArrayList<>(columns);
     }
 
     @Override
@@ -40,6 +38,11 @@ final class TestIndex implements Index {
     }
 
     void addColumn(Column column) {
-        columns.put(column.getName(), column);
+        columns.removeIf(col -> col.getName().equals(column.getName()));
+        columns.add(column);
     }
-}
\ No newline at end of file
+
+    void replaceColumn(Column column) {
+        columns.replaceAll(col -> col.getName().equals(column.getName()) ? column : col);
+    }
+}
@@ -0,0 +1,86 @@
+package com.heliorm.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.JDBCType;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for finding redundant indexes, which do not need a database.
+ */
+public class TestIndexAdvisor {
+
+    private static final TestDatabase db = new TestDatabase("neutral");
+
+    @Test
+    public void findRedundantIndexes() {
+        TestTable table = new TestTable(db, "Person");
+        table.addColumn(new TestIntegerColumn(table, "id", JDBCType.INTEGER, false, true, true));
+        table.addColumn(new TestStringColumn(table, "name", JDBCType.VARCHAR, 42));
+        table.addColumn(new TestStringColumn(table, "email", JDBCType.VARCHAR, 42));
+        table.addColumn(new TestIntegerColumn(table, "age", JDBCType.INTEGER));
+        addIndex(table, "name_age", false, "name", "age");
+        addIndex(table, "name_age_copy", false, "name", "age");
+        addIndex(table, "name_idx", false, "name");
+        addIndex(table, "name_unique", true, "name");
+        addIndex(table, "email_idx", false, "email");
+        addIndex(table, "email_unique", true, "email");
+        addIndex(table, "id_idx", false, "id");
+        addIndex(table, "age_name", false, "age", "name");
+        Map<String, IndexAdvice> advice = byIndex(IndexAdvisor.advise(table, Collections.singletonMap("name_idx", 4096L)));
+        assertEquals(IndexAdvice.Reason.DUPLICATE, advice.get("name_age_copy").getReason(), "Later of two duplicate indexes must be redundant");
+        assertEquals("name_age", advice.get("name_age_copy").getCoveringIndex().getName(), "First of two duplicate indexes must be kept");
+        assertEquals(IndexAdvice.Reason.LEFT_PREFIX, advice.get("name_idx").getReason(), "Index on leading columns must be redundant");
+        assertEquals(4096L, advice.get("name_idx").getSize(), "Size of the redundant index must be reported");
+        assertEquals(IndexAdvice.Reason.DUPLICATE, advice.get("email_idx").getReason(), "Index with the same columns as a unique index must be redundant");
+        assertEquals("email_unique", advice.get("email_idx").getCoveringIndex().getName(), "Unique index must be kept");
+        assertEquals(IndexAdvice.Reason.PRIMARY_KEY, advice.get("id_idx").getReason(), "Index on the primary key must be redundant");
+        assertNull(advice.get("id_idx").getCoveringIndex(), "Primary key is not an index");
+        assertEquals(0L, advice.get("id_idx").getSize(), "Unknown sizes must be 0");
+        assertFalse(advice.containsKey("name_unique"), "Unique index on leading columns must be kept, since it enforces more");
+        assertFalse(advice.containsKey("name_age"), "Covering index must be kept");
+        assertFalse(advice.containsKey("age_name"), "Index with the same columns in another order must be kept");
+        assertEquals(4, advice.size(), "Only redundant indexes must be found");
+    }
+
+    @Test
+    public void comparePrimaryKeyInKeyOrder() throws SqlModellerException {
+        SqlTable table = new SqlTable(db, "Visit");
+        table.addColumn(new SqlIntegerColumn(table, "tenant", JDBCType.INTEGER, false, true, null, false));
+        table.addColumn(new SqlIntegerColumn(table, "id", JDBCType.INTEGER, false, true, null, false));
+        // the key starts with the column that comes second in the table
+        table.addPrimaryKeyColumn(table.getColumn("id"));
+        table.addPrimaryKeyColumn(table.getColumn("tenant"));
+        SqlIndex id = new SqlIndex(table, "id_idx", false);
+        id.addColunm(table.getColumn("id"));
+        table.addIndex(id);
+        SqlIndex tenant = new SqlIndex(table, "tenant_idx", false);
+        tenant.addColunm(table.getColumn("tenant"));
+        table.addIndex(tenant);
+        Map<String, IndexAdvice> advice = byIndex(IndexAdvisor.advise(table, Collections.emptyMap()));
+        assertTrue(advice.containsKey("id_idx"), "Index on the leading key column must be redundant");
+        assertFalse(advice.containsKey("tenant_idx"), "Index on a later key column must be kept");
+    }
+
+    private static void addIndex(TestTable table, String name, boolean unique, String... columns) {
+        TestIndex index = new TestIndex(table, name, unique);
+        for (String column : columns) {
+            index.addColumn(table.getColumn(column));
+        }
+        table.addIndex(index);
+    }
+
+    private static Map<String, IndexAdvice> byIndex(List<IndexAdvice> advice) {
+        return advice.stream().collect(Collectors.toMap(item -> item.getIndex().getName(), Function.identity()));
+    }
+
+}
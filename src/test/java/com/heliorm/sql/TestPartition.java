@@ -0,0 +1,26 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+final class TestPartition implements Partition {
+
+    private final String name;
+    private final List<String> values;
+
+    public TestPartition(String name, String... values) {
+        this.name = name;
+        this.values = Arrays.asList(values);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public List<String> getValues() {
+        return new ArrayList<>(values);
+    }
+}
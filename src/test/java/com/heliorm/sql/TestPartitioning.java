@@ -0,0 +1,40 @@
+package com.heliorm.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class TestPartitioning implements Partitioning {
+
+    private final Type type;
+    private final List<Column> columns;
+    private final List<Partition> partitions;
+
+    public TestPartitioning(Type type) {
+        this.type = type;
+        this.columns = new ArrayList<>();
+        this.partitions = new ArrayList<>();
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+    @Override
+    public List<Column> getColumns() {
+        return new ArrayList<>(columns);
+    }
+
+    @Override
+    public List<Partition> getPartitions() {
+        return new ArrayList<>(partitions);
+    }
+
+    void addColumn(Column column) {
+        columns.add(column);
+    }
+
+    void addPartition(Partition partition) {
+        partitions.add(partition);
+    }
+}
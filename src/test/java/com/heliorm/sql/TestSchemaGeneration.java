@@ -0,0 +1,121 @@
+package com.heliorm.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.JDBCType;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for generating schemas, which do not need a database.
+ */
+public class TestSchemaGeneration {
+
+    private static final TestDatabase db = new TestDatabase("neutral");
+
+    @Test
+    public void generatePartitionedSchema() throws SqlModellerException {
+        TestTable events = makePartitionedTable(db);
+        String mysql = SqlModeller.mysql(TestSchemaGeneration::noConnection).generateSchema(events);
+        assertTrue(mysql.contains(" PARTITION BY RANGE COLUMNS(`day`) ("), "MySQL table must be partitioned by range columns");
+        assertTrue(mysql.contains("PARTITION `p1` VALUES LESS THAN (100),PARTITION `pmax` VALUES LESS THAN (MAXVALUE)"),
+                "MySQL partitions must be created with the table");
+        String postgres = SqlModeller.postgres(TestSchemaGeneration::noConnection).generateSchema(events);
+        assertTrue(postgres.contains(" PARTITION BY RANGE (\"day\")"), "PostgreSQL table must be partitioned by range");
+        assertTrue(postgres.contains("CREATE TABLE \"p1\" PARTITION OF \"Event\" FOR VALUES FROM (MINVALUE) TO (100)"),
+                "First PostgreSQL partition must start at the lowest value");
+        assertTrue(postgres.contains("CREATE TABLE \"pmax\" PARTITION OF \"Event\" DEFAULT"),
+                "PostgreSQL partition without bound must be the default");
+    }
+
+    @Test
+    public void escapeDefaultLiterals() throws SqlModellerException {
+        TestTable paths = new TestTable(db, "Path");
+        paths.addColumn(new TestIntegerColumn(paths, "id", JDBCType.INTEGER, false, true, false));
+        paths.addColumn(new TestStringColumn(paths, "dir", JDBCType.VARCHAR, false, "C:\\it's", false, false, 42));
+        String mysql = SqlModeller.mysql(TestSchemaGeneration::noConnection).generateSchema(paths);
+        assertTrue(mysql.contains("DEFAULT 'C:\\\\it''s'"), "MySQL literals must escape quotes and backslashes");
+        String postgres = SqlModeller.postgres(TestSchemaGeneration::noConnection).generateSchema(paths);
+        assertTrue(postgres.contains("DEFAULT 'C:\\it''s'"), "PostgreSQL literals must only escape quotes");
+    }
+
+    @Test
+    public void generateDatabaseSchemaInOrder() throws SqlModellerException {
+        SqlModeller postgres = SqlModeller.postgres(TestSchemaGeneration::noConnection);
+        StringWriter out = new StringWriter();
+        postgres.generateSchema(makeShop("Order", "Customer"), out);
+        String schema = out.toString();
+        int type = schema.indexOf("CREATE TYPE \"Order_state\"");
+        int customers = schema.indexOf("CREATE TABLE \"Customer\"");
+        int orders = schema.indexOf("CREATE TABLE \"Order\"");
+        int index = schema.indexOf("CREATE INDEX \"customer_idx\"");
+        int key = schema.indexOf("ADD CONSTRAINT \"customer_fk\"");
+        assertTrue(type >= 0 && customers >= 0 && orders >= 0 && index >= 0 && key >= 0, "Schema must hold types, tables, indexes and foreign keys");
+        assertTrue(type < customers, "Types must be created before the tables");
+        assertTrue(customers < orders, "Tables must be created in order of name");
+        assertTrue(orders < index, "Indexes must be created after the tables");
+        assertTrue(index < key, "Foreign keys must be added after the indexes");
+        for (SqlModeller modeller : new SqlModeller[]{postgres, SqlModeller.mysql(TestSchemaGeneration::noConnection)}) {
+            StringWriter one = new StringWriter();
+            modeller.generateSchema(makeShop("Order", "Customer"), one);
+            StringWriter two = new StringWriter();
+            modeller.generateSchema(makeShop("Customer", "Order"), two);
+            assertEquals(one.toString(), two.toString(), "Databases with the same structure must have the same schema");
+        }
+    }
+
+    /**
+     * Make a database with customers and their orders, where the orders have an enum state, an index and a
+     * foreign key to the customers. The tables are added in the order given.
+     *
+     * @param names The names of the tables, in the order in which they are added
+     * @return The database
+     */
+    private static TestDatabase makeShop(String... names) {
+        TestDatabase shop = new TestDatabase("neutral");
+        for (String name : names) {
+            TestTable table = new TestTable(shop, name);
+            table.addColumn(new TestIntegerColumn(table, "id", JDBCType.INTEGER, false, true, false));
+            if (name.equals("Order")) {
+                table.addColumn(new TestIntegerColumn(table, "customer", JDBCType.INTEGER));
+                table.addColumn(new TestEnumColumn(table, "state", false, new LinkedHashSet<>(Arrays.asList("OPEN", "PAID"))));
+                TestIndex index = new TestIndex(table, "customer_idx", false);
+                index.addColumn(table.getColumn("customer"));
+                table.addIndex(index);
+                TestForeignKey key = new TestForeignKey(table, "customer_fk", "Customer", ForeignKey.Rule.RESTRICT, ForeignKey.Rule.CASCADE);
+                key.addColumn(table.getColumn("customer"), "id");
+                table.addForeignKey(key);
+            }
+            shop.addTable(table);
+        }
+        return shop;
+    }
+
+    /**
+     * Make a table partitioned by range on an integer column, with one bounded partition and one for the rest.
+     *
+     * @param db The database for the table
+     * @return The table
+     */
+    static TestTable makePartitionedTable(TestDatabase db) {
+        TestTable events = new TestTable(db, "Event");
+        events.addColumn(new TestIntegerColumn(events, "id", JDBCType.INTEGER, false, true, false));
+        events.addColumn(new TestIntegerColumn(events, "day", JDBCType.INTEGER, false, true, false));
+        TestPartitioning partitioning = new TestPartitioning(Partitioning.Type.RANGE);
+        partitioning.addColumn(events.getColumn("day"));
+        partitioning.addPartition(new TestPartition("p1", "100"));
+        partitioning.addPartition(new TestPartition("pmax"));
+        events.setPartitioning(partitioning);
+        return events;
+    }
+
+    private static Connection noConnection() {
+        throw new IllegalStateException("No connection needed");
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.heliorm.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the generator of the schemas used by scale tests and benchmarks.
+ */
+public class TestSchemaGenerator {
+
+    @Test
+    public void generateSameSchemaForSeed() throws SqlModellerException {
+        SchemaGenerator generator = new SchemaGenerator(42);
+        generator.setColumns(8);
+        generator.setIndexes(3);
+        Database one = generator.generate("generated", 20);
+        Database two = generator.generate("generated", 20);
+        assertEquals(20, one.getTables().size(), "Database must have the tables asked for");
+        for (Table table : one.getTables()) {
+            assertEquals(table, two.getTable(table.getName()), "Same seed must give the same tables");
+            assertEquals(8, table.getColumns().size(), "Table must have the columns asked for");
+            assertEquals(3, table.getIndexes().size(), "Table must have the indexes asked for");
+            assertEquals("id", table.getPrimaryKey().get(0).getName(), "Table must have an id key");
+            assertTrue(table.getPrimaryKey().get(0).isAutoIncrement(), "Key must be auto increment");
+        }
+        Database other = new SchemaGenerator(43).generate("generated", 20);
+        assertTrue(one.getTables().stream().anyMatch(table -> !table.equals(other.getTable(table.getName()))),
+                "Different seeds must give different tables");
+    }
+
+    @Test
+    public void driftFractionOfTables() throws SqlModellerException {
+        SchemaGenerator generator = new SchemaGenerator(42);
+        Database expected = generator.generate("generated", 50);
+        Database same = generator.drift(expected, "generated", 0, 3);
+        for (Table table : expected.getTables()) {
+            assertEquals(table, same.getTable(table.getName()), "Tables must not drift without a fraction");
+        }
+        Database live = generator.drift(expected, "generated", 1, 3);
+        long drifted = expected.getTables().stream()
+                .filter(table -> !table.equals(live.getTable(table.getName())))
+                .count();
+        assertTrue(drifted > 40, "Nearly all tables must drift, except where changes cancel out");
+        Database again = generator.drift(expected, "generated", 1, 3);
+        for (Table table : live.getTables()) {
+            assertEquals(table, again.getTable(table.getName()), "Same seed must give the same drift");
+        }
+    }
+
+    @Test
+    public void createGeneratedSchema() throws SqlModellerException {
+        SqlModeller modeller = SqlModeller.h2(() -> {
+            try {
+                return DriverManager.getConnection("jdbc:h2:mem:generated;DATABASE_TO_UPPER=FALSE;DB_CLOSE_DELAY=-1");
+            } catch (SQLException ex) {
+                throw new RuntimeException(ex.getMessage(), ex);
+            }
+        });
+        SchemaGenerator generator = new SchemaGenerator(42);
+        Database expected = generator.generate("generated", 5);
+        generator.createSchema(modeller, expected);
+        SqlVerifier verifier = SqlVerifier.forModeller(modeller);
+        for (Table table : expected.getTables()) {
+            assertTrue(modeller.tableExists(table), "Generated table must be created");
+            assertTrue(verifier.synchronizeDatabaseTable(table).isEmpty(), "Created table must match its model");
+        }
+        assertNotEquals(0, modeller.readDatabase("generated").getTables().size(), "Created tables must be read back");
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.heliorm.sql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the helpers of the modeller that do not need a database.
+ */
+public class TestSqlModeller {
+
+    @Test
+    public void limitName() {
+        assertEquals("_Person_new", SqlModeller.limitName("_Person_new", 64), "Short names must not change");
+        String table = repeat('t', 70);
+        String shadow = SqlModeller.limitName("_" + table + "_new", 64);
+        String old = SqlModeller.limitName("_" + table + "_old", 64);
+        assertEquals(64, shadow.length(), "Long names must be cut to the limit");
+        assertTrue(shadow.startsWith("_ttt"), "Long names must keep their start");
+        assertNotEquals(shadow, old, "Long names that differ at the end must stay different");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "8.0.29, 80029",
+            "5.7.40-log, 50740",
+            "8.0.32-0ubuntu0.22.04.2, 80032",
+            "5.5.5-10.3.2-MariaDB, 50505",
+            "10.3.2-MariaDB, 100302",
+            "10.11.2-MariaDB-1:10.11.2+maria~ubu2204, 101102",
+            "14.5 (Debian 14.5-1.pgdg110+1), 140500",
+            "16beta1, 160000",
+            "9, 90000",
+            "'', 0"
+    })
+    public void versionNumber(String version, int number) {
+        assertEquals(number, SqlModeller.versionNumber(version), "Version number must come from the leading numbers");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "'ALTER TABLE `Person` ADD COLUMN `age` INT', ALTER TABLE",
+            "'  create unique index \"name_idx\" ON \"Person\" (\"name\")', CREATE UNIQUE",
+            "'DROP\tTABLE x', DROP TABLE",
+            "COMMIT, COMMIT"
+    })
+    public void statementKind(String sql, String kind) {
+        assertEquals(kind, ModellerListener.statementKind(sql), "Kind must be the first two words in upper case");
+    }
+
+    private static String repeat(char c, int times) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < times; ++i) {
+            buf.append(c);
+        }
+        return buf.toString();
+    }
+
+}
@@ -1,7 +1,7 @@
 package com.heliorm.sql;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,16 +11,25 @@ class TestTable implements Table {
    private final String name;
    private final Map<String, Column> columns;
    private final Map<String, Index> indexes;
+   private final Map<String, ForeignKey> foreignKeys;
+   private Partitioning partitioning;
 
     public TestTable(Database database, String name) {
         this.database = database;
         this.name = name;
-        this.columns = new HashMap<>();
-        this.indexes = new HashMap<>();
+        this.columns = new LinkedHashMap<>();
+        this.indexes = new LinkedHashMap<>();
+        this.foreignKeys = new LinkedHashMap<>();
     }
 
     void addColumn(Column column) {
         columns.put(column.getName(), column);
+        // indexes refer to the column that is replaced
+        for (Index index : indexes.values()) {
+            if (index instanceof TestIndex) {
+                ((TestIndex) index).replaceColumn(column);
+            }
+        }
     }
 
     void deleteColumn(Column column) {
@@ -35,6 +44,14 @@ class TestTable implements Table {
         indexes.remove(index.getName());
     }
 
+    void addForeignKey(ForeignKey key) {
+        foreignKeys.put(key.getName(), key);
+    }
+
+    void setPartitioning(Partitioning partitioning) {
+        this.partitioning = partitioning;
+    }
+
     @Override
     public Database getDatabase() {
         return database;
@@ -47,7 +64,7 @@ class TestTable implements Table {
 
     @Override
     public Set<Column> getColumns() {
-        return new HashSet<>(columns.values());
+        return new LinkedHashSet<>(columns.values());
     }
 
     @Override
@@ -57,11 +74,26 @@ class TestTable implements Table {
 
     @Override
     public Set<Index> getIndexes() {
-        return new HashSet<>(indexes.values());
+        return new LinkedHashSet<>(indexes.values());
     }
 
     @Override
     public Index getIndex(String name) {
         return indexes.get(name);
     }
+
+    @Override
+    public Set<ForeignKey> getForeignKeys() {
+        return new LinkedHashSet<>(foreignKeys.values());
+    }
+
+    @Override
+    public ForeignKey getForeignKey(String name) {
+        return foreignKeys.get(name);
+    }
+
+    @Override
+    public Partitioning getPartitioning() {
+        return partitioning;
+    }
 }